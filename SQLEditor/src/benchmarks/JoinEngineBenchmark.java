@@ -0,0 +1,119 @@
+package benchmarks;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import columninfo.ColumnProperties;
+import editor.PositionalJoin;
+
+/*
+ * This program compares the two engines TableBuilder uses to create a table
+ * from columns of several tables aligned by row position: the temporary
+ * table engine, which copies each source into a numbered temporary table
+ * and joins the copies through intermediate temporary tables, and the
+ * window engine, which numbers each source with ROW_NUMBER() and joins
+ * them in one statement.  Three source tables of 1, 1/2 and 1/4 of the
+ * given number of rows are created in the database of the JDBC URL, and
+ * each engine builds a table from two columns of each, which is checked
+ * to have as many rows as the largest source.
+ *
+ * Arguments are the JDBC URL, user name, password, and optionally the
+ * number of rows, 4000000 by default.  The server must be MySQL 8.0 or
+ * later and the MySQL driver must be on the classpath.
+ */
+public class JoinEngineBenchmark {
+
+	private static final String[] SOURCES = {"join_bench_a", "join_bench_b", "join_bench_c"};
+	private static final String RESULT = "join_bench_result";
+
+	public static void main(String[] args) throws SQLException{
+		if(args.length < 3){
+			System.out.println("Usage: JoinEngineBenchmark url user password [rows]");
+			return;
+		}
+
+		int rows = args.length > 3 ? Integer.parseInt(args[3]) : 4000000;
+
+		try(Connection connection = DriverManager.getConnection(args[0], args[1], args[2]);
+				Statement statement = connection.createStatement()){
+
+			List<ColumnProperties> columns = createSources(statement, rows);
+
+			//each engine runs twice so that the second timings read sources already in the buffer pool
+			for(int run = 0; run < 2; run++){
+				time(statement, PositionalJoin.TEMP_TABLE_ENGINE, columns, rows);
+				time(statement, PositionalJoin.WINDOW_ENGINE, columns, rows);
+			}
+
+			for(String source : SOURCES)
+				statement.execute("DROP TABLE IF EXISTS " + source + ";");
+
+			statement.execute("DROP TABLE IF EXISTS " + RESULT + ";");
+		}
+	}
+
+	/*
+	 * This function creates the source tables, each with an integer and a
+	 * text column, and returns the columns the new table is built from.
+	 */
+	private static List<ColumnProperties> createSources(Statement statement, int rows)
+			throws SQLException{
+		List<ColumnProperties> columns = new ArrayList<ColumnProperties>();
+
+		statement.execute("SET SESSION cte_max_recursion_depth = " + (rows + 1) + ";");
+
+		for(int i = 0; i < SOURCES.length; i++){
+			String source = SOURCES[i];
+			int sourceRows = rows >> i;
+
+			statement.execute("DROP TABLE IF EXISTS " + source + ";");
+			statement.execute("CREATE TABLE " + source + " (id INT PRIMARY KEY, value" + i
+					+ " INT, label" + i + " VARCHAR(32));");
+
+			long start = System.nanoTime();
+			statement.execute("INSERT INTO " + source + " WITH RECURSIVE seq (n) AS "
+					+ "(SELECT 1 UNION ALL SELECT n + 1 FROM seq WHERE n < " + sourceRows + ") "
+					+ "SELECT n, n*7 % 1000, CONCAT('" + source + " ', n) FROM seq;");
+
+			System.out.println(String.format("%s: %d rows created in %.1f s", source, sourceRows,
+					(System.nanoTime() - start)/1e9));
+
+			columns.add(new ColumnProperties("value" + i, source));
+			columns.add(new ColumnProperties("label" + i, source));
+		}
+
+		return columns;
+	}
+
+	//builds the result table with one engine and prints how long it took
+	private static void time(Statement statement, String engine, List<ColumnProperties> columns,
+			int rows) throws SQLException{
+		statement.execute("DROP TABLE IF EXISTS " + RESULT + ";");
+
+		PositionalJoin join = new PositionalJoin(RESULT);
+
+		long start = System.nanoTime();
+
+		if(engine.equals(PositionalJoin.WINDOW_ENGINE))
+			join.buildWithWindowJoin(statement, columns);
+		else
+			join.buildWithTempTables(statement, columns);
+
+		long nanos = System.nanoTime() - start;
+
+		long resultRows = 0;
+
+		try(ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM " + RESULT + ";")){
+			if(rs.next())
+				resultRows = rs.getLong(1);
+		}
+
+		System.out.println(String.format("%-18s %8.1f s, %d rows%s", engine, nanos/1e9, resultRows,
+				resultRows==rows ? "" : " (expected " + rows + ")"));
+	}
+}
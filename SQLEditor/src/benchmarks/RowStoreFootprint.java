@@ -0,0 +1,114 @@
+package benchmarks;
+
+import java.sql.Types;
+import java.util.Random;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import tabledata.ColumnarTable;
+import tabledata.RowList;
+
+/*
+ * This program measures the heap retained by a loaded table when its rows
+ * are held as lists of strings, as MySQLTableView used to, and when they
+ * are held in a ColumnarTable.  The table has integer columns, low
+ * cardinality text columns, and unique text columns, with some nulls.
+ * The number of rows can be given as the first argument.  Run with a heap
+ * large enough for the string rows, e.g. -Xmx4g.
+ */
+public class RowStoreFootprint {
+
+	private static final int INTEGER_COLUMNS = 10;
+	private static final int CATEGORY_COLUMNS = 6;
+	private static final int TEXT_COLUMNS = 4;
+
+	public static void main(String[] args){
+		int rows = args.length > 0 ? Integer.parseInt(args[0]) : 500000;
+		int columns = INTEGER_COLUMNS + CATEGORY_COLUMNS + TEXT_COLUMNS;
+
+		long base = usedHeap();
+		ObservableList<ObservableList<String>> stringRows = loadStringRows(rows);
+		long stringBytes = usedHeap() - base;
+		System.out.println(stringRows.size() + " rows as lists of strings: " + megabytes(stringBytes));
+		stringRows = null;
+
+		base = usedHeap();
+		RowList columnarRows = loadColumnarRows(rows);
+		long columnarBytes = usedHeap() - base;
+		System.out.println(columnarRows.size() + " rows in a ColumnarTable: " + megabytes(columnarBytes)
+				+ " (estimated " + megabytes(columnarRows.getTable().estimateBytes()) + " in columns)");
+
+		System.out.println(String.format("%d columns, %.1fx less heap, %.0f vs %.0f bytes per row",
+				columns, (double)stringBytes/columnarBytes, (double)stringBytes/rows,
+				(double)columnarBytes/rows));
+	}
+
+	private static ObservableList<ObservableList<String>> loadStringRows(int rows){
+		ObservableList<ObservableList<String>> data = FXCollections.observableArrayList();
+		Random random = new Random(1);
+
+		for(int r = 0; r < rows; r++){
+			ObservableList<String> row = FXCollections.observableArrayList();
+			for(String value : generateRow(random, r))
+				row.add(value);
+			data.add(row);
+		}
+
+		return data;
+	}
+
+	private static RowList loadColumnarRows(int rows){
+		int[] sqlTypes = new int[INTEGER_COLUMNS + CATEGORY_COLUMNS + TEXT_COLUMNS];
+
+		for(int i = 0; i < sqlTypes.length; i++)
+			sqlTypes[i] = i < INTEGER_COLUMNS ? Types.INTEGER : Types.VARCHAR;
+
+		ColumnarTable table = new ColumnarTable(sqlTypes, rows);
+		Random random = new Random(1);
+
+		for(int r = 0; r < rows; r++)
+			table.appendRow(generateRow(random, r));
+
+		RowList data = new RowList();
+		data.addRows(table, 0, rows);
+		return data;
+	}
+
+	//creates the text of one row, as returned by ResultSet.getString
+	private static String[] generateRow(Random random, int r){
+		String[] row = new String[INTEGER_COLUMNS + CATEGORY_COLUMNS + TEXT_COLUMNS];
+		int i = 0;
+
+		row[i++] = Integer.toString(r);
+		while(i < INTEGER_COLUMNS)
+			row[i++] = random.nextInt(20)==0 ? null : Integer.toString(random.nextInt(100000));
+
+		while(i < INTEGER_COLUMNS + CATEGORY_COLUMNS)
+			row[i++] = random.nextInt(20)==0 ? null : "category " + random.nextInt(50);
+
+		while(i < row.length)
+			row[i++] = "value " + r + "-" + Integer.toHexString(random.nextInt());
+
+		return row;
+	}
+
+	private static long usedHeap(){
+		Runtime runtime = Runtime.getRuntime();
+
+		for(int i = 0; i < 5; i++){
+			System.gc();
+			try{
+				Thread.sleep(100);
+			}
+			catch(InterruptedException ex){
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	private static String megabytes(long bytes){
+		return String.format("%.1f MB", bytes/1048576.0);
+	}
+}
@@ -0,0 +1,89 @@
+package benchmarks;
+
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Random;
+
+import editor.CellComparator;
+import tabledata.ColumnarTable;
+import tabledata.RowSorter;
+
+/*
+ * This program compares sorting a column of a loaded table with
+ * CellComparator, as the TableView used to sort the text of its cells,
+ * against sorting the ranks of a ColumnarTable's typed values with a
+ * RowSorter.  The table has an integer column, a double column, a low
+ * cardinality text column and a unique text column.  The number of rows
+ * can be given as the first argument.
+ */
+public class SortBenchmark {
+
+	private static final String[] NAMES = {"integer", "double", "category", "text"};
+
+	public static void main(String[] args){
+		int rows = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+
+		//a smaller run first so that both sorts are compiled before they are timed
+		run(rows/10, false);
+		run(rows, true);
+	}
+
+	private static void run(int rows, boolean print){
+		Random random = new Random(1);
+		ArrayList<String[]> data = new ArrayList<String[]>(rows);
+		ColumnarTable table = new ColumnarTable(
+				new int[]{Types.INTEGER, Types.DOUBLE, Types.VARCHAR, Types.VARCHAR}, rows);
+
+		for(int r = 0; r < rows; r++){
+			String[] row = {Integer.toString(random.nextInt()),
+					random.nextInt(100000) + "." + (1 + random.nextInt(9)),
+					"category " + random.nextInt(100),
+					"value " + Integer.toHexString(random.nextInt()) + "-" + r};
+			data.add(row);
+			table.appendRow(row);
+		}
+
+		int[] order = new int[rows];
+		for(int r = 0; r < rows; r++)
+			order[r] = r;
+
+		if(print)
+			System.out.println(rows + " rows, " + Runtime.getRuntime().availableProcessors() + " processors");
+
+		for(int column = 0; column < NAMES.length; column++){
+			long comparatorNanos = sortWithComparator(data, column);
+
+			//the first sort computes the column's ranks, later sorts reuse them
+			long start = System.nanoTime();
+			RowSorter.sort(table, order, new int[]{column}, new boolean[]{false});
+			long firstNanos = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			RowSorter.sort(table, order, new int[]{column}, new boolean[]{true});
+			long repeatNanos = System.nanoTime() - start;
+
+			if(print)
+				System.out.println(String.format("%-8s CellComparator %7.0f ms, RowSorter %5.0f ms first, %5.0f ms repeated",
+					NAMES[column], comparatorNanos/1e6, firstNanos/1e6, repeatNanos/1e6));
+		}
+
+		long start = System.nanoTime();
+		RowSorter.sort(table, order, new int[]{2, 0}, new boolean[]{false, true});
+
+		if(print)
+			System.out.println(String.format("category, integer descending: RowSorter %.0f ms",
+				(System.nanoTime() - start)/1e6));
+	}
+
+	//sorts the text of one column, as the TableView sorted its cell values
+	private static long sortWithComparator(ArrayList<String[]> data, int column){
+		ArrayList<String> cells = new ArrayList<String>(data.size());
+		for(String[] row : data)
+			cells.add(row[column]);
+
+		long start = System.nanoTime();
+		Collections.sort(cells, new CellComparator());
+		return System.nanoTime() - start;
+	}
+}
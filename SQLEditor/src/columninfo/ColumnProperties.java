@@ -35,6 +35,11 @@ public class ColumnProperties {
 	//constraint
 	StringProperty foreignKey;
 	
+	//type an imported column would be given without narrowing, and the
+	//estimated bytes per row of its type and of that default type
+	StringProperty defaultType = new SimpleStringProperty("");
+	StringProperty sizeEstimate = new SimpleStringProperty("");
+	
 	public ColumnProperties(){
 		columnName = new SimpleStringProperty();
 		tableName = new SimpleStringProperty();
@@ -180,6 +185,35 @@ public class ColumnProperties {
 		return table;
 	}
 	
+	/*
+	 * This function adds read-only columns to a ColumnProperties TableView
+	 * which show each imported column's default type and the estimated size
+	 * of its chosen type next to that of the default type.  Their values
+	 * update as the estimates are changed.
+	 */
+	public static void addEstimateColumns(TableView<ColumnProperties> table){
+		TableColumn<ColumnProperties, String> defaultColumn = 
+				new TableColumn<ColumnProperties, String>("Default Type");
+		
+		TableColumn<ColumnProperties, String> sizeColumn = 
+				new TableColumn<ColumnProperties, String>("Bytes/Row");
+		
+		defaultColumn.setCellValueFactory(param -> param.getValue()==null 
+				? new SimpleStringProperty("") : param.getValue().getDefaultTypeProperty());
+		
+		sizeColumn.setCellValueFactory(param -> param.getValue()==null 
+				? new SimpleStringProperty("") : param.getValue().getSizeEstimateProperty());
+		
+		defaultColumn.setEditable(false);
+		sizeColumn.setEditable(false);
+		defaultColumn.setMinWidth(100);
+		sizeColumn.setMinWidth(120);
+		
+		//shown next to the editable type
+		table.getColumns().add(2, defaultColumn);
+		table.getColumns().add(3, sizeColumn);
+	}
+	
 	public String getName(){
 		return columnName.getValue();
 	}
@@ -261,4 +295,24 @@ public class ColumnProperties {
 	public StringProperty getFullName(){
 		return fullName;
 	}
+	
+	public String getDefaultType(){
+		return defaultType.getValue();
+	}
+	
+	public void setDefaultType(String type){
+		defaultType.setValue(type);
+	}
+	
+	public StringProperty getDefaultTypeProperty(){
+		return defaultType;
+	}
+	
+	public void setSizeEstimate(String estimate){
+		sizeEstimate.setValue(estimate);
+	}
+	
+	public StringProperty getSizeEstimateProperty(){
+		return sizeEstimate;
+	}
 }
\ No newline at end of file
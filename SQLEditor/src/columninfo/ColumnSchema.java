@@ -0,0 +1,120 @@
+package columninfo;
+
+/*
+ * This class holds the information_schema definition of a single MySQL
+ * column, including any primary or foreign key the column belongs to.
+ * Instances are created by the schema cache and should not be modified
+ * by other classes.
+ */
+
+public class ColumnSchema {
+
+	//name of the column
+	String name;
+	
+	//full column type, such as "int(11)" or "varchar(20)"
+	String columnType;
+	
+	//data type without length or attributes, such as "int" or "varchar"
+	String dataType;
+	
+	//position of the column in the table, starting at 1
+	int position;
+	
+	//true if the column allows NULL values
+	boolean nullable;
+	
+	//position in the primary key starting at 1, or 0 if not part of the key
+	int primaryKeyPosition;
+	
+	//table and column referenced by a foreign key, and the key's constraint, null if no constraint
+	String referencedTable;
+	String referencedColumn;
+	String foreignKeyName;
+	
+	//collation of a text column, such as "utf8_general_ci", null for other types
+	String collation;
+
+	public ColumnSchema(String n, String type, String data, int pos, boolean isNullable){
+		name = n;
+		columnType = type;
+		dataType = data;
+		position = pos;
+		nullable = isNullable;
+	}
+	
+	public String getName(){
+		return name;
+	}
+	
+	public String getColumnType(){
+		return columnType;
+	}
+	
+	public String getDataType(){
+		return dataType;
+	}
+	
+	public int getPosition(){
+		return position;
+	}
+	
+	public boolean isNullable(){
+		return nullable;
+	}
+	
+	public boolean isPrimary(){
+		return primaryKeyPosition > 0;
+	}
+	
+	public int getPrimaryKeyPosition(){
+		return primaryKeyPosition;
+	}
+	
+	public boolean isForeign(){
+		return referencedTable!=null;
+	}
+	
+	public String getReferencedTable(){
+		return referencedTable;
+	}
+	
+	public String getReferencedColumn(){
+		return referencedColumn;
+	}
+	
+	public String getForeignKeyName(){
+		return foreignKeyName;
+	}
+	
+	public void setPrimaryKeyPosition(int pos){
+		primaryKeyPosition = pos;
+	}
+	
+	public void setReference(String constraint, String table, String column){
+		foreignKeyName = constraint;
+		referencedTable = table;
+		referencedColumn = column;
+	}
+	
+	public void setCollation(String columnCollation){
+		collation = columnCollation;
+	}
+	
+	public String getCollation(){
+		return collation;
+	}
+	
+	//returns true if comparisons of the column's text ignore case
+	public boolean isCaseInsensitive(){
+		return collation!=null&&collation.endsWith("_ci");
+	}
+	
+	//returns true if the column has a common MySQL numeric type
+	public boolean isNumeric(){
+		String t = dataType.toLowerCase();
+		
+		return t.contains("int")||t.contains("float")||t.contains("double")
+				||t.contains("decimal")||t.contains("numeric")||t.equals("real");
+	}
+}
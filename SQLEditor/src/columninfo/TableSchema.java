@@ -0,0 +1,156 @@
+package columninfo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * This class contains the column and index definitions of a MySQL table as
+ * loaded from information_schema, along with the time they were loaded so
+ * that a cache can decide when the definitions may be out of date.
+ */
+
+public class TableSchema {
+
+	//database containing the table
+	String database;
+	
+	//name of the table
+	String name;
+	
+	//column definitions in ordinal position order
+	ArrayList<ColumnSchema> columns = new ArrayList<ColumnSchema>();
+	
+	//columns of each index in index order, keyed by index name
+	LinkedHashMap<String, List<String>> indexes = new LinkedHashMap<String, List<String>>();
+	
+	//System.currentTimeMillis() when the definitions were loaded
+	long loadedAt;
+	
+	public TableSchema(String db, String n){
+		database = db;
+		name = n;
+		loadedAt = System.currentTimeMillis();
+	}
+	
+	public String getDatabase(){
+		return database;
+	}
+	
+	public String getName(){
+		return name;
+	}
+	
+	public long getLoadedAt(){
+		return loadedAt;
+	}
+	
+	public List<ColumnSchema> getColumns(){
+		return Collections.unmodifiableList(columns);
+	}
+	
+	public void addColumn(ColumnSchema c){
+		columns.add(c);
+	}
+	
+	//returns the column with the name parameter, or null if it does not exist
+	public ColumnSchema getColumn(String columnName){
+		for(ColumnSchema c : columns){
+			if(c.getName().equalsIgnoreCase(columnName))
+				return c;
+		}
+		return null;
+	}
+	
+	//adds the next column of an index
+	public void addIndexColumn(String index, String column){
+		indexes.computeIfAbsent(index, k -> new ArrayList<String>()).add(column);
+	}
+	
+	public Map<String, List<String>> getIndexes(){
+		return Collections.unmodifiableMap(indexes);
+	}
+	
+	/*
+	 * This function returns the name of an index which MySQL can read in
+	 * order to return rows sorted by "sortColumns", or null if there is none
+	 * and the rows must be sorted after they are read.  Leading index columns
+	 * in "equalityColumns" are fixed by the query's conditions and can be
+	 * skipped.  Secondary indexes end with the primary key, as in InnoDB.
+	 * An index can only be read in one direction, so a sort mixing ascending
+	 * and descending columns is not covered.
+	 */
+	public String findSortIndex(List<String> sortColumns, List<String> equalityColumns, 
+			boolean uniformDirection){
+		
+		if(!uniformDirection||sortColumns.isEmpty())
+			return null;
+		
+		List<String> primaryKey = getPrimaryKey();
+		
+		for(Map.Entry<String, List<String>> index : indexes.entrySet()){
+			ArrayList<String> indexColumns = new ArrayList<String>(index.getValue());
+			
+			if(!index.getKey().equals("PRIMARY")){
+				for(String k : primaryKey){
+					if(!containsIgnoreCase(indexColumns, k))
+						indexColumns.add(k);
+				}
+			}
+			
+			int start = 0;
+			while(start < indexColumns.size()&&containsIgnoreCase(equalityColumns, indexColumns.get(start))
+					&&!indexColumns.get(start).equalsIgnoreCase(sortColumns.get(0)))
+				start++;
+			
+			if(indexColumns.size() - start < sortColumns.size())
+				continue;
+			
+			boolean covered = true;
+			for(int i = 0; i < sortColumns.size()&&covered; i++)
+				covered = indexColumns.get(start + i).equalsIgnoreCase(sortColumns.get(i));
+			
+			if(covered)
+				return index.getKey();
+		}
+		
+		return null;
+	}
+	
+	private static boolean containsIgnoreCase(List<String> names, String name){
+		for(String n : names){
+			if(n.equalsIgnoreCase(name))
+				return true;
+		}
+		return false;
+	}
+	
+	//returns true if no columns were found for the table
+	public boolean isEmpty(){
+		return columns.isEmpty();
+	}
+	
+	/*
+	 * This function returns the names of the columns in the table's primary
+	 * key in key order, or an empty list if the table has no primary key.
+	 */
+	public List<String> getPrimaryKey(){
+		ArrayList<ColumnSchema> keyColumns = new ArrayList<ColumnSchema>();
+		
+		for(ColumnSchema c : columns){
+			if(c.isPrimary())
+				keyColumns.add(c);
+		}
+		
+		Collections.sort(keyColumns, (c1, c2) -> 
+			c1.getPrimaryKeyPosition() - c2.getPrimaryKeyPosition());
+		
+		ArrayList<String> names = new ArrayList<String>();
+		for(ColumnSchema c : keyColumns)
+			names.add(c.getName());
+		
+		return names;
+	}
+}
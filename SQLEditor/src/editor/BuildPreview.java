@@ -0,0 +1,293 @@
+package editor;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import columninfo.ColumnProperties;
+import importer.ColumnStats;
+import javafx.application.Platform;
+import javafx.beans.value.ObservableValue;
+import javafx.scene.control.Label;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableColumn.CellDataFeatures;
+import javafx.scene.control.TableView;
+import javafx.scene.layout.VBox;
+import javafx.util.Callback;
+import tabledata.CellValue;
+import tabledata.ColumnarTable;
+import tabledata.RowView;
+
+/*
+ * This class shows the first rows of the table TableBuilder would create,
+ * before it is created.  The build's SELECT is run with each source read
+ * only up to a LIMIT, so the preview costs no more than reading that many
+ * rows of each table, and its rows are shown in a grid of RowViews like a
+ * MySQLTableView.  Below the grid are the estimated rows and size of the
+ * whole table: rows are taken from the sources' table statistics, or for a
+ * foreign key join from the server's EXPLAIN of the join, and the size is
+ * the rows times an estimated row length.  The row length is the sum of
+ * each source's average row length from its table statistics, scaled to
+ * the share of its columns which are selected, or if the server has no
+ * statistics for the sources, the average length of the rows previewed.
+ *
+ * A positional preview numbers each source's rows with ROW_NUMBER(), or on
+ * servers without window functions, with a user variable.
+ */
+public class BuildPreview extends VBox {
+
+	public static final int DEFAULT_ROWS = 100;
+
+	private SessionConfig session;
+
+	private TableView<RowView> grid = new TableView<RowView>();
+	private Label summary = new Label();
+
+	//rows read from each source
+	private int sampleRows = DEFAULT_ROWS;
+
+	//number of the latest preview, so that slower earlier ones are not shown over it
+	private int generation = 0;
+
+	public BuildPreview(SessionConfig currentSession){
+		super(5);
+		session = currentSession;
+
+		grid.setPrefHeight(200);
+		grid.setPlaceholder(new Label("Press Preview to show the first rows of the table"));
+
+		getChildren().addAll(grid, summary);
+	}
+
+	public void setSampleRows(int rows){
+		sampleRows = Math.max(1, rows);
+	}
+
+	/*
+	 * This function previews the table built from the columns "cols" with
+	 * the engine "engine", reading the sources in the background.
+	 */
+	public void refresh(String tableName, List<ColumnProperties> cols, String engine){
+		int current = ++generation;
+
+		if(cols.isEmpty()){
+			grid.getColumns().clear();
+			grid.getItems().clear();
+			summary.setText("");
+			return;
+		}
+
+		//columns are copied since the user may change them while the preview runs
+		List<ColumnProperties> columns = new ArrayList<ColumnProperties>(cols);
+		int rows = sampleRows;
+
+		summary.setText("Reading the first " + rows + " rows...");
+
+		QueryExecutor.runInBackground(() -> {
+			ColumnarTable sample = null;
+			List<String> labels = new ArrayList<String>();
+			String message;
+
+			try(Connection connection = session.getConnection(session.getDatabase());
+					Statement statement = connection.createStatement()){
+				long estimatedRows;
+				String selectString;
+				Map<String, SourceStats> sources = getSourceStats(connection, columns);
+
+				if(KeyJoin.isKeyEngine(engine)){
+					KeyJoin join = KeyJoin.find(session.getSchemaCache(), tableName, columns,
+							engine.equals(KeyJoin.LEFT_ENGINE));
+
+					if(join==null)
+						throw new SQLException("The selected tables are not all connected by foreign keys");
+
+					selectString = join.getSelectString() + " LIMIT " + rows;
+					estimatedRows = join.estimateRows(statement);
+				}
+				else{
+					Map<String, Long> tableRows = new HashMap<String, Long>();
+
+					for(Map.Entry<String, SourceStats> source : sources.entrySet())
+						tableRows.put(source.getKey(), source.getValue().rows);
+
+					selectString = new PositionalJoin(tableName, session.getSchemaCache())
+							.getSampleSelectString(columns, tableRows, rows, 
+									PositionalJoin.supportsWindowFunctions(connection));
+
+					//rows are aligned by position, so there are as many as in the largest source
+					estimatedRows = 0;
+
+					for(Long r : tableRows.values())
+						estimatedRows = Math.max(estimatedRows, r);
+				}
+
+				try(ResultSet rs = statement.executeQuery(selectString + ";")){
+					ResultSetMetaData meta = rs.getMetaData();
+					sample = ColumnarTable.forResult(meta, rows);
+
+					for(int i = 1; i <= meta.getColumnCount(); i++)
+						labels.add(meta.getColumnLabel(i));
+
+					while(rs.next())
+						sample.appendRow(rs);
+				}
+
+				message = getSummary(sample, estimatedRows, getRowLength(sources));
+			}
+			catch(SQLException ex){
+				ex.printStackTrace();
+				message = "Preview failed: " + ex.getMessage();
+			}
+
+			ColumnarTable result = sample;
+			String text = message;
+
+			Platform.runLater(() -> {
+				if(current!=generation)
+					return;
+
+				showRows(result, labels);
+				summary.setText(text);
+			});
+		});
+	}
+
+	/*
+	 * This function returns the statistics of each source of "cols" from
+	 * information_schema, whose row counts InnoDB keeps as an estimate, with
+	 * the number of the source's columns which are selected.
+	 */
+	private Map<String, SourceStats> getSourceStats(Connection connection, List<ColumnProperties> cols)
+			throws SQLException{
+		Map<String, SourceStats> sources = new HashMap<String, SourceStats>();
+
+		for(ColumnProperties c : cols){
+			if(!sources.containsKey(c.getTable()))
+				sources.put(c.getTable(), new SourceStats());
+
+			sources.get(c.getTable()).selectedColumns++;
+		}
+
+		String placeholders = String.join(", ", Collections.nCopies(sources.size(), "?"));
+
+		try(PreparedStatement statement = connection.prepareStatement("SELECT t.TABLE_NAME, "
+				+ "t.TABLE_ROWS, t.AVG_ROW_LENGTH, (SELECT COUNT(*) FROM information_schema.COLUMNS c "
+				+ "WHERE c.TABLE_SCHEMA = t.TABLE_SCHEMA AND c.TABLE_NAME = t.TABLE_NAME) "
+				+ "FROM information_schema.TABLES t WHERE t.TABLE_SCHEMA = ? "
+				+ "AND t.TABLE_NAME IN (" + placeholders + ");")){
+			int parameter = 1;
+			statement.setString(parameter++, session.getDatabase());
+
+			for(String table : sources.keySet())
+				statement.setString(parameter++, table);
+
+			try(ResultSet rs = statement.executeQuery()){
+				while(rs.next()){
+					SourceStats source = sources.get(rs.getString(1));
+
+					if(source!=null){
+						source.rows = rs.getLong(2);
+						source.rowLength = rs.getLong(3);
+						source.columns = rs.getInt(4);
+					}
+				}
+			}
+		}
+
+		return sources;
+	}
+
+	/*
+	 * This function returns the estimated length of a row of the table: the
+	 * sum of each source's average row length, scaled to the share of its
+	 * columns which are selected, or 0 if no source has statistics.
+	 */
+	private static double getRowLength(Map<String, SourceStats> sources){
+		double rowLength = 0;
+
+		for(SourceStats source : sources.values()){
+			if(source.columns > 0)
+				rowLength += (double)source.rowLength*Math.min(source.selectedColumns, source.columns)
+						/source.columns;
+		}
+
+		return rowLength;
+	}
+
+	/*
+	 * This function returns the rows previewed and the estimated rows and
+	 * size of the table, with rows of "rowLength" bytes.  If "rowLength" is
+	 * 0, each row previewed is counted as InnoDB's row overhead and null
+	 * bitmap and the length of its values as text.
+	 */
+	private static String getSummary(ColumnarTable sample, long estimatedRows, double rowLength){
+		int columns = sample.getColumnCount();
+		double sampleBytes = 0;
+
+		for(int row = 0; row < sample.getRowCount(); row++){
+			sampleBytes += ColumnStats.ROW_OVERHEAD + (columns + 7)/8;
+
+			for(int column = 0; column < columns; column++){
+				String text = sample.getText(row, column);
+
+				if(text!=null)
+					sampleBytes += text.length();
+			}
+		}
+
+		if(sample.getRowCount()==0)
+			return String.format("No rows previewed, estimated %,d rows", estimatedRows);
+
+		double rowBytes = rowLength > 0 ? rowLength : sampleBytes/sample.getRowCount();
+
+		return String.format("First %d rows, estimated %,d rows of %.0f B, table size %s",
+				sample.getRowCount(), estimatedRows, rowBytes,
+				FileImporter.formatBytes(rowBytes*estimatedRows));
+	}
+
+	//shows the rows of "sample" under the column names "labels", or clears the grid if there are none
+	private void showRows(ColumnarTable sample, List<String> labels){
+		grid.getColumns().clear();
+		grid.getItems().clear();
+
+		if(sample==null)
+			return;
+
+		for(int i = 0; i < sample.getColumnCount(); i++)
+			grid.getColumns().add(createColumn(labels.get(i), i));
+
+		for(int row = 0; row < sample.getRowCount(); row++)
+			grid.getItems().add(sample.getRow(row));
+	}
+
+	private static TableColumn<RowView, String> createColumn(String name, int index){
+		TableColumn<RowView, String> col = new TableColumn<RowView, String>(name);
+		col.setSortable(false);
+
+		col.setCellValueFactory(new Callback<CellDataFeatures<RowView, String>, ObservableValue<String>>()
+		{
+			public ObservableValue<String> call(CellDataFeatures<RowView, String> param){
+				return new CellValue(param.getValue(), index);
+			}
+		});
+
+		return col;
+	}
+
+	//table statistics of a source, and the number of its columns selected
+	private static class SourceStats{
+
+		long rows = 0;
+		long rowLength = 0;
+		int columns = 0;
+		int selectedColumns = 0;
+	}
+}
@@ -0,0 +1,388 @@
+package editor;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * This class fills a table created empty by TableBuilder with INSERT ...
+ * SELECT statements which each copy one chunk of rows, so that no single
+ * statement holds locks or builds undo for the whole table.  Every source
+ * which is read in chunks is walked in order of its primary key, and each
+ * chunk reads the next "chunk size" keys of each, found by an index range
+ * scan.  Each chunk commits on its own, and the key ranges are only
+ * advanced once it has, so a copy which is cancelled or fails resumes with
+ * the chunk it was copying.
+ *
+ * Before each chunk the server's load is checked, and while
+ * Threads_running or, if the server is a replica, its replication lag is
+ * above its limit, the copy waits with an increasing backoff.  After each
+ * chunk it sleeps for a fixed pause, to leave room for other clients.
+ */
+public class ChunkedCopy {
+
+	public static final int DEFAULT_CHUNK_SIZE = 10000;
+	public static final int DEFAULT_SLEEP_MILLIS = 50;
+	public static final int DEFAULT_MAX_THREADS_RUNNING = 25;
+	public static final int DEFAULT_MAX_REPLICA_LAG = 10;
+
+	//first and longest waits while the server is overloaded
+	private static final long MIN_BACKOFF_MILLIS = 250;
+	private static final long MAX_BACKOFF_MILLIS = 8000;
+
+	private SessionConfig session;
+	private String database;
+	private String newTableName;
+
+	//columns of the new table the SELECT fills, in order
+	private List<String> columns;
+
+	//key range of each source read in chunks, the first of which drives the copy
+	private List<KeyRange> ranges;
+
+	//builds the SELECT of one chunk from the current key ranges
+	private ChunkQuery query;
+
+	private int chunkSize = DEFAULT_CHUNK_SIZE;
+	private long sleepMillis = DEFAULT_SLEEP_MILLIS;
+	private int maxThreadsRunning = DEFAULT_MAX_THREADS_RUNNING;
+
+	//seconds of replication lag the copy waits for, or 0 to not check, and false
+	//once the server has refused to report its replica status
+	private int maxReplicaLag = DEFAULT_MAX_REPLICA_LAG;
+	private boolean checkReplicaLag = true;
+
+	private ProgressListener listener;
+
+	//rows and chunks copied so far, over every run
+	private long rowsCopied = 0;
+	private long chunks = 0;
+
+	private boolean finished = false;
+	private volatile boolean cancelled = false;
+
+	//chunk being copied, cancelled with the copy
+	private volatile Statement running;
+
+	public ChunkedCopy(SessionConfig currentSession, String databaseName, String tableName,
+			List<String> columnNames, List<KeyRange> keyRanges, ChunkQuery chunkQuery){
+		session = currentSession;
+		database = databaseName;
+		newTableName = tableName;
+		columns = new ArrayList<String>(columnNames);
+		ranges = keyRanges;
+		query = chunkQuery;
+	}
+
+	public void setChunkSize(int rows){
+		chunkSize = Math.max(1, rows);
+	}
+
+	public void setSleepMillis(long millis){
+		sleepMillis = Math.max(0, millis);
+	}
+
+	public void setMaxThreadsRunning(int threads){
+		maxThreadsRunning = Math.max(1, threads);
+	}
+
+	//sets the replication lag, in seconds, above which the copy waits, or 0 to ignore lag
+	public void setMaxReplicaLag(int seconds){
+		maxReplicaLag = Math.max(0, seconds);
+	}
+
+	public void setProgressListener(ProgressListener progressListener){
+		listener = progressListener;
+	}
+
+	public String getTable(){
+		return newTableName;
+	}
+
+	public String getDatabase(){
+		return database;
+	}
+
+	public long getRowsCopied(){
+		return rowsCopied;
+	}
+
+	public boolean isFinished(){
+		return finished;
+	}
+
+	//stops the copy, rolling back the chunk being copied
+	public void cancel(){
+		cancelled = true;
+
+		Statement statement = running;
+
+		if(statement!=null){
+			try{
+				statement.cancel();
+			}
+			catch(SQLException ex){
+				ex.printStackTrace();
+			}
+		}
+	}
+
+	/*
+	 * This function copies chunks until every row of the first source has
+	 * been copied, returning true, or the copy is cancelled, returning false.
+	 * A later call resumes after the last chunk copied.
+	 */
+	public boolean run() throws SQLException{
+		cancelled = false;
+
+		try(Connection connection = session.getConnection(database);
+				Statement statement = connection.createStatement()){
+
+			while(!cancelled){
+				waitForLoad(statement);
+
+				if(cancelled)
+					break;
+
+				for(KeyRange range : ranges)
+					range.findUpper(connection, chunkSize);
+
+				if(ranges.get(0).isExhausted()){
+					finished = true;
+					break;
+				}
+
+				long start = System.nanoTime();
+				int rows;
+
+				try(PreparedStatement insert = connection.prepareStatement("INSERT INTO "
+						+ newTableName + " (" + String.join(", ", columns) + ") "
+						+ query.getSelectString(ranges) + ";")){
+					int parameter = 1;
+
+					for(KeyRange range : ranges)
+						parameter = range.bind(insert, parameter);
+
+					running = insert;
+					rows = insert.executeUpdate();
+				}
+				catch(SQLException ex){
+					//a cancelled chunk is rolled back and copied again on resume
+					if(cancelled)
+						break;
+
+					throw ex;
+				}
+				finally{
+					running = null;
+				}
+
+				long chunkMillis = (System.nanoTime() - start)/1000000;
+
+				for(KeyRange range : ranges)
+					range.advance();
+
+				rowsCopied += rows;
+				chunks++;
+
+				report(chunkMillis, "Copying");
+
+				if(sleepMillis > 0)
+					pause(sleepMillis);
+			}
+		}
+
+		report(0, finished ? "Finished" : "Cancelled");
+
+		return finished;
+	}
+
+	/*
+	 * This function waits while the server is overloaded, doubling the wait
+	 * each time it is checked, until it is not or the copy is cancelled.
+	 */
+	private void waitForLoad(Statement statement) throws SQLException{
+		long backoff = MIN_BACKOFF_MILLIS;
+
+		String overload;
+
+		while(!cancelled&&(overload = getOverload(statement))!=null){
+			report(0, "Paused: " + overload);
+			pause(backoff);
+			backoff = Math.min(backoff*2, MAX_BACKOFF_MILLIS);
+		}
+	}
+
+	//returns why the server is too busy for another chunk, or null if it is not
+	private String getOverload(Statement statement) throws SQLException{
+		try(ResultSet rs = statement.executeQuery("SHOW GLOBAL STATUS LIKE 'Threads_running';")){
+			if(rs.next()&&rs.getLong(2) > maxThreadsRunning)
+				return "Threads_running " + rs.getLong(2) + " > " + maxThreadsRunning;
+		}
+
+		if(maxReplicaLag==0||!checkReplicaLag)
+			return null;
+
+		Long lag = getReplicaLag(statement);
+
+		if(lag!=null&&lag > maxReplicaLag)
+			return "replication lag " + lag + " s > " + maxReplicaLag + " s";
+
+		return null;
+	}
+
+	/*
+	 * This function returns the server's replication lag in seconds, or null
+	 * if it is not a replica or its replication is stopped.  Lag checks are
+	 * turned off if the user may not read the replica status.
+	 */
+	private Long getReplicaLag(Statement statement){
+		//servers before MySQL 8.0.22 only know the older statement and column names
+		String[][] queries = {{"SHOW REPLICA STATUS;", "Seconds_Behind_Source"},
+				{"SHOW SLAVE STATUS;", "Seconds_Behind_Master"}};
+
+		for(String[] q : queries){
+			try(ResultSet rs = statement.executeQuery(q[0])){
+				if(!rs.next())
+					return null;
+
+				long lag = rs.getLong(q[1]);
+				return rs.wasNull() ? null : lag;
+			}
+			catch(SQLException ex){
+				//try the older statement
+			}
+		}
+
+		checkReplicaLag = false;
+		return null;
+	}
+
+	private void pause(long millis){
+		try{
+			Thread.sleep(millis);
+		}
+		catch(InterruptedException ex){
+			Thread.currentThread().interrupt();
+			cancelled = true;
+		}
+	}
+
+	private void report(long chunkMillis, String status){
+		if(listener!=null)
+			listener.progress(rowsCopied, chunks, chunkMillis, status);
+	}
+
+	/*
+	 * This class is the range of primary keys of one source which the
+	 * current chunk reads: after the last key of the previous chunk, up to
+	 * and including the key "chunk size" keys later, or the last key.
+	 */
+	public static class KeyRange{
+
+		private String table;
+		private String key;
+
+		//key as it is named in the chunk's SELECT, such as t0.id
+		private String qualifiedKey;
+
+		//last key copied, or null before the first chunk, and last key of the current chunk
+		private Object lower;
+		private Object upper;
+
+		private boolean exhausted = false;
+
+		public KeyRange(String tableName, String keyColumn, String keyInQuery){
+			table = tableName;
+			key = keyColumn;
+			qualifiedKey = keyInQuery;
+		}
+
+		/*
+		 * This function finds the last key of the next chunk, which is the
+		 * key "chunkSize" rows after the last key copied, or the largest key
+		 * if fewer rows remain.
+		 */
+		void findUpper(Connection connection, int chunkSize) throws SQLException{
+			if(exhausted)
+				return;
+
+			String after = lower==null ? "" : " WHERE " + key + " > ?";
+
+			upper = queryKey(connection, "SELECT " + key + " FROM " + table + after
+					+ " ORDER BY " + key + " LIMIT 1 OFFSET " + (chunkSize - 1) + ";");
+
+			if(upper==null)
+				upper = queryKey(connection, "SELECT MAX(" + key + ") FROM " + table + after + ";");
+
+			exhausted = upper==null;
+		}
+
+		private Object queryKey(Connection connection, String queryString) throws SQLException{
+			try(PreparedStatement statement = connection.prepareStatement(queryString)){
+				if(lower!=null)
+					statement.setObject(1, lower);
+
+				try(ResultSet rs = statement.executeQuery()){
+					return rs.next() ? rs.getObject(1) : null;
+				}
+			}
+		}
+
+		public String getKey(){
+			return qualifiedKey;
+		}
+
+		//returns the condition selecting the current chunk's rows of the source
+		public String getCondition(){
+			if(exhausted)
+				return "FALSE";
+
+			return (lower==null ? "" : qualifiedKey + " > ? AND ") + qualifiedKey + " <= ?";
+		}
+
+		//binds the condition's keys from "parameter", returning the next parameter
+		int bind(PreparedStatement statement, int parameter) throws SQLException{
+			if(exhausted)
+				return parameter;
+
+			if(lower!=null)
+				statement.setObject(parameter++, lower);
+
+			statement.setObject(parameter++, upper);
+			return parameter;
+		}
+
+		//moves the range past the chunk once it has been copied
+		void advance(){
+			if(!exhausted)
+				lower = upper;
+		}
+
+		boolean isExhausted(){
+			return exhausted;
+		}
+	}
+
+	/*
+	 * This interface builds the SELECT which reads the rows of one chunk,
+	 * with the condition of each key range in the order of the ranges, so
+	 * that their keys are bound in that order.
+	 */
+	public interface ChunkQuery{
+		String getSelectString(List<KeyRange> ranges);
+	}
+
+	/*
+	 * This interface is told the rows and chunks copied, the milliseconds
+	 * the last chunk took, or 0 if none was copied, and what the copy is
+	 * doing.  It is called on the copying thread.
+	 */
+	public interface ProgressListener{
+		void progress(long rows, long chunks, long chunkMillis, String status);
+	}
+}
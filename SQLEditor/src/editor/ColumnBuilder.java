@@ -1,7 +1,6 @@
 package editor;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
@@ -211,10 +210,8 @@ public class ColumnBuilder {
 	 * This function fills the ComboBox with all tables in the current database.
 	 */
 	private void fillTableComboBox(ComboBox<String> tableSelect){		
-		try (Connection connection = DriverManager.getConnection(session.getURL(), 
-				session.getUserName(), session.getPassword())) 
+		try (Connection connection = session.getConnection()) 
 		{
-			connection.setCatalog(session.getDatabase());
 			
 			Statement statement = connection.createStatement();
 			
@@ -252,10 +249,8 @@ public class ColumnBuilder {
 		columnNames.getItems().clear();
 		
 		if(session!=null){
-			try (Connection connection = DriverManager.getConnection(session.getURL(), session.getUserName(), 
-					session.getPassword())) 
+			try (Connection connection = session.getConnection()) 
 			{
-				connection.setCatalog(session.getDatabase());
 				
 				Statement statement = connection.createStatement();
 				
@@ -288,35 +283,50 @@ public class ColumnBuilder {
 	}
 	
 	
+	/*
+	 * This function queues the new column with the other column changes of
+	 * the table shown on the main screen, which are made together by one
+	 * ALTER TABLE.  A column added to another table is added at once, since
+	 * its changes are not shown.
+	 */
 	private void createColumn(){
 		if(session!=null){
-			try (Connection connection = DriverManager.getConnection(session.getURL(), session.getUserName(), 
-					session.getPassword())) 
-			{
-				connection.setCatalog(session.getDatabase());
-				Statement statement = connection.createStatement();
-				
-				//remove spaces and text wrapping
-				String expression = columnDefinition.getText().replace("\n", "");
-				
-				//set type as a large double or VarChar
-				String type = numericColumn.getValue() ? "DOUBLE PRECISION(12, 2)" : "VARCHAR(50)";
-				
-				String queryString = new String();
-				
-				//add column to MySQL table
-				if(expression!=null&&!expression.isEmpty())
-					queryString = "ALTER TABLE " + SQLEditor.getTableName()
-				     + " ADD COLUMN " + newColumnName.getValue() + " " + type + " AS ("
-				     + expression + ");";
-				else
-					queryString = "ALTER TABLE " + table.getValue()
-				     + " ADD COLUMN " + newColumnName.getValue() + " VARCHAR(50);";
-				
-				statement.execute(queryString);
+			//remove spaces and text wrapping
+			String expression = columnDefinition.getText().replace("\n", "");
+			
+			//set type as a large double or VarChar
+			String type = numericColumn.getValue() ? "DOUBLE PRECISION(12, 2)" : "VARCHAR(50)";
+			
+			String definition;
+			String columnTable;
+			
+			//the expression column is added to the main table, otherwise
+			//the column is added to the selected table
+			if(expression!=null&&!expression.isEmpty()){
+				definition = type + " AS (" + expression + ")";
+				columnTable = SQLEditor.getTableName();
+			}
+			else{
+				definition = "VARCHAR(50)";
+				columnTable = table.getValue();
+			}
+			
+			SchemaChangeQueue changes = session.getSchemaChanges();
+			
+			//a column of the displayed table waits with its other changes,
+			//and a column of another table is added alone
+			if(columnTable.equals(SQLEditor.getTableName())){
+				changes.addColumn(columnTable, newColumnName.getValue(), definition);
+				SQLEditor.getTableView().updateSchemaControls();
+				return;
+			}
+			
+			try{
+				SchemaChangeQueue.Result result = changes.addColumnNow(columnTable, 
+						newColumnName.getValue(), definition, true);
 				
-				statement.close();
-				connection.close();
+				new NotificationWindow("Column Added", String.format("%s added to %s with ALGORITHM=%s", 
+						newColumnName.getValue(), columnTable, result.getAlgorithm()));
 			}
 			catch(SQLException ex){
 				ex.printStackTrace();
@@ -0,0 +1,826 @@
+package editor;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * This class maintains a bounded set of open JDBC connections for one
+ * SessionConfig so that each query does not pay for a new TCP connection
+ * and MySQL authentication.  Connections are leased for a catalog and
+ * returned to the pool when the leased Connection is closed, so callers
+ * can continue to use try-with-resources blocks.  Idle connections are
+ * validated before reuse, evicted after the idle timeout, and retired
+ * once they reach the maximum lifetime.  Each connection also keeps the
+ * server side prepared statements of recurring query shapes, so that a
+ * query run again with new values only rebinds its parameters.
+ */
+public class ConnectionPool {
+
+	//connection information used to open new physical connections
+	private final String url;
+	private final Properties connectionProperties = new Properties();
+
+	//maximum number of physical connections open at once
+	private int maxSize = 8;
+
+	//milliseconds an idle connection is kept before it is closed
+	private long idleTimeout = TimeUnit.MINUTES.toMillis(5);
+
+	//milliseconds after creation a connection is retired
+	private long maxLifetime = TimeUnit.MINUTES.toMillis(30);
+
+	//milliseconds a connection may sit idle before it is validated on lease
+	private long validationInterval = TimeUnit.SECONDS.toMillis(5);
+
+	//milliseconds a lease waits for a connection before failing
+	private long leaseTimeout = TimeUnit.SECONDS.toMillis(30);
+
+	//maximum number of cached prepared statements on each connection
+	private int statementCacheSize = 64;
+
+	//version of each table's definition, increased when the table is changed
+	//so that statements prepared against the old definition are discarded
+	private final ConcurrentHashMap<String, Long> tableVersions = new ConcurrentHashMap<String, Long>();
+
+	//idle connections, most recently returned first
+	private final LinkedList<PooledEntry> idle = new LinkedList<PooledEntry>();
+
+	//number of physical connections currently open, leased or idle
+	private int openConnections = 0;
+
+	private boolean closed = false;
+
+	//closes idle connections past their idle timeout or lifetime
+	private final ScheduledExecutorService housekeeper;
+
+	//pool metrics
+	private final AtomicLong leases = new AtomicLong();
+	private final AtomicLong creations = new AtomicLong();
+	private final AtomicLong creationNanos = new AtomicLong();
+	private final AtomicLong waitNanos = new AtomicLong();
+	private final AtomicLong catalogSwitches = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+	private final AtomicLong failedValidations = new AtomicLong();
+	private final AtomicLong statementHits = new AtomicLong();
+	private final AtomicLong statementMisses = new AtomicLong();
+	private final AtomicLong prepareNanos = new AtomicLong();
+
+	public ConnectionPool(String connectionURL, String name, String pass){
+		url = connectionURL;
+
+		if(name!=null)
+			connectionProperties.setProperty("user", name);
+		if(pass!=null)
+			connectionProperties.setProperty("password", pass);
+
+		housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "connection-pool-housekeeper");
+			t.setDaemon(true);
+			return t;
+		});
+
+		housekeeper.scheduleWithFixedDelay(() -> evictIdle(), 30, 30, TimeUnit.SECONDS);
+	}
+
+	/*
+	 * This function returns a connection with its catalog set to the
+	 * "catalog" parameter, or with any catalog if the parameter is null.
+	 * An idle connection already using the catalog is preferred so that
+	 * no setCatalog round-trip is needed.  If the pool is at its maximum
+	 * size, the function waits for a connection to be returned.
+	 */
+	public Connection lease(String catalog) throws SQLException{
+
+		long start = System.nanoTime();
+		long deadline = System.currentTimeMillis() + leaseTimeout;
+
+		PooledEntry entry = null;
+		boolean create = false;
+
+		//idle connections are validated outside the lock, taking another if one is invalid
+		while(entry==null&&!create){
+			synchronized(this){
+				while(entry==null&&!create){
+					if(closed)
+						throw new SQLException("Connection pool has been closed");
+
+					entry = takeIdle(catalog);
+
+					if(entry==null){
+						if(openConnections < maxSize){
+							openConnections++;
+							create = true;
+						}
+						else{
+							long remaining = deadline - System.currentTimeMillis();
+
+							if(remaining<=0)
+								throw new SQLException("Timed out waiting for a pooled connection");
+
+							try{
+								wait(remaining);
+							}
+							catch(InterruptedException ex){
+								Thread.currentThread().interrupt();
+								throw new SQLException("Interrupted waiting for a pooled connection", ex);
+							}
+						}
+					}
+				}
+			}
+
+			if(entry!=null&&!validate(entry))
+				entry = null;
+		}
+
+		waitNanos.addAndGet(System.nanoTime()-start);
+
+		if(create){
+			try{
+				entry = createEntry();
+			}
+			catch(SQLException ex){
+				synchronized(this){
+					openConnections--;
+					notifyAll();
+				}
+				throw ex;
+			}
+		}
+
+		leases.incrementAndGet();
+
+		try{
+			if(catalog!=null&&!catalog.equals(entry.catalog)){
+				entry.physical.setCatalog(catalog);
+				entry.catalog = catalog;
+				catalogSwitches.incrementAndGet();
+			}
+		}
+		catch(SQLException ex){
+			destroy(entry);
+			throw ex;
+		}
+
+		return entry.lease();
+	}
+
+	/*
+	 * This function removes and returns an idle connection for the catalog,
+	 * or any idle connection if none uses the catalog.  Connections which are
+	 * expired are closed, and the connection returned is validated by the
+	 * caller once the lock is released.  Must be called while holding the
+	 * pool's lock.
+	 */
+	private PooledEntry takeIdle(String catalog){
+
+		PooledEntry fallback = null;
+		Iterator<PooledEntry> it = idle.iterator();
+		long now = System.currentTimeMillis();
+
+		while(it.hasNext()){
+			PooledEntry e = it.next();
+
+			if(now - e.created > maxLifetime){
+				it.remove();
+				closeQuietly(e);
+				continue;
+			}
+
+			if(catalog==null||catalog.equals(e.catalog)){
+				it.remove();
+				return e;
+			}
+			else if(fallback==null)
+				fallback = e;
+		}
+
+		if(fallback!=null)
+			idle.remove(fallback);
+
+		return fallback;
+	}
+
+	/*
+	 * This function returns true if the connection is still usable.  Only
+	 * connections idle for longer than the validation interval are checked
+	 * against the server.  Invalid connections are closed.  The check is
+	 * made without the pool's lock, so that a slow server does not hold up
+	 * other leases and releases.
+	 */
+	private boolean validate(PooledEntry e){
+		if(System.currentTimeMillis() - e.lastUsed < validationInterval)
+			return true;
+
+		try{
+			if(e.physical.isValid(2))
+				return true;
+		}
+		catch(SQLException ex){
+			ex.printStackTrace();
+		}
+
+		failedValidations.incrementAndGet();
+		destroy(e);
+		return false;
+	}
+
+	//opens a new physical connection and records how long the handshake took
+	private PooledEntry createEntry() throws SQLException{
+		long start = System.nanoTime();
+
+		Connection physical = DriverManager.getConnection(url, connectionProperties);
+
+		creationNanos.addAndGet(System.nanoTime()-start);
+		creations.incrementAndGet();
+
+		PooledEntry entry = new PooledEntry(physical);
+		entry.catalog = physical.getCatalog();
+
+		return entry;
+	}
+
+	/*
+	 * This function is called when a leased connection is closed.  Open
+	 * statements are closed and any open transaction is rolled back before
+	 * the connection is made available to other callers.
+	 */
+	private void release(PooledEntry entry){
+
+		boolean reusable = true;
+
+		entry.closeStatements();
+		entry.returnCachedStatements();
+
+		try{
+			if(!entry.physical.getAutoCommit()){
+				entry.physical.rollback();
+				entry.physical.setAutoCommit(true);
+			}
+			if(entry.physical.isClosed())
+				reusable = false;
+		}
+		catch(SQLException ex){
+			reusable = false;
+		}
+
+		entry.lastUsed = System.currentTimeMillis();
+
+		synchronized(this){
+			if(closed||!reusable||entry.lastUsed - entry.created > maxLifetime){
+				closeQuietly(entry);
+			}
+			else{
+				idle.addFirst(entry);
+			}
+			notifyAll();
+		}
+	}
+
+	//closes a connection which was leased and cannot be returned to the pool
+	private void destroy(PooledEntry entry){
+		synchronized(this){
+			closeQuietly(entry);
+			notifyAll();
+		}
+	}
+
+	/*
+	 * This function closes idle connections which have not been used within
+	 * the idle timeout or have exceeded their maximum lifetime.
+	 */
+	void evictIdle(){
+		long now = System.currentTimeMillis();
+
+		synchronized(this){
+			Iterator<PooledEntry> it = idle.iterator();
+
+			while(it.hasNext()){
+				PooledEntry e = it.next();
+				if(now - e.lastUsed > idleTimeout||now - e.created > maxLifetime){
+					it.remove();
+					closeQuietly(e);
+					evictions.incrementAndGet();
+				}
+			}
+		}
+	}
+
+	//closes the physical connection, must be called while holding the pool's lock
+	private void closeQuietly(PooledEntry e){
+		openConnections--;
+		try{
+			e.physical.close();
+		}
+		catch(SQLException ex){
+			ex.printStackTrace();
+		}
+	}
+
+	/*
+	 * This function closes all idle connections and stops the pool from
+	 * leasing new ones.  Leased connections are closed when they are returned.
+	 */
+	public void close(){
+		synchronized(this){
+			closed = true;
+			while(!idle.isEmpty())
+				closeQuietly(idle.removeFirst());
+			notifyAll();
+		}
+		housekeeper.shutdownNow();
+	}
+
+	/*
+	 * This function returns a prepared statement for "sql" from the cache of
+	 * the pooled connection "leased", preparing it on the server on first
+	 * use.  "shapeKey" identifies the statement's shape, such as a filter
+	 * query's table, condition columns and operators, and sort order, and
+	 * must produce the same SQL each time it is used.  Closing the returned
+	 * statement clears its parameters and returns it to the cache.  A
+	 * connection which is not from a pool prepares the statement normally.
+	 */
+	public static PreparedStatement prepareCached(Connection leased, String table, 
+			String shapeKey, String sql) throws SQLException{
+		
+		if(Proxy.isProxyClass(leased.getClass())){
+			InvocationHandler handler = Proxy.getInvocationHandler(leased);
+			
+			if(handler instanceof LeaseHandler)
+				return ((LeaseHandler)handler).prepareCached(leased, table, shapeKey, sql);
+		}
+		
+		return leased.prepareStatement(sql);
+	}
+	
+	/*
+	 * This function is called when a table is altered, renamed or dropped,
+	 * so that statements prepared on its old definition are prepared again.
+	 */
+	public void invalidateStatements(String table){
+		tableVersions.merge(table, 1L, Long::sum);
+	}
+	
+	private long getTableVersion(String table){
+		return table==null ? 0 : tableVersions.getOrDefault(table, 0L);
+	}
+	
+	/*
+	 * This function prepares a statement on the server, so that later runs
+	 * send only parameter values instead of the SQL to be parsed again.  The
+	 * driver only prepares statements on the client by default, so its own
+	 * serverPrepareStatement is used when the driver has one.
+	 */
+	private static PreparedStatement serverPrepare(Connection physical, String sql) throws SQLException{
+		try{
+			Method prepare = physical.getClass().getMethod("serverPrepareStatement", String.class);
+			return (PreparedStatement)prepare.invoke(physical, sql);
+		}
+		catch(NoSuchMethodException|IllegalAccessException ex){
+			return physical.prepareStatement(sql);
+		}
+		catch(InvocationTargetException ex){
+			if(ex.getCause() instanceof SQLException)
+				throw (SQLException)ex.getCause();
+			
+			return physical.prepareStatement(sql);
+		}
+	}
+
+	public synchronized void setMaxSize(int size){
+		maxSize = Math.max(1, size);
+		notifyAll();
+	}
+
+	public synchronized int getMaxSize(){
+		return maxSize;
+	}
+
+	public void setIdleTimeout(long millis){
+		idleTimeout = millis;
+	}
+
+	public void setMaxLifetime(long millis){
+		maxLifetime = millis;
+	}
+
+	public void setValidationInterval(long millis){
+		validationInterval = millis;
+	}
+
+	public void setLeaseTimeout(long millis){
+		leaseTimeout = millis;
+	}
+
+	public void setStatementCacheSize(int size){
+		statementCacheSize = Math.max(0, size);
+	}
+
+	//returns the fraction of cached statement requests served without preparing
+	public double getStatementHitRate(){
+		long hits = statementHits.get();
+		long total = hits + statementMisses.get();
+		
+		return total==0 ? 0 : (double)hits/total;
+	}
+
+	/*
+	 * This function estimates the time saved by reusing prepared statements,
+	 * as the average time taken to prepare one multiplied by the number of
+	 * requests served from the cache.
+	 */
+	public double getPrepareMillisSaved(){
+		long misses = statementMisses.get();
+		
+		return misses==0 ? 0 : prepareNanos.get()/1e6/misses*statementHits.get();
+	}
+
+	public long getLeases(){
+		return leases.get();
+	}
+
+	public long getCreations(){
+		return creations.get();
+	}
+
+	public long getWaitNanos(){
+		return waitNanos.get();
+	}
+
+	public long getCreationNanos(){
+		return creationNanos.get();
+	}
+
+	public synchronized int getOpenConnections(){
+		return openConnections;
+	}
+
+	public synchronized int getIdleConnections(){
+		return idle.size();
+	}
+
+	/*
+	 * This function returns a summary of the pool's metrics.  The handshake
+	 * time saved is estimated from the average time taken to open a
+	 * connection multiplied by the number of leases served by reuse.
+	 */
+	public String getSummary(){
+		long leaseCount = leases.get();
+		long creationCount = creations.get();
+
+		double avgCreateMs = creationCount==0 ? 0
+				: creationNanos.get()/1e6/creationCount;
+		double avgWaitMs = leaseCount==0 ? 0 : waitNanos.get()/1e6/leaseCount;
+		double savedMs = avgCreateMs*(leaseCount - creationCount);
+
+		return String.format("Leases: %d%n"
+				+ "Connections created: %d (avg. handshake %.1f ms)%n"
+				+ "Average lease wait: %.2f ms%n"
+				+ "Catalog switches: %d%n"
+				+ "Idle evictions: %d, failed validations: %d%n"
+				+ "Open connections: %d (%d idle, max %d)%n"
+				+ "Estimated handshake time saved: %.0f ms%n"
+				+ "Prepared statement cache: %d hits, %d misses (%.0f%% hit rate)%n"
+				+ "Estimated prepare time saved: %.0f ms",
+				leaseCount, creationCount, avgCreateMs, avgWaitMs,
+				catalogSwitches.get(), evictions.get(), failedValidations.get(),
+				getOpenConnections(), getIdleConnections(), getMaxSize(), savedMs,
+				statementHits.get(), statementMisses.get(), getStatementHitRate()*100,
+				getPrepareMillisSaved());
+	}
+
+	/*
+	 * This class holds a physical connection and its bookkeeping while it
+	 * is in the pool.  Each lease hands out a new proxy so that a proxy
+	 * closed twice, or used after being closed, cannot affect a later lease.
+	 */
+	private class PooledEntry{
+
+		final Connection physical;
+
+		//time the physical connection was opened
+		final long created;
+
+		//time the connection was last returned to the pool
+		long lastUsed;
+
+		//catalog most recently set on the connection
+		String catalog;
+
+		//statements created during the current lease
+		final ArrayList<Statement> statements = new ArrayList<Statement>();
+
+		//prepared statements kept between leases, keyed by catalog and shape,
+		//in least recently used order
+		final LinkedHashMap<String, CachedStatement> cache 
+			= new LinkedHashMap<String, CachedStatement>(16, 0.75f, true);
+
+		PooledEntry(Connection c){
+			physical = c;
+			created = System.currentTimeMillis();
+			lastUsed = created;
+		}
+
+		Connection lease(){
+			return (Connection)Proxy.newProxyInstance(
+					Connection.class.getClassLoader(),
+					new Class<?>[]{Connection.class},
+					new LeaseHandler(this));
+		}
+
+		void closeStatements(){
+			for(Statement s : statements){
+				try{
+					s.close();
+				}
+				catch(SQLException ex){
+					//statement already unusable, nothing to release
+				}
+			}
+			statements.clear();
+		}
+
+		/*
+		 * This function returns the cached statement for the shape, preparing
+		 * it if it is missing, was prepared for different SQL, or its table
+		 * has changed since.  A statement still open from earlier in the lease
+		 * cannot be shared, so another one is prepared for the lease only.
+		 */
+		PreparedStatement prepareCached(Connection lease, String table, String shapeKey, 
+				String sql) throws SQLException{
+
+			String key = catalog + "\u0000" + shapeKey;
+			long version = getTableVersion(table);
+
+			CachedStatement cached = cache.get(key);
+
+			if(cached!=null&&cached.inUse){
+				statementMisses.incrementAndGet();
+				return lease.prepareStatement(sql);
+			}
+
+			if(cached!=null&&(!cached.sql.equals(sql)||cached.version!=version)){
+				cache.remove(key);
+				cached.closePhysical();
+				cached = null;
+			}
+
+			if(cached==null){
+				long start = System.nanoTime();
+				PreparedStatement prepared = serverPrepare(physical, sql);
+				prepareNanos.addAndGet(System.nanoTime()-start);
+				statementMisses.incrementAndGet();
+
+				cached = new CachedStatement(this, key, sql, version, prepared);
+				cache.put(key, cached);
+				evictStatements();
+			}
+			else{
+				statementHits.incrementAndGet();
+			}
+
+			return cached.checkOut(lease);
+		}
+
+		//closes the least recently used statements over the cache size
+		private void evictStatements(){
+			Iterator<CachedStatement> it = cache.values().iterator();
+
+			while(cache.size() > statementCacheSize&&it.hasNext()){
+				CachedStatement eldest = it.next();
+				it.remove();
+				eldest.evicted = true;
+
+				if(!eldest.inUse)
+					eldest.closePhysical();
+			}
+		}
+
+		//returns statements the lease did not close, closing any open results
+		void returnCachedStatements(){
+			for(CachedStatement s : new ArrayList<CachedStatement>(cache.values())){
+				if(s.inUse)
+					s.checkIn();
+			}
+		}
+	}
+
+	/*
+	 * This handler forwards calls to a cached prepared statement while it is
+	 * checked out by a lease.  Closing it closes its results and clears its
+	 * parameters instead of closing the statement.  A statement whose
+	 * execution fails is closed and removed from the cache when it is
+	 * returned, since it may no longer match the table.
+	 */
+	private class CachedStatement implements InvocationHandler{
+
+		final PooledEntry entry;
+		final String key;
+		final String sql;
+
+		//version of the table when the statement was prepared
+		final long version;
+
+		final PreparedStatement physical;
+
+		//proxy handed to the current lease, null when not checked out
+		private PreparedStatement proxy;
+		private Connection lease;
+		boolean inUse = false;
+
+		//true once removed from the cache, or once an execution has failed
+		boolean evicted = false;
+		private boolean failed = false;
+
+		//result of the last query, closed when the statement is returned
+		private ResultSet results;
+
+		CachedStatement(PooledEntry e, String cacheKey, String statementSQL, long tableVersion,
+				PreparedStatement prepared){
+			entry = e;
+			key = cacheKey;
+			sql = statementSQL;
+			version = tableVersion;
+			physical = prepared;
+		}
+
+		PreparedStatement checkOut(Connection leased){
+			inUse = true;
+			lease = leased;
+			proxy = (PreparedStatement)Proxy.newProxyInstance(
+					PreparedStatement.class.getClassLoader(),
+					new Class<?>[]{PreparedStatement.class}, this);
+			return proxy;
+		}
+
+		void checkIn(){
+			inUse = false;
+			proxy = null;
+			lease = null;
+
+			try{
+				if(results!=null)
+					results.close();
+
+				physical.clearParameters();
+				physical.setFetchSize(0);
+			}
+			catch(SQLException ex){
+				failed = true;
+			}
+
+			results = null;
+
+			if(failed&&!evicted){
+				entry.cache.remove(key);
+				evicted = true;
+			}
+
+			if(evicted)
+				closePhysical();
+		}
+
+		void closePhysical(){
+			try{
+				physical.close();
+			}
+			catch(SQLException ex){
+				//connection already closed, which closed the statement
+			}
+		}
+
+		@Override
+		public Object invoke(Object p, Method method, Object[] args) throws Throwable{
+
+			String name = method.getName();
+
+			//calls through a proxy from an earlier checkout are ignored
+			boolean current = inUse&&p==proxy;
+
+			if(name.equals("close")){
+				if(current)
+					checkIn();
+				return null;
+			}
+
+			if(name.equals("isClosed"))
+				return !current;
+
+			if(name.equals("equals"))
+				return p==args[0];
+
+			if(name.equals("hashCode"))
+				return System.identityHashCode(p);
+
+			if(name.equals("toString"))
+				return "Cached" + physical.toString();
+
+			if(!current)
+				throw new SQLException("Statement has been closed");
+
+			if(name.equals("getConnection"))
+				return lease;
+
+			try{
+				Object result = method.invoke(physical, args);
+
+				if(result instanceof ResultSet)
+					results = (ResultSet)result;
+
+				return result;
+			}
+			catch(InvocationTargetException ex){
+				if(name.startsWith("execute"))
+					failed = true;
+
+				throw ex.getCause();
+			}
+		}
+	}
+
+	/*
+	 * This handler forwards calls to the physical connection until the
+	 * leased Connection is closed, at which point the physical connection
+	 * is returned to the pool instead of being closed.
+	 */
+	private class LeaseHandler implements InvocationHandler{
+
+		private final PooledEntry entry;
+		private boolean returned = false;
+
+		LeaseHandler(PooledEntry e){
+			entry = e;
+		}
+
+		PreparedStatement prepareCached(Connection lease, String table, String shapeKey, 
+				String sql) throws SQLException{
+			if(returned)
+				throw new SQLException("Connection has been returned to the pool");
+
+			return entry.prepareCached(lease, table, shapeKey, sql);
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable{
+
+			String name = method.getName();
+
+			if(name.equals("close")){
+				if(!returned){
+					returned = true;
+					release(entry);
+				}
+				return null;
+			}
+
+			if(name.equals("isClosed"))
+				return returned||entry.physical.isClosed();
+
+			if(name.equals("equals"))
+				return proxy==args[0];
+
+			if(name.equals("hashCode"))
+				return System.identityHashCode(proxy);
+
+			if(name.equals("toString"))
+				return "Pooled" + entry.physical.toString();
+
+			if(returned)
+				throw new SQLException("Connection has been returned to the pool");
+
+			try{
+				Object result = method.invoke(entry.physical, args);
+
+				//the catalog is only recorded once the server has switched to it
+				if(name.equals("setCatalog"))
+					entry.catalog = (String)args[0];
+
+				if(result instanceof Statement)
+					entry.statements.add((Statement)result);
+
+				return result;
+			}
+			catch(InvocationTargetException ex){
+				throw ex.getCause();
+			}
+		}
+	}
+}
@@ -1,9 +1,10 @@
 package editor;
 
+import java.util.Objects;
+
 import javafx.beans.InvalidationListener;
 import javafx.beans.Observable;
 import javafx.beans.property.ReadOnlyBooleanProperty;
-import javafx.collections.ObservableList;
 import javafx.event.Event;
 import javafx.scene.control.TableCell;
 import javafx.scene.control.TableColumn;
@@ -11,21 +12,27 @@ import javafx.scene.control.TableColumn.CellEditEvent;
 import javafx.scene.control.TablePosition;
 import javafx.scene.control.TableView;
 import javafx.scene.control.TextField;
+import tabledata.RowView;
 
 /*
  * This cell contains a string value which can be edited by double clicking on
  * the cell.  When editing, if the user presses enter and clicks on a screen
  * location which takes away focus from the edit input, the cell and data model 
- * are updated and an edit event is fired to the cell's TableColumn.
+ * are updated and an edit event is fired to the cell's TableColumn.  Edits
+ * are added to the MySQLTableView's pending edits, and cells with pending
+ * edits are highlighted until the edits are committed.
  */
 
-public class EditableTableCell extends TableCell<ObservableList<String>, String> {
+public class EditableTableCell extends TableCell<RowView, String> {
+
+	//background of a cell whose edit has not been written to MySQL
+	private static final String PENDING_STYLE = "-fx-background-color: #fff2a8;";
 
 	//receives user input when editing
 	TextField editInput = new TextField();
 	
 	//TablePosition where edit occurs, necessary for CellEditEvent
-	TablePosition<ObservableList<String>, String> tablePos;
+	TablePosition<RowView, String> tablePos;
 	
 	public EditableTableCell(){
 		super();
@@ -71,8 +78,8 @@ public class EditableTableCell extends TableCell<ObservableList<String>, String>
 		editInput.requestFocus();
 		
 		//save TablePosition of this edit
-		final TableView<ObservableList<String>> table = getTableView();
-		tablePos = (TablePosition<ObservableList<String>, String>) table.getEditingCell();
+		final TableView<RowView> table = getTableView();
+		tablePos = (TablePosition<RowView, String>) table.getEditingCell();
 	}
 	
 	
@@ -105,6 +112,24 @@ public class EditableTableCell extends TableCell<ObservableList<String>, String>
         	setText(item==null ? "" : item);
         	setGraphic(null);
         }
+        
+        setStyle(isPendingEdit() ? PENDING_STYLE : "");
+	}
+	
+	//returns true if the cell shows an edit which has not been written to MySQL
+	private boolean isPendingEdit(){
+		if(isEmpty()||!(getTableView() instanceof MySQLTableView)||getTableColumn()==null)
+			return false;
+		
+		int index = getIndex();
+		
+		if(index < 0||index >= getTableView().getItems().size())
+			return false;
+		
+		RowView row = getTableView().getItems().get(index);
+		
+		return row!=null&&((MySQLTableView)getTableView())
+				.isPendingEdit(row, MySQLTableView.getColumnIndex(getTableColumn()));
 	}
 	
 	@Override public void cancelEdit(){
@@ -114,10 +139,33 @@ public class EditableTableCell extends TableCell<ObservableList<String>, String>
 	}
 	
 	//this function updates the data model and fires a CellEditEvent
-	//to the cell's TableColumn
+	//to the cell's TableColumn.  Edits which are not a value of the
+	//column's type are discarded.
 	@Override public void commitEdit(String edit){
 		
 		setGraphic(null);
+		
+		if(tablePos!=null){
+			RowView row = getTableView().getItems().get(getTableRow().getIndex());
+			int columnIndex = MySQLTableView.getColumnIndex(getTableColumn());
+			String oldText = row.get(columnIndex);
+			
+			if(!row.set(columnIndex, edit)){
+				setText(getItem());
+				return;
+			}
+			
+			String newText = row.get(columnIndex);
+			
+			//show the value as its type formats it
+			edit = newText==null ? "" : newText;
+			
+			//losing focus commits the edit even if the value was not changed
+			if(!Objects.equals(oldText, newText)&&getTableView() instanceof MySQLTableView){
+				((MySQLTableView)getTableView()).editCommitted(row, columnIndex, oldText);
+				setStyle(PENDING_STYLE);
+			}
+		}
 
 		setItem(edit);
 		setText((String)getItem());
@@ -125,17 +173,12 @@ public class EditableTableCell extends TableCell<ObservableList<String>, String>
 		if(tablePos==null)
 			return;
 		
-		int rowIndex = getTableRow().getIndex();
-		int columnIndex = tablePos.getColumn();
-		
-		getTableView().getItems().get(rowIndex).set(columnIndex, edit);
-		
-		final TableView<ObservableList<String>> table = getTableView();
+		final TableView<RowView> table = getTableView();
 		
 		if(table!= null&&tablePos!=null){
 			
-			CellEditEvent<ObservableList<String>,String> commitEvent 
-			= new CellEditEvent<ObservableList<String>,String>(table, tablePos, 
+			CellEditEvent<RowView,String> commitEvent 
+			= new CellEditEvent<RowView,String>(table, tablePos, 
 					TableColumn.editCommitEvent(), edit);
 		
 			Event.fireEvent(getTableColumn(), commitEvent);
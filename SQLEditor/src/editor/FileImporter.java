@@ -1,15 +1,30 @@
 package editor;
 
 import java.io.File;
-import java.io.FileNotFoundException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
-import java.util.Scanner;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 
 import columninfo.ColumnProperties;
+import importer.ColumnStats;
+import importer.CsvReader;
+import importer.FileProfiler;
+import importer.ImportCheckpoint;
+import importer.ImportSource;
+import importer.MultiFileImporter;
+import importer.ParallelImporter;
+import importer.PhaseTimer;
+import javafx.application.Platform;
+import javafx.beans.property.BooleanProperty;
+import javafx.beans.property.SimpleBooleanProperty;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.beans.property.StringProperty;
 import javafx.beans.value.ChangeListener;
@@ -24,10 +39,12 @@ import javafx.scene.control.CheckBox;
 import javafx.scene.control.ComboBox;
 import javafx.scene.control.Label;
 import javafx.scene.control.ListView;
+import javafx.scene.control.ProgressBar;
 import javafx.scene.control.TableView;
 import javafx.scene.control.TextField;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
+import javafx.stage.DirectoryChooser;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 import javafx.stage.FileChooser.ExtensionFilter;
@@ -38,13 +55,21 @@ import javafx.stage.FileChooser.ExtensionFilter;
  * and field delimiter are provided by the user, the class
  * attempts to load the table's column names and suggested
  * MySQL data types into a TableView, which the user can edit.
+ * Rows are loaded with LOAD DATA LOCAL INFILE, or, for servers which
+ * disable local_infile, streamed through a ParallelImporter.  Compressed
+ * files and directories of parts are always streamed, and the columns of
+ * a directory are read from its first part.
  */
 public class FileImporter {
 	
+	//names of the engines which may load the file's rows
+	static final String LOAD_DATA_ENGINE = "LOAD DATA LOCAL INFILE";
+	static final String PARALLEL_ENGINE = "Parallel INSERT";
+	
 	//name of the new table, bound to TextField input
 	private StringProperty tableName = new SimpleStringProperty();
 	
-	//local file containing data and column names of new table
+	//local file or directory of parts containing data and column names of new table
 	private File selectedFile;
 	
 	//path of the local file, bound to TextField input
@@ -71,9 +96,35 @@ public class FileImporter {
 	//current connection information
 	private SessionConfig session;
 	
+	//true if column types are suggested from a sample of the file's rows
+	private BooleanProperty sampleOnly = new SimpleBooleanProperty(false);
+	
+	//summary of the latest scan of the file
+	private Label profileStatus = new Label();
+	
+	//progress of parallel loads
+	private ProgressBar importProgress = new ProgressBar(0);
+	private Label importStatus = new Label();
+	
+	//checkpoint of an unfinished import of the selected file, and whether to resume it
+	private ImportCheckpoint checkpoint;
+	private CheckBox resumeImport = new CheckBox();
+	
+	//latest scan of the file, and the estimated size of the table it would be loaded into
+	private FileProfiler.FileProfile profile;
+	private Label sizeSummary = new Label();
+
+	//number of scans started, so that the results of superseded scans are ignored
+	private int profileGeneration = 0;
+	
+	//scan of the file in progress, cancelled when a later change supersedes it
+	private FileProfiler profiler;
+
 	FileImporter(SessionConfig currentSession){
 		session = currentSession;
 		
+		ColumnProperties.addEstimateColumns(columnMeta);
+
 		//when pathName is changed, check if column 
 		//properties should be loaded to table
 		pathName.addListener(new ChangeListener<String>(){
@@ -102,6 +153,15 @@ public class FileImporter {
 					}
 				}
 		});
+		
+		//rescan the file when sampling is toggled
+		sampleOnly.addListener(new ChangeListener<Boolean>(){
+			@SuppressWarnings("rawtypes")
+			public void changed(ObservableValue obv, Boolean oldValue, Boolean newValue){
+				if(selectedFile!=null&&delimiter.getValue()!=null&&!delimiter.getValue().isEmpty())
+					initializeColumnsFromFile();
+			}
+		});
 	}
 	/*
 	 * Creates the form used to specify table information, including
@@ -129,18 +189,32 @@ public class FileImporter {
 		pathInput.textProperty().bindBidirectional(pathName);
 		pathInput.setPrefColumnCount(20);
 		Button browse = new Button("Browse");
-		HBox fileInput = new HBox(5, pathInput, browse);
+		Button browseFolder = new Button("Folder");
+		HBox fileInput = new HBox(5, pathInput, browse, browseFolder);
 		
 		//open a browser for user to enter file path graphically
 		browse.setOnAction(e ->{
 			FileChooser chooser = new FileChooser();
 			String[] textFiles = {"*.txt", "*.csv"};
+			String[] compressedFiles = {"*.gz", "*.zst"};
 
 			chooser.getExtensionFilters().addAll(
 						new ExtensionFilter("Text Files", textFiles),
+						new ExtensionFilter("Compressed Files", compressedFiles),
 						new ExtensionFilter("All Files", "*.*"));
 			
-			pathName.set(chooser.showOpenDialog(importWindow).getAbsolutePath());
+			File chosen = chooser.showOpenDialog(importWindow);
+			
+			if(chosen!=null)
+				pathName.set(chosen.getAbsolutePath());
+		});
+		
+		//choose a directory whose parts are all loaded into the table
+		browseFolder.setOnAction(e ->{
+			File chosen = new DirectoryChooser().showDialog(importWindow);
+			
+			if(chosen!=null)
+				pathName.set(chosen.getAbsolutePath());
 		});
 		
 		//File delimiter
@@ -167,7 +241,9 @@ public class FileImporter {
 		
 		//label for imported columns table
 		Label columnSelectLabel = new Label("Columns imported from first line (click to edit)");
-		HBox columnSelectRow = new HBox(5, columnSelectLabel);
+		CheckBox sampleToggle = new CheckBox("Sample rows only");
+		sampleToggle.selectedProperty().bindBidirectional(sampleOnly);
+		HBox columnSelectRow = new HBox(5, columnSelectLabel, sampleToggle, profileStatus);
 		VBox.setMargin(columnSelectRow, new Insets(20, 0, 0, 0));
 		
 		//optional generated primary key
@@ -184,6 +260,38 @@ public class FileImporter {
 		HBox generatePrimaryKeyRow = new HBox(5, toggleGeneratePrimary, generatedKeyName);
 		VBox.setMargin(generatePrimaryKeyRow, new Insets(5, 0, 5, 0));
 		
+		//engine used to load rows, with the batch size and connections of parallel loads
+		Label engineLabel = new Label("Load With: ");
+		HBox.setMargin(engineLabel, new Insets(3, 0, 0, 0));
+		ComboBox<String> engineSelect = new ComboBox<String>();
+		engineSelect.getItems().addAll(LOAD_DATA_ENGINE, PARALLEL_ENGINE);
+		engineSelect.setValue(LOAD_DATA_ENGINE);
+		
+		Label batchLabel = new Label("Rows/Batch: ");
+		HBox.setMargin(batchLabel, new Insets(3, 0, 0, 0));
+		TextField batchInput = new TextField(String.valueOf(ParallelImporter.DEFAULT_BATCH_SIZE));
+		batchInput.setPrefColumnCount(5);
+		
+		Label parallelLabel = new Label("Connections: ");
+		HBox.setMargin(parallelLabel, new Insets(3, 0, 0, 0));
+		TextField parallelInput = new TextField(String.valueOf(ParallelImporter.DEFAULT_PARALLELISM));
+		parallelInput.setPrefColumnCount(3);
+		
+		//fast loads create the final keys first and defer constraint checks
+		CheckBox fastLoad = new CheckBox("Fast Load");
+		
+		HBox engineRow = new HBox(5, engineLabel, engineSelect, batchLabel, batchInput, 
+				parallelLabel, parallelInput, fastLoad);
+		
+		batchInput.disableProperty().bind(engineSelect.valueProperty().isNotEqualTo(PARALLEL_ENGINE));
+		parallelInput.disableProperty().bind(batchInput.disableProperty());
+		
+		//progress of parallel loads
+		importProgress.setPrefWidth(150);
+		HBox progressRow = new HBox(5, importProgress, importStatus, resumeImport);
+		resumeImport.setVisible(false);
+		showCheckpoint();
+
 		//action buttons
 		Button ok = new Button("OK");
 		Button cancel = new Button("Cancel");
@@ -192,7 +300,16 @@ public class FileImporter {
 		
 		ok.setOnAction(e ->{
 			if(checkLegalPrimary(toggleGeneratePrimary, generatedKeyName.getText())){
-				if(importTable()){
+				//checkpointed imports are resumed by the engine which wrote the checkpoint,
+				//and LOAD DATA can read neither compressed files nor directories
+				if(engineSelect.getValue().equals(PARALLEL_ENGINE)||resumeImport.isSelected()
+						||(selectedFile!=null&&ImportSource.needsStreaming(selectedFile))){
+					importInParallel(tableList, importWindow, ok,
+							parseCount(batchInput.getText(), ParallelImporter.DEFAULT_BATCH_SIZE),
+							parseCount(parallelInput.getText(), ParallelImporter.DEFAULT_PARALLELISM),
+							fastLoad.isSelected(), resumeImport.isSelected() ? checkpoint : null);
+				}
+				else if(importTable(fastLoad.isSelected())){
 					tableList.updateList();
 					importWindow.close();
 				}
@@ -209,7 +326,7 @@ public class FileImporter {
 		});
 		
 		VBox importForm = new VBox(5, fileInput, tableNameRow, delimRow, dbSelectRow, 
-				columnSelectRow, generatePrimaryKeyRow, columnMeta, buttonRow);
+				columnSelectRow, generatePrimaryKeyRow, columnMeta, sizeSummary, engineRow, progressRow, buttonRow);
 		
 		Scene scene = new Scene(importForm);
 		importWindow.setScene(scene);
@@ -222,8 +339,7 @@ public class FileImporter {
 	 * current catalog.
 	 */
 	private void fillDatabaseComboBox(ComboBox<String> dbSelect){
-		try (Connection connection = DriverManager.getConnection(session.getURL(), 
-				session.getUserName(), session.getPassword())) 
+		try (Connection connection = session.getConnection()) 
 		{
 			Statement statement = connection.createStatement();
 			ResultSet databases = statement.executeQuery("show databases;");
@@ -277,64 +393,505 @@ public class FileImporter {
 	/*
 	 * This function creates a table with the ColumnProperties objects from
 	 * user input and loads them with data from the specified local file.
-	 * Returns true if the table is successfully created.
+	 * In fast-load mode the table is created with its final primary key and
+	 * loaded with unique and foreign key checks disabled, and its foreign
+	 * keys are added afterwards.  Returns true if the table is successfully
+	 * created, after showing the time each phase of the import took.
 	 */
-	private boolean importTable(){
+	private boolean importTable(boolean fastLoad){
 		
 		if(session==null)
 			return false;
+		
+		PhaseTimer timer = new PhaseTimer();
+		String invalidReferences;
 
-		try (Connection connection = DriverManager.getConnection(session.getURL(), session.getUserName(), 
-				session.getPassword())) 
+		try (Connection connection = session.getConnection(database.getValue())) 
 		{
-			connection.setCatalog(session.getDatabase());
 			Statement statement = connection.createStatement();
+			
+			timer.start("create");
 				
-			//CREATE TABLE statement string
-			String statementString = getStatementString();
-				
-			if(!statementString.isEmpty()){
-				statement.execute(statementString);
-			}
-			else{
+			if(!createTable(statement, fastLoad))
 				return false;
-			}
 				
 			//change all "\" to "\\" for MySQL escape character
 			String path = pathName.get().replace("\\", "\\\\");
+			
+			//files may end lines with LF as well as CRLF
+			String lineTerminator = getLineTerminator().replace("\r", "\\r").replace("\n", "\\n");
+			
+			//a generated key created up front is filled by MySQL, not the file
+			String columnList = fastLoad&&generatedKey!=null 
+					? " (" + String.join(", ", getColumnNames()) + ")" : "";
 				
 			//load MySQL table with data from local file
-			statementString = "LOAD DATA LOCAL INFILE \'" + path + "\' INTO TABLE " + tableName.getValue() +
-				" FIELDS TERMINATED BY \'" + delimiter.getValue() + "\' " +
-				" LINES TERMINATED BY \'\\r\\n\' IGNORE 1 LINES;";
-			statement.execute(statementString);
+			String statementString = "LOAD DATA LOCAL INFILE \'" + path + "\' INTO TABLE " + tableName.getValue() +
+				" FIELDS TERMINATED BY \'" + delimiter.getValue() + "\' OPTIONALLY ENCLOSED BY \'\"\'" +
+				" LINES TERMINATED BY \'" + lineTerminator + "\' IGNORE 1 LINES" + columnList + ";";
+			
+			timer.start("load");
 			
-			//generate auto increment primary key if one was specified 
-			if(generatedKey!=null){					
-				statementString = "ALTER TABLE " + tableName.getValue() + " ADD " + generatedKey + 
-						" INT AUTO_INCREMENT NOT NULL PRIMARY KEY FIRST;";
+			if(fastLoad)
+				ParallelImporter.setChecks(connection, false);
+			
+			try{
 				statement.execute(statementString);
 			}
+			finally{
+				if(fastLoad)
+					ParallelImporter.setChecks(connection, true);
+			}
+			
+			invalidReferences = finishLoad(statement, fastLoad, timer);
 				
 			statement.close();
 			connection.close();
 		}
-		catch(SQLException e){
+		catch(SQLException|IOException e){
 			e.printStackTrace();
 			return false;
 		}
 		
+		timer.stop();
+		
+		new NotificationWindow("Import Complete", timer.toString(), invalidReferences, 600, 0);
+		
+		return true;
+	}
+	
+	/*
+	 * This function creates the table and loads it with a ParallelImporter in
+	 * the background, showing its progress, or, if "resumeFrom" is not null,
+	 * continues loading the table of an earlier import from its checkpoint.
+	 * In fast-load mode the table is created with its final primary key,
+	 * workers load with checks disabled, and each batch is sorted by the
+	 * primary key columns chosen from the file.  The load's progress is
+	 * checkpointed after each batch, so that an import which fails can be
+	 * resumed by pressing OK again.  Once the rows are loaded the table is
+	 * completed by finishLoad, the checkpoint is removed, and the window is
+	 * closed with a summary of the load's throughput and the time of each
+	 * phase.  The parts of a directory are loaded at once by a
+	 * MultiFileImporter, sharing the connections, and each is checkpointed
+	 * on its own, with the directory's checkpoint recording the table.
+	 */
+	private void importInParallel(TableList tableList, Stage importWindow, Button ok,
+			int batchSize, int parallelism, boolean fastLoad, ImportCheckpoint resumeFrom){
+		
+		if(session==null)
+			return;
+		
+		//workers hold their connections for the whole import, so they are limited by the pool
+		parallelism = Math.min(parallelism, ParallelImporter.getMaxParallelism(session));
+		
+		PhaseTimer timer = new PhaseTimer();
+		ImportCheckpoint importCheckpoint;
+		String db;
+		
+		if(resumeFrom!=null){
+			importCheckpoint = resumeFrom;
+			db = resumeFrom.getDatabase();
+			fastLoad = resumeFrom.isFastLoad();
+			tableName.set(resumeFrom.getTable());
+		}
+		else{
+			db = database.getValue();
+			timer.start("create");
+			
+			try (Connection connection = session.getConnection(db)) 
+			{
+				Statement statement = connection.createStatement();
+				boolean created = createTable(statement, fastLoad);
+				statement.close();
+				
+				if(!created)
+					return;
+			}
+			catch(SQLException ex){
+				ex.printStackTrace();
+				return;
+			}
+			
+			importCheckpoint = new ImportCheckpoint(selectedFile, db, tableName.getValue());
+			importCheckpoint.setFastLoad(fastLoad);
+			
+			for(File part : ImportSource.listParts(selectedFile)){
+				ParallelImporter.getRejectsFile(part).delete();
+				
+				if(selectedFile.isDirectory())
+					ImportCheckpoint.getSidecar(part).delete();
+			}
+		}
+		
+		boolean fast = fastLoad;
+		List<File> parts = ImportSource.listParts(selectedFile);
+		
+		//rate and time remaining are measured from the rows and bytes this load starts at
+		long startNanos = System.nanoTime();
+		long startRows = 0;
+		long startBytes = 0;
+		
+		ParallelImporter loader = null;
+		MultiFileImporter partsLoader = null;
+		
+		if(selectedFile.isDirectory()){
+			//a directory's checkpoint only marks its import as unfinished until its parts commit
+			try{
+				importCheckpoint.commit(0, 0, 0);
+			}
+			catch(IOException ex){
+				ex.printStackTrace();
+			}
+			
+			String[] header = profile==null ? null : profile.getNames().toArray(new String[0]);
+			
+			//loaders are created here since they read the column table
+			HashMap<File, ParallelImporter> partLoaders = new HashMap<File, ParallelImporter>();
+			
+			for(File part : parts){
+				ImportCheckpoint partCheckpoint = ImportCheckpoint.read(part);
+				
+				if(partCheckpoint==null){
+					partCheckpoint = new ImportCheckpoint(part, db, tableName.getValue());
+					partCheckpoint.setFastLoad(fast);
+				}
+				
+				startRows += partCheckpoint.getRows();
+				startBytes += partCheckpoint.getOffset();
+				
+				ParallelImporter partLoader = createLoader(db, batchSize, fast, partCheckpoint);
+				partLoader.setHeader(header);
+				partLoaders.put(part, partLoader);
+			}
+			
+			partsLoader = new MultiFileImporter(session, parts, partLoaders::get);
+			partsLoader.setParallelism(parallelism);
+		}
+		else{
+			startRows = importCheckpoint.getRows();
+			startBytes = importCheckpoint.getOffset();
+			
+			loader = createLoader(db, batchSize, fast, importCheckpoint);
+			loader.setParallelism(parallelism);
+		}
+		
+		long resumedRows = startRows;
+		long resumedBytes = startBytes;
+		
+		ParallelImporter.ProgressListener listener = (rows, rejected, bytes, totalBytes) -> 
+				Platform.runLater(() -> showProgress(rows, rejected, bytes, totalBytes, 
+						(System.nanoTime() - startNanos)/1e9, resumedRows, resumedBytes));
+		
+		if(partsLoader!=null)
+			partsLoader.setProgressListener(listener);
+		else
+			loader.setProgressListener(listener);
+		
+		ok.setDisable(true);
+		resumeImport.setVisible(false);
+		importProgress.setProgress(totalProgress(startBytes, getSourceLength(parts)));
+		importStatus.setText((resumeFrom!=null ? "Resuming after row " + startRows : "Loading rows") 
+				+ (parts.size() > 1 ? " of " + parts.size() + " parts" : "")
+				+ " with " + parallelism + " connections");
+		
+		ParallelImporter fileLoader = loader;
+		MultiFileImporter directoryLoader = partsLoader;
+		
+		QueryExecutor.runInBackground(() -> {
+			try{
+				timer.start("load");
+				ParallelImporter.ImportStats stats = directoryLoader!=null 
+						? directoryLoader.importAll() : fileLoader.importFile(selectedFile);
+
+				String invalidReferences;
+				
+				try (Connection connection = session.getConnection(db)) 
+				{
+					Statement statement = connection.createStatement();
+					invalidReferences = finishLoad(statement, fast, timer);
+					statement.close();
+				}
+				
+				timer.stop();
+				importCheckpoint.delete();
+				
+				if(directoryLoader!=null){
+					for(File part : parts)
+						ImportCheckpoint.getSidecar(part).delete();
+				}
+
+				Platform.runLater(() -> {
+					tableList.updateList();
+					importWindow.close();
+					new NotificationWindow("Import Complete", stats.toString(), 
+							timer.toString() + (invalidReferences.isEmpty() ? "" : "\n" + invalidReferences),
+							600, 0);
+				});
+			}
+			catch(SQLException|IOException ex){
+				ex.printStackTrace();
+				
+				Platform.runLater(() -> {
+					ok.setDisable(false);
+					importStatus.setText("Import failed: " + ex.getMessage());
+					showCheckpoint();
+				});
+			}
+		});
+	}
+	
+	/*
+	 * This function returns a ParallelImporter of the file's columns into the
+	 * new table, checkpointed by "importCheckpoint".  In fast-load mode it
+	 * loads with checks disabled and sorts each batch by the primary key.
+	 */
+	private ParallelImporter createLoader(String db, int batchSize, boolean fastLoad,
+			ImportCheckpoint importCheckpoint){
+		ArrayList<String> types = new ArrayList<String>();
+		ArrayList<Integer> keys = new ArrayList<Integer>();
+		
+		for(ColumnProperties c : columnMeta.getItems()){
+			if(c.getPrimary())
+				keys.add(types.size());
+			
+			types.add(c.getType());
+		}
+		
+		ParallelImporter loader = new ParallelImporter(session, db, tableName.getValue(), 
+				getColumnNames(), types, CsvReader.parseDelimiter(delimiter.getValue()));
+		loader.setBatchSize(batchSize);
+		loader.setCheckpoint(importCheckpoint);
+		
+		if(fastLoad){
+			loader.setDeferChecks(true);
+			loader.setKeyColumns(keys.stream().mapToInt(Integer::intValue).toArray());
+		}
+		
+		return loader;
+	}
+	
+	//returns the length of the text of every part, or -1 if any is compressed
+	private static long getSourceLength(List<File> parts){
+		long length = 0;
+		
+		for(File part : parts){
+			if(ImportSource.getLength(part) < 0)
+				return -1;
+			
+			length += ImportSource.getLength(part);
+		}
+		
+		return length;
+	}
+	
+	/*
+	 * This function shows an import's progress: the rows committed, their
+	 * rate and the time remaining at the rate bytes have been committed
+	 * since this load started, and the rows rejected.
+	 */
+	private void showProgress(long rows, long rejected, long bytes, long totalBytes, double seconds,
+			long startRows, long startBytes){
+		double rowRate = (rows - startRows)/Math.max(seconds, 1e-3);
+		double byteRate = (bytes - startBytes)/Math.max(seconds, 1e-3);
+		
+		String eta = byteRate > 0&&totalBytes > 0 
+				? formatDuration((totalBytes - bytes)/byteRate) : "unknown";
+		
+		importProgress.setProgress(totalProgress(bytes, totalBytes));
+		importStatus.setText(String.format("%,d rows, %,.0f rows/s, ETA %s, %,d rejected", 
+				rows, rowRate, eta, rejected));
+	}
+	
+	private static double totalProgress(long bytes, long totalBytes){
+		return totalBytes > 0 ? (double)bytes/totalBytes : ProgressBar.INDETERMINATE_PROGRESS;
+	}
+	
+	private static String formatDuration(double seconds){
+		long s = Math.round(seconds);
+		return s >= 3600 ? String.format("%d:%02d:%02d", s/3600, s/60%60, s%60)
+				: String.format("%d:%02d", s/60, s%60);
+	}
+	
+	/*
+	 * This function offers to resume an unfinished import of the selected
+	 * file if its checkpoint is found, with the share of the file committed,
+	 * or for a directory, the rows committed by all of its parts.
+	 */
+	private void showCheckpoint(){
+		checkpoint = selectedFile==null ? null : ImportCheckpoint.read(selectedFile);
+		
+		if(checkpoint==null){
+			resumeImport.setVisible(false);
+			resumeImport.setSelected(false);
+			return;
+		}
+		
+		if(selectedFile.isDirectory()){
+			long rows = 0;
+			
+			for(File part : ImportSource.listParts(selectedFile)){
+				ImportCheckpoint partCheckpoint = ImportCheckpoint.read(part);
+				
+				if(partCheckpoint!=null)
+					rows += partCheckpoint.getRows();
+			}
+			
+			resumeImport.setText(String.format("Resume loading %s after %,d rows of all parts", 
+					checkpoint.getTable(), rows));
+		}
+		else if(ImportSource.isCompressed(selectedFile)){
+			resumeImport.setText(String.format("Resume loading %s after row %,d", 
+					checkpoint.getTable(), checkpoint.getRows()));
+		}
+		else{
+			resumeImport.setText(String.format("Resume loading %s after row %,d (%.0f%% of file)", 
+					checkpoint.getTable(), checkpoint.getRows(), 
+					100.0*checkpoint.getOffset()/Math.max(1, checkpoint.getFileLength())));
+		}
+		resumeImport.setVisible(true);
+		resumeImport.setSelected(true);
+	}
+	
+	/*
+	 * This function runs the CREATE TABLE statement built from the column
+	 * properties, returning false if there is none.
+	 */
+	private boolean createTable(Statement statement, boolean keysFirst) throws SQLException{
+		String statementString = getStatementString(keysFirst);
+		
+		if(statementString.isEmpty())
+			return false;
+		
+		statement.execute(statementString);
+		session.tableChanged(tableName.getValue());
+		
 		return true;
 	}
+	
+	/*
+	 * This function completes a table after its rows are loaded.  Otherwise
+	 * the generated primary key is added now, which rebuilds the table.  In
+	 * fast-load mode the key already exists, so the indexes of the foreign
+	 * key columns are built from the loaded rows in one ALTER TABLE, the
+	 * foreign keys are added without checking the rows, and then each is
+	 * validated with one query for rows which reference no row.  Returns a
+	 * description of the invalid references found, or "" if there are none.
+	 */
+	private String finishLoad(Statement statement, boolean fastLoad, PhaseTimer timer) 
+			throws SQLException{
+		String table = tableName.getValue();
+		
+		if(!fastLoad){
+			timer.start("primary key");
+			addGeneratedKey(statement);
+			return "";
+		}
+		
+		List<String[]> foreignKeys = getForeignKeys();
+		
+		if(foreignKeys==null||foreignKeys.isEmpty())
+			return "";
+		
+		ArrayList<String> indexes = new ArrayList<String>();
+		ArrayList<String> constraints = new ArrayList<String>();
+		
+		for(String[] key : foreignKeys){
+			indexes.add("ADD INDEX (" + key[0] + ")");
+			constraints.add("ADD FOREIGN KEY (" + key[0] + ") REFERENCES " + key[1] + " (" + key[2] + ")");
+		}
+		
+		timer.start("secondary indexes");
+		statement.execute("ALTER TABLE " + table + " " + String.join(", ", indexes) + ";");
+		
+		//the rows are validated below rather than by a copy of the table
+		timer.start("foreign keys");
+		statement.execute("SET SESSION foreign_key_checks = 0;");
+		
+		try{
+			statement.execute("ALTER TABLE " + table + " " + String.join(", ", constraints) + ";");
+		}
+		finally{
+			statement.execute("SET SESSION foreign_key_checks = 1;");
+		}
+		
+		session.tableChanged(table);
+		
+		timer.start("validation");
+		
+		StringBuilder invalid = new StringBuilder();
+		
+		for(String[] key : foreignKeys){
+			ResultSet orphans = statement.executeQuery("SELECT COUNT(*) FROM " + table + " t LEFT JOIN " 
+					+ key[1] + " r ON t." + key[0] + " = r." + key[2] + " WHERE t." + key[0] 
+					+ " IS NOT NULL AND r." + key[2] + " IS NULL;");
+			
+			if(orphans.next()&&orphans.getLong(1) > 0){
+				invalid.append(invalid.length() > 0 ? "\n" : "").append(String.format(
+						"%d rows of %s reference no row of %s(%s)", orphans.getLong(1), key[0], 
+						key[1], key[2]));
+			}
+		}
+		
+		return invalid.toString();
+	}
+	
+	//generates an auto increment primary key if one was specified
+	private void addGeneratedKey(Statement statement) throws SQLException{
+		if(generatedKey!=null){					
+			statement.execute("ALTER TABLE " + tableName.getValue() + " ADD " + generatedKey + 
+					" INT AUTO_INCREMENT NOT NULL PRIMARY KEY FIRST;");
+		}
+	}
+	
+	//returns the names of the columns imported from the file
+	private ArrayList<String> getColumnNames(){
+		ArrayList<String> names = new ArrayList<String>();
+		
+		for(ColumnProperties c : columnMeta.getItems())
+			names.add(c.getName());
+		
+		return names;
+	}
+	
+	//returns the line terminator of the selected file's first line
+	private String getLineTerminator() throws IOException{
+		try(InputStream in = new FileInputStream(selectedFile)){
+			return CsvReader.detectLineTerminator(in);
+		}
+	}
+	
+	//returns a positive count typed by the user, or "defaultCount" if it is invalid
+	private static int parseCount(String text, int defaultCount){
+		try{
+			int count = Integer.parseInt(text.trim());
+			return count > 0 ? count : defaultCount;
+		}
+		catch(NumberFormatException ex){
+			return defaultCount;
+		}
+	}
 
 /*
  * This function creates a CREATE TABLE statement with the column definitions and
  * constraints specified by the imported ColumnProperties objects.
  */
 	String getStatementString(){
+		return getStatementString(false);
+	}
+	
+	/*
+	 * This function creates a CREATE TABLE statement with the column definitions
+	 * and constraints specified by the imported ColumnProperties objects.  When
+	 * "keysFirst" is set the generated primary key is defined first, and foreign
+	 * key constraints are left to be added once the table is loaded.
+	 */
+	String getStatementString(boolean keysFirst){
 		//begin create table statement
 		String statementString = new String("CREATE TABLE " + tableName.getValue()) + " (";
 		
+		if(keysFirst&&generatedKey!=null)
+			statementString += " " + generatedKey + " INT AUTO_INCREMENT NOT NULL PRIMARY KEY,";
+		
 		//specifies whether each column is part of the primary key
 		String primaryKey;
 
@@ -355,9 +912,13 @@ public class FileImporter {
 		}
 		
 		//append any foreignKey constraints and complete statement
-		if(foreignKey){
+		if(foreignKey&&!keysFirst){
 			statementString = appendConstraints(statementString);
 		}
+		else if(foreignKey&&getForeignKeys()==null){
+			showInvalidForeignKey();
+			return "";
+		}
 		else
 			statementString = statementString.substring(0, 
 					statementString.length()-1) + ");";
@@ -370,6 +931,34 @@ public class FileImporter {
 	 * for each imported column which specifies a foreign key constraint.
 	 */
 	private String appendConstraints(String statementString){
+		List<String[]> foreignKeys = getForeignKeys();
+		
+		if(foreignKeys==null){
+			//unable to process input
+			showInvalidForeignKey();
+			return "";
+		}
+		
+		for(String[] key : foreignKeys){
+			//append constraint to statement
+			statementString +=
+				"FOREIGN KEY (" + key[0] + ") REFERENCES "
+				+ key[1] + " (" + key[2] + " ), ";
+		}
+		
+		statementString = statementString.substring(0, statementString.length()-2) + ");";
+		
+		return statementString;
+	}
+	
+	/*
+	 * This function returns the column, referenced table and referenced column
+	 * of each imported column which specifies a foreign key constraint, or null
+	 * if any constraint cannot be read.
+	 */
+	private List<String[]> getForeignKeys(){
+		ArrayList<String[]> foreignKeys = new ArrayList<String[]>();
+		
 		for(ColumnProperties c : columnMeta.getItems()){
 			if(!c.getForeign().isEmpty()){
 				
@@ -394,102 +983,174 @@ public class FileImporter {
 					referencedColumn = foreignInput.substring(foreignInput.indexOf( "(" )+1,
 							foreignInput.indexOf( ")" ));
 				}
-				else{
-					//unable to process input
-					new NotificationWindow("Invalid Foreign Key",
-							"Enter as TABLENAME.COLUMNNAME or",
-							"TABLENAME(COLUMNNAME)");
-					return "";
-				}
-				//append constraint to statement
-				statementString +=
-					"FOREIGN KEY (" + c.getName() + ") REFERENCES "
-					+ referencedTable + " (" + referencedColumn + " ), ";
+				else
+					return null;
+				
+				foreignKeys.add(new String[]{c.getName(), referencedTable, referencedColumn});
 			}
 		}
 		
-		
-		statementString = statementString.substring(0, statementString.length()-2) + ");";
-		
-		return statementString;
+		return foreignKeys;
+	}
+	
+	private void showInvalidForeignKey(){
+		new NotificationWindow("Invalid Foreign Key",
+				"Enter as TABLENAME.COLUMNNAME or",
+				"TABLENAME(COLUMNNAME)");
 	}
 	
 	/*
-	 * This function loads the ColumnProperties table by reading the first two
-	 * lines of the file into two separate scanners.  The first row's scanner
-	 * is used to read in the names, and the second row's scanner tries to 
-	 * suggest data types for the column based on the fields in the first data
-	 * row. The lists generated by these two scanners are used to fill the table
-	 * suggested names and types for the column, with the primary and foreign
-	 * key fields blank by default.
+	 * This function loads the ColumnProperties table from a FileProfiler's
+	 * scan of the file in the background.  The first line supplies the
+	 * column names, and each column's suggested type is one which holds
+	 * every value in the file, or in a reservoir sample of its rows if
+	 * sampling is selected.  The primary and foreign key fields are blank by
+	 * default.  A scan which is superseded by a later change of the file or
+	 * delimiter is cancelled and discarded.  A directory's columns are read
+	 * from its first part, and the other parts are expected to hold the same
+	 * columns.
 	 */
 	void initializeColumnsFromFile(){
+		
+		if(profiler!=null){
+			profiler.cancel();
+			profiler = null;
+		}
 
 		//clear any existing data from previously selected files
 		columns.clear();
 		columnTypes.clear();
 		columnMeta.getItems().clear();
+		profile = null;
+		sizeSummary.setText("");
+		showCheckpoint();
+
+		List<File> parts = ImportSource.listParts(selectedFile);
 		
-		try{
-			
-			Scanner scanner = new Scanner(selectedFile);
-			
-			//read in first line of scanner to retrieve column names
-			String columnNames = scanner.nextLine();
-			
-			//read in second line of scanner to attempt to recognize data types
-			String firstRow = scanner.nextLine();
-			scanner.close();
-			
-			//set scanner to row of column names
-			scanner = new Scanner(columnNames);
-			scanner.useDelimiter(delimiter.getValue());
-			
-			//add all column names to column list
-			while(scanner.hasNext()){
+		if(parts.isEmpty()||!parts.get(0).isFile())
+			return;
+		
+		int generation = ++profileGeneration;
+		
+		File file = parts.get(0);
+		FileProfiler scan = new FileProfiler(CsvReader.parseDelimiter(delimiter.getValue()));
+		profiler = scan;
+		
+		if(sampleOnly.get())
+			scan.setSampleSize(FileProfiler.DEFAULT_SAMPLE_SIZE);
+		
+		profileStatus.setText("Scanning file...");
+		
+		QueryExecutor.runInBackground(() -> {
+			try{
+				FileProfiler.FileProfile profile = scan.profile(file);
 				
-				String columnName = getValidName(scanner.next());
-				columns.add(columnName);
+				Platform.runLater(() -> {
+					if(generation==profileGeneration)
+						showProfile(profile);
+				});
 			}
-
-			scanner.close();
-			
-			//set scanner to first row of data
-			scanner = new Scanner(firstRow);
-			scanner.useDelimiter(delimiter.getValue());
-			
-			//attempt to identify each field as an int, double, or VarChar
-			while(scanner.hasNext()){
-				String entry = scanner.next();
-				entry = entry.trim();
+			catch(InterruptedIOException ex){
+				//the scan was superseded by a later one
+			}
+			catch(IOException ex){
+				ex.printStackTrace();
 				
-				try{
-					Integer.parseInt(entry);
-					columnTypes.add("INT");
-				}
-				catch(NumberFormatException e){
-					try{
-						Double.parseDouble(entry);
-						columnTypes.add("DOUBLE(12, 2)");
-					}
-					catch(NumberFormatException ex){
-						columnTypes.add("VARCHAR(20)");
-					}
-				}
+				Platform.runLater(() -> {
+					if(generation==profileGeneration)
+						profileStatus.setText("Unable to read file");
+				});
+			}
+		});
+	}
+	
+	/*
+	 * This function loads suggested column names and types into the column
+	 * table with false primary key property and empty foreign key property.
+	 * Each column is given the narrowest type which holds its values, next
+	 * to the wider default type.  When only a sample was read, both are a
+	 * type widened beyond the sample's values, since the rows outside it may
+	 * hold larger ones, and ENUMs are not suggested.  The size estimates are
+	 * updated whenever a type is edited.
+	 */
+	private void showProfile(FileProfiler.FileProfile scanned){
+		profile = scanned;
+		profiler = null;
+		
+		ArrayList<String> defaultTypes = new ArrayList<String>();
+		
+		for(int i = 0; i < profile.getNames().size(); i++){
+			ColumnStats stats = profile.getStats(i);
+			
+			columns.add(getValidName(profile.getNames().get(i)));
+			//types from a sample are widened, since other rows may hold larger values
+			if(profile.isSampled()){
+				columnTypes.add(stats.getSampledType());
+				defaultTypes.add(stats.getSampledType());
+			}
+			else{
+				columnTypes.add(stats.getNarrowestType(true));
+				defaultTypes.add(stats.getDefaultType());
 			}
-
-			scanner.close();
 		}
-		catch(FileNotFoundException f){
-			f.printStackTrace();
+		
+		//long text columns are made TEXT so that the table can be created
+		ColumnStats.fitRowSize(columnTypes);
+		ColumnStats.fitRowSize(defaultTypes);
+		
+		for(int i = 0; i < columns.size(); i++){
+			ColumnProperties column = new ColumnProperties(columns.get(i), columnTypes.get(i),
+					false, "");
+			column.setDefaultType(defaultTypes.get(i));
+			column.getColumnType().addListener((obv, oldValue, newValue) -> updateSizeEstimates());
+			
+			columnMeta.getItems().add(column);
 		}
 		
-		//load suggested column names and types into column table with false primary key
-		//property and empty foreign key property
-		for(int i = 0; i < columns.size(); i++){			
-			columnMeta.getItems().add(new ColumnProperties(columns.get(i), columnTypes.get(i),
-					false, ""));
+		updateSizeEstimates();
+		profileStatus.setText(profile.toString() + (profile.isSampled() 
+				? ", types widened for rows outside the sample" : ""));
+	}
+	
+	/*
+	 * This function shows the estimated bytes per row of each column with
+	 * its type and with its default type, and the estimated size of a row
+	 * and of the whole table with each.  Rows include InnoDB's row overhead
+	 * and a null bitmap, since imported columns are nullable.
+	 */
+	private void updateSizeEstimates(){
+		if(profile==null)
+			return;
+		
+		double rowBytes = ColumnStats.ROW_OVERHEAD + (columnMeta.getItems().size() + 7)/8;
+		double defaultRowBytes = rowBytes;
+		
+		for(int i = 0; i < columnMeta.getItems().size(); i++){
+			ColumnProperties column = columnMeta.getItems().get(i);
+			ColumnStats stats = profile.getStats(i);
+			
+			double bytes = stats.estimateBytes(column.getType());
+			double defaultBytes = stats.estimateBytes(column.getDefaultType());
+			
+			column.setSizeEstimate(String.format("%.1f (default %.1f)", bytes, defaultBytes));
+			
+			rowBytes += bytes;
+			defaultRowBytes += defaultBytes;
 		}
+		
+		sizeSummary.setText(String.format("Estimated row size %.0f B, table size %s for %d rows "
+				+ "(default types: %.0f B, %s)", rowBytes, formatBytes(rowBytes*profile.getRows()),
+				profile.getRows(), defaultRowBytes, formatBytes(defaultRowBytes*profile.getRows())));
+	}
+	
+	static String formatBytes(double bytes){
+		if(bytes >= 1L << 30)
+			return String.format("%.2f GB", bytes/(1L << 30));
+		
+		if(bytes >= 1L << 20)
+			return String.format("%.1f MB", bytes/(1L << 20));
+		
+		return String.format("%.0f KB", bytes/1024);
 	}
 	
 	//removes some problematic characters from imported column names
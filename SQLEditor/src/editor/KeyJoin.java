@@ -0,0 +1,336 @@
+package editor;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import columninfo.ColumnProperties;
+import columninfo.ColumnSchema;
+
+/*
+ * This class creates a table from columns of several source tables by
+ * joining the tables on the foreign keys between them, rather than by row
+ * position.  The foreign keys are read from the session's SchemaCache, and
+ * the table with the most foreign keys to the other selected tables, such
+ * as a fact table, is joined to each table it reaches through them, either
+ * directly or through another selected table.  Each join follows a foreign
+ * key, whose columns InnoDB always indexes, to the key it references, so
+ * every join can be driven by an index.  With INNER JOIN only rows whose
+ * keys match in every table are kept, and with LEFT JOIN every row of the
+ * first table is kept.
+ *
+ * Foreign keys are told apart by their constraints, so a table with two
+ * foreign keys to the same table, such as a billing and a shipping address,
+ * joins that table once for each.  The second join is under the name of
+ * its constraint, and its selected columns are prefixed with that name.
+ *
+ * The table can also be created empty and filled by a ChunkedCopy, in
+ * ranges of the first table's primary key.
+ */
+public class KeyJoin {
+
+	//names of the engines, as shown to the user
+	public static final String INNER_ENGINE = "Foreign Keys (INNER JOIN)";
+	public static final String LEFT_ENGINE = "Foreign Keys (LEFT JOIN)";
+
+	//columns of EXPLAIN shown in a preview of the plan
+	private static final String[] PLAN_COLUMNS = {"table", "type", "key", "ref", "rows", "Extra"};
+
+	private String newTableName;
+	private boolean leftJoin;
+
+	//first table of the join, and the tables joined to it in order
+	private String root;
+	private List<Link> links = new ArrayList<Link>();
+
+	//columns of the new table, as table.column, and their names in it
+	private List<String> columns = new ArrayList<String>();
+	private List<String> names = new ArrayList<String>();
+
+	private KeyJoin(String tableName, boolean left){
+		newTableName = tableName;
+		leftJoin = left;
+	}
+
+	//returns true if "engine" names a foreign key join
+	public static boolean isKeyEngine(String engine){
+		return INNER_ENGINE.equals(engine)||LEFT_ENGINE.equals(engine);
+	}
+
+	/*
+	 * This function finds the foreign keys which connect the tables of the
+	 * columns "cols", returning a KeyJoin of them, or null if some table is
+	 * not connected to the others by a foreign key between selected tables.
+	 */
+	public static KeyJoin find(SchemaCache cache, String tableName, List<ColumnProperties> cols,
+			boolean left) throws SQLException{
+		KeyJoin join = new KeyJoin(tableName, left);
+
+		ArrayList<String> tables = new ArrayList<String>();
+
+		for(ColumnProperties c : cols){
+			join.columns.add(c.getTable() + "." + c.getName());
+			join.names.add(c.getName());
+
+			if(!tables.contains(c.getTable()))
+				tables.add(c.getTable());
+		}
+
+		if(tables.isEmpty())
+			return null;
+
+		//foreign keys between selected tables, by referencing table and constraint
+		Map<String, Link> keys = new LinkedHashMap<String, Link>();
+
+		for(String table : tables){
+			for(ColumnSchema column : cache.getTable(table).getColumns()){
+				String referenced = column.getReferencedTable();
+
+				if(!column.isForeign()||referenced.equals(table)||!tables.contains(referenced))
+					continue;
+
+				String name = table + "." + column.getForeignKeyName();
+				Link key = keys.get(name);
+
+				if(key==null){
+					key = new Link(table, referenced, column.getForeignKeyName());
+					keys.put(name, key);
+				}
+
+				key.addColumns(column.getName(), column.getReferencedColumn());
+			}
+		}
+
+		//the table referencing the most others comes first
+		join.root = tables.get(0);
+		int mostKeys = -1;
+
+		for(String table : tables){
+			int count = 0;
+
+			for(Link key : keys.values()){
+				if(key.child.equals(table))
+					count++;
+			}
+
+			if(count > mostKeys){
+				join.root = table;
+				mostKeys = count;
+			}
+		}
+
+		//join each table reached through a foreign key from the tables already joined
+		ArrayList<String> joined = new ArrayList<String>();
+		joined.add(join.root);
+
+		for(int i = 0; i < joined.size(); i++){
+			String table = joined.get(i);
+
+			for(Link key : keys.values()){
+				if(key.child.equals(table)&&!joined.contains(key.parent)){
+					joined.add(key.parent);
+					join.links.add(key.toward(key.parent));
+				}
+				else if(key.parent.equals(table)&&!joined.contains(key.child)){
+					joined.add(key.child);
+					join.links.add(key.toward(key.child));
+				}
+			}
+		}
+
+		if(joined.size()!=tables.size())
+			return null;
+
+		//other foreign keys between two joined tables join the referenced table again
+		ArrayList<Link> aliased = new ArrayList<Link>();
+
+		for(Link key : keys.values()){
+			if(join.links.contains(key))
+				continue;
+
+			for(Link link : join.links){
+				if(link.child.equals(key.child)&&link.parent.equals(key.parent)){
+					aliased.add(key.toward(key.parent));
+					break;
+				}
+			}
+		}
+
+		for(Link key : aliased){
+			key.alias = key.constraint;
+			join.links.add(key);
+
+			for(ColumnProperties c : cols){
+				if(!c.getTable().equals(key.parent))
+					continue;
+
+				join.columns.add(key.alias + "." + c.getName() + " AS " + key.alias + "_" + c.getName());
+				join.names.add(key.alias + "_" + c.getName());
+			}
+		}
+
+		return join;
+	}
+
+	//returns the SELECT which reads the new table's rows
+	public String getSelectString(){
+		String statementString = "SELECT " + String.join(", ", columns) + " FROM " + root;
+
+		for(Link link : links)
+			statementString += (leftJoin ? " LEFT JOIN " : " INNER JOIN ") + link.getJoinString();
+
+		return statementString;
+	}
+
+	public String getCreateString(){
+		return "CREATE TABLE " + newTableName + " AS " + getSelectString() + ";";
+	}
+
+	/*
+	 * This function creates the new table without rows and returns a
+	 * ChunkedCopy which fills it in ranges of the first table's primary key,
+	 * which must be a single column.
+	 */
+	public ChunkedCopy prepareChunkedCopy(SessionConfig session, Statement statement)
+			throws SQLException{
+		List<String> key = session.getSchemaCache().getTable(root).getPrimaryKey();
+
+		if(key.size()!=1)
+			throw new SQLException("Copying in chunks requires a single column primary key on " + root);
+
+		statement.execute("CREATE TABLE " + newTableName + " AS " + getSelectString() + " LIMIT 0;");
+
+		ArrayList<ChunkedCopy.KeyRange> ranges = new ArrayList<ChunkedCopy.KeyRange>();
+		ranges.add(new ChunkedCopy.KeyRange(root, key.get(0), root + "." + key.get(0)));
+
+		return new ChunkedCopy(session, session.getDatabase(), newTableName, names, ranges,
+				r -> getSelectString() + " WHERE " + r.get(0).getCondition());
+	}
+
+	//returns each join of the path, as the table joined and its key condition
+	public List<String> getPath(){
+		ArrayList<String> path = new ArrayList<String>();
+		path.add(root);
+
+		for(Link link : links)
+			path.add((leftJoin ? "LEFT JOIN " : "INNER JOIN ") + link.getJoinString());
+
+		return path;
+	}
+
+	/*
+	 * This function runs EXPLAIN on the SELECT and returns a line for each
+	 * table of the plan, with its access type, the index used, the values
+	 * it is looked up by, the rows the server expects to read, and notes.
+	 */
+	public List<String> explain(Statement statement) throws SQLException{
+		ArrayList<String> plan = new ArrayList<String>();
+		plan.add(String.join(" | ", PLAN_COLUMNS));
+
+		ResultSet rs = statement.executeQuery("EXPLAIN " + getSelectString() + ";");
+		ResultSetMetaData meta = rs.getMetaData();
+
+		while(rs.next()){
+			ArrayList<String> values = new ArrayList<String>();
+
+			for(String column : PLAN_COLUMNS){
+				String value = null;
+
+				for(int i = 1; i <= meta.getColumnCount(); i++){
+					if(meta.getColumnLabel(i).equalsIgnoreCase(column))
+						value = rs.getString(i);
+				}
+
+				values.add(value==null ? "" : value);
+			}
+
+			plan.add(String.join(" | ", values));
+		}
+
+		rs.close();
+
+		return plan;
+	}
+
+	/*
+	 * This function returns the server's estimate of the rows the SELECT
+	 * returns: the product of the rows it expects to read from each table
+	 * and the share of them it expects to keep.
+	 */
+	public long estimateRows(Statement statement) throws SQLException{
+		double rows = 1;
+
+		ResultSet rs = statement.executeQuery("EXPLAIN " + getSelectString() + ";");
+		ResultSetMetaData meta = rs.getMetaData();
+
+		while(rs.next()){
+			double filtered = 100;
+
+			for(int i = 1; i <= meta.getColumnCount(); i++){
+				if(meta.getColumnLabel(i).equalsIgnoreCase("filtered"))
+					filtered = rs.getDouble(i);
+			}
+
+			rows *= rs.getLong("rows")*filtered/100;
+		}
+
+		rs.close();
+
+		return Math.round(rows);
+	}
+
+	/*
+	 * This class is the foreign key columns from a referencing ("child")
+	 * table to a referenced ("parent") table, and, once part of the join,
+	 * which of the two is the table being joined.
+	 */
+	private static class Link{
+
+		final String child;
+		final String parent;
+
+		//name of the foreign key's constraint
+		final String constraint;
+
+		final List<String> childColumns = new ArrayList<String>();
+		final List<String> parentColumns = new ArrayList<String>();
+
+		//table joined to those before it
+		String joined;
+
+		//name the parent is joined under, if it is joined more than once, or null
+		String alias;
+
+		Link(String childTable, String parentTable, String constraintName){
+			child = childTable;
+			parent = parentTable;
+			constraint = constraintName;
+		}
+
+		void addColumns(String childColumn, String parentColumn){
+			childColumns.add(childColumn);
+			parentColumns.add(parentColumn);
+		}
+
+		Link toward(String table){
+			joined = table;
+			return this;
+		}
+
+		String getJoinString(){
+			String joinString = joined + (alias==null ? "" : " AS " + alias) + " ON ";
+
+			for(int i = 0; i < childColumns.size(); i++){
+				joinString += (i==0 ? "" : " AND ") + child + "." + childColumns.get(i) + " = "
+						+ (alias==null ? parent : alias) + "." + parentColumns.get(i);
+			}
+
+			return joinString;
+		}
+	}
+}
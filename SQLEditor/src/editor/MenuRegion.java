@@ -1,7 +1,6 @@
 package editor;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
@@ -62,12 +61,23 @@ public class MenuRegion extends VBox{
 		Menu file = new Menu("File");
 		MenuItem imp = new MenuItem("Import");
 		MenuItem connect = new MenuItem("Connect");
+		MenuItem statistics = new MenuItem("Connection Statistics");
 		MenuItem quit = new MenuItem("Quit");
 		
-		file.getItems().addAll(connect, imp, quit);
+		file.getItems().addAll(connect, imp, statistics, quit);
 		
 		connect.setOnAction(e -> {getConnection();});
 		
+		statistics.setOnAction(e -> {
+			if(SQLEditor.getSession()==null)
+				new NotificationWindow("Connection required", 
+						"You must connect to a database server to use this feature");
+			else
+				new NotificationWindow("Connection Statistics", 
+						SQLEditor.getSession().getPool().getSummary() + System.lineSeparator()
+						+ SQLEditor.getSession().getResultCache().getSummary());
+		});
+		
 		imp.setOnAction(e -> {
 			FileImporter importer = new FileImporter(SQLEditor.getSession());
 			importer.getFile(SQLEditor.getTableList());
@@ -180,6 +190,10 @@ public class MenuRegion extends VBox{
 		
 		//URL += "/java?verifyServerCertificate=false&useSSL=true";
 		
+		//release connections held by the previous session
+		if(SQLEditor.getSession()!=null)
+			SQLEditor.getSession().close();
+		
 		SessionConfig session = new SessionConfig("jdbc:mysql://" + URL, user, 
 				password);
 		
@@ -208,8 +222,7 @@ public class MenuRegion extends VBox{
 	private void updateDatabaseList(){
 		SessionConfig session = SQLEditor.getSession();
 		
-		try (Connection connection = DriverManager.getConnection(session.getURL(), session.getUserName(), 
-				session.getPassword())) 
+		try (Connection connection = session.getConnection()) 
 		{
 			Statement statement = connection.createStatement();
 			
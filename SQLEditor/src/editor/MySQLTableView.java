@@ -1,43 +1,122 @@
 package editor;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import columninfo.ColumnSchema;
+import columninfo.TableSchema;
 import filters.Filter;
 import filters.FilterTabPane;
+import filters.TableQuery;
+import javafx.application.Platform;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.beans.value.ObservableValue;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
+import javafx.scene.Node;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
+import javafx.scene.control.CheckBox;
 import javafx.scene.control.ContextMenu;
 import javafx.scene.control.Label;
 import javafx.scene.control.MenuItem;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
 import javafx.scene.control.TextField;
+import javafx.scene.control.Tooltip;
 import javafx.scene.control.TableColumn.CellDataFeatures;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 import javafx.util.Callback;
+import tabledata.CellValue;
+import tabledata.ColumnarTable;
+import tabledata.RowList;
+import tabledata.RowSorter;
+import tabledata.RowView;
 
 /*
  * This class is an editable TableView which displays all data in a 
- * MySQL table as strings.  "Update" on the individual cell ContextMenus 
- * must be click to submit edits to the MySQL table.
+ * MySQL table.  Rows are held column by column in a ColumnarTable,
+ * decoded by each column's type, and shown through a RowList.  Values are
+ * formatted as text only when their cells are shown, while sorting and
+ * edits use the typed values.  Edits are held as pending, shown highlighted,
+ * until "Commit All" writes them in one transaction, or "Update" on an
+ * individual cell's ContextMenu submits that cell.  Large tables are
+ * displayed a page at a time, with only the pages being viewed in memory,
+ * and are sorted by MySQL rather than in memory.
+ * Queries run on background threads and can be cancelled from the view's
+ * status bar.  Renamed, deleted and added columns are queued in the
+ * session's SchemaChangeQueue and made together by one ALTER TABLE, after
+ * which only the TableColumns are changed if every row is loaded.
  */
-public class MySQLTableView extends TableView<ObservableList<String>>{
+public class MySQLTableView extends TableView<RowView>{
+
+	//tables and filtered results with more rows than this are paged
+	public static final int PAGING_THRESHOLD = 50000;
+	
+	//default maximum number of rows read by each load
+	private static final int DEFAULT_ROW_CAP = 100000;
+	
+	//fully loaded results with at most this many rows are sorted in memory,
+	//others are sorted by MySQL
+	public static final int CLIENT_SORT_LIMIT = 100000;
 
 	FilterTabPane filters;
 	
+	//runs table loads and filter queries off the JavaFX thread
+	private QueryExecutor executor = new QueryExecutor();
+	
+	//shows the progress of the executor's current query
+	private QueryStatusBar statusBar = new QueryStatusBar(executor);
+	
+	//maximum rows read by each load or "Load More", 0 for no limit
+	private int rowCap = DEFAULT_ROW_CAP;
+	
+	//streams results from the server instead of buffering them in the driver
+	private CheckBox streaming = new CheckBox("Stream rows");
+	
+	//loads the rows after the row cap, visible when rows remain
+	private Button loadMore = new Button("Load More");
+	
+	//the load which filled the TableView, unless the table is paged
+	private StreamedLoad currentLoad;
+	
+	//query of the rows in the TableView, including the sort order sent to MySQL
+	private TableQuery currentQuery;
+	
+	//true if the TableView shows the rows of the current load matching a local search
+	private boolean searchedLocally = false;
+	
+	//cell edits which have not been written to MySQL
+	private PendingEdits pendingEdits = new PendingEdits();
+	
+	//write or discard the pending edits, visible while there are any
+	private Button commitAll = new Button("Commit All");
+	private Button discardEdits = new Button("Discard Edits");
+	
+	//make or discard the column changes queued for the table, visible while there are any
+	private Button applySchema = new Button("Apply Column Changes");
+	private Button discardSchema = new Button("Discard");
+	
+	//lets column changes fall back to ALGORITHM=COPY, which blocks writes to the table
+	private CheckBox allowCopy = new CheckBox("Allow table copy");
+	
+	//true once TableColumns were changed without loading the rows, so the
+	//next load recreates them to match its rows
+	private boolean columnsChanged = false;
+
 	public MySQLTableView(FilterTabPane filterTabPane){
 		super();
 		
@@ -45,130 +124,824 @@ public class MySQLTableView extends TableView<ObservableList<String>>{
 		
 		setPlaceholder(new Label("Current Table"));
 		setEditable(true);
+		setSortPolicy(table -> sortRows());
+
+		statusBar.addControls(getLoadControls());
 	}
 	
 	/*
 	 * This function initializes all TableColumns and Filters from the
-	 * names and the MySQL columns and loads the table data.
+	 * names and the MySQL columns and loads the table data.  The queries
+	 * run on a background thread.
 	 */
-	@SuppressWarnings("unchecked")
 	public void initTable(){
 		getColumns().clear();
+		setRows(FXCollections.observableArrayList());
+		columnsChanged = false;
+		updateSchemaControls();
 		
 		if(SQLEditor.getTableName()==null){
 			return;
 		}
 		
-		//primary TableView's data
-		ObservableList<ObservableList<String>> data = FXCollections.observableArrayList();
+		String table = SQLEditor.getTableName();
+		SessionConfig session = SQLEditor.getSession();
+		
+		TableQuery query = new TableQuery(table);
+		currentQuery = query;
+		searchedLocally = false;
+
+		executor.submit(new QueryTask("Loading " + table){
+			@Override
+			protected void execute() throws Exception{
+				
+				ArrayList<String> columnNames = new ArrayList<String>();
+				
+				try (Connection connection = session.getConnection()){
+					
+					Statement statement = connection.createStatement();
+					track(statement);
+					
+					//column information of primary TableView's MySQL table, without its rows
+					ResultSet tableData = statement.executeQuery("SELECT * FROM " 
+							+ table + " LIMIT 0");
+					
+					//MySQL table's column information
+					ResultSetMetaData tableInfo = tableData.getMetaData();
+					
+					for(int i = 0; i < tableInfo.getColumnCount(); i++)
+						columnNames.add(tableInfo.getColumnName(i+1));
+					
+					statement.close();
+				}
+				
+				runOnFX(() -> initColumns(columnNames));
+				
+				load(this, query, columnNames);
+			}
+		});
+	}
+	
+	/*
+	 * This function creates a TableColumn and Filters for each column name.
+	 */
+	@SuppressWarnings("unchecked")
+	private void initColumns(ArrayList<String> columnNames){
+		
+		for(int i = 0; i < columnNames.size(); i++){
+			
+			//create TableColumn with current column's name
+			TableColumn<RowView, String> col = 
+					getColumn(i, columnNames.get(i));
+			
+			getColumns().add(col);
+		}
+		
+		setFilters(columnNames);
+	}
+	
+	//creates a filter and a search for each column name
+	private void setFilters(List<String> columnNames){
 		
 		//filters for primary TableView
 		ObservableList<Filter> filterList = FXCollections.observableArrayList();
 		ObservableList<Filter> searchList = FXCollections.observableArrayList();
 		
-		SessionConfig session = SQLEditor.getSession();
+		for(String name : columnNames){
+			filterList.add(new Filter(name));
+			searchList.add(new Filter(name));
+		}
 		
-		try (Connection connection = DriverManager.getConnection(session.getURL(), session.getUserName(), 
-				session.getPassword())){
-			
-			connection.setCatalog(session.getDatabase());
+		filters.setAll(filterList, searchList);
+	}
+	
+	/*
+	 * This function loads the rows matching the query on a background
+	 * thread, cancelling any load or filter query still running.  The rows
+	 * are sorted by MySQL in the TableView's current sort order.  Column
+	 * searches of a fully loaded result are answered from the loaded rows
+	 * instead.
+	 */
+	public void loadQuery(TableQuery query){
+		
+		ArrayList<String> columnNames = getColumnNames();
+		
+		for(TableColumn<RowView, ?> col : getSortOrder())
+			query.addOrder(col.getText(), col.getSortType()==TableColumn.SortType.DESCENDING);
+		
+		currentQuery = query;
+		
+		if(searchLoadedRows(query))
+			return;
+		
+		searchedLocally = false;
+
+		executor.submit(new QueryTask("Querying " + query.getTable()){
+			@Override
+			protected void execute() throws Exception{
+				load(this, query, columnNames);
+			}
+		});
+	}
+	
+	/*
+	 * This function shows the loaded rows matching the query's column
+	 * searches, returning false if MySQL must be queried instead.  This is
+	 * possible when every row matching the query's other conditions has been
+	 * loaded, and each searched column's loaded text is the text LIKE
+	 * matches.  Phrases containing LIKE wildcards are left to MySQL.  Rows
+	 * are found with the ColumnarTable's prefix indexes, and case is ignored
+	 * for columns whose collation ignores it.  Accents are still compared
+	 * exactly, unlike some case insensitive collations.
+	 */
+	private boolean searchLoadedRows(TableQuery query){
+		StreamedLoad load = currentLoad;
+		
+		if(load==null||!load.isComplete()||load.getTable()==null||!(getItems() instanceof RowList))
+			return false;
+		
+		//a query without searches restores the rows hidden by a local search
+		if(!query.hasSearches()&&!searchedLocally)
+			return false;
+		
+		if(!load.getQuery().hasSameConditions(query.withoutSearches()))
+			return false;
+		
+		ColumnarTable table = load.getTable();
+		List<String> searchColumns = query.getSearchColumns();
+		List<String> phrases = query.getSearchPhrases();
+		
+		int[] columns = new int[searchColumns.size()];
+		boolean[] ignoreCase = new boolean[columns.length];
+		
+		try{
+			TableSchema schema = SQLEditor.getSession().getSchemaCache().getTable(query.getTable());
 			
-			Statement statement = connection.createStatement();
+			for(int i = 0; i < columns.length; i++){
+				String phrase = phrases.get(i);
+				
+				if(phrase.contains("%")||phrase.contains("_")||phrase.contains("\\"))
+					return false;
+				
+				columns[i] = -1;
+				
+				for(TableColumn<RowView, ?> col : getColumns()){
+					if(col.getText().equals(searchColumns.get(i)))
+						columns[i] = getColumnIndex(col);
+				}
+				
+				ColumnSchema column = schema.getColumn(searchColumns.get(i));
+				
+				if(columns[i] < 0||column==null||!table.canSearchText(columns[i]))
+					return false;
+				
+				ignoreCase[i] = column.isCaseInsensitive();
+			}
+		}
+		catch(SQLException ex){
+			ex.printStackTrace();
+			return false;
+		}
+		
+		executor.cancel();
+		
+		long start = System.nanoTime();
+		
+		RowList data = new RowList();
+		data.addRows(table, table.findPrefixes(columns, phrases.toArray(new String[0]), ignoreCase));
+		
+		double millis = (System.nanoTime() - start)/1e6;
+		
+		setRows(data);
+		sortLoadedRows(data);
+		searchedLocally = query.hasSearches();
+		
+		statusBar.showMessage(String.format("%d of %d loaded rows match, searched in %.2f ms without MySQL",
+				data.size(), table.getRowCount(), millis));
+		return true;
+	}
+	
+	/*
+	 * This function is run by a QueryTask to load the rows matching the query.
+	 * Tables estimated to have more than PAGING_THRESHOLD rows are counted
+	 * with the query's filters, and if the count is also above the threshold
+	 * the rows are presented through a PagedRowList which fetches only the
+	 * pages being viewed.  Otherwise the matching rows, up to the row cap,
+	 * are streamed and appended to the TableView in chunks as they arrive.
+	 * Results which are read completely are kept in the session's result
+	 * cache, and shown from it while their table is unchanged.
+	 */
+	private void load(QueryTask task, TableQuery query, ArrayList<String> columnNames) 
+			throws SQLException{
+		
+		SessionConfig session = SQLEditor.getSession();
+		ResultCache cache = session.getResultCache();
+		String cacheKey = ResultCache.getKey(session.getDatabase(), query);
+		
+		try (Connection connection = session.getConnection()){
 			
-			//data from primary TableView's MySQL table
-			ResultSet tableData = statement.executeQuery("SELECT * FROM " 
-					+ SQLEditor.getTableName());
+			ResultCache.Entry cached = cache.lookup(connection, cacheKey, columnNames);
 			
-			//MySQL table's column information
-			ResultSetMetaData tableInfo = tableData.getMetaData();
+			if(cached!=null){
+				task.runOnFX(() -> {
+					RowList data = new RowList();
+					StreamedLoad restored = StreamedLoad.restore(query, cached.getRows(), data);
+					
+					showLoadedRows(data, columnNames);
+					currentLoad = restored;
+					loadMore.setVisible(false);
+				});
+				task.reportMessage(cached.getRows().getRowCount() + " rows of " + query.getTable() 
+						+ " shown from the result cache");
+				return;
+			}
 			
-			for(int i = 0; i < tableInfo.getColumnCount(); i++){
+			long estimatedRows = estimateRows(connection, query.getTable());
+
+			if(estimatedRows > PAGING_THRESHOLD){
 				
-				//create TableColumn and Filters with current column's name
-				TableColumn<ObservableList<String>, String> col = 
-						getColumn(i, tableInfo.getColumnName(i+1));
-				filterList.add(new Filter(tableInfo.getColumnName(i+1)));
-				searchList.add(new Filter(tableInfo.getColumnName(i+1)));
+				task.reportMessage("Counting rows in " + query.getTable() + "...");
 				
-				getColumns().add(col);
+				PagedRowList pagedRows = new PagedRowList(session, query, columnNames, 
+						session.getSchemaCache().getTable(query.getTable()).getPrimaryKey());
+				
+				if(pagedRows.size() > PAGING_THRESHOLD){
+					task.runOnFX(() -> {
+						showLoadedRows(pagedRows, columnNames);
+						currentLoad = null;
+						loadMore.setVisible(false);
+					});
+					task.reportMessage(pagedRows.size() + " rows in " + query.getTable() 
+						+ ", loaded by page" + describeSort(query));
+					return;
+				}
+				
+				pagedRows.dispose();
 			}
 			
-			//load MySQL table data into TableView data model
-			while(tableData.next()){
-				ObservableList<String> row = FXCollections.observableArrayList();
-				for(int i = 1; i <= tableInfo.getColumnCount(); i++){
-					row.add(tableData.getString(i));
+			//read before the rows, so that changes made while they load are detected,
+			//and null if the table has no update time, in which case the rows are not cached
+			ResultCache.Version version = estimatedRows <= rowCap||rowCap <= 0 
+					? cache.readVersion(connection, session.getDatabase(), query.getTable()) : null;
+			
+			RowList data = new RowList();
+			
+			StreamedLoad streamedLoad = new StreamedLoad(query, columnNames, 
+					session.getSchemaCache().getTable(query.getTable()).getPrimaryKey(),
+					data, rowCap, streaming.isSelected());
+			
+			task.runOnFX(() -> {
+				showLoadedRows(data, columnNames);
+				currentLoad = streamedLoad;
+				loadMore.setVisible(false);
+			});
+			
+			fetch(task, connection, streamedLoad, estimatedRows);
+			
+			if(version!=null&&streamedLoad.isCompleteInOneFetch())
+				cache.put(cacheKey, session.getDatabase(), query.getTable(), columnNames, 
+						streamedLoad.getTable(), version);
+		}
+	}
+	
+	/*
+	 * This function loads the next rows of the current load, after the row
+	 * cap stopped the previous fetch.
+	 */
+	private void loadMore(){
+		StreamedLoad streamedLoad = currentLoad;
+		
+		if(streamedLoad==null)
+			return;
+		
+		loadMore.setVisible(false);
+		
+		executor.submit(new QueryTask("Loading more rows from " + streamedLoad.getQuery().getTable()){
+			@Override
+			protected void execute() throws Exception{
+				try (Connection connection = SQLEditor.getSession().getConnection()){
+					fetch(this, connection, streamedLoad, 
+							estimateRows(connection, streamedLoad.getQuery().getTable()));
 				}
-				data.add(row);
 			}
+		});
+	}
+	
+	//runs one fetch of a StreamedLoad and reports its statistics
+	private void fetch(QueryTask task, Connection connection, StreamedLoad streamedLoad, 
+			long estimatedRows) throws SQLException{
+		
+		streamedLoad.fetch(task, connection, estimatedRows);
+		
+		task.reportMessage(streamedLoad.getSummary() + describeSort(streamedLoad.getQuery()));
+		
+		if(streamedLoad.hasMore())
+			task.runOnFX(() -> loadMore.setVisible(currentLoad==streamedLoad));
+	}
+	
+	/*
+	 * This function returns the controls for the row cap, streaming mode,
+	 * and loading rows past the cap, which are shown in the status bar.
+	 */
+	private HBox getLoadControls(){
+		Label rowCapLabel = new Label("Row limit:");
+		HBox.setMargin(rowCapLabel, new Insets(3, 0, 0, 0));
+		
+		TextField rowCapInput = new TextField(Integer.toString(rowCap));
+		rowCapInput.setPrefColumnCount(7);
+		
+		//a limit of 0 or less loads every row
+		rowCapInput.textProperty().addListener((obv, oldValue, newValue) -> {
+			try{
+				rowCap = Integer.parseInt(newValue.trim());
+			}
+			catch(NumberFormatException ex){
+				//keep the previous limit until the input is a number
+			}
+		});
+		
+		streaming.setSelected(true);
+		HBox.setMargin(streaming, new Insets(3, 0, 0, 0));
+		
+		loadMore.setVisible(false);
+		loadMore.setOnAction(e -> loadMore());
+		
+		commitAll.setOnAction(e -> commitEdits());
+		discardEdits.setOnAction(e -> {
+			pendingEdits.discard();
+			updatePendingControls();
+			refresh();
+		});
+		updatePendingControls();
+		
+		applySchema.setOnAction(e -> applySchemaChanges());
+		discardSchema.setOnAction(e -> {
+			SQLEditor.getSession().getSchemaChanges().discard(SQLEditor.getTableName());
+			updateSchemaControls();
+		});
+		HBox.setMargin(allowCopy, new Insets(3, 0, 0, 0));
+		updateSchemaControls();
+		
+		return new HBox(5, commitAll, discardEdits, applySchema, discardSchema, allowCopy, loadMore, 
+				rowCapLabel, rowCapInput, streaming);
+	}
+	
+	/*
+	 * This function shows the rows of a load, first recreating the
+	 * TableColumns if they were changed since the last load, so that each
+	 * column's index is its index in the loaded rows.
+	 */
+	@SuppressWarnings("unchecked")
+	private void showLoadedRows(ObservableList<RowView> rows, List<String> columnNames){
+		if(columnsChanged){
+			getColumns().clear();
 			
-			setItems(data);
-			filters.setAll(filterList, searchList);
+			for(int i = 0; i < columnNames.size(); i++){
+				TableColumn<RowView, String> col = getColumn(i, columnNames.get(i));
+				getColumns().add(col);
+			}
 			
-			connection.close();
-			statement.close();
+			columnsChanged = false;
+		}
+		
+		setRows(rows);
+	}
+	
+	//replaces the TableView's rows, stopping page fetches for a replaced PagedRowList
+	private void setRows(ObservableList<RowView> rows){
+		if(getItems() instanceof PagedRowList)
+			((PagedRowList)getItems()).dispose();
+		
+		setItems(rows);
+	}
+	
+	/*
+	 * This function is called by an EditableTableCell once an edit has been
+	 * applied to its row, and adds the edit to the pending edits.  The row's
+	 * primary key values are recorded from before the edit, so that the
+	 * UPDATE finds the row even if a key column was edited.
+	 */
+	void editCommitted(RowView row, int column, String oldText){
+		String table = SQLEditor.getTableName();
+		String columnName = null;
+		
+		List<String> keyNames = new ArrayList<String>();
+		
+		try{
+			keyNames = SQLEditor.getSession().getSchemaCache().getTable(table).getPrimaryKey();
 		}
 		catch(SQLException ex){
 			ex.printStackTrace();
 		}
+		
+		int[] keyIndices = new int[keyNames.size()];
+		Arrays.fill(keyIndices, -1);
+		
+		for(TableColumn<RowView, ?> col : getColumns()){
+			int index = getColumnIndex(col);
+			
+			if(index==column)
+				columnName = col.getText();
+			
+			int keyPosition = keyNames.indexOf(col.getText());
+			
+			if(keyPosition >= 0)
+				keyIndices[keyPosition] = index;
+		}
+		
+		pendingEdits.add(table, row, column, columnName, oldText, keyIndices, keyNames);
+		updatePendingControls();
+		
+		//cached rows of the table may be the rows which were edited
+		SQLEditor.getSession().rowsChanged(table);
+	}
+	
+	//returns true if a cell has been edited without the edit being written to MySQL
+	public boolean isPendingEdit(RowView row, int column){
+		return pendingEdits.isPending(row, column);
+	}
+	
+	//returns a column's value as it was last written, which finds the row while its key is edited
+	public Object getWrittenValue(RowView row, int column){
+		return pendingEdits.getWrittenValue(row, column);
+	}
+	
+	//forgets a cell's pending edit after it has been written by "Update"
+	public void editWritten(RowView row, int column){
+		SQLEditor.getSession().rowsChanged(SQLEditor.getTableName());
+		pendingEdits.remove(row, column);
+		updatePendingControls();
+		refresh();
 	}
 	
 	/*
-	 * This function creates a new TableColumn and sets its factories,
-	 * comparator, and context menus.
+	 * This function writes every pending edit in one transaction on a
+	 * background thread.  If the transaction fails, the edits remain pending
+	 * so that they can be corrected and committed again.
 	 */
-	@SuppressWarnings("rawtypes")
-	private TableColumn getColumn(final int index, String name){
+	private void commitEdits(){
+		if(pendingEdits.isEmpty())
+			return;
 		
-		TableColumn<ObservableList<String>, String> col = 
-				new TableColumn<ObservableList<String>, String>(name);
+		if(pendingEdits.hasRowWithoutKey()){
+			statusBar.showMessage("Edits can only be committed to tables with a primary key");
+			return;
+		}
 		
-		col.setComparator(new CellComparator());
-
-		col.setCellFactory(new UpdatableCellFactory());
+		int cells = pendingEdits.getCellCount();
+		Map<String, List<PendingEdits.PendingRow>> batches = pendingEdits.takeBatches();
 		
-		col.setCellValueFactory(new Callback<CellDataFeatures<ObservableList<String>, String>, ObservableValue<String>>()
-		{
-			public ObservableValue<String> call(CellDataFeatures<ObservableList<String>, String> param){
-				if(param.getValue().get(index)==null)
-					return new SimpleStringProperty("");
+		commitAll.setDisable(true);
+		discardEdits.setDisable(true);
+		statusBar.showMessage("Committing " + cells + " edits...");
+		
+		QueryExecutor.runInBackground(() -> {
+			String message;
+			boolean committed = false;
+			long start = System.nanoTime();
+			
+			try(Connection connection = SQLEditor.getSession().getConnection()){
+				int rows = PendingEdits.commit(connection, batches);
+				committed = true;
+				message = String.format("Committed %d edits to %d rows with %d statements in %.0f ms",
+						cells, rows, batches.size(), (System.nanoTime() - start)/1e6);
+			}
+			catch(SQLException ex){
+				ex.printStackTrace();
+				message = "Commit failed, edits are still pending: " + ex.getMessage();
+			}
+			
+			final String result = message;
+			final boolean success = committed;
+			
+			Platform.runLater(() -> {
+				if(!success)
+					pendingEdits.restore(batches);
+				
+				for(List<PendingEdits.PendingRow> batch : batches.values())
+					SQLEditor.getSession().rowsChanged(batch.get(0).getTable());
 
-				return new SimpleStringProperty(param.getValue().get(index).toString());
+				commitAll.setDisable(false);
+				discardEdits.setDisable(false);
+				updatePendingControls();
+				refresh();
+				statusBar.showMessage(result);
+			});
+		});
+	}
+	
+	//shows the commit and discard buttons with the number of pending edits
+	private void updatePendingControls(){
+		boolean pending = !pendingEdits.isEmpty();
+		
+		commitAll.setText("Commit All (" + pendingEdits.getCellCount() + ")");
+		commitAll.setVisible(pending);
+		discardEdits.setVisible(pending);
+	}
+	
+	/*
+	 * This function shows the number of column changes queued for the table
+	 * and lists them in the apply button's tooltip.  It is called whenever
+	 * changes are queued, including by the ColumnBuilder.
+	 */
+	public void updateSchemaControls(){
+		SessionConfig session = SQLEditor.getSession();
+		String table = SQLEditor.getTableName();
+		
+		List<String> changes = session==null||table.isEmpty() ? new ArrayList<String>() 
+				: session.getSchemaChanges().describe(table);
+		
+		applySchema.setText("Apply Column Changes (" + changes.size() + ")");
+		applySchema.setTooltip(changes.isEmpty() ? null : new Tooltip(String.join("\n", changes)));
+		
+		for(Node control : new Node[]{applySchema, discardSchema, allowCopy})
+			control.setVisible(!changes.isEmpty());
+	}
+	
+	/*
+	 * This function makes the column changes queued for the table with one
+	 * ALTER TABLE on a background thread, and then shows the new columns.
+	 * Pending edits must be committed first, since they name their columns.
+	 */
+	private void applySchemaChanges(){
+		SessionConfig session = SQLEditor.getSession();
+		String table = SQLEditor.getTableName();
+		
+		if(!pendingEdits.isEmpty()){
+			statusBar.showMessage("Commit or discard the pending edits before changing columns");
+			return;
+		}
+		
+		boolean copy = allowCopy.isSelected();
+		
+		applySchema.setDisable(true);
+		discardSchema.setDisable(true);
+		statusBar.showMessage("Changing the columns of " + table + "...");
+		
+		QueryExecutor.runInBackground(() -> {
+			SchemaChangeQueue.Result result = null;
+			String error = null;
+			ArrayList<String> columnNames = new ArrayList<String>();
+			
+			try{
+				result = session.getSchemaChanges().apply(table, copy);
+			}
+			catch(SQLException ex){
+				ex.printStackTrace();
+				error = ex.getMessage();
+			}
+			
+			//the new columns are read without the rows, an empty list reloads the table
+			try{
+				if(result!=null){
+					for(ColumnSchema column : session.getSchemaCache().getTable(table).getColumns())
+						columnNames.add(column.getName());
+				}
+			}
+			catch(SQLException ex){
+				ex.printStackTrace();
+				columnNames.clear();
 			}
+			
+			SchemaChangeQueue.Result applied = result;
+			String failure = error;
+			
+			Platform.runLater(() -> {
+				applySchema.setDisable(false);
+				discardSchema.setDisable(false);
+				updateSchemaControls();
+				
+				if(applied==null){
+					statusBar.showMessage(failure==null ? "No column changes to make" 
+							: "Column changes failed and are still queued: " + failure);
+					return;
+				}
+				
+				if(table.equals(SQLEditor.getTableName()))
+					refreshColumns(applied, columnNames);
+				
+				statusBar.showMessage(String.format("%d column changes made by one ALTER TABLE "
+						+ "with ALGORITHM=%s in %d ms%s", applied.getCount(), applied.getAlgorithm(), 
+						applied.getMillis(), applied.getAlgorithm().equals(SchemaChangeQueue.COPY) 
+						? ", the table was copied" : ""));
+			});
 		});
+	}
+	
+	/*
+	 * This function shows the columns of the table after its columns were
+	 * changed, without reading its rows again when every row of the result
+	 * is loaded: renamed columns keep their values, deleted columns are
+	 * removed, and added columns are blank until the table is next loaded.
+	 * Paged results and results stopped at the row cap read further rows by
+	 * column name, so they are reloaded instead.
+	 */
+	private void refreshColumns(SchemaChangeQueue.Result result, List<String> columnNames){
+		if(columnNames.isEmpty()||currentLoad==null||!currentLoad.isComplete()
+				||!(getItems() instanceof RowList)){
+			initTable();
+			return;
+		}
 		
+		Map<String, String> renamed = result.getRenamed();
+		List<String> dropped = result.getDropped();
+		
+		//TableColumns which keep their values, by the new name of their column
+		Map<String, TableColumn<RowView, ?>> kept = new HashMap<String, TableColumn<RowView, ?>>();
+		
+		for(TableColumn<RowView, ?> col : getColumns()){
+			if(renamed.containsKey(col.getText()))
+				kept.put(renamed.get(col.getText()), col);
+			else if(!dropped.contains(col.getText()))
+				kept.put(col.getText(), col);
+		}
+		
+		ArrayList<TableColumn<RowView, ?>> cols = new ArrayList<TableColumn<RowView, ?>>();
+		
+		for(String name : columnNames){
+			TableColumn<RowView, ?> col = kept.get(name);
+			
+			if(col==null)
+				col = getBlankColumn(name);
+			else
+				col.setText(name);
+			
+			cols.add(col);
+		}
+		
+		getColumns().setAll(cols);
+		setFilters(columnNames);
+		columnsChanged = true;
+	}
+	
+	//returns a column added since the rows were loaded, which shows no values
+	private TableColumn<RowView, String> getBlankColumn(String name){
+		TableColumn<RowView, String> col = new TableColumn<RowView, String>(name);
+		
+		col.setUserData(-1);
+		col.setSortable(false);
+		col.setEditable(false);
+		col.setCellValueFactory(param -> new SimpleStringProperty(""));
 		col.setContextMenu(getColumnContextMenu(col));
 		
 		return col;
 	}
-
+	
+	public QueryStatusBar getStatusBar(){
+		return statusBar;
+	}
+	
 	/*
-	 * This function sets the TableView's data to the contents of the
-	 * ResultSet parameter.
+	 * This function returns the approximate number of rows in a table from
+	 * information_schema, which does not require the table to be scanned.
 	 */
-	public void updateTable(ResultSet rs) 
-			throws SQLException{
-
-		ResultSetMetaData tableInfo = rs.getMetaData();
-
-		ObservableList<ObservableList<String>> data = FXCollections.observableArrayList();
+	private long estimateRows(Connection connection, String table) throws SQLException{
+		
+		PreparedStatement statement = connection.prepareStatement(
+				"SELECT TABLE_ROWS FROM INFORMATION_SCHEMA.TABLES WHERE "
+				+ "TABLE_SCHEMA = ? AND TABLE_NAME = ?;");
+		statement.setString(1, SQLEditor.getSession().getDatabase());
+		statement.setString(2, table);
+		
+		ResultSet rs = statement.executeQuery();
+		
+		long rows = rs.next() ? rs.getLong(1) : 0;
+		
+		statement.close();
+		return rows;
+	}
+	
+	//returns the names of the TableColumns in order
+	private ArrayList<String> getColumnNames(){
+		ArrayList<String> names = new ArrayList<String>();
+		
+		for(TableColumn<RowView, ?> col : getColumns())
+			names.add(col.getText());
+		
+		return names;
+	}
+	
+	/*
+	 * This function is the TableView's sort policy.  Results which are fully
+	 * loaded and have at most CLIENT_SORT_LIMIT rows are sorted in memory.
+	 * Other results, which are paged or stopped at the row cap, are reloaded
+	 * with the sort order as the query's ORDER BY, so that the rows shown
+	 * are the first rows of the whole sorted result.
+	 */
+	private boolean sortRows(){
+		if(currentQuery==null)
+			return true;
+		
+		if(getItems() instanceof RowList&&currentLoad!=null&&currentLoad.isComplete()
+				&&getItems().size() <= CLIENT_SORT_LIMIT)
+			return sortLoadedRows((RowList)getItems());
+		
+		TableQuery query = new TableQuery(currentQuery);
+		
+		for(TableColumn<RowView, ?> col : getSortOrder())
+			query.addOrder(col.getText(), col.getSortType()==TableColumn.SortType.DESCENDING);
+		
+		//the rows are already in this order
+		if(query.hasSameOrder(currentQuery))
+			return true;
+		
+		loadQuery(new TableQuery(currentQuery));
+		return true;
+	}
+	
+	/*
+	 * This function sorts loaded rows by the typed values of the columns in
+	 * the sort order, so numbers, decimals, dates and binary values are
+	 * compared as such rather than as the text shown in their cells.  The
+	 * rows are sorted with a RowSorter, which reorders the RowList's row
+	 * indices rather than the rows.
+	 */
+	private boolean sortLoadedRows(RowList rows){
+		if(rows.getTable()==null||getSortOrder().isEmpty())
+			return true;
+		
+		int[] columns = new int[getSortOrder().size()];
+		boolean[] descending = new boolean[columns.length];
+		
+		for(int i = 0; i < columns.length; i++){
+			TableColumn<RowView, ?> col = getSortOrder().get(i);
+			columns[i] = getColumnIndex(col);
+			descending[i] = col.getSortType()==TableColumn.SortType.DESCENDING;
+		}
+		
+		rows.reorder(RowSorter.sort(rows.getTable(), 
+				Arrays.copyOf(rows.getOrder(), rows.size()), columns, descending));
+		return true;
+	}
+	
+	//returns the index of a TableColumn's values in each row
+	public static int getColumnIndex(TableColumn<RowView, ?> col){
+		return (Integer)col.getUserData();
+	}
+	
+	/*
+	 * This function describes how MySQL sorts the query's rows: using an
+	 * index which returns them in order, found in the cached schema, or by
+	 * sorting them after they are read.
+	 */
+	private String describeSort(TableQuery query){
+		if(!query.hasOrder())
+			return "";
 		
-		while(rs.next()){
-			ObservableList<String> row = FXCollections.observableArrayList();
-			for(int i = 1; i <= tableInfo.getColumnCount(); i++){
-				row.add(rs.getString(i));
+		try{
+			TableSchema schema = SQLEditor.getSession().getSchemaCache().getTable(query.getTable());
+			
+			List<String> sortColumns = new ArrayList<String>(query.getOrderColumns());
+			for(String k : schema.getPrimaryKey()){
+				if(!sortColumns.contains(k))
+					sortColumns.add(k);
 			}
-			data.add(row);
+			
+			String index = schema.findSortIndex(sortColumns, query.getEqualityColumns(), 
+					query.isUniformOrder());
+			
+			if(index!=null)
+				return ", sorted by MySQL using index " + index;
+		}
+		catch(SQLException ex){
+			ex.printStackTrace();
 		}
 		
-		setItems(data);
+		return ", sorted by MySQL without an index (filesort)";
 	}
 	
+	/*
+	 * This function creates a new TableColumn and sets its factories,
+	 * comparator, and context menus.
+	 */
+	@SuppressWarnings("rawtypes")
+	private TableColumn getColumn(final int index, String name){
+		
+		TableColumn<RowView, String> col = 
+				new TableColumn<RowView, String>(name);
+		
+		//index of the column's values in each row
+		col.setUserData(index);
+
+		col.setCellFactory(new UpdatableCellFactory());
+		
+		col.setCellValueFactory(new Callback<CellDataFeatures<RowView, String>, ObservableValue<String>>()
+		{
+			public ObservableValue<String> call(CellDataFeatures<RowView, String> param){
+				return new CellValue(param.getValue(), index);
+			}
+		});
+		
+		col.setContextMenu(getColumnContextMenu(col));
+		
+		return col;
+	}
+
 	/*
 	 * This function returns a ContextMenu with items to rename or delete
 	 * the column.
 	 */
-	private ContextMenu getColumnContextMenu(TableColumn<ObservableList<String>, String> col){
+	private ContextMenu getColumnContextMenu(TableColumn<RowView, String> col){
 		ContextMenu colMenu = new ContextMenu();
 		
 		MenuItem rename = new MenuItem("Rename");
@@ -191,7 +964,7 @@ public class MySQLTableView extends TableView<ObservableList<String>>{
 	 * to enter the new column name, and passes the input to a function
 	 * to rename the MySQL column.
 	 */
-	private void renameColumn(TableColumn<ObservableList<String>, String> col){
+	private void renameColumn(TableColumn<RowView, String> col){
 						
 		Stage columnRenameStage = new Stage();
 		columnRenameStage.setTitle("Column Rename");
@@ -209,7 +982,7 @@ public class MySQLTableView extends TableView<ObservableList<String>>{
 		okButton.setOnAction(v -> {
 			renameMySQLColumn(col, columnRenameInput.getText());		
 			columnRenameStage.close();
-			initTable();
+			updateSchemaControls();
 		});
 						
 		cancelButton.setOnAction(v -> {
@@ -222,51 +995,21 @@ public class MySQLTableView extends TableView<ObservableList<String>>{
 	}
 	
 	/*
-	 * This function renames a MySQL column to the name contained in the "newName"
-	 * parameter
+	 * This function queues a rename of a MySQL column to the name contained in
+	 * the "newName" parameter, which is made with the other queued changes.
 	 */
-	private void renameMySQLColumn(TableColumn<ObservableList<String>, String> col,
+	private void renameMySQLColumn(TableColumn<RowView, String> col,
 			String newName){
 		SessionConfig session = SQLEditor.getSession();
 		
-		try(Connection c = DriverManager.getConnection(session.getURL(), session.getUserName(), 
-				session.getPassword())){
-
-			c.setCatalog(session.getDatabase());
-			Statement statement = c.createStatement();
-							
-			//get type of column to be renamed for new column's definition
-			PreparedStatement prepared = c.prepareStatement(
-					"SELECT COLUMN_TYPE FROM INFORMATION_SCHEMA.COLUMNS WHERE "
-					+ "TABLE_SCHEMA = ? AND TABLE_NAME = ? and COLUMN_NAME = ?");
-							
-			prepared.setString(1, c.getCatalog());
-			prepared.setString(2, SQLEditor.getTableName());
-			prepared.setString(3, col.getText());
-			
-			ResultSet colType = prepared.executeQuery();
-			colType.next();
-				
-			//rename the column
-			statement.execute("ALTER TABLE " + SQLEditor.getTableName() + 
-					" CHANGE " + col.getText() + " " + newName + " "
-					+ colType.getString(1) + ";");
-							
-			prepared.close();
-			statement.close();
-			c.close();
-		}
-		catch(SQLException ex){
-			ex.printStackTrace();
-		}
+		session.getSchemaChanges().renameColumn(SQLEditor.getTableName(), col.getText(), newName);
 	}
 
 	/*
 	 * This function asks the user to confirm they want to delete the
-	 * column and then performs the delete and refreshes the table if
-	 * they click yes.
+	 * column and then queues the delete if they click yes.
 	 */
-	private void deleteColumn(TableColumn<ObservableList<String>, String> col){
+	private void deleteColumn(TableColumn<RowView, String> col){
 		
 		SessionConfig session = SQLEditor.getSession();
 		
@@ -287,23 +1030,9 @@ public class MySQLTableView extends TableView<ObservableList<String>>{
 		buttonRow.setAlignment(Pos.CENTER);
 		
 		yesButton.setOnAction(v -> {
-			try(Connection c = DriverManager.getConnection(session.getURL(), session.getUserName(), 
-					session.getPassword())){
-
-				c.setCatalog(session.getDatabase());
-				Statement statement = c.createStatement();
-
-				statement.execute("ALTER TABLE " + SQLEditor.getTableName() 
-					+ " DROP COLUMN " + col.getText() + ";");
-				statement.close();
-				c.close();
-				confirmDeleteStage.close();
-				//refresh table
-				initTable();
-			}
-			catch(SQLException ex){
-				ex.printStackTrace();
-			}
+			session.getSchemaChanges().dropColumn(SQLEditor.getTableName(), col.getText());
+			confirmDeleteStage.close();
+			updateSchemaControls();
 		});
 		
 		noButton.setOnAction(v -> {
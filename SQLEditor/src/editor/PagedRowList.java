@@ -0,0 +1,420 @@
+package editor;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import filters.TableQuery;
+import javafx.application.Platform;
+import javafx.collections.ObservableListBase;
+import tabledata.ColumnarTable;
+import tabledata.RowView;
+
+/*
+ * This list presents every row matching a TableQuery to a TableView while
+ * only holding the pages of rows the TableView has asked for.  Pages are
+ * fetched with keyset pagination on the table's primary key, seeking from
+ * the boundary key of a neighbouring page when one is known, and evicted
+ * in least recently used order.  Tables without a primary key are ordered
+ * by every column and paged with LIMIT and OFFSET.  When the query has its
+ * own sort order, the primary key or every column breaks ties, and pages
+ * are located by offset.  Pages are fetched on a background thread into a
+ * ColumnarTable per page, and rows of a page which has not arrived yet are
+ * shown as a placeholder row until it does.
+ *
+ * Pages are fetched one at a time, most recently requested first, so that
+ * the rows in view are fetched before those the TableView has scrolled
+ * past.  Only a few requests are kept waiting, and older ones are dropped,
+ * since a page scrolled back into view is requested again.  Seek keys are
+ * kept as the typed values of the rows and bound as such, so that binary
+ * and floating point keys compare as the server stores them.
+ */
+public class PagedRowList extends ObservableListBase<RowView>{
+
+	//number of rows fetched with each query
+	public static final int PAGE_SIZE = 200;
+
+	//number of pages kept in memory
+	public static final int MAX_PAGES = 25;
+
+	//number of page boundary keys kept for seeking
+	private static final int MAX_BOUNDARIES = 10000;
+
+	//number of page requests kept waiting while another page is fetched
+	private static final int MAX_REQUESTS = 3;
+
+	private SessionConfig session;
+
+	//filters applied to the table
+	private TableQuery query;
+
+	//names and result indices of the columns rows are ordered by
+	private List<String> orderColumns;
+	private int[] orderIndices;
+
+	//true if orderColumns are the primary key, which identifies a row
+	private boolean keyset;
+	
+	//true if rows are only ordered by the primary key, allowing keyset seeks
+	private boolean seekable;
+	
+	//ORDER BY terms of the query's sort order followed by orderColumns
+	private List<String> orderTerms;
+
+	private int columnCount;
+
+	//number of rows matching the query
+	private int size;
+
+	//row shown for rows whose page is being fetched
+	private RowView placeholder;
+	
+	//pages waiting to be fetched in the order they were last requested,
+	//and the page being fetched, or -1, only used on the JavaFX thread
+	private ArrayList<Integer> requested = new ArrayList<Integer>();
+	private int fetching = -1;
+	
+	//true once the list is no longer displayed, stopping further fetches
+	private volatile boolean disposed = false;
+
+	//pages of rows in least recently used order, only used on the JavaFX thread
+	private LinkedHashMap<Integer, List<RowView>> pages
+		= new LinkedHashMap<Integer, List<RowView>>(16, 0.75f, true){
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Integer, List<RowView>> eldest){
+			return size() > MAX_PAGES;
+		}
+	};
+
+	//key values of the first and last row of pages which have been fetched,
+	//kept after the page itself is evicted
+	private Map<Integer, Object[]> firstKeys = boundaryMap();
+	private Map<Integer, Object[]> lastKeys = boundaryMap();
+
+	//number of page queries which used a key seek or an offset
+	private AtomicInteger seeks = new AtomicInteger();
+	private AtomicInteger offsets = new AtomicInteger();
+
+	/*
+	 * This constructor counts the rows matching the query and fetches the
+	 * first page, so it should be called on a background thread.  The
+	 * "columns" parameter contains the table's column names in result order
+	 * and "primaryKey" the names of its primary key columns, which may be empty.
+	 */
+	public PagedRowList(SessionConfig currentSession, TableQuery tableQuery,
+			List<String> columns, List<String> primaryKey) throws SQLException{
+
+		session = currentSession;
+		query = tableQuery;
+		columnCount = columns.size();
+
+		keyset = !primaryKey.isEmpty();
+		seekable = keyset&&!query.hasOrder();
+
+		//stable ordering when there is no key
+		orderColumns = keyset ? primaryKey : columns;
+		orderTerms = query.getOrderTerms(orderColumns);
+
+		orderIndices = new int[orderColumns.size()];
+		for(int i = 0; i < orderIndices.length; i++)
+			orderIndices[i] = columns.indexOf(orderColumns.get(i));
+
+		try(Connection connection = session.getConnection()){
+			PreparedStatement count = ConnectionPool.prepareCached(connection, query.getTable(),
+					query.getShapeKey() + " COUNT", query.getCountQuery());
+			query.bind(count, 1);
+
+			ResultSet rs = count.executeQuery();
+			if(rs.next())
+				size = rs.getInt(1);
+
+			count.close();
+		}
+		
+		placeholder = emptyRow();
+		
+		if(size > 0)
+			pages.put(0, fetchPage(0));
+	}
+
+	@Override
+	public int size(){
+		return size;
+	}
+
+	/*
+	 * This function returns the row at "index".  If its page is not in
+	 * memory, a fetch of the page is started and the placeholder row is
+	 * returned.
+	 */
+	@Override
+	public RowView get(int index){
+
+		if(index < 0||index >= size)
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+
+		int pageIndex = index/PAGE_SIZE;
+		List<RowView> page = pages.get(pageIndex);
+
+		if(page==null){
+			requestPage(pageIndex);
+			return placeholder;
+		}
+
+		int offset = index%PAGE_SIZE;
+
+		//rows were deleted by another client after the count
+		if(offset >= page.size())
+			return placeholder;
+
+		return page.get(offset);
+	}
+	
+	/*
+	 * This function queues a request for a page, starting its fetch if no
+	 * other page is being fetched.  A page requested again moves to the end
+	 * of the queue, and the oldest requests are dropped once too many wait.
+	 */
+	private void requestPage(int pageIndex){
+		if(disposed||pageIndex==fetching)
+			return;
+		
+		requested.remove(Integer.valueOf(pageIndex));
+		requested.add(pageIndex);
+		
+		while(requested.size() > MAX_REQUESTS)
+			requested.remove(0);
+		
+		if(fetching < 0)
+			fetchNext();
+	}
+	
+	/*
+	 * This function fetches the most recently requested page on a background
+	 * thread.  When it arrives the page is stored, its rows are reported as
+	 * replaced, so that the TableView redraws them, and the next request is
+	 * fetched.
+	 */
+	private void fetchNext(){
+		fetching = -1;
+		
+		while(!requested.isEmpty()&&fetching < 0){
+			int next = requested.remove(requested.size() - 1);
+			
+			if(!pages.containsKey(next))
+				fetching = next;
+		}
+		
+		if(disposed||fetching < 0)
+			return;
+		
+		int pageIndex = fetching;
+		
+		QueryExecutor.runInBackground(() -> {
+			List<RowView> fetched = null;
+			
+			try{
+				if(!disposed)
+					fetched = fetchPage(pageIndex);
+			}
+			catch(SQLException ex){
+				ex.printStackTrace();
+			}
+			
+			final List<RowView> page = fetched;
+			
+			Platform.runLater(() -> {
+				if(page!=null&&!disposed){
+					pages.put(pageIndex, page);
+					
+					int start = pageIndex*PAGE_SIZE;
+					int end = Math.min(size, start + PAGE_SIZE);
+					
+					beginChange();
+					for(int i = start; i < end; i++)
+						nextSet(i, placeholder);
+					endChange();
+				}
+				
+				fetchNext();
+			});
+		});
+	}
+	
+	//stops fetching pages once the list has been replaced in the TableView
+	public void dispose(){
+		disposed = true;
+	}
+
+	/*
+	 * This function queries for one page of rows.  If the last key of the
+	 * previous page is known the query seeks forward from it, and if the
+	 * first key of the next page is known the query seeks backward from it.
+	 * Otherwise the page's offset is located with a scan of the key columns
+	 * only before the full rows are read.  Offsets are bound as parameters,
+	 * so every page of a query reuses the prepared statement of its kind.
+	 */
+	private List<RowView> fetchPage(int pageIndex) throws SQLException{
+
+		String orderBy = String.join(", ", orderTerms);
+		String keyTuple = "(" + String.join(", ", orderColumns) + ")";
+		String parameterTuple = "(" + String.join(", ",
+				Collections.nCopies(orderColumns.size(), "?")) + ")";
+
+		Object[] after = seekable ? lastKeys.get(pageIndex-1) : null;
+		Object[] before = seekable ? firstKeys.get(pageIndex+1) : null;
+
+		String queryString;
+		String kind;
+		Object[] seekKey = null;
+		boolean reversed = false;
+		boolean offset = false;
+
+		if(pageIndex==0){
+			kind = " FIRST PAGE";
+			queryString = "SELECT * FROM " + query.getTable() + query.getWhereClause()
+					+ " ORDER BY " + orderBy + " LIMIT " + PAGE_SIZE;
+		}
+		else if(after!=null){
+			kind = " PAGE AFTER";
+			seekKey = after;
+			queryString = "SELECT * FROM " + query.getTable()
+					+ query.getWhereClause(keyTuple + " > " + parameterTuple)
+					+ " ORDER BY " + orderBy + " LIMIT " + PAGE_SIZE;
+		}
+		else if(before!=null){
+			kind = " PAGE BEFORE";
+			seekKey = before;
+			reversed = true;
+			queryString = "SELECT * FROM " + query.getTable()
+					+ query.getWhereClause(keyTuple + " < " + parameterTuple)
+					+ " ORDER BY " + descending(orderColumns) + " LIMIT " + PAGE_SIZE;
+		}
+		else if(keyset){
+			//find the page's keys with an index scan, then read only those rows
+			kind = " KEYS AT OFFSET";
+			offset = true;
+			String keyColumns = String.join(", ", orderColumns);
+			queryString = "SELECT t.* FROM " + query.getTable() + " t JOIN (SELECT "
+					+ keyColumns + " FROM " + query.getTable() + query.getWhereClause()
+					+ " ORDER BY " + orderBy + " LIMIT ?, " + PAGE_SIZE 
+					+ ") k USING (" + keyColumns + ") ORDER BY " + prefixed("t.", orderTerms);
+		}
+		else{
+			kind = " PAGE AT OFFSET";
+			offset = true;
+			queryString = "SELECT * FROM " + query.getTable() + query.getWhereClause()
+					+ " ORDER BY " + orderBy + " LIMIT ?, " + PAGE_SIZE;
+		}
+
+		if(seekKey!=null)
+			seeks.incrementAndGet();
+		else if(pageIndex > 0)
+			offsets.incrementAndGet();
+
+		ArrayList<RowView> page = new ArrayList<RowView>(PAGE_SIZE);
+
+		try(Connection connection = session.getConnection()){
+			//pages are ordered by the tie breakers as well as the query's own order
+			PreparedStatement statement = ConnectionPool.prepareCached(connection, query.getTable(),
+					query.getShapeKey() + " BY " + orderBy + kind, queryString);
+
+			int parameter = query.bind(statement, 1);
+
+			if(seekKey!=null){
+				for(Object k : seekKey)
+					statement.setObject(parameter++, k);
+			}
+			
+			if(offset)
+				statement.setLong(parameter++, (long)pageIndex*PAGE_SIZE);
+
+			ResultSet rs = statement.executeQuery();
+			
+			ColumnarTable store = ColumnarTable.forResult(rs.getMetaData(), PAGE_SIZE);
+
+			while(rs.next())
+				page.add(store.appendRow(rs));
+
+			statement.close();
+		}
+
+		if(reversed)
+			Collections.reverse(page);
+
+		if(seekable&&!page.isEmpty()){
+			firstKeys.put(pageIndex, getKey(page.get(0)));
+			lastKeys.put(pageIndex, getKey(page.get(page.size()-1)));
+		}
+
+		return page;
+	}
+
+	//returns the typed values of the ordering columns of a row
+	private Object[] getKey(RowView row){
+		Object[] key = new Object[orderIndices.length];
+
+		for(int i = 0; i < key.length; i++)
+			key[i] = row.getValue(orderIndices[i]);
+
+		return key;
+	}
+
+	//returns a row of nulls, which are shown as empty cells
+	private RowView emptyRow(){
+		int[] sqlTypes = new int[columnCount];
+		Arrays.fill(sqlTypes, Types.VARCHAR);
+		
+		return new ColumnarTable(sqlTypes, 1).appendRow(new String[columnCount]);
+	}
+
+	//returns true if rows can be located by key rather than by offset
+	public boolean isKeyset(){
+		return seekable;
+	}
+
+	public int getSeekCount(){
+		return seeks.get();
+	}
+
+	public int getOffsetCount(){
+		return offsets.get();
+	}
+
+	private static String descending(List<String> columns){
+		ArrayList<String> desc = new ArrayList<String>();
+		for(String c : columns)
+			desc.add(c + " DESC");
+		return String.join(", ", desc);
+	}
+
+	private static String prefixed(String prefix, List<String> columns){
+		ArrayList<String> names = new ArrayList<String>();
+		for(String c : columns)
+			names.add(prefix + c);
+		return String.join(", ", names);
+	}
+
+	//boundaries are written by the threads fetching pages
+	private static Map<Integer, Object[]> boundaryMap(){
+		return Collections.synchronizedMap(new LinkedHashMap<Integer, Object[]>(16, 0.75f, true){
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, Object[]> eldest){
+				return size() > MAX_BOUNDARIES;
+			}
+		});
+	}
+}
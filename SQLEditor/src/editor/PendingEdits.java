@@ -0,0 +1,292 @@
+package editor;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import tabledata.RowView;
+
+/*
+ * This class buffers cell edits which have not been written to MySQL.
+ * Each edited row remembers its primary key values from before its first
+ * edit and the original text of each edited cell, so that the edits can be
+ * discarded, and so that a row whose key was edited is still found.  All
+ * edits are written together in one transaction: rows with the same set of
+ * edited columns share one parameterized UPDATE, run as a JDBC batch with
+ * one set of parameters per row.  The buffer is only used on the JavaFX
+ * thread, except for the writing done by commit.
+ */
+public class PendingEdits {
+
+	//edited rows in the order they were first edited
+	private LinkedHashMap<RowView, PendingRow> rows = new LinkedHashMap<RowView, PendingRow>();
+
+	/*
+	 * This function records an edit of a cell of a row of "table" which has
+	 * already been applied to the row.  "oldText" is the cell's text before
+	 * the edit and "keyIndices" the indices of the primary key's values in
+	 * the row.
+	 */
+	public void add(String table, RowView row, int column, String columnName, String oldText,
+			int[] keyIndices, List<String> keyNames){
+		PendingRow pending = rows.get(row);
+
+		if(pending==null){
+			pending = new PendingRow(table, row, keyIndices, keyNames);
+
+			//the edit may have changed a key column, whose old value is needed
+			for(int i = 0; i < keyIndices.length; i++){
+				if(keyIndices[i]==column)
+					pending.keyValues[i] = oldText;
+			}
+
+			rows.put(row, pending);
+		}
+
+		if(!pending.originals.containsKey(column)){
+			pending.originals.put(column, oldText);
+			pending.columnNames.put(column, columnName);
+		}
+	}
+
+	//returns true if a cell has an edit which has not been committed
+	public boolean isPending(RowView row, int column){
+		PendingRow pending = rows.get(row);
+		return pending!=null&&pending.originals.containsKey(column);
+	}
+
+	/*
+	 * This function returns the value of a row's column as MySQL holds it:
+	 * for a key column of a row with pending edits, the key's value from
+	 * before the row's first edit, and otherwise the row's current value.
+	 */
+	public Object getWrittenValue(RowView row, int column){
+		PendingRow pending = rows.get(row);
+
+		if(pending!=null){
+			for(int i = 0; i < pending.keyIndices.length; i++){
+				if(pending.keyIndices[i]==column)
+					return pending.keyValues[i];
+			}
+		}
+
+		return row.getValue(column);
+	}
+
+	/*
+	 * This function forgets a cell's edit once it has been written by other
+	 * means.  If the cell is a key column, the row's other edits are then
+	 * found by its new value.
+	 */
+	public void remove(RowView row, int column){
+		PendingRow pending = rows.get(row);
+
+		if(pending==null)
+			return;
+
+		for(int i = 0; i < pending.keyIndices.length; i++){
+			if(pending.keyIndices[i]==column)
+				pending.keyValues[i] = row.getValue(column);
+		}
+
+		pending.originals.remove(column);
+		pending.columnNames.remove(column);
+
+		if(pending.originals.isEmpty())
+			rows.remove(row);
+	}
+
+	//returns the number of edited cells
+	public int getCellCount(){
+		int count = 0;
+
+		for(PendingRow pending : rows.values())
+			count += pending.originals.size();
+
+		return count;
+	}
+
+	public int getRowCount(){
+		return rows.size();
+	}
+
+	public boolean isEmpty(){
+		return rows.isEmpty();
+	}
+
+	//returns true if an edited row's table has no primary key to find it by
+	public boolean hasRowWithoutKey(){
+		for(PendingRow pending : rows.values()){
+			if(pending.keyNames.isEmpty())
+				return true;
+
+			for(int index : pending.keyIndices){
+				if(index < 0)
+					return true;
+			}
+		}
+
+		return false;
+	}
+
+	//restores every edited cell to its original text and clears the buffer
+	public void discard(){
+		for(PendingRow pending : rows.values()){
+			for(Map.Entry<Integer, String> original : pending.originals.entrySet())
+				pending.row.set(original.getKey(), original.getValue());
+		}
+
+		rows.clear();
+	}
+
+	/*
+	 * This function returns the edited rows grouped by their table and the
+	 * columns they edit, so that each group can be written with one
+	 * statement.  The buffer is emptied, and the returned batches can be
+	 * restored with restore if writing them fails.
+	 */
+	public Map<String, List<PendingRow>> takeBatches(){
+		LinkedHashMap<String, List<PendingRow>> batches = new LinkedHashMap<String, List<PendingRow>>();
+
+		for(PendingRow pending : rows.values()){
+			String shape = pending.table + " " + pending.columnNames.values();
+
+			List<PendingRow> batch = batches.get(shape);
+
+			if(batch==null){
+				batch = new ArrayList<PendingRow>();
+				batches.put(shape, batch);
+			}
+
+			batch.add(pending);
+		}
+
+		rows.clear();
+		return batches;
+	}
+
+	//returns rows taken by takeBatches to the buffer, keeping later edits
+	public void restore(Map<String, List<PendingRow>> batches){
+		LinkedHashMap<RowView, PendingRow> later = rows;
+		rows = new LinkedHashMap<RowView, PendingRow>();
+
+		for(List<PendingRow> batch : batches.values()){
+			for(PendingRow pending : batch)
+				rows.put(pending.row, pending);
+		}
+
+		for(PendingRow pending : later.values()){
+			PendingRow earlier = rows.get(pending.row);
+
+			if(earlier==null){
+				rows.put(pending.row, pending);
+				continue;
+			}
+
+			for(Map.Entry<Integer, String> original : pending.originals.entrySet()){
+				if(!earlier.originals.containsKey(original.getKey())){
+					earlier.originals.put(original.getKey(), original.getValue());
+					earlier.columnNames.put(original.getKey(), pending.columnNames.get(original.getKey()));
+				}
+			}
+		}
+	}
+
+	/*
+	 * This function writes the batches returned by takeBatches in one
+	 * transaction, returning the number of rows updated.  Each batch is one
+	 * UPDATE statement executed once per row, binding the rows' current
+	 * values and their primary key values from before their first edit.  If
+	 * any statement fails the transaction is rolled back and the exception
+	 * is thrown.
+	 */
+	public static int commit(Connection connection, Map<String, List<PendingRow>> batches) 
+			throws SQLException{
+
+		int updated = 0;
+
+		connection.setAutoCommit(false);
+
+		try{
+			for(List<PendingRow> batchRows : batches.values()){
+				PendingRow first = batchRows.get(0);
+
+				String queryString = "UPDATE " + first.table + " SET "
+						+ String.join(" = ?, ", first.columnNames.values()) + " = ? WHERE "
+						+ String.join(" = ? AND ", first.keyNames) + " = ?;";
+
+				try(PreparedStatement statement = connection.prepareStatement(queryString)){
+					for(PendingRow pending : batchRows){
+						int parameter = 1;
+
+						//bind the values in their column types rather than as quoted text
+						for(int column : pending.columnNames.keySet())
+							statement.setObject(parameter++, pending.row.getValue(column));
+
+						for(Object key : pending.keyValues)
+							statement.setObject(parameter++, key);
+
+						statement.addBatch();
+					}
+
+					for(int count : statement.executeBatch()){
+						if(count > 0)
+							updated += count;
+					}
+				}
+			}
+
+			connection.commit();
+		}
+		catch(SQLException ex){
+			connection.rollback();
+			throw ex;
+		}
+		finally{
+			connection.setAutoCommit(true);
+		}
+
+		return updated;
+	}
+
+	/*
+	 * This class holds the edits of one row: its table, the columns edited,
+	 * in the order they were first edited, with their original text, and the
+	 * row's primary key values from before its first edit.
+	 */
+	public static class PendingRow{
+
+		//table the row was loaded from
+		final String table;
+
+		final RowView row;
+
+		//primary key column names, their indices in the row, and their values
+		final List<String> keyNames;
+		final int[] keyIndices;
+		final Object[] keyValues;
+
+		//original text and name of each edited column, by column index
+		final LinkedHashMap<Integer, String> originals = new LinkedHashMap<Integer, String>();
+		final LinkedHashMap<Integer, String> columnNames = new LinkedHashMap<Integer, String>();
+
+		PendingRow(String rowTable, RowView editedRow, int[] indices, List<String> names){
+			table = rowTable;
+			row = editedRow;
+			keyNames = names;
+			keyIndices = indices;
+			keyValues = new Object[indices.length];
+
+			for(int i = 0; i < indices.length; i++)
+				keyValues[i] = indices[i] < 0 ? null : row.getValue(indices[i]);
+		}
+
+		public String getTable(){
+			return table;
+		}
+	}
+}
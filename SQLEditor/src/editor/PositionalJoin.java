@@ -0,0 +1,499 @@
+package editor;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import columninfo.ColPropTableComparator;
+import columninfo.ColumnProperties;
+import columninfo.MaxTableSizeComparator;
+import columninfo.SourceTable;
+
+/*
+ * This class creates a table from columns of several source tables by
+ * aligning their rows by position: the first row read from each table
+ * forms the first row of the new table, and so on.  The table with the
+ * most rows drives the join, so no row is lost, and the columns of shorter
+ * tables are NULL past their last row.  Columns appear in order of their
+ * tables' row counts, largest first.
+ *
+ * Two engines are provided.  The temporary table engine copies each
+ * source's columns into a temporary table with an AUTO_INCREMENT id and
+ * joins the copies one at a time through intermediate temporary tables.
+ * The window engine numbers each source's rows with ROW_NUMBER() in a
+ * derived table and joins them all in a single CREATE TABLE ... SELECT,
+ * so no copy is made outside the statement.  It requires MySQL 8.0 or
+ * MariaDB 10.2.
+ *
+ * The window engine can instead create the table empty and fill it with a
+ * ChunkedCopy.  Each chunk numbers the same number of rows of every source,
+ * so that the rows of a chunk line up as they would in a single statement.
+ *
+ * Every engine, the chunked copy and the preview read each source in order
+ * of its primary key, if it has one and the join was given a SchemaCache,
+ * so that they all align the same rows.  A source without a primary key is
+ * read in whatever order the server reads it.
+ */
+public class PositionalJoin {
+
+	//names of the engines, as shown to the user
+	public static final String WINDOW_ENGINE = "ROW_NUMBER() Join";
+	public static final String TEMP_TABLE_ENGINE = "Temporary Tables";
+
+	//name of the row number column of the window engine's derived tables
+	private static final String ROW_NUMBER = "rowNumber";
+
+	//table to be created
+	private String newTableName;
+
+	//cache the sources' primary keys are read from, or null to read them in server order
+	private SchemaCache schemaCache;
+
+	//ORDER BY clause of each source's primary key, or an empty string, by table name
+	private HashMap<String, String> keyOrders = new HashMap<String, String>();
+
+	//true to number a sample with user variables, for servers without window functions
+	private boolean numberWithVariables = false;
+
+	public PositionalJoin(String tableName){
+		newTableName = tableName;
+	}
+
+	public PositionalJoin(String tableName, SchemaCache cache){
+		newTableName = tableName;
+		schemaCache = cache;
+	}
+
+	/*
+	 * This function returns true if the server of "connection" supports
+	 * window functions: MySQL 8.0 or MariaDB 10.2, which may report itself
+	 * as version 5.5.5 followed by its own version.
+	 */
+	public static boolean supportsWindowFunctions(Connection connection) throws SQLException{
+		DatabaseMetaData meta = connection.getMetaData();
+		String version = meta.getDatabaseProductVersion();
+
+		if(version==null||!version.contains("MariaDB"))
+			return meta.getDatabaseMajorVersion() >= 8;
+
+		String[] parts = version.replaceFirst("^5\\.5\\.5-", "").split("[.-]");
+
+		try{
+			int major = Integer.parseInt(parts[0]);
+			int minor = parts.length > 1 ? Integer.parseInt(parts[1]) : 0;
+
+			return major > 10||(major==10&&minor >= 2);
+		}
+		catch(NumberFormatException ex){
+			return false;
+		}
+	}
+
+	//reads the primary key order of each of the tables which has not been read
+	private void loadKeyOrders(List<String> tables) throws SQLException{
+		if(schemaCache==null)
+			return;
+
+		for(String table : tables){
+			if(keyOrders.containsKey(table))
+				continue;
+
+			List<String> key = schemaCache.getTable(table).getPrimaryKey();
+			keyOrders.put(table, key.isEmpty() ? "" : " ORDER BY " + String.join(", ", key));
+		}
+	}
+
+	//returns the ORDER BY clause a source's rows are numbered in, or an empty string
+	private String getKeyOrder(String table){
+		String order = keyOrders.get(table);
+		return order==null ? "" : order;
+	}
+
+	private static List<String> getNames(List<SourceTable> tables){
+		ArrayList<String> names = new ArrayList<String>();
+
+		for(SourceTable t : tables)
+			names.add(t.getName());
+
+		return names;
+	}
+
+	/*
+	 * This function creates the new table with the window engine.  Each
+	 * source table is counted in one query to choose the driving table, and
+	 * the table is then created by one statement.
+	 */
+	public void buildWithWindowJoin(Statement statement, List<ColumnProperties> cols)
+			throws SQLException{
+		ArrayList<SourceTable> tables = groupColumns(cols);
+
+		countSourceRows(statement, tables);
+		loadKeyOrders(getNames(tables));
+
+		//sort SourceTables in order of descending number of rows
+		Collections.sort(tables, new MaxTableSizeComparator());
+
+		statement.execute(getWindowJoinString(tables));
+	}
+
+	/*
+	 * This function returns a SourceTable for each table the columns are
+	 * selected from, in order of table name, with the name of the derived
+	 * table which numbers its rows.
+	 */
+	private static ArrayList<SourceTable> groupColumns(List<ColumnProperties> cols){
+		ArrayList<ColumnProperties> sorted = new ArrayList<ColumnProperties>(cols);
+		Collections.sort(sorted, new ColPropTableComparator());
+
+		ArrayList<SourceTable> tables = new ArrayList<SourceTable>();
+
+		for(ColumnProperties c : sorted){
+			SourceTable last = tables.isEmpty() ? null : tables.get(tables.size() - 1);
+
+			if(last!=null&&last.getName().equals(c.getTable()))
+				last.appendCol(c.getName());
+			else
+				tables.add(new SourceTable(c.getTable(), "t" + tables.size(), c.getName()));
+		}
+
+		return tables;
+	}
+
+	//sets the number of rows of every source table with a single query
+	private static void countSourceRows(Statement statement, List<SourceTable> tables)
+			throws SQLException{
+		String queryString = "SELECT ";
+
+		for(int i = 0; i < tables.size(); i++){
+			queryString += (i==0 ? "" : ", ") + "(SELECT COUNT(*) FROM "
+					+ tables.get(i).getName() + ")";
+		}
+
+		ResultSet rs = statement.executeQuery(queryString + ";");
+
+		if(rs.next()){
+			for(int i = 0; i < tables.size(); i++)
+				tables.get(i).setRows(rs.getInt(i + 1));
+		}
+
+		rs.close();
+	}
+
+	/*
+	 * This function creates the new table without rows, with the columns the
+	 * window engine would create, and returns a ChunkedCopy which fills it.
+	 * Every source table must have a primary key of one column.
+	 */
+	public ChunkedCopy prepareChunkedCopy(SessionConfig session, Statement statement,
+			List<ColumnProperties> cols) throws SQLException{
+		ArrayList<SourceTable> tables = groupColumns(cols);
+
+		countSourceRows(statement, tables);
+
+		//sort SourceTables in order of descending number of rows
+		Collections.sort(tables, new MaxTableSizeComparator());
+
+		ArrayList<ChunkedCopy.KeyRange> ranges = new ArrayList<ChunkedCopy.KeyRange>();
+		ArrayList<String> columns = new ArrayList<String>();
+
+		for(SourceTable t : tables){
+			List<String> key = session.getSchemaCache().getTable(t.getName()).getPrimaryKey();
+
+			if(key.size()!=1){
+				throw new SQLException("Copying in chunks requires a single column primary key on "
+						+ t.getName());
+			}
+
+			ranges.add(new ChunkedCopy.KeyRange(t.getName(), key.get(0), t.getName() + "." + key.get(0)));
+			Collections.addAll(columns, t.selectableCols().split(", "));
+		}
+
+		statement.execute("CREATE TABLE " + newTableName + " AS " 
+				+ getWindowSelectString(tables, null, 0) + " LIMIT 0;");
+
+		return new ChunkedCopy(session, session.getDatabase(), newTableName, columns, ranges, 
+				r -> getWindowSelectString(tables, r, 0));
+	}
+
+	/*
+	 * This function returns a SELECT of the first "rows" rows of the table
+	 * the window engine would create, which numbers only the first "rows"
+	 * rows read from each source, so no source is read further.  Sources are
+	 * ordered by "estimatedRows", their row counts from table statistics,
+	 * rather than by counting them.  If "windowFunctions" is false, each
+	 * source's sample is numbered with a user variable instead.
+	 */
+	public String getSampleSelectString(List<ColumnProperties> cols, Map<String, Long> estimatedRows,
+			int rows, boolean windowFunctions) throws SQLException{
+		ArrayList<SourceTable> tables = groupColumns(cols);
+		loadKeyOrders(getNames(tables));
+		numberWithVariables = !windowFunctions;
+
+		for(SourceTable t : tables){
+			Long estimate = estimatedRows.get(t.getName());
+			t.setRows(estimate==null ? 0 : (int)Math.min(Integer.MAX_VALUE, estimate));
+		}
+
+		//sort SourceTables in order of descending number of rows
+		Collections.sort(tables, new MaxTableSizeComparator());
+
+		return getWindowSelectString(tables, null, rows);
+	}
+
+	/*
+	 * This function returns the CREATE TABLE statement of the window engine.
+	 * "tables" are in order of descending row count, and each is numbered
+	 * in a derived table which is left joined to the first on its number.
+	 */
+	String getWindowJoinString(List<SourceTable> tables){
+		return "CREATE TABLE " + newTableName + " AS " + getWindowSelectString(tables, null, 0) + ";";
+	}
+
+	/*
+	 * This function returns the SELECT of the window engine.  If "ranges" is
+	 * not null it selects one chunk, numbering only the rows of each table's
+	 * key range in order of its key, and if "sampleRows" is not 0 it numbers
+	 * only the first "sampleRows" rows of each table.
+	 */
+	private String getWindowSelectString(List<SourceTable> tables, List<ChunkedCopy.KeyRange> ranges,
+			int sampleRows){
+		String columnList = "";
+		String joinList = "";
+
+		for(int i = 0; i < tables.size(); i++){
+			SourceTable t = tables.get(i);
+
+			for(String column : t.selectableCols().split(", "))
+				columnList += (columnList.isEmpty() ? "" : ", ") + t.getTemp() + "." + column;
+
+			String numbered;
+			String order = getKeyOrder(t.getName());
+
+			//a sample keeps every column, so that it can be numbered in order of its key
+			if(sampleRows > 0&&numberWithVariables){
+				String counter = "@" + t.getTemp() + "Row";
+
+				numbered = "(SELECT " + counter + " := " + counter + " + 1 AS " + ROW_NUMBER + ", "
+						+ t.selectableCols() + " FROM (SELECT " + t.selectableCols() + " FROM " 
+						+ t.getName() + order + " LIMIT " + sampleRows + ") AS sample, (SELECT " 
+						+ counter + " := 0) AS counter) AS " + t.getTemp();
+			}
+			else if(sampleRows > 0){
+				numbered = "(SELECT ROW_NUMBER() OVER (" + order.trim() + ") AS " + ROW_NUMBER + ", "
+						+ t.selectableCols() + " FROM (SELECT " + (order.isEmpty() ? t.selectableCols() : "*")
+						+ " FROM " + t.getName() + order + " LIMIT " + sampleRows + ") AS sample) AS " 
+						+ t.getTemp();
+			}
+			else if(ranges==null){
+				numbered = "(SELECT ROW_NUMBER() OVER (" + order.trim() + ") AS " + ROW_NUMBER + ", "
+						+ t.selectableCols() + " FROM " + t.getName() + ") AS " + t.getTemp();
+			}
+			else{
+				ChunkedCopy.KeyRange range = ranges.get(i);
+
+				numbered = "(SELECT ROW_NUMBER() OVER (ORDER BY " + range.getKey() + ") AS " 
+						+ ROW_NUMBER + ", " + t.selectableCols() + " FROM " + t.getName() 
+						+ " WHERE " + range.getCondition() + ") AS " + t.getTemp();
+			}
+
+			if(joinList.isEmpty())
+				joinList = numbered;
+			else{
+				joinList += " LEFT OUTER JOIN " + numbered + " ON " + t.getTemp() + "." + ROW_NUMBER
+						+ " = " + tables.get(0).getTemp() + "." + ROW_NUMBER;
+			}
+		}
+
+		return "SELECT " + columnList + " FROM " + joinList;
+	}
+
+	/*
+	 * This function creates the new table with the temporary table engine,
+	 * dropping the temporary tables afterwards so that they do not remain
+	 * on the pooled connection.
+	 */
+	public void buildWithTempTables(Statement statement, List<ColumnProperties> cols)
+			throws SQLException{
+		//all tables which columns are copied from
+		ArrayList<SourceTable> tables = new ArrayList<SourceTable>();
+
+		try{
+			createTempTables(new ArrayList<ColumnProperties>(cols), tables, statement);
+
+			joinTables(statement, tables);
+		}
+		finally{
+			for(SourceTable t : tables){
+				statement.execute("DROP TEMPORARY TABLE IF EXISTS " + t.getTemp() + ", "
+						+ t.getTemp() + "Sum;");
+			}
+		}
+	}
+
+	/*
+	 * This function creates temporary MySQL tables for each source table
+	 * containing all columns the new table will contain from the source table,
+	 * adding a SourceTable to the input "tables" for each such table created.
+	 */
+	private void createTempTables(List<ColumnProperties> cols,
+								ArrayList<SourceTable> tables, Statement statement)
+	throws SQLException{
+
+		//sort columns by name of table
+		Collections.sort(cols, new ColPropTableComparator());
+
+		ArrayList<String> tableNames = new ArrayList<String>();
+
+		for(ColumnProperties c : cols)
+			tableNames.add(c.getTable());
+
+		//ids are assigned in order of each table's primary key
+		loadKeyOrders(tableNames);
+
+		int tableIndex = 0;
+
+		//name of current table
+		String currentTable = cols.get(tableIndex).getTable();
+
+		//name of the temp table created with all columns added from
+		//current table
+		String tempTable = "t" + tableIndex;
+
+		//add first table
+		tables.add(new SourceTable(currentTable, tempTable));
+
+		//primary key column definition for all temp tables
+		String priString = " (id INT AUTO_INCREMENT PRIMARY KEY) ";
+
+		//begin create temp table statement
+		String statementString = "CREATE TEMPORARY TABLE " + tempTable + priString + "SELECT ";
+
+		for(ColumnProperties c : cols){
+			boolean sameTable = c.getTable().equals(currentTable);
+			boolean lastColumn = cols.indexOf(c)==cols.size()-1;
+
+			if(sameTable && !lastColumn){
+				//add column to current table
+				tables.get(tableIndex).appendCol(c.getName());
+			}
+			else{
+				if(sameTable)
+					tables.get(tableIndex).appendCol(c.getName());
+
+				//create table and set rows
+				statementString += tables.get(tableIndex).selectableCols();
+				statementString += " FROM " + currentTable + getKeyOrder(currentTable) + ";";
+				statement.execute(statementString);
+				setTableRows(statement, tables.get(tableIndex));
+
+				//prepare control and reference variables for another table
+				currentTable = c.getTable();
+				tableIndex++;
+				tempTable = "t" + tableIndex;
+
+				if(!sameTable && lastColumn){
+					//create additional temp table for last column
+					tables.add(new SourceTable(currentTable, tempTable, c.getName()));
+					statementString = "CREATE TEMPORARY TABLE " + tempTable + priString + "SELECT ";
+
+					statementString += tables.get(tableIndex).selectableCols();
+					statementString += " FROM " + currentTable + getKeyOrder(currentTable) + ";";
+					statement.execute(statementString);
+
+					setTableRows(statement, tables.get(tableIndex));
+				}
+				else if(!lastColumn){
+					//begin creating next table
+					tables.add(new SourceTable(currentTable, tempTable, c.getName()));
+					statementString = "CREATE TEMPORARY TABLE " + tempTable + priString + "SELECT ";
+				}
+			}
+		}
+
+	}
+
+	private void setTableRows(Statement statement, SourceTable table)
+			throws SQLException{
+
+		String statementString = "SELECT COUNT(*) FROM " +
+				table.getTemp() + ";";
+		ResultSet rs = statement.executeQuery(statementString);
+
+		if(rs.next())
+			table.setRows(rs.getInt(1));
+
+		rs.close();
+	}
+
+	/*
+	 * This function joins the temporary tables created for each SourceTable.
+	 * The SourceTable with the most rows is joined with the next largest
+	 * table until there are no tables remaining.
+	 */
+	private void joinTables(Statement statement, ArrayList<SourceTable> tables)
+			throws SQLException{
+		//sort SourceTables in order of descending number of rows
+		Collections.sort(tables, new MaxTableSizeComparator());
+
+		//only one source table
+		if(tables.size()==1){
+
+			statement.execute("ALTER TABLE " + tables.get(0).getTemp()
+					+ " DROP id;");
+
+			statement.execute("CREATE TABLE " + newTableName
+			+ " AS SELECT * FROM " + tables.get(0).getTemp() + ";");
+
+			return;
+		}
+
+		//table use in last iteration of loop
+		ArrayList<SourceTable> remaining = new ArrayList<SourceTable>(tables);
+		SourceTable prevTable = remaining.get(0);
+		remaining.remove(0);
+
+		//create first temporary table
+		String statementString = "CREATE TEMPORARY TABLE " + prevTable.getTemp() + "Sum "
+				 + "AS SELECT * FROM " + prevTable.getTemp();
+		statement.execute(statementString);
+
+		for(SourceTable t : remaining){
+
+			//current sum table name
+			String tableSumName = prevTable.getTemp() + "Sum";
+
+			//add all column list from previous table to current table's
+			//column list
+			t.appendCols(prevTable.cols());
+
+			//join previous sum table with current table
+			statementString = "CREATE TEMPORARY TABLE " + t.getTemp() + "Sum AS SELECT " +
+					tableSumName + ".id, " + t.selectableCols() + " FROM " + tableSumName
+					+ " LEFT OUTER JOIN " + t.getTemp()	+ " ON " + tableSumName +
+					".id = " + t.getTemp() + ".id;";
+			statement.execute(statementString);
+
+			if(remaining.indexOf(t)==remaining.size()-1){
+				//on last SourceTable, create final table
+
+				//current sum table name
+				tableSumName = t.getTemp() + "Sum";
+
+				statement.execute("ALTER TABLE " + tableSumName + " DROP id;");
+
+				statementString = "CREATE TABLE " + newTableName + " AS SELECT * FROM "
+							+ tableSumName;
+				statement.execute(statementString);
+			}
+
+			prevTable = t;
+		}
+	}
+}
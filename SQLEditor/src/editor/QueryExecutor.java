@@ -0,0 +1,59 @@
+package editor;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.SimpleObjectProperty;
+
+/*
+ * This class runs the queries of one view on background threads.  Only
+ * the most recently submitted task is wanted, so submitting a task cancels
+ * the task it supersedes, including the statement it is executing.
+ */
+public class QueryExecutor {
+
+	//threads shared by all views, daemon threads so they do not prevent exit
+	private static final ExecutorService workers = Executors.newCachedThreadPool(r -> {
+		Thread t = new Thread(r, "query-worker");
+		t.setDaemon(true);
+		return t;
+	});
+	
+	//task most recently submitted to this executor
+	private ObjectProperty<QueryTask> currentTask = new SimpleObjectProperty<QueryTask>();
+	
+	/*
+	 * This function cancels the current task and runs the new task on a
+	 * background thread.  Must be called on the JavaFX thread.
+	 */
+	public void submit(QueryTask task){
+		cancel();
+		
+		task.setOnFailed(e -> {
+			Throwable ex = task.getException();
+			ex.printStackTrace();
+			task.reportMessage("Query failed: " + ex.getMessage());
+		});
+		
+		currentTask.set(task);
+		workers.execute(task);
+	}
+	
+	//cancels the current task if it has not finished
+	public void cancel(){
+		QueryTask task = currentTask.get();
+		
+		if(task!=null&&!task.isDone())
+			task.cancel();
+	}
+	
+	public ObjectProperty<QueryTask> currentTaskProperty(){
+		return currentTask;
+	}
+	
+	//runs work which is not tied to a view's current task
+	public static void runInBackground(Runnable r){
+		workers.execute(r);
+	}
+}
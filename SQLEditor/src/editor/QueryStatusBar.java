@@ -0,0 +1,86 @@
+package editor;
+
+import javafx.beans.value.ChangeListener;
+import javafx.beans.value.ObservableValue;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Node;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+
+/*
+ * This bar displays the progress and status message of the task currently
+ * running in a QueryExecutor, with a button to cancel it.
+ */
+public class QueryStatusBar extends HBox{
+
+	private Label message = new Label();
+	
+	private ProgressBar progress = new ProgressBar(0);
+	
+	private Button cancel = new Button("Cancel");
+	
+	//task whose status is displayed
+	private QueryTask tracked;
+
+	public QueryStatusBar(QueryExecutor executor){
+		super(5);
+		
+		setPadding(new Insets(3, 5, 3, 5));
+		setAlignment(Pos.CENTER_LEFT);
+		
+		cancel.setDisable(true);
+		cancel.setOnAction(e -> executor.cancel());
+		
+		progress.setPrefWidth(150);
+		progress.setVisible(false);
+		
+		HBox.setHgrow(message, Priority.ALWAYS);
+		message.setMaxWidth(Double.MAX_VALUE);
+		
+		//show the status of each task as it is submitted
+		executor.currentTaskProperty().addListener(new ChangeListener<QueryTask>(){
+			@Override
+			public void changed(ObservableValue<? extends QueryTask> observable,
+					QueryTask oldTask, QueryTask newTask){
+				if(newTask!=null)
+					track(newTask);
+			}
+		});
+		
+		getChildren().addAll(progress, cancel, message);
+	}
+	
+	//adds controls to the end of the bar
+	public void addControls(Node... controls){
+		getChildren().addAll(controls);
+	}
+	
+	//shows a message for work done without a task, such as a search of loaded rows
+	public void showMessage(String text){
+		tracked = null;
+		message.textProperty().unbind();
+		message.setText(text);
+	}
+	
+	private void track(QueryTask task){
+		tracked = task;
+		
+		message.textProperty().bind(task.messageProperty());
+		progress.progressProperty().bind(task.progressProperty());
+		progress.visibleProperty().bind(task.runningProperty());
+		cancel.disableProperty().bind(task.runningProperty().not());
+		
+		task.setOnCancelled(e -> {
+			//a superseded task is cancelled after its replacement is tracked
+			if(tracked!=task)
+				return;
+			
+			message.textProperty().unbind();
+			message.setText(task.getTitle() + " cancelled");
+		});
+	}
+}
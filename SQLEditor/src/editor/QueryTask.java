@@ -0,0 +1,110 @@
+package editor;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import javafx.application.Platform;
+import javafx.concurrent.Task;
+
+/*
+ * This task runs JDBC work for a view on a background thread.  The
+ * statement currently executing is remembered so that cancelling the
+ * task also cancels the query on the server instead of waiting for it
+ * to finish.  Work which changes the view must be passed to runOnFX,
+ * which skips it if the task has been cancelled in the meantime.
+ */
+public abstract class QueryTask extends Task<Void>{
+
+	//statement currently executing, cancelled along with the task
+	private volatile Statement statement;
+	
+	public QueryTask(String title){
+		super();
+		updateTitle(title);
+		updateMessage(title + "...");
+	}
+	
+	/*
+	 * This function contains the task's work and is run on a background
+	 * thread.  Statements should be created with prepare or track so that
+	 * they can be cancelled.
+	 */
+	protected abstract void execute() throws Exception;
+	
+	@Override
+	protected Void call() throws Exception{
+		execute();
+		return null;
+	}
+	
+	//prepares a statement which is cancelled if the task is cancelled
+	public PreparedStatement prepare(Connection connection, String sql) throws SQLException{
+		PreparedStatement prepared = connection.prepareStatement(sql);
+		track(prepared);
+		return prepared;
+	}
+	
+	/*
+	 * This function returns a statement from the connection's cache of
+	 * prepared statements, see ConnectionPool.prepareCached, which is
+	 * cancelled if the task is cancelled.
+	 */
+	public PreparedStatement prepareCached(Connection connection, String table, String shapeKey,
+			String sql) throws SQLException{
+		PreparedStatement prepared = ConnectionPool.prepareCached(connection, table, shapeKey, sql);
+		track(prepared);
+		return prepared;
+	}
+	
+	//sets the statement which is cancelled if the task is cancelled
+	public void track(Statement s) throws SQLException{
+		statement = s;
+		
+		//the task may have been cancelled before the statement existed
+		if(isCancelled())
+			s.cancel();
+	}
+	
+	/*
+	 * This function cancels the task and any statement it is executing.
+	 * The statement is cancelled on another thread, since the driver
+	 * opens a connection to the server to do so.
+	 */
+	@Override
+	public boolean cancel(boolean mayInterruptIfRunning){
+		boolean cancelled = super.cancel(mayInterruptIfRunning);
+		
+		Statement s = statement;
+		
+		if(cancelled&&s!=null){
+			QueryExecutor.runInBackground(() -> {
+				try{
+					s.cancel();
+				}
+				catch(SQLException ex){
+					//statement already finished or closed
+				}
+			});
+		}
+		
+		return cancelled;
+	}
+	
+	//runs an update to the view on the JavaFX thread unless the task was cancelled
+	public void runOnFX(Runnable r){
+		Platform.runLater(() -> {
+			if(!isCancelled())
+				r.run();
+		});
+	}
+	
+	public void reportProgress(long done, long total){
+		updateProgress(done, total);
+	}
+	
+	public void reportMessage(String message){
+		updateMessage(message);
+	}
+}
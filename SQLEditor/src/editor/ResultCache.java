@@ -0,0 +1,239 @@
+package editor;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import filters.TableQuery;
+import tabledata.ColumnarTable;
+
+/*
+ * This class keeps the rows of recently loaded queries so that returning
+ * to a table or filter shows its rows without reading them again.  Entries
+ * are keyed by database and the query's shape, parameters and sort order,
+ * and evicted in least recently used order once their estimated size
+ * exceeds the byte budget.  Each entry records its table's UPDATE_TIME,
+ * read before the rows were loaded, and is only used if it is unchanged.
+ * Rows are not cached when MySQL has no update time for the table, as for
+ * an InnoDB table not changed since the server started, or the table was
+ * updated within the second before the load, since checking such a table
+ * would mean reading all of it with CHECKSUM TABLE.  Edits and DDL made by
+ * this application evict the table's entries directly.
+ */
+public class ResultCache {
+
+	private static final String UPDATE_TIME_QUERY = "SELECT UPDATE_TIME, "
+			+ "UPDATE_TIME >= NOW() - INTERVAL 1 SECOND FROM INFORMATION_SCHEMA.TABLES "
+			+ "WHERE TABLE_SCHEMA = ? AND TABLE_NAME = ?;";
+
+	//maximum estimated bytes held by all entries
+	private long budget = 128L*1024*1024;
+
+	//estimated bytes held by all entries
+	private long bytes = 0;
+
+	//entries in least recently used order
+	private LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+
+	//false once the server has rejected information_schema_stats_expiry, which
+	//only exists in MySQL 8, where update times are otherwise cached for a day
+	private volatile boolean setStatsExpiry = true;
+
+	//cache metrics
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong stale = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+
+	//returns the key of a query's rows in a database
+	public static String getKey(String database, TableQuery query){
+		return database + "\u0000" + query.getShapeKey() + "\u0000"
+				+ String.join("\u0001", query.getParameters());
+	}
+
+	/*
+	 * This function returns the cached entry for the key if its table has
+	 * not changed since the entry was loaded and it has the same columns,
+	 * or null otherwise.  Entries which are out of date are removed.
+	 */
+	public Entry lookup(Connection connection, String key, List<String> columns) throws SQLException{
+		Entry entry;
+
+		synchronized(this){
+			entry = entries.get(key);
+		}
+
+		if(entry==null){
+			misses.incrementAndGet();
+			return null;
+		}
+
+		Version current = readVersion(connection, entry.database, entry.table);
+
+		if(current!=null&&current.token.equals(entry.version.token)&&entry.columns.equals(columns)){
+			hits.incrementAndGet();
+			return entry;
+		}
+
+		synchronized(this){
+			if(entries.get(key)==entry)
+				remove(key);
+		}
+
+		stale.incrementAndGet();
+		misses.incrementAndGet();
+		return null;
+	}
+
+	/*
+	 * This function caches the fully loaded rows of a query.  "version" must
+	 * have been read before the rows were, so that changes made during the
+	 * load are detected.  Results larger than the whole budget are not kept.
+	 */
+	public void put(String key, String database, String table, List<String> columns,
+			ColumnarTable rows, Version version){
+
+		Entry entry = new Entry(database, table, new ArrayList<String>(columns), rows, version);
+
+		synchronized(this){
+			remove(key);
+
+			if(entry.bytes > budget)
+				return;
+
+			entries.put(key, entry);
+			bytes += entry.bytes;
+
+			Iterator<Entry> it = entries.values().iterator();
+
+			while(bytes > budget&&it.hasNext()){
+				bytes -= it.next().bytes;
+				it.remove();
+				evictions.incrementAndGet();
+			}
+		}
+	}
+
+	//removes every entry of a table, after its rows or definition have changed
+	public synchronized void invalidate(String database, String table){
+		Iterator<Entry> it = entries.values().iterator();
+
+		while(it.hasNext()){
+			Entry e = it.next();
+
+			if(e.database.equals(database)&&e.table.equalsIgnoreCase(table)){
+				bytes -= e.bytes;
+				it.remove();
+			}
+		}
+	}
+
+	public synchronized void clear(){
+		entries.clear();
+		bytes = 0;
+	}
+
+	private void remove(String key){
+		Entry removed = entries.remove(key);
+
+		if(removed!=null)
+			bytes -= removed.bytes;
+	}
+
+	/*
+	 * This function reads the version of a table which cached rows are
+	 * validated against, its update time.  It returns null if the server
+	 * does not record the update time, or it is within the last second,
+	 * since it only has a resolution of one second, so that the table's rows
+	 * are not cached.
+	 */
+	public Version readVersion(Connection connection, String database, String table)
+			throws SQLException{
+
+		if(setStatsExpiry){
+			try(Statement statement = connection.createStatement()){
+				statement.execute("SET SESSION information_schema_stats_expiry = 0;");
+			}
+			catch(SQLException ex){
+				setStatsExpiry = false;
+			}
+		}
+
+		PreparedStatement statement = ConnectionPool.prepareCached(connection, null,
+				UPDATE_TIME_QUERY, UPDATE_TIME_QUERY);
+		statement.setString(1, database);
+		statement.setString(2, table);
+
+		ResultSet rs = statement.executeQuery();
+
+		String updated = null;
+		boolean recent = false;
+
+		if(rs.next()){
+			updated = rs.getString(1);
+			recent = rs.getBoolean(2);
+		}
+
+		statement.close();
+
+		return updated==null||recent ? null : new Version("updated " + updated);
+	}
+
+	public void setBudget(long maxBytes){
+		budget = maxBytes;
+	}
+
+	public synchronized long getBytes(){
+		return bytes;
+	}
+
+	//returns a summary of the cache's size and how often it was used
+	public synchronized String getSummary(){
+		return String.format("Result cache: %d entries, %.1f of %.0f MB%n"
+				+ "Result cache hits: %d, misses: %d (%d out of date), evictions: %d",
+				entries.size(), bytes/1048576.0, budget/1048576.0,
+				hits.get(), misses.get(), stale.get(), evictions.get());
+	}
+
+	//the version of a table that cached rows were read at
+	public static class Version{
+
+		final String token;
+
+		Version(String versionToken){
+			token = versionToken;
+		}
+	}
+
+	//the rows of one query and the table version they were read at
+	public static class Entry{
+
+		final String database;
+		final String table;
+		final List<String> columns;
+		final ColumnarTable rows;
+		final Version version;
+		final long bytes;
+
+		Entry(String db, String tableName, List<String> columnNames, ColumnarTable loaded,
+				Version tableVersion){
+			database = db;
+			table = tableName;
+			columns = columnNames;
+			rows = loaded;
+			version = tableVersion;
+			bytes = loaded.estimateBytes();
+		}
+
+		public ColumnarTable getRows(){
+			return rows;
+		}
+	}
+}
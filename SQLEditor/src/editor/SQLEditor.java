@@ -56,7 +56,16 @@ public class SQLEditor extends Application{
 		border.setLeft(leftPane);
 		
 		tableview.setMinWidth(border.getWidth()*6/7);
-		border.setCenter(tableview);
+		VBox centerPane = new VBox(tableview, tableview.getStatusBar());
+		VBox.setVgrow(tableview, Priority.ALWAYS);
+		border.setCenter(centerPane);
+	}
+
+	//closes pooled connections when the application exits
+	@Override
+	public void stop(){
+		if(session!=null)
+			session.close();
 	}
 
 	public static TableList getTableList(){
@@ -0,0 +1,164 @@
+package editor;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import columninfo.ColumnSchema;
+import columninfo.TableSchema;
+
+/*
+ * This class caches the column definitions, primary keys, foreign keys and
+ * indexes of tables in the session's databases so that information_schema
+ * is not queried every time a filter changes or a cell is updated.  Each
+ * table is loaded with one query for its columns and one for its indexes.
+ * Statements this application issues which alter a table invalidate its
+ * entry, and entries older than the time to live are reloaded to pick up
+ * changes made by other clients.
+ */
+public class SchemaCache {
+
+	//one query loads every column of the table joined with its key usage
+	private static final String TABLE_QUERY = "SELECT c.COLUMN_NAME, c.COLUMN_TYPE, "
+			+ "c.DATA_TYPE, c.ORDINAL_POSITION, c.IS_NULLABLE, k.CONSTRAINT_NAME, "
+			+ "k.ORDINAL_POSITION, k.REFERENCED_TABLE_NAME, k.REFERENCED_COLUMN_NAME, "
+			+ "c.COLLATION_NAME "
+			+ "FROM INFORMATION_SCHEMA.COLUMNS c LEFT JOIN INFORMATION_SCHEMA.KEY_COLUMN_USAGE k "
+			+ "ON k.TABLE_SCHEMA = c.TABLE_SCHEMA AND k.TABLE_NAME = c.TABLE_NAME "
+			+ "AND k.COLUMN_NAME = c.COLUMN_NAME "
+			+ "WHERE c.TABLE_SCHEMA = ? AND c.TABLE_NAME = ? "
+			+ "ORDER BY c.ORDINAL_POSITION;";
+	
+	private static final String INDEX_QUERY = "SELECT INDEX_NAME, COLUMN_NAME "
+			+ "FROM INFORMATION_SCHEMA.STATISTICS WHERE TABLE_SCHEMA = ? AND TABLE_NAME = ? "
+			+ "ORDER BY INDEX_NAME, SEQ_IN_INDEX;";
+
+	//session used to lease connections for loading tables
+	private SessionConfig session;
+	
+	//cached tables keyed by database + "." + table
+	private ConcurrentHashMap<String, TableSchema> tables 
+		= new ConcurrentHashMap<String, TableSchema>();
+	
+	//milliseconds a cached table is used before it is reloaded
+	private long timeToLive = TimeUnit.SECONDS.toMillis(60);
+	
+	public SchemaCache(SessionConfig currentSession){
+		session = currentSession;
+	}
+	
+	/*
+	 * This function returns the definition of the table in the session's
+	 * current database, loading it if it is not cached or has expired.
+	 */
+	public TableSchema getTable(String table) throws SQLException{
+		return getTable(session.getDatabase(), table);
+	}
+	
+	/*
+	 * This function returns the definition of the table in the database
+	 * parameter, loading it if it is not cached or has expired.  A table
+	 * which does not exist is returned with no columns and is not cached.
+	 */
+	public TableSchema getTable(String database, String table) throws SQLException{
+		
+		String key = getKey(database, table);
+		TableSchema cached = tables.get(key);
+		
+		if(cached!=null&&System.currentTimeMillis() - cached.getLoadedAt() < timeToLive)
+			return cached;
+		
+		TableSchema loaded = loadTable(database, table);
+		
+		if(!loaded.isEmpty())
+			tables.put(key, loaded);
+		else
+			tables.remove(key);
+		
+		return loaded;
+	}
+	
+	/*
+	 * This function queries information_schema for all columns of a table
+	 * along with the primary and foreign key constraints they are part of,
+	 * and for the columns of the table's indexes.
+	 */
+	private TableSchema loadTable(String database, String table) throws SQLException{
+		
+		TableSchema schema = new TableSchema(database, table);
+		
+		try(Connection connection = session.getConnection()){
+			PreparedStatement statement = connection.prepareStatement(TABLE_QUERY);
+			statement.setString(1, database);
+			statement.setString(2, table);
+			
+			ResultSet rs = statement.executeQuery();
+			
+			//the join returns one row per constraint a column is part of
+			ColumnSchema current = null;
+			
+			while(rs.next()){
+				String name = rs.getString(1);
+				
+				if(current==null||!current.getName().equals(name)){
+					current = new ColumnSchema(name, rs.getString(2), rs.getString(3), 
+							rs.getInt(4), "YES".equals(rs.getString(5)));
+					current.setCollation(rs.getString(10));
+					schema.addColumn(current);
+				}
+				
+				String constraint = rs.getString(6);
+				
+				if("PRIMARY".equals(constraint))
+					current.setPrimaryKeyPosition(rs.getInt(7));
+				else if(rs.getString(8)!=null)
+					current.setReference(constraint, rs.getString(8), rs.getString(9));
+			}
+			
+			statement.close();
+			
+			statement = connection.prepareStatement(INDEX_QUERY);
+			statement.setString(1, database);
+			statement.setString(2, table);
+			
+			rs = statement.executeQuery();
+			
+			while(rs.next())
+				schema.addIndexColumn(rs.getString(1), rs.getString(2));
+			
+			statement.close();
+		}
+		
+		return schema;
+	}
+	
+	//removes a table from the cache so that it is reloaded on next use
+	public void invalidate(String database, String table){
+		tables.remove(getKey(database, table));
+	}
+	
+	//removes every table in the database from the cache
+	public void invalidateDatabase(String database){
+		String prefix = database + ".";
+		tables.keySet().removeIf(k -> k.startsWith(prefix));
+	}
+	
+	public void clear(){
+		tables.clear();
+	}
+	
+	public void setTimeToLive(long millis){
+		timeToLive = millis;
+	}
+	
+	public long getTimeToLive(){
+		return timeToLive;
+	}
+	
+	private static String getKey(String database, String table){
+		return database + "." + table;
+	}
+}
@@ -0,0 +1,354 @@
+package editor;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * This class holds column changes to tables which have not been made yet,
+ * so that several renames, drops and added columns of a table are made by
+ * one ALTER TABLE rather than one each, since each ALTER TABLE may rebuild
+ * the whole table.  Columns are named as they are before the changes, and
+ * a change to a column which already has a pending change replaces it, so
+ * a column renamed twice is renamed once, and a column renamed and then
+ * dropped is only dropped.
+ *
+ * The ALTER TABLE first requests ALGORITHM=INSTANT, which only changes the
+ * table's metadata, then ALGORITHM=INPLACE with LOCK=NONE, which rebuilds
+ * the table without blocking writes, and only if copies are allowed does it
+ * fall back to ALGORITHM=COPY.  The algorithm used is returned, so the user
+ * can see whether the table was rebuilt.
+ *
+ * Columns are renamed with RENAME COLUMN, which keeps the rest of their
+ * definitions.  Servers before MySQL 8.0 only rename a column with CHANGE,
+ * which redefines it, so there each column's whole definition is read from
+ * SHOW CREATE TABLE and repeated with its new name.
+ */
+public class SchemaChangeQueue {
+
+	//algorithms the server can make changes with
+	public static final String INSTANT = "INSTANT";
+	public static final String INPLACE = "INPLACE";
+	public static final String COPY = "COPY";
+
+	//algorithms requested in order, with the lock requested with each
+	private static final String[][] ATTEMPTS = {{INSTANT, ""}, {INPLACE, ", LOCK=NONE"},
+			{COPY, ""}};
+
+	//errors of a server which can not make the changes with an algorithm, or does not know it
+	private static final int[] UNSUPPORTED_ERRORS = {1845, 1846, 1800, 1801};
+
+	private SessionConfig session;
+
+	//pending changes by table, in the order they were made
+	private final Map<String, List<Change>> pending = new LinkedHashMap<String, List<Change>>();
+
+	public SchemaChangeQueue(SessionConfig currentSession){
+		session = currentSession;
+	}
+
+	//queues a rename of a column, replacing any change pending for the column
+	public synchronized void renameColumn(String table, String oldName, String newName){
+		Change existing = find(table, oldName);
+		List<Change> changes = getChanges(table);
+
+		//changes are replaced rather than edited, since an ALTER TABLE may be making them
+		if(existing==null)
+			changes.add(new Change(oldName, newName, null));
+		else if(existing.oldName==null)
+			changes.set(changes.indexOf(existing), new Change(null, newName, existing.definition));
+		else
+			changes.set(changes.indexOf(existing), new Change(existing.oldName, newName, null));
+	}
+
+	/*
+	 * This function queues a drop of a column, replacing any change pending
+	 * for it.  A column added by a pending change is not added at all.
+	 */
+	public synchronized void dropColumn(String table, String name){
+		Change existing = find(table, name);
+
+		if(existing!=null)
+			getChanges(table).remove(existing);
+
+		if(existing==null||existing.oldName!=null)
+			getChanges(table).add(new Change(existing==null ? name : existing.oldName, null, null));
+	}
+
+	//queues a new column with the definition "definition", such as its type
+	public synchronized void addColumn(String table, String name, String definition){
+		getChanges(table).add(new Change(null, name, definition));
+	}
+
+	//returns the number of changes pending for a table
+	public synchronized int getCount(String table){
+		List<Change> changes = pending.get(table);
+		return changes==null ? 0 : changes.size();
+	}
+
+	//returns a description of each change pending for a table
+	public synchronized List<String> describe(String table){
+		ArrayList<String> descriptions = new ArrayList<String>();
+
+		if(pending.containsKey(table)){
+			for(Change c : pending.get(table))
+				descriptions.add(c.getClause());
+		}
+
+		return descriptions;
+	}
+
+	public synchronized void discard(String table){
+		pending.remove(table);
+	}
+
+	/*
+	 * This function makes every change pending for a table with one ALTER
+	 * TABLE, using the first algorithm the server can make them with.
+	 * ALGORITHM=COPY is only tried if "allowCopy" is true.  The changes stay
+	 * pending if the ALTER TABLE fails.
+	 */
+	public Result apply(String table, boolean allowCopy) throws SQLException{
+		List<Change> changes;
+
+		synchronized(this){
+			changes = new ArrayList<Change>(getChanges(table));
+		}
+
+		if(changes.isEmpty())
+			return null;
+
+		Result result = alter(table, changes, allowCopy);
+
+		synchronized(this){
+			getChanges(table).removeAll(changes);
+
+			if(getChanges(table).isEmpty())
+				pending.remove(table);
+		}
+
+		session.tableChanged(table);
+
+		return result;
+	}
+
+	/*
+	 * This function adds a column to a table with its own ALTER TABLE, using
+	 * the first algorithm the server can add it with, as apply does.  The
+	 * changes pending for the table are neither made nor discarded.
+	 */
+	public Result addColumnNow(String table, String name, String definition, boolean allowCopy)
+			throws SQLException{
+		ArrayList<Change> changes = new ArrayList<Change>();
+		changes.add(new Change(null, name, definition));
+
+		Result result = alter(table, changes, allowCopy);
+		session.tableChanged(table);
+
+		return result;
+	}
+
+	//makes "changes" to a table with one ALTER TABLE, trying each algorithm in turn
+	private Result alter(String table, List<Change> changes, boolean allowCopy) throws SQLException{
+		SQLException failure = null;
+
+		try(Connection connection = session.getConnection();
+				Statement statement = connection.createStatement()){
+			Map<String, String> definitions = null;
+
+			if(connection.getMetaData().getDatabaseMajorVersion() < 8)
+				definitions = getDefinitions(statement, table);
+
+			ArrayList<String> clauses = new ArrayList<String>();
+
+			for(Change c : changes)
+				clauses.add(c.getClause(definitions));
+
+			String alterString = "ALTER TABLE " + table + " " + String.join(", ", clauses);
+
+			for(String[] attempt : ATTEMPTS){
+				if(attempt[0].equals(COPY)&&!allowCopy)
+					break;
+
+				long start = System.nanoTime();
+
+				try{
+					statement.execute(alterString + ", ALGORITHM=" + attempt[0] + attempt[1] + ";");
+				}
+				catch(SQLException ex){
+					if(!isUnsupported(ex))
+						throw ex;
+
+					//the reason the algorithm can not be used is shown if no algorithm can
+					failure = ex;
+					continue;
+				}
+
+				return new Result(changes, attempt[0], System.nanoTime() - start);
+			}
+		}
+
+		throw new SQLException("No online algorithm can make these changes"
+				+ (allowCopy ? "" : ", allow a table copy to make them") + ": " + failure.getMessage(), failure);
+	}
+
+	/*
+	 * This function returns the definition of each column of a table, as
+	 * written after its name by SHOW CREATE TABLE, by column name.
+	 */
+	private static Map<String, String> getDefinitions(Statement statement, String table)
+			throws SQLException{
+		Map<String, String> definitions = new LinkedHashMap<String, String>();
+
+		try(ResultSet rs = statement.executeQuery("SHOW CREATE TABLE " + table + ";")){
+			if(!rs.next())
+				return definitions;
+
+			for(String line : rs.getString(2).split("\n")){
+				line = line.trim();
+
+				//column lines start with the quoted name, and key lines with a keyword
+				int nameEnd = line.indexOf('`', 1);
+
+				if(!line.startsWith("`")||nameEnd < 0)
+					continue;
+
+				String definition = line.substring(nameEnd + 1).trim();
+
+				if(definition.endsWith(","))
+					definition = definition.substring(0, definition.length() - 1);
+
+				definitions.put(line.substring(1, nameEnd), definition);
+			}
+		}
+
+		return definitions;
+	}
+
+	private static boolean isUnsupported(SQLException ex){
+		for(int code : UNSUPPORTED_ERRORS){
+			if(ex.getErrorCode()==code)
+				return true;
+		}
+
+		return false;
+	}
+
+	private List<Change> getChanges(String table){
+		List<Change> changes = pending.get(table);
+
+		if(changes==null){
+			changes = new ArrayList<Change>();
+			pending.put(table, changes);
+		}
+
+		return changes;
+	}
+
+	//returns the change pending for the column "name", or which adds it
+	private Change find(String table, String name){
+		for(Change c : getChanges(table)){
+			if(c.oldName==null ? name.equals(c.newName) : name.equals(c.oldName))
+				return c;
+		}
+
+		return null;
+	}
+
+	/*
+	 * This class is one change to a column: a rename from "oldName" to
+	 * "newName", a drop of "oldName", or an added column "newName" with its
+	 * definition.
+	 */
+	private static class Change{
+
+		final String oldName;
+		final String newName;
+		final String definition;
+
+		Change(String old, String name, String columnDefinition){
+			oldName = old;
+			newName = name;
+			definition = columnDefinition;
+		}
+
+		String getClause(){
+			return getClause(null);
+		}
+
+		/*
+		 * This function returns the clause which makes the change.  If the
+		 * definitions of the table's columns by name are given, a rename
+		 * repeats the column's definition with CHANGE instead of using
+		 * RENAME COLUMN.
+		 */
+		String getClause(Map<String, String> columnDefinitions){
+			if(oldName==null)
+				return "ADD COLUMN " + newName + " " + definition;
+			else if(newName==null)
+				return "DROP COLUMN " + oldName;
+			else if(columnDefinitions!=null&&columnDefinitions.containsKey(oldName))
+				return "CHANGE " + oldName + " " + newName + " " + columnDefinitions.get(oldName);
+			else
+				return "RENAME COLUMN " + oldName + " TO " + newName;
+		}
+	}
+
+	/*
+	 * This class is the changes made by one ALTER TABLE, the algorithm the
+	 * server made them with, and how long they took.
+	 */
+	public static class Result{
+
+		private List<Change> changes;
+		private String algorithm;
+		private long nanos;
+
+		private Result(List<Change> madeChanges, String usedAlgorithm, long elapsedNanos){
+			changes = madeChanges;
+			algorithm = usedAlgorithm;
+			nanos = elapsedNanos;
+		}
+
+		public String getAlgorithm(){
+			return algorithm;
+		}
+
+		public int getCount(){
+			return changes.size();
+		}
+
+		public long getMillis(){
+			return nanos/1000000;
+		}
+
+		//returns the names of the columns dropped
+		public List<String> getDropped(){
+			ArrayList<String> dropped = new ArrayList<String>();
+
+			for(Change c : changes){
+				if(c.newName==null)
+					dropped.add(c.oldName);
+			}
+
+			return dropped;
+		}
+
+		//returns the new name of each renamed column by its old name
+		public Map<String, String> getRenamed(){
+			Map<String, String> renamed = new LinkedHashMap<String, String>();
+
+			for(Change c : changes){
+				if(c.oldName!=null&&c.newName!=null)
+					renamed.put(c.oldName, c.newName);
+			}
+
+			return renamed;
+		}
+	}
+}
@@ -1,8 +1,13 @@
 package editor;
 
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.ConcurrentHashMap;
+
 /*
  * This object holds fields frequently used when establishing a new JDBC MySQL
- * connection.
+ * connection, and owns the pool that connections for the session are leased
+ * from.
  */
 
 public class SessionConfig {
@@ -19,6 +24,22 @@ public class SessionConfig {
 	//database the user is currently using 
 	private String database;
 	
+	//connections for this session, created on first use
+	private ConnectionPool pool;
+	
+	//table definitions loaded during this session
+	private SchemaCache schemaCache = new SchemaCache(this);
+	
+	//rows of recently loaded queries
+	private ResultCache resultCache = new ResultCache();
+	
+	//column changes which have not been made yet, by table
+	private SchemaChangeQueue schemaChanges = new SchemaChangeQueue(this);
+	
+	//chunked table copies which were stopped before they finished, by database + "." + table
+	private ConcurrentHashMap<String, ChunkedCopy> unfinishedCopies 
+		= new ConcurrentHashMap<String, ChunkedCopy>();
+
 	public SessionConfig(String connectionURL, String name, String pass){
 		url = connectionURL;
 		username = name;
@@ -42,14 +63,96 @@ public class SessionConfig {
 	
 	public void setUserName(String name){
 		username = name;
+		close();
 	}
 	
 	public void setURL(String connectionURL){
 		url = connectionURL;
+		close();
 	}
 	
 	public void setPassword(String pass){
 		password = pass;
+		close();
+	}
+	
+	/*
+	 * This function leases a connection using the session's current database.
+	 * Closing the returned connection returns it to the session's pool.
+	 */
+	public Connection getConnection() throws SQLException{
+		return getPool().lease(database);
+	}
+	
+	/*
+	 * This function leases a connection using the catalog parameter, or
+	 * any catalog if it is null.
+	 */
+	public Connection getConnection(String catalog) throws SQLException{
+		return getPool().lease(catalog);
+	}
+	
+	public synchronized ConnectionPool getPool(){
+		if(pool==null)
+			pool = new ConnectionPool(url, username, password);
+		
+		return pool;
+	}
+	
+	public SchemaCache getSchemaCache(){
+		return schemaCache;
+	}
+	
+	public ResultCache getResultCache(){
+		return resultCache;
+	}
+	
+	public SchemaChangeQueue getSchemaChanges(){
+		return schemaChanges;
+	}
+	
+	/*
+	 * This function is called after this application alters or drops a
+	 * table in the current database so that cached information about the
+	 * table, statements prepared on it, and its cached rows are discarded.
+	 */
+	public void tableChanged(String table){
+		schemaCache.invalidate(database, table);
+		resultCache.invalidate(database, table);
+
+		synchronized(this){
+			if(pool!=null)
+				pool.invalidateStatements(table);
+		}
+	}
+	
+	//returns the stopped chunked copy into a table, or null if there is none
+	public ChunkedCopy getUnfinishedCopy(String db, String table){
+		return unfinishedCopies.get(db + "." + table);
+	}
+	
+	//records a chunked copy which was stopped, or forgets it once it has finished
+	public void setUnfinishedCopy(ChunkedCopy copy){
+		if(copy.isFinished())
+			unfinishedCopies.remove(copy.getDatabase() + "." + copy.getTable());
+		else
+			unfinishedCopies.put(copy.getDatabase() + "." + copy.getTable(), copy);
+	}
+	
+	//discards the cached rows of a table after this application changes its rows
+	public void rowsChanged(String table){
+		resultCache.invalidate(database, table);
+	}
+	
+	//closes all pooled connections, a new pool is created if the session is used again
+	public synchronized void close(){
+		schemaCache.clear();
+		resultCache.clear();
+		
+		if(pool!=null){
+			pool.close();
+			pool = null;
+		}
 	}
 	
 	public String getUserName(){
@@ -0,0 +1,292 @@
+package editor;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+
+import filters.TableQuery;
+import tabledata.ColumnarTable;
+import tabledata.RowList;
+
+/*
+ * This class reads the rows matching a TableQuery into a ColumnarTable up
+ * to a row cap, appending them to a TableView's RowList in chunks as they
+ * arrive.  In streaming mode the driver is asked to stream the result row
+ * by row instead of buffering all of it before the first row can be read.
+ * If more rows remain after the cap, the next fetch continues after the
+ * last primary key read, or by offset when the table has no primary key
+ * or the query has its own sort order.
+ */
+public class StreamedLoad {
+
+	//rows in the first chunk, kept small so that rows appear quickly
+	private static final int FIRST_CHUNK_SIZE = 100;
+
+	//rows in each later chunk
+	private static final int CHUNK_SIZE = 1000;
+
+	private TableQuery query;
+
+	//data displayed by the TableView, only modified on the JavaFX thread
+	private RowList data;
+	
+	//holds the rows of every fetch, created from the first result's columns
+	private ColumnarTable store;
+
+	//primary key names and their result indices, empty if there is no key
+	private List<String> primaryKey;
+	private int[] keyIndices;
+
+	//columns which order rows the query's sort order leaves tied: the primary
+	//key, or every column when there is no key and rows are read by offset
+	private List<String> tieBreakers;
+
+	//maximum rows read by each fetch, 0 for no limit
+	private int rowCap;
+
+	//true to stream results instead of buffering them in the driver
+	private boolean streaming;
+
+	//rows read by all fetches
+	private long loaded = 0;
+
+	//typed primary key values of the last row read, bound as they are so that
+	//binary and floating point keys compare as the server stores them
+	private Object[] lastKey;
+
+	//true if the last fetch stopped at the row cap with rows remaining
+	private boolean more = false;
+
+	//true once a fetch has read every matching row
+	private volatile boolean complete = false;
+	
+	//true if the rows were restored rather than fetched
+	private boolean restored = false;
+
+	//statistics of the last fetch
+	private int lastRows;
+	private long firstRowNanos;
+	private long elapsedNanos;
+
+	public StreamedLoad(TableQuery tableQuery, List<String> columns, List<String> key,
+			RowList tableData, int cap, boolean stream){
+		query = tableQuery;
+		primaryKey = key;
+		data = tableData;
+		rowCap = cap;
+		streaming = stream;
+
+		keyIndices = new int[primaryKey.size()];
+		for(int i = 0; i < keyIndices.length; i++)
+			keyIndices[i] = columns.indexOf(primaryKey.get(i));
+
+		//without a complete order, successive offsets could skip or repeat rows
+		if(!primaryKey.isEmpty())
+			tieBreakers = primaryKey;
+		else if(rowCap > 0)
+			tieBreakers = columns;
+		else
+			tieBreakers = Collections.emptyList();
+	}
+
+	/*
+	 * This function returns a load of every row of a query which were read
+	 * earlier into "rows", such as rows kept by a ResultCache, and appends
+	 * them to "tableData".  It must be called on the JavaFX thread.
+	 */
+	public static StreamedLoad restore(TableQuery tableQuery, ColumnarTable rows, RowList tableData){
+		StreamedLoad load = new StreamedLoad(tableQuery, Collections.emptyList(), 
+				Collections.emptyList(), tableData, 0, false);
+		
+		load.store = rows;
+		load.loaded = rows.getRowCount();
+		load.complete = true;
+		load.restored = true;
+		
+		tableData.addRows(rows, 0, rows.getRowCount());
+		
+		return load;
+	}
+
+	/*
+	 * This function reads up to the row cap of the rows after those already
+	 * loaded and appends them to the data, returning the number read.  It is
+	 * run by a QueryTask, which is used to report progress and to cancel.
+	 */
+	public int fetch(QueryTask task, Connection connection, long estimatedRows)
+			throws SQLException{
+
+		long start = System.nanoTime();
+		firstRowNanos = -1;
+
+		//rows in the query's own sort order continue by offset, since seeking
+		//past the last row would need every sort column in the key
+		boolean seekable = !primaryKey.isEmpty()&&!query.hasOrder();
+		boolean seek = seekable&&lastKey!=null;
+
+		String queryString = "SELECT * FROM " + query.getTable();
+
+		if(seek)
+			queryString += query.getWhereClause("(" + String.join(", ", primaryKey) + ") > ("
+				+ String.join(", ", Collections.nCopies(primaryKey.size(), "?")) + ")");
+		else
+			queryString += query.getWhereClause();
+
+		queryString += query.getOrderBy(tieBreakers);
+
+		//read one row past the cap to find out whether more rows remain
+		boolean offset = rowCap > 0&&!seekable&&loaded > 0;
+		
+		if(rowCap > 0)
+			queryString += offset ? " LIMIT ? OFFSET ?" : " LIMIT ?";
+
+		//the limit and offset are parameters, so that each fetch of the query's
+		//shape reuses one prepared statement
+		String shapeKey = query.getShapeKey() + (seek ? " AFTER KEY" : "") 
+				+ (rowCap > 0 ? " LIMIT" : "") + (offset ? " OFFSET" : "");
+
+		PreparedStatement statement = task.prepareCached(connection, query.getTable(), 
+				shapeKey, queryString);
+
+		if(streaming)
+			statement.setFetchSize(Integer.MIN_VALUE);
+
+		int parameter = query.bind(statement, 1);
+
+		if(seek){
+			for(Object k : lastKey)
+				statement.setObject(parameter++, k);
+		}
+		
+		if(rowCap > 0)
+			statement.setLong(parameter++, rowCap + 1L);
+		
+		if(offset)
+			statement.setLong(parameter++, loaded);
+
+		ResultSet rs = statement.executeQuery();
+
+		int chunkSize = FIRST_CHUNK_SIZE;
+		int rows = 0;
+		more = false;
+
+		long expected = rowCap > 0 ? Math.min(rowCap, Math.max(estimatedRows - loaded, 1))
+				: Math.max(estimatedRows - loaded, 1);
+
+		if(store==null)
+			store = ColumnarTable.forResult(rs.getMetaData(), (int)Math.min(expected, 1 << 20));
+
+		int chunkStart = store.getRowCount();
+
+		while(!task.isCancelled()&&rs.next()){
+			if(rowCap > 0&&rows==rowCap){
+				more = true;
+				break;
+			}
+
+			if(firstRowNanos < 0)
+				firstRowNanos = System.nanoTime() - start;
+
+			store.appendRow(rs);
+			rows++;
+
+			if(store.getRowCount() - chunkStart==chunkSize){
+				appendChunk(task, chunkStart, store.getRowCount());
+				chunkStart = store.getRowCount();
+				chunkSize = CHUNK_SIZE;
+				task.reportProgress(rows, Math.max(rows, expected));
+			}
+		}
+
+		appendChunk(task, chunkStart, store.getRowCount());
+
+		statement.close();
+
+		loaded += rows;
+		lastRows = rows;
+		elapsedNanos = System.nanoTime() - start;
+		complete = !more&&!task.isCancelled();
+
+		task.reportProgress(1, 1);
+
+		return rows;
+	}
+
+	//records the key of the chunk's last row and appends the chunk on the JavaFX thread
+	private void appendChunk(QueryTask task, int from, int to){
+		if(to <= from)
+			return;
+
+		if(!primaryKey.isEmpty()){
+			Object[] key = new Object[keyIndices.length];
+
+			for(int i = 0; i < key.length; i++)
+				key[i] = store.getValue(to-1, keyIndices[i]);
+
+			lastKey = key;
+		}
+
+		ColumnarTable rows = store;
+		task.runOnFX(() -> data.addRows(rows, from, to));
+	}
+
+	//returns true if rows remain after the last fetch
+	public boolean hasMore(){
+		return more;
+	}
+
+	//returns true if every matching row has been read
+	public boolean isComplete(){
+		return complete;
+	}
+
+	public long getLoaded(){
+		return loaded;
+	}
+	
+	//returns true if every matching row was read by the first fetch
+	public boolean isCompleteInOneFetch(){
+		return complete&&!restored&&loaded==lastRows;
+	}
+
+	public TableQuery getQuery(){
+		return query;
+	}
+	
+	//returns the table holding every loaded row, null before the first fetch
+	public ColumnarTable getTable(){
+		return store;
+	}
+
+	/*
+	 * This function returns the number of rows read by the last fetch along
+	 * with its time to first row, rows per second, and the memory held by
+	 * all loaded rows.
+	 */
+	public String getSummary(){
+		if(restored)
+			return String.format("%d rows of %s shown from the result cache, %.1f MB",
+					loaded, query.getTable(), store.estimateBytes()/1048576.0);
+		
+		double seconds = elapsedNanos/1e9;
+		double rowsPerSecond = seconds > 0 ? lastRows/seconds : 0;
+
+		String summary = String.format("%d rows loaded from %s in %.2f s",
+				loaded, query.getTable(), seconds);
+
+		if(store!=null)
+			summary += String.format(", %.1f MB", store.estimateBytes()/1048576.0);
+
+		if(firstRowNanos >= 0)
+			summary += String.format(" (first row %.0f ms, %.0f rows/s)",
+					firstRowNanos/1e6, rowsPerSecond);
+
+		if(more)
+			summary += ", more rows available";
+
+		return summary;
+	}
+}
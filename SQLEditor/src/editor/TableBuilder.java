@@ -1,19 +1,19 @@
 package editor;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.List;
 
 import columninfo.*;
+import javafx.application.Platform;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.beans.property.StringProperty;
 import javafx.beans.value.ChangeListener;
 import javafx.beans.value.ObservableValue;
+import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
@@ -37,7 +37,9 @@ import javafx.util.Callback;
  * table including any column from any table in the current
  * database.  These columns can also be designated as a primary
  * or foreign constraint in the new table, or an auto incremented
- * primary key can be added.
+ * primary key can be added.  Rows of different tables are aligned by
+ * position, or joined on the foreign keys between the tables after the
+ * user has reviewed the join's EXPLAIN plan.
  */
 public class TableBuilder {
 
@@ -59,6 +61,26 @@ public class TableBuilder {
 	private TableView<ColumnProperties> columnMeta 
 				= ColumnProperties.getPropertyColumns();
 	
+	//engine which aligns the rows of the source tables
+	private StringProperty joinEngine = new SimpleStringProperty(PositionalJoin.WINDOW_ENGINE);
+	
+	//settings of tables filled in chunks after they are created
+	private CheckBox copyInChunks = new CheckBox("Copy in Chunks");
+	private TextField chunkSizeInput = new TextField(String.valueOf(ChunkedCopy.DEFAULT_CHUNK_SIZE));
+	private TextField sleepInput = new TextField(String.valueOf(ChunkedCopy.DEFAULT_SLEEP_MILLIS));
+	private TextField maxRunningInput 
+				= new TextField(String.valueOf(ChunkedCopy.DEFAULT_MAX_THREADS_RUNNING));
+	private TextField maxLagInput = new TextField(String.valueOf(ChunkedCopy.DEFAULT_MAX_REPLICA_LAG));
+	
+	//progress of a chunked copy, the copy created for the table, and the copy running
+	private Label copyStatus = new Label();
+	private ChunkedCopy pendingCopy;
+	private ChunkedCopy runningCopy;
+	
+	//first rows and estimated size of the table, shown once the user asks for them
+	private BuildPreview preview;
+	private boolean previewShown = false;
+
 	public TableBuilder(SessionConfig newSession){
 		session = newSession;
 		newTableName = new SimpleStringProperty();
@@ -131,18 +153,59 @@ public class TableBuilder {
 		HBox generatePrimaryKeyRow = new HBox(5, toggleGeneratePrimary, generatedKeyName);
 		VBox.setMargin(generatePrimaryKeyRow, new Insets(5, 0, 5, 0));
 		
+		//engine used to align the rows of the source tables
+		Label engineLabel = new Label("Join With: ");
+		HBox.setMargin(engineLabel, new Insets(3, 0, 0, 0));
+		ComboBox<String> engineSelect = new ComboBox<String>();
+		engineSelect.getItems().addAll(PositionalJoin.WINDOW_ENGINE, PositionalJoin.TEMP_TABLE_ENGINE,
+				KeyJoin.INNER_ENGINE, KeyJoin.LEFT_ENGINE);
+		engineSelect.valueProperty().bindBidirectional(joinEngine);
+		HBox engineRow = new HBox(5, engineLabel, engineSelect);
+		
+		//chunk size, pause after each chunk, and load limits of chunked copies
+		chunkSizeInput.setPrefColumnCount(6);
+		sleepInput.setPrefColumnCount(4);
+		maxRunningInput.setPrefColumnCount(3);
+		maxLagInput.setPrefColumnCount(3);
+		
+		for(TextField input : new TextField[]{chunkSizeInput, sleepInput, maxRunningInput, maxLagInput})
+			input.disableProperty().bind(copyInChunks.selectedProperty().not());
+		
+		HBox chunkRow = new HBox(5, copyInChunks, new Label("Rows/Chunk:"), chunkSizeInput, 
+				new Label("Sleep ms:"), sleepInput, new Label("Max Threads_running:"), maxRunningInput,
+				new Label("Max Lag s:"), maxLagInput);
+
+		//sample of the table, refreshed as columns or the engine change once shown
+		preview = new BuildPreview(session);
+		previewShown = false;
+		
+		columnMeta.getItems().addListener((ListChangeListener<ColumnProperties>)c-> 
+				refreshPreview());
+		joinEngine.addListener((obv, oldValue, newValue) -> refreshPreview());
+		
 		//Action buttons
 		Button ok = new Button("OK");
+		Button previewButton = new Button("Preview");
 		Button cancel = new Button("Cancel");
-		HBox buttonRow = new HBox(5, ok, cancel);
+		HBox buttonRow = new HBox(5, ok, previewButton, cancel);
 		buttonRow.setAlignment(Pos.CENTER);
 		
+		previewButton.setOnAction(e->{
+			previewShown = true;
+			refreshPreview();
+		});
+
 		ok.setOnAction(e->{
 			if(checkLegalPrimary(toggleGeneratePrimary, generatedKeyName.getText())){
-				if(createTable()){
-					builderWindow.close();
-					tableList.updateList();
-				}
+				ChunkedCopy unfinished = session.getUnfinishedCopy(session.getDatabase(), 
+						newTableName.getValue());
+				
+				if(copyInChunks.isSelected()&&unfinished!=null)
+					runChunkedCopy(unfinished, builderWindow, tableList, ok);
+				else if(KeyJoin.isKeyEngine(joinEngine.getValue()))
+					previewKeyJoin(builderWindow, tableList, ok);
+				else
+					build(null, builderWindow, tableList, ok);
 			}
 			else{
 				
@@ -153,7 +216,16 @@ public class TableBuilder {
 		});
 		
 		cancel.setOnAction(e->{
-			builderWindow.close();
+			if(runningCopy!=null)
+				runningCopy.cancel();
+			else
+				builderWindow.close();
+		});
+		
+		//a copy stopped by closing the window can be resumed from a new one
+		builderWindow.setOnHidden(e->{
+			if(runningCopy!=null)
+				runningCopy.cancel();
 		});
 		
 		columnNames.setMaxHeight(300);
@@ -168,7 +240,7 @@ public class TableBuilder {
 		});
 		
 		VBox tableForm = new VBox(5, tableNameRow, columnSelectRow, generatePrimaryKeyRow, 
-				columnMeta, buttonRow);
+				engineRow, chunkRow, columnMeta, preview, copyStatus, buttonRow);
 		VBox.setMargin(columnSelectRow, new Insets(10, 0, 10, 0));
 		VBox.setMargin(buttonRow, new Insets(10, 0, 0, 0));
 		
@@ -180,6 +252,12 @@ public class TableBuilder {
 		builderWindow.show();
 	}
 	
+	//previews the table as it is defined, if the user has asked for a preview
+	private void refreshPreview(){
+		if(previewShown)
+			preview.refresh(newTableName.getValue(), columnMeta.getItems(), joinEngine.getValue());
+	}
+	
 	/*
 	 * This function checks that the user did not select both a 
 	 * generated primary key and a key from the imported columns.
@@ -209,14 +287,167 @@ public class TableBuilder {
 		return legalPrimary;
 	}
 	
+	/*
+	 * This function finds the foreign key path between the tables of the
+	 * selected columns and shows the joins it would run with the server's
+	 * EXPLAIN plan of them, so the user can check which indexes are used
+	 * before the table is created.
+	 */
+	private void previewKeyJoin(Stage builderWindow, TableList tableList, Button ok){
+		KeyJoin join;
+		List<String> plan;
+		
+		try (Connection connection = session.getConnection()) 
+		{
+			join = KeyJoin.find(session.getSchemaCache(), newTableName.getValue(), 
+					columnMeta.getItems(), joinEngine.getValue().equals(KeyJoin.LEFT_ENGINE));
+			
+			if(join==null){
+				new NotificationWindow("No Foreign Key Path",
+						"The tables of the selected columns are not all",
+						"connected by foreign keys between them.", 450, 0);
+				return;
+			}
+			
+			Statement statement = connection.createStatement();
+			plan = join.explain(statement);
+			statement.close();
+		}
+		catch(SQLException ex){
+			ex.printStackTrace();
+			new NotificationWindow("Unable to Explain Join", ex.getMessage(), 450, 0);
+			return;
+		}
+		
+		Stage previewWindow = new Stage();
+		previewWindow.setTitle("Join Preview");
+		
+		ListView<String> pathList = new ListView<String>();
+		pathList.getItems().addAll(join.getPath());
+		pathList.setPrefHeight(120);
+		
+		ListView<String> planList = new ListView<String>();
+		planList.getItems().addAll(plan);
+		planList.setPrefHeight(160);
+		
+		Button create = new Button("Create Table");
+		Button cancel = new Button("Cancel");
+		HBox buttonRow = new HBox(5, create, cancel);
+		buttonRow.setAlignment(Pos.CENTER);
+		
+		create.setOnAction(e->{
+			previewWindow.close();
+			build(join, builderWindow, tableList, ok);
+		});
+		
+		cancel.setOnAction(e->{
+			previewWindow.close();
+		});
+		
+		VBox previewForm = new VBox(5, new Label("Join path:"), pathList, 
+				new Label("EXPLAIN:"), planList, buttonRow);
+		previewForm.setPadding(new Insets(10));
+		
+		previewWindow.setMinWidth(600);
+		previewWindow.setScene(new Scene(previewForm));
+		previewWindow.show();
+	}
+	
+	/*
+	 * This function creates the table, joined by "keyJoin" if it is not
+	 * null, and closes the window, or if it is copied in chunks, starts
+	 * filling it.
+	 */
+	private void build(KeyJoin keyJoin, Stage builderWindow, TableList tableList, Button ok){
+		pendingCopy = null;
+		
+		if(!createTable(keyJoin))
+			return;
+		
+		if(copyInChunks.isSelected()){
+			if(pendingCopy!=null)
+				runChunkedCopy(pendingCopy, builderWindow, tableList, ok);
+			
+			return;
+		}
+		
+		builderWindow.close();
+		tableList.updateList();
+	}
+	
+	/*
+	 * This function runs a chunked copy in the background with the form's
+	 * settings, showing the rows copied and the latency of the last chunk.
+	 * Cancel stops the copy after rolling back its current chunk, and a copy
+	 * which is stopped or fails is kept in the session, so that pressing OK
+	 * resumes it.  Once the copy finishes the window is closed.
+	 */
+	private void runChunkedCopy(ChunkedCopy copy, Stage builderWindow, TableList tableList, Button ok){
+		copy.setChunkSize(parseSetting(chunkSizeInput.getText(), ChunkedCopy.DEFAULT_CHUNK_SIZE));
+		copy.setSleepMillis(parseSetting(sleepInput.getText(), ChunkedCopy.DEFAULT_SLEEP_MILLIS));
+		copy.setMaxThreadsRunning(parseSetting(maxRunningInput.getText(), 
+				ChunkedCopy.DEFAULT_MAX_THREADS_RUNNING));
+		copy.setMaxReplicaLag(parseSetting(maxLagInput.getText(), ChunkedCopy.DEFAULT_MAX_REPLICA_LAG));
+		
+		copy.setProgressListener((rows, chunks, chunkMillis, status) -> Platform.runLater(() -> 
+				copyStatus.setText(String.format("%s: %,d rows copied in %,d chunks%s", status, rows, 
+						chunks, chunkMillis > 0 ? ", last chunk " + chunkMillis + " ms" : ""))));
+		
+		runningCopy = copy;
+		ok.setDisable(true);
+		copyStatus.setText("Copying rows into " + copy.getTable());
+		
+		QueryExecutor.runInBackground(() -> {
+			String error = null;
+			
+			try{
+				copy.run();
+			}
+			catch(SQLException ex){
+				ex.printStackTrace();
+				error = ex.getMessage();
+			}
+			
+			session.setUnfinishedCopy(copy);
+			session.rowsChanged(copy.getTable());
+			
+			String failure = error;
+			
+			Platform.runLater(() -> {
+				runningCopy = null;
+				ok.setDisable(false);
+				
+				if(copy.isFinished()){
+					builderWindow.close();
+					tableList.updateList();
+					new NotificationWindow("Table Created", String.format("%,d rows copied into %s", 
+							copy.getRowsCopied(), copy.getTable()));
+				}
+				else{
+					copyStatus.setText(String.format("%s after %,d rows, press OK to resume", 
+							failure==null ? "Stopped" : "Failed: " + failure, copy.getRowsCopied()));
+				}
+			});
+		});
+	}
+	
+	//returns a setting typed by the user, or "defaultValue" if it is not a whole number
+	private static int parseSetting(String text, int defaultValue){
+		try{
+			int value = Integer.parseInt(text.trim());
+			return value >= 0 ? value : defaultValue;
+		}
+		catch(NumberFormatException ex){
+			return defaultValue;
+		}
+	}
+	
 	/*
 	 * This function fills the ComboBox with all tables in the current database.
 	 */
 	private void fillTableComboBox(ComboBox<String> tableSelect){
-		try (Connection connection = DriverManager.getConnection(session.getURL(), 
-				session.getUserName(), session.getPassword())) 
+		try (Connection connection = session.getConnection()) 
 		{
-			connection.setCatalog(session.getDatabase());
 			
 			Statement statement = connection.createStatement();
 			
@@ -246,59 +477,30 @@ public class TableBuilder {
 	
 	/*
 	 * Adds a ColumnProperties object to the TableView for the selected table
-	 * using queries from information_schema.
+	 * using the session's cached information_schema definitions.
 	 */
 	private void addColumn(String newValue){
 		//add column meta data to TableView
-		try(Connection connection = DriverManager.getConnection(session.getURL(), 
-				session.getUserName(), session.getPassword())){
-					
+		try{
 			ColumnProperties newColumn = new ColumnProperties(newValue, table.getValue());
-				connection.setCatalog("information_schema");
-				
-			//query for the name and data type of only the column being added
-			String queryString = new String("SELECT COLUMN_TYPE FROM "
-						+ "COLUMNS WHERE TABLE_SCHEMA = ? AND TABLE_NAME = ? "
-						+ "AND COLUMN_NAME = ?;");
 			
-			PreparedStatement statement = connection.prepareStatement(queryString);
-			statement.setString(1, session.getDatabase());
-			statement.setString(2, table.getValue());
-			statement.setString(3, newValue);
-			
-			//data type of the column to be added
-			ResultSet query = statement.executeQuery();
-				
-			if(query.next()){
-				newColumn.setType(query.getString(1));
-			}
-				
-			//query for any primary or foreign key constraints of the column
-			queryString = "SELECT CONSTRAINT_NAME, "
-					+ "REFERENCED_TABLE_NAME, REFERENCED_COLUMN_NAME "
-					+ "FROM KEY_COLUMN_USAGE WHERE TABLE_SCHEMA = ? AND "
-					+ "TABLE_NAME = ? AND COLUMN_NAME = ?;";
-				
-			statement = connection.prepareStatement(queryString);
-			statement.setString(1, session.getDatabase());
-			statement.setString(2, table.getValue());
-			statement.setString(3, newValue);
+			//definition of the column being added, including its constraints
+			ColumnSchema column = session.getSchemaCache()
+					.getTable(table.getValue()).getColumn(newValue);
 				
-			query = statement.executeQuery();
+			if(column!=null){
+				newColumn.setType(column.getColumnType());
 				
-			if(query.next()){
-				if(query.getString(1).equals("PRIMARY"))
+				if(column.isPrimary())
 					//primary constraint exists
 					newColumn.setPrimary(true);
-				else if(!query.getString(2).equals("NULL"))
+				else if(column.isForeign())
 					//foreign constraint exists
-					newColumn.setForeign(query.getString(2) + "." 
-				         + query.getString(3));
+					newColumn.setForeign(column.getReferencedTable() + "." 
+				         + column.getReferencedColumn());
 			}
 				
 			columnMeta.getItems().add(newColumn);
-			statement.close();
-			connection.close();
 		}
 		catch(SQLException ex){
 			ex.printStackTrace();
@@ -314,10 +516,8 @@ public class TableBuilder {
 		columnNames.getItems().clear();
 		
 		if(session!=null){
-			try (Connection connection = DriverManager.getConnection(session.getURL(), session.getUserName(), 
-					session.getPassword())) 
+			try (Connection connection = session.getConnection()) 
 			{
-				connection.setCatalog(session.getDatabase());
 				
 				Statement statement = connection.createStatement();
 				//all columns for selected table
@@ -341,31 +541,43 @@ public class TableBuilder {
 	
 	/*
 	 * This function creates the MySQL table with all columns added by the user,
-	 * with the columns with the most rows appearing first.  Returns true if the
-	 * table is successfully created.
+	 * with the columns with the most rows appearing first.  Rows are joined by
+	 * "keyJoin" if it is not null, and otherwise aligned by the selected
+	 * PositionalJoin engine, using temporary tables if the server does not
+	 * support window functions.  If the table is copied in chunks, it is
+	 * created empty with its keys, and the ChunkedCopy which fills it is left
+	 * in pendingCopy.  Returns true if the table is successfully created.
 	 */
-	private boolean createTable(){
+	private boolean createTable(KeyJoin keyJoin){
 		if(session==null)
 			return false;
 		
-		try (Connection connection = DriverManager.getConnection(session.getURL(), session.getUserName(), 
-				session.getPassword())) 
+		try (Connection connection = session.getConnection()) 
 		{
-				
-			connection.setCatalog(session.getDatabase());
 			Statement statement = connection.createStatement();
 				
 			String statementString;
 								
-			if(!columnMeta.getItems().isEmpty()){
-				
-				//all tables which columns are copied from
-				ArrayList<SourceTable> tables 
-							= new ArrayList<SourceTable>();
-				
-				createTempTables(columnMeta.getItems(), tables, statement);
+			if(keyJoin!=null&&copyInChunks.isSelected())
+				pendingCopy = keyJoin.prepareChunkedCopy(session, statement);
+			else if(keyJoin!=null)
+				statement.execute(keyJoin.getCreateString());
+			else if(!columnMeta.getItems().isEmpty()){
+				
+				PositionalJoin join = new PositionalJoin(newTableName.getValue(), 
+						session.getSchemaCache());
+				
+				if(copyInChunks.isSelected()){
+					if(!PositionalJoin.supportsWindowFunctions(connection))
+						throw new SQLException("Copying in chunks requires window functions");
 					
-				joinTables(statement, tables);
+					pendingCopy = join.prepareChunkedCopy(session, statement, columnMeta.getItems());
+				}
+				else if(joinEngine.getValue().equals(PositionalJoin.WINDOW_ENGINE)
+						&&PositionalJoin.supportsWindowFunctions(connection))
+					join.buildWithWindowJoin(statement, columnMeta.getItems());
+				else
+					join.buildWithTempTables(statement, columnMeta.getItems());
 			}
 				
 			//add optional generated key or check for other primary constraints
@@ -379,169 +591,22 @@ public class TableBuilder {
 			else
 				setPrimaryConstraints(statement);
 			
+			session.tableChanged(newTableName.getValue());
+			
 			if(!setForeignConstraints(statement))
 				return false;
-				
+
 			statement.close();
 			connection.close();	
 		}
 		catch(SQLException ex){
 			ex.printStackTrace();
+			copyStatus.setText("Unable to create table: " + ex.getMessage());
+			return false;
 		}
 		return true;
 	}
 	
-	/*
-	 * This function creates temporary MySQL tables for each source table
-	 * containing all columns the new table will contain from the source table,
-	 * adding a SourceTable to the input "tables" for each such table created.
-	 */
-	private void createTempTables(ObservableList<ColumnProperties> cols, 
-								ArrayList<SourceTable> tables, Statement statement)
-	throws SQLException{
-			
-		//sort columns by name of table
-		Collections.sort(cols, new ColPropTableComparator());
-			
-		int tableIndex = 0;
-		
-		//name of current table
-		String currentTable = cols.get(tableIndex).getTable();
-			
-		//name of the temp table created with all columns added from
-		//current table
-		String tempTable = "t" + tableIndex;
-		
-		//add first table
-		tables.add(new SourceTable(currentTable, tempTable));
-		
-		//primary key column definition for all temp tables
-		String priString = " (id INT AUTO_INCREMENT PRIMARY KEY) ";
-			
-		//begin create temp table statement
-		String statementString = "CREATE TEMPORARY TABLE " + tempTable + priString + "SELECT ";
-			
-		for(ColumnProperties c : cols){
-			boolean sameTable = c.getTable().equals(currentTable);
-			boolean lastColumn = cols.indexOf(c)==cols.size()-1;
-			
-			if(sameTable && !lastColumn){
-				//add column to current table
-				tables.get(tableIndex).appendCol(c.getName());
-			}
-			else{
-				if(sameTable)
-					tables.get(tableIndex).appendCol(c.getName());
-				
-				//create table and set rows
-				statementString += tables.get(tableIndex).selectableCols();
-				statementString += " FROM " + currentTable + ";";
-				statement.execute(statementString);
-				setTableRows(statement, tables.get(tableIndex));
-					
-				//prepare control and reference variables for another table
-				currentTable = c.getTable();
-				tableIndex++;
-				tempTable = "t" + tableIndex;
-			
-				if(!sameTable && lastColumn){
-					//create additional temp table for last column
-					tables.add(new SourceTable(currentTable, tempTable, c.getName()));
-					statementString = "CREATE TEMPORARY TABLE " + tempTable + priString + "SELECT ";
-					
-					statementString += tables.get(tableIndex).selectableCols();
-					statementString += " FROM " + currentTable + ";";
-					statement.execute(statementString);
-					
-					setTableRows(statement, tables.get(tableIndex));
-				}
-				else if(!lastColumn){
-					//begin creating next table
-					tables.add(new SourceTable(currentTable, tempTable, c.getName()));
-					statementString = "CREATE TEMPORARY TABLE " + tempTable + priString + "SELECT ";
-				}
-			}
-		}
-		
-	}
-	
-	private void setTableRows(Statement statement, SourceTable table) 
-			throws SQLException{
-		
-		String statementString = "SELECT COUNT(*) FROM " +
-				table.getTemp() + ";"; 					
-		ResultSet rs = statement.executeQuery(statementString);
-		
-		if(rs.next())
-			table.setRows(rs.getInt(1));
-			
-		rs.close();
-	}
-	
-	/*
-	 * This function joins the temporary tables created for each SourceTable.
-	 * The SourceTable with the most rows is joined with the next largest
-	 * table until there are no tables remaining.
-	 */
-	private void joinTables(Statement statement, ArrayList<SourceTable> tables) 
-			throws SQLException{
-		//sort SourceTables in order of descending number of rows
-		Collections.sort(tables, new MaxTableSizeComparator());
-		
-		//only one source table
-		if(tables.size()==1){
-			
-			statement.execute("ALTER TABLE " + tables.get(0).getTemp() 
-					+ " DROP id;");
-			
-			statement.execute("CREATE TABLE " + newTableName.getValue() 
-			+ " AS SELECT * FROM " + tables.get(0).getTemp() + ";");
-			
-			return;
-		}
-
-		//table use in last iteration of loop
-		SourceTable prevTable = tables.get(0);
-		tables.remove(0);
-
-		//create first temporary table
-		String statementString = "CREATE TEMPORARY TABLE " + prevTable.getTemp() + "Sum "
-				 + "AS SELECT * FROM " + prevTable.getTemp();	
-		statement.execute(statementString);
-			
-		for(SourceTable t : tables){
-
-			//current sum table name
-			String tableSumName = prevTable.getTemp() + "Sum";
-				
-			//add all column list from previous table to current table's
-			//column list
-			t.appendCols(prevTable.cols());
-				
-			//join previous sum table with current table
-			statementString = "CREATE TEMPORARY TABLE " + t.getTemp() + "Sum AS SELECT " +
-					tableSumName + ".id, " + t.selectableCols() + " FROM " + tableSumName 
-					+ " LEFT OUTER JOIN " + t.getTemp()	+ " ON " + tableSumName + 
-					".id = " + t.getTemp() + ".id;";
-			statement.execute(statementString);
-				
-			if(tables.indexOf(t)==tables.size()-1){
-				//on last SourceTable, create final table
-				
-				//current sum table name
-				tableSumName = t.getTemp() + "Sum";
-
-				statement.execute("ALTER TABLE " + tableSumName + " DROP id;");
-				
-				statementString = "CREATE TABLE " + newTableName.getValue() + " AS SELECT * FROM "
-							+ tableSumName;
-				statement.execute(statementString);
-			}
-			
-			prevTable = t;
-		}
-	}
-	
 	/*
 	 * This function finds the column name of the primary key of
 	 * the MySQL with the name of the parameter "tableName".
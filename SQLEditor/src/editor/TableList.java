@@ -1,7 +1,6 @@
 package editor;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
@@ -90,10 +89,8 @@ public class TableList extends ListView<String>{
 		
 		ObservableList<String> data = FXCollections.observableArrayList();
 		
-		try (Connection connection = DriverManager.getConnection(session.getURL(), session.getUserName(), 
-				session.getPassword())) 
+		try (Connection connection = session.getConnection()) 
 		{
-			connection.setCatalog(session.getDatabase());
 
 			Statement statement = connection.createStatement();
 			
@@ -174,15 +171,15 @@ public class TableList extends ListView<String>{
 		buttonRow.setAlignment(Pos.CENTER);
 
 		okButton.setOnAction(e -> {
-			try(Connection c = DriverManager.getConnection(session.getURL(), session.getUserName(), 
-					session.getPassword())){
+			try(Connection c = session.getConnection()){
 
-				c.setCatalog(session.getDatabase());
 				Statement statement = c.createStatement();
 
 				statement.execute("ALTER TABLE " + currentName + 
 						" RENAME TO " + tableRenameInput.getText() + ";");
-				
+				session.tableChanged(currentName);
+				session.tableChanged(tableRenameInput.getText());
+
 				statement.close();
 				c.close();
 				tableRenameStage.close();
@@ -227,13 +224,12 @@ public class TableList extends ListView<String>{
 		buttonRow.setAlignment(Pos.CENTER);
 		
 		yesButton.setOnAction(e -> {
-			try(Connection c = DriverManager.getConnection(session.getURL(), session.getUserName(), 
-					session.getPassword())){
+			try(Connection c = session.getConnection()){
 
-				c.setCatalog(session.getDatabase());
 				Statement statement = c.createStatement();
 
 				statement.execute("DROP TABLE " + tableName + ";");
+				session.tableChanged(tableName);
 				statement.close();
 				c.close();
 				confirmDeleteStage.close();
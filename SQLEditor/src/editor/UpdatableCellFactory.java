@@ -1,12 +1,10 @@
 package editor;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
-import java.sql.ResultSet;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
-import java.sql.Statement;
 import java.util.ArrayList;
-import javafx.collections.ObservableList;
+import java.util.List;
 import javafx.scene.Node;
 import javafx.scene.control.ContextMenu;
 import javafx.scene.control.MenuItem;
@@ -14,16 +12,18 @@ import javafx.scene.control.TableCell;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
 import javafx.util.Callback;
+import tabledata.RowView;
 
 /*
  * This callback returns an EditableCell with a ContextMenu with an item 
- * to submit its edits to the MySQL data that the cell represents.  The table
- * must have a primary key defined for the update to complete successfully.
+ * to submit its edits to the MySQL data that the cell represents, without
+ * waiting for the other pending edits to be committed.  The table must have
+ * a primary key defined for the update to complete successfully.
  */
 public class UpdatableCellFactory implements 
-	Callback<TableColumn<ObservableList<String>, String>, TableCell<ObservableList<String>, String>>{
+	Callback<TableColumn<RowView, String>, TableCell<RowView, String>>{
 	
-	public EditableTableCell call(TableColumn<ObservableList<String>, String> param){
+	public EditableTableCell call(TableColumn<RowView, String> param){
 		
 		EditableTableCell cell = new EditableTableCell();
 		
@@ -46,7 +46,7 @@ public class UpdatableCellFactory implements
 	public static ContextMenu getCellContextMenu(EditableTableCell cell){
 		ContextMenu cellMenu = new ContextMenu();
 		
-		TableView<ObservableList<String>> currentTable = cell.getTableView(); 
+		TableView<RowView> currentTable = cell.getTableView(); 
 		
 		MenuItem update = new MenuItem("Update");
 		
@@ -55,10 +55,7 @@ public class UpdatableCellFactory implements
 		SessionConfig session = SQLEditor.getSession();
 		
 		update.setOnAction(e ->{
-			try(Connection connection = DriverManager.getConnection(session.getURL(), session.getUserName(), 
-					session.getPassword())){
-				connection.setCatalog(session.getDatabase());
-				Statement statement = connection.createStatement();
+			try(Connection connection = session.getConnection()){
 				
 				//indices of primary key
 				ArrayList<Integer> keyIndices = getKeyIndices();
@@ -67,22 +64,37 @@ public class UpdatableCellFactory implements
 					return;
 				
 				//cell row in TableView
-				int rowIndex = cell.getIndex();
+				RowView row = currentTable.getItems().get(cell.getIndex());
 				
 				//begin update statement
-				String queryString = "UPDATE " + SQLEditor.getTableName() + " SET " + cell.getTableColumn().getText() 
-						+ " = \'" + cell.getItem() +"\' WHERE ";
+				String queryString = "UPDATE " + SQLEditor.getTableName() + " SET " 
+						+ cell.getTableColumn().getText() + " = ? WHERE ";
 				
-				//add row's primary key values to where clause
+				//add row's primary key columns to where clause
 				for(int i = 0; i < keyIndices.size(); i++){
 					int keyIndex = keyIndices.get(i);
-					queryString += currentTable.getColumns().get(keyIndex).getText()
-							+ " = \'" + currentTable.getItems().get(rowIndex).get(keyIndex) +"\' AND ";
+					queryString += currentTable.getColumns().get(keyIndex).getText() + " = ? AND ";
 				}
 				
 				queryString = queryString.substring(0, queryString.length()-4) + ";";
 				
-				statement.execute(queryString);
+				PreparedStatement statement = connection.prepareStatement(queryString);
+				
+				//bind the values in their column types rather than as quoted text
+				statement.setObject(1, row.getValue(MySQLTableView.getColumnIndex(cell.getTableColumn())));
+				
+				//a key column with a pending edit is matched by its value before the edit
+				for(int i = 0; i < keyIndices.size(); i++){
+					TableColumn<RowView, ?> keyColumn = currentTable.getColumns().get(keyIndices.get(i));
+					statement.setObject(i + 2, SQLEditor.getTableView().getWrittenValue(row, 
+							MySQLTableView.getColumnIndex(keyColumn)));
+				}
+				
+				statement.execute();
+				statement.close();
+				
+				SQLEditor.getTableView().editWritten(row, 
+						MySQLTableView.getColumnIndex(cell.getTableColumn()));
 			}
 			catch(SQLException ex){
 				ex.printStackTrace();
@@ -96,42 +108,30 @@ public class UpdatableCellFactory implements
 	 * This function returns an array of all the indices of all columns in
 	 * the TableView which are a part of the table's MySQL primary key.
 	 */
-	@SuppressWarnings("rawtypes")
 	private static ArrayList<Integer> getKeyIndices(){
 		
-		ArrayList<Integer> keyIndices = null;
+		ArrayList<Integer> keyIndices = new ArrayList<>();
 		
 		SessionConfig session = SQLEditor.getSession();
-		TableView<ObservableList<String>> tableview = SQLEditor.getTableView();
+		TableView<RowView> tableview = SQLEditor.getTableView();
 		
-		try(Connection connection = DriverManager.getConnection(session.getURL(), session.getUserName(), 
-				session.getPassword())){
-			connection.setCatalog(session.getDatabase());
-			Statement statement = connection.createStatement();
-			
-			//get name of all columns that make up the primary key
-			String queryString = "SELECT COLUMN_NAME FROM INFORMATION_SCHEMA.COLUMNS WHERE "
-					+ "TABLE_NAME = \'" + SQLEditor.getTableName() + 
-					"\' AND COLUMN_KEY = \'PRI\';";
-			
-			ResultSet primaryKeyNames = statement.executeQuery(queryString);
-			
-			keyIndices = new ArrayList<>();
+		try{
+			//names of all columns that make up the primary key
+			List<String> primaryKeyNames = session.getSchemaCache()
+					.getTable(SQLEditor.getTableName()).getPrimaryKey();
 			
 			//find indices of all columns in TableView for all columns in primary key
-			while(primaryKeyNames.next()){
+			for(String keyName : primaryKeyNames){
 				for(int i = 0; i < tableview.getColumns().size(); i++){
 					String columnName = tableview.getColumns().get(i).getText();
-					if(columnName.equals(primaryKeyNames.getString(1)))
+					if(columnName.equals(keyName))
 						keyIndices.add(i);
 				}
 			}
-			statement.close();
-			connection.close();
 		}
 		catch(SQLException ex){
 			ex.printStackTrace();
 		}
-			return keyIndices;
+		return keyIndices;
 	}
 }
\ No newline at end of file
@@ -1,11 +1,11 @@
 package filters;
 
-import java.sql.Connection;
-import java.sql.DriverManager;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
+
+import columninfo.ColumnSchema;
+import columninfo.TableSchema;
 import editor.SQLEditor;
 import editor.SessionConfig;
 import javafx.collections.ObservableList;
@@ -20,12 +20,18 @@ import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
 import javafx.scene.control.TextField;
 import javafx.scene.control.cell.PropertyValueFactory;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyEvent;
 import javafx.util.Callback;
+import javafx.util.Duration;
 /*
  * This class has a tab where a user can define filters (expressions in
  * a WHERE clause) and a tab where a user can define search phrases for
  * each column.  Matches for search phrases occur only if the phrase
- * appears at the beginning of the data.
+ * appears at the beginning of the data.  Edits are debounced, so that
+ * a burst of keystrokes runs one query with the final input, and a query
+ * matching the one last run is not repeated.  Enter runs a pending query
+ * at once.
  */
 public class FilterTabPane extends TabPane{
 
@@ -35,6 +41,12 @@ public class FilterTabPane extends TabPane{
 	//phrases to search the primary TableView's data for
 	private TableView<Filter> searches = new TableView<Filter>();
 	
+	//runs executeFilterQuery once filter and search edits pause
+	private QueryDebouncer debouncer = new QueryDebouncer(this::executeFilterQuery);
+	
+	//last query passed to the primary TableView, null after the filters are replaced
+	private TableQuery lastQuery;
+	
 	public FilterTabPane(){
 		super();
 		
@@ -44,6 +56,14 @@ public class FilterTabPane extends TabPane{
 		initSearches();
 		searches.setPlaceholder(new Label("Table Searches"));
 		
+		//Enter runs the query being waited for without the debounce delay
+		for(TableView<Filter> view : Arrays.asList(filters, searches)){
+			view.addEventFilter(KeyEvent.KEY_PRESSED, e -> {
+				if(e.getCode()==KeyCode.ENTER)
+					debouncer.flush();
+			});
+		}
+		
 		Tab filterTab = new Tab("Filters");
 		filterTab.setClosable(false);
 		filterTab.setContent(filters);
@@ -58,7 +78,8 @@ public class FilterTabPane extends TabPane{
 	/*
 	 * This function defines TableColumns for a column name and for 
 	 * a TextField for the user to enter a search phrase for the column.
-	 * When the TextFields in the search phrase column are edited
+	 * When the TextFields in the search phrase column are edited, a
+	 * query is requested from the debouncer.
 	 */
 	@SuppressWarnings({ "unchecked", "rawtypes" })
 	private void initSearches(){
@@ -75,7 +96,7 @@ public class FilterTabPane extends TabPane{
 		searchTerm.addEventHandler(QueryEvent.QUERY, new EventHandler<QueryEvent>(){
 			@Override
 			public void handle(QueryEvent e){
-				executeFilterQuery();
+				debouncer.request();
 			}
 		});
 		searchTerm.setMinWidth(200);
@@ -104,7 +125,7 @@ public class FilterTabPane extends TabPane{
 		operatorColumn.addEventHandler(QueryEvent.QUERY, new EventHandler<QueryEvent>(){
 			@Override
 			public void handle(QueryEvent e){
-				executeFilterQuery();
+				debouncer.request();
 			}
 		});
 		operatorColumn.setMinWidth(75);
@@ -119,7 +140,7 @@ public class FilterTabPane extends TabPane{
 		operandColumn.addEventHandler(QueryEvent.QUERY, new EventHandler<QueryEvent>(){
 			@Override
 			public void handle(QueryEvent e){
-				executeFilterQuery();
+				debouncer.request();
 			}
 		});
 		
@@ -144,33 +165,33 @@ public class FilterTabPane extends TabPane{
 	}
 	
 	/*
-	 * This function searches the filter arrays for valid filters, executes a
-	 * query with the filters applied, and passes the result to the primary
-	 * TableView.
+	 * This function searches the filter arrays for valid filters, builds
+	 * a query with the filters applied, and passes it to the primary
+	 * TableView to load unless it selects the same rows as the last query.
+	 * Loading a query cancels one still running, so only the latest input's
+	 * rows are read.
 	 */
 	private void executeFilterQuery(){
 		
 		SessionConfig session = SQLEditor.getSession();
 		
-		try(Connection connection = DriverManager.getConnection(session.getURL(), session.getUserName(), 
-				session.getPassword())){
-			connection.setCatalog(session.getDatabase());
-			
-			ArrayList<Filter> validFilters = findValidFilters(connection);
+		try{
+			ArrayList<Filter> validFilters = findValidFilters(session);
 			ArrayList<Filter> validSearches = new ArrayList<Filter>();
 			
 			for(Filter f : searches.getItems()){
 				if(!f.getOperand().getText().isEmpty())
 					validSearches.add(f);
 			}
-			PreparedStatement filterQuery = getQuery(connection, 
-					validFilters, validSearches);
 			
-			ResultSet queryResult = filterQuery.executeQuery();
-			SQLEditor.getTableView().updateTable(queryResult);;
+			TableQuery query = getQuery(validFilters, validSearches);
+			
+			//an incomplete filter was edited, which leaves the rows unchanged
+			if(query.hasSameConditions(lastQuery))
+				return;
 			
-			filterQuery.close();
-			connection.close();
+			lastQuery = query;
+			SQLEditor.getTableView().loadQuery(query);
 		}
 		catch(SQLException ex){
 			ex.printStackTrace();
@@ -183,47 +204,39 @@ public class FilterTabPane extends TabPane{
 	 * filtered is a numeric column, the Filter's operand must also be
 	 * able to be parsed as a double.
 	 */
-	private ArrayList<Filter> findValidFilters(Connection connection) 
+	private ArrayList<Filter> findValidFilters(SessionConfig session) 
 			throws SQLException{
 		
 		ArrayList<Filter> validFilters = new ArrayList<Filter>();
 		
+		//column types of the current table, cached for the session
+		TableSchema schema = null;
+		
 		for(Filter f : filters.getItems()){
 			if((f.getOperation().getValue()!=null)&&
 					(!f.getOperand().getText().isEmpty())){
 				
-				//query for column type of current column
-				String queryString = "SELECT COLUMN_TYPE FROM "
-						+ "information_schema.COLUMNS WHERE TABLE_SCHEMA ? "
-						+ "AND TABLE_NAME = ? AND COLUMN_NAME = ?;";
-				
-				PreparedStatement statement = connection.prepareStatement(queryString);
-				statement.setString(1, connection.getCatalog());
-				statement.setString(2, SQLEditor.getTableName());
-				statement.setString(3, f.getColumn());
+				if(schema==null)
+					schema = session.getSchemaCache().getTable(SQLEditor.getTableName());
 				
-				ResultSet columnType = statement.executeQuery(queryString);
+				ColumnSchema column = schema.getColumn(f.getColumn());
 				
 				//if column type is numeric, attempt to parse as a double
 				//before adding to validFilters
-				if(columnType.next()){
-					String fType = columnType.getString(1);
-					if (isNumeric(fType)){
+				if(column!=null){
+					if (column.isNumeric()){
 						try{
 							Double.parseDouble(f.getOperand().getText());
 							validFilters.add(f);
 						}
-						catch(Exception ex){
-							ex.printStackTrace();
+						catch(NumberFormatException ex){
+							//operand is incomplete or not a number, skip filter
 						}
 					}
 					else{
 						validFilters.add(f);
 					}
 				}
-				
-				statement.close();
-				
 			}
 		}
 		
@@ -231,68 +244,54 @@ public class FilterTabPane extends TabPane{
 	}
 	
 	/*
-	 * This function creates a MySQL query with a WHERE clause containing
-	 * all valid filters if any exist and a LIKE clause for each valid
-	 * column search.
+	 * This function creates a query on the current table with a condition
+	 * for each valid filter and a LIKE condition for each valid column search.
 	 */
-	private PreparedStatement getQuery(Connection connection, 
-			ArrayList<Filter> validFilters,	ArrayList<Filter> validSearches)
-					throws SQLException
+	public TableQuery getQuery(ArrayList<Filter> validFilters, 
+			ArrayList<Filter> validSearches)
 	{
+		TableQuery query = new TableQuery(SQLEditor.getTableName());
 		
-		String queryString = new String("SELECT * FROM " + SQLEditor.getTableName());
-		
-		if((!validFilters.isEmpty())||(!validSearches.isEmpty())){
-		
-			//begin WHERE clause if any valid filters exist
-			if(!validFilters.isEmpty())
-				queryString += " WHERE ";
-			
-			//add all valid filters
-			for(Filter f : validFilters){
-				queryString += f.getColumn() + " " + f.getOperation().getValue() + " ? AND ";
-			}
-			
-			//add LIKE clause for all valid searches
-			for(Filter f : validSearches){
-				queryString += f.getColumn() + " LIKE ? AND ";
-			}
-		
-			queryString = queryString.substring(0, queryString.length()-5) + ";";
+		//add all valid filters
+		for(Filter f : validFilters){
+			query.addCondition(f.getColumn() + " " + f.getOperation().getValue() + " ?", 
+					f.getOperand().getText());
 		}
 		
-		PreparedStatement filterQuery = connection.prepareStatement(queryString);
-		
-		//set PreparedStatement parameters
-		if((!validFilters.isEmpty())||(!validSearches.isEmpty())){
-			for(int i = 0; i < validFilters.size(); i++){
-				filterQuery.setString(i+1, validFilters.get(i).getOperand().getText());
-			}
-
-			for(int i = 0; i < validSearches.size(); i++){
-
-					filterQuery.setString(i + 1 + validFilters.size(), 
-							validSearches.get(i).getOperand().getText() + "%");
-			}
-		}
+		//add LIKE clause for all valid searches
+		for(Filter f : validSearches)
+			query.addSearch(f.getColumn(), f.getOperand().getText());
 		
-		return filterQuery;
+		return query;
 	}
 	
 	public void clearAll(){
+		debouncer.cancel();
+		lastQuery = null;
 		filters.getItems().clear();
 		searches.getItems().clear();
 	}
 	
 	public void setAll(ObservableList<Filter> filterList, 
 			ObservableList<Filter> searchList){
+		debouncer.cancel();
+		lastQuery = null;
 		filters.setItems(filterList);
 		searches.setItems(searchList);
 	}
 	
-	//returns true if the string represents a common MySQL numeric type
-	private static boolean isNumeric(String type){
-		return type.contains("int")||type.contains("float")
-				||type.contains("double")||type.contains("DECIMAL");
+	//sets how long filter edits must pause before a query is run
+	public void setQueryDelay(Duration delay){
+		debouncer.setDelay(delay);
+	}
+	
+	//returns the number of edits which requested a query
+	public int getQueryRequestCount(){
+		return debouncer.getRequestCount();
+	}
+	
+	//returns the number of queries run for those edits
+	public int getQueryRunCount(){
+		return debouncer.getRunCount();
 	}
 }
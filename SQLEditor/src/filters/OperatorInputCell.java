@@ -1,7 +1,6 @@
 package filters;
 
 import javafx.beans.value.ChangeListener;
-import javafx.beans.value.ObservableValue;
 import javafx.event.Event;
 import javafx.scene.control.ComboBox;
 import javafx.scene.control.TableCell;
@@ -9,34 +8,44 @@ import javafx.scene.control.TableCell;
 /*
  * This cell contains a ComboBox of strings.  When a string is clicked, the
  * cell sends a QueryEvent to its column, which may cause the column's event
- * handler to execute a query.
+ * handler to execute a query.  The cell listens only to the ComboBox it
+ * currently shows, so each ComboBox has one listener.
  */
 
 
 public class OperatorInputCell extends TableCell<Filter, ComboBox<String>>{
 		
+		//fires a QueryEvent whenever a different operator is clicked
+		private ChangeListener<String> valueListener = (obv, oldValue, newValue) -> {
+			if(newValue!=null)
+				sendQueryEvent();
+		};
+		
+		//ComboBox the listener is added to
+		private ComboBox<String> listened;
+		
 		public OperatorInputCell(){
 			super();
 		}
 		
 		@Override public void updateItem(ComboBox<String> item, boolean empty){
 			super.updateItem(item, empty);
+			
+			if(listened!=item){
+				if(listened!=null)
+					listened.valueProperty().removeListener(valueListener);
+				
+				listened = empty ? null : item;
+				
+				if(listened!=null)
+					listened.valueProperty().addListener(valueListener);
+			}
 
 		     if (empty || item == null) {
 		         setText(null);
 		         setGraphic(null);
 		     } 
 		     else{
-		    	 //fire a QueryEvent whenever a different operator is clicked
-		    	 item.valueProperty().addListener(new ChangeListener<String>(){
-		    		@SuppressWarnings("rawtypes")
-					@Override 
-					public void changed(ObservableValue arg0, String oldValue, String newValue ){
-		    			if(newValue!=null)
-							sendQueryEvent();
-					}
-				});
-		    	
 		         setGraphic(item);
 		     }
 		 }
@@ -0,0 +1,72 @@
+package filters;
+
+import javafx.animation.Animation;
+import javafx.animation.PauseTransition;
+import javafx.util.Duration;
+
+/*
+ * This class runs a query once its input has stopped changing for the
+ * debounce delay.  Every request restarts the delay, so a burst of edits,
+ * such as typing a search phrase, is coalesced into one run with the final
+ * input.  It is only used on the JavaFX thread.
+ */
+public class QueryDebouncer {
+
+	//delay used unless another is set
+	public static final Duration DEFAULT_DELAY = Duration.millis(300);
+
+	//waits for the delay after the last request
+	private PauseTransition pause = new PauseTransition(DEFAULT_DELAY);
+
+	//runs the query
+	private Runnable query;
+
+	//requests received and queries run, to show how many were coalesced
+	private int requests = 0;
+	private int runs = 0;
+
+	public QueryDebouncer(Runnable action){
+		query = action;
+		pause.setOnFinished(e -> run());
+	}
+
+	//runs the query once no other request arrives within the delay
+	public void request(){
+		requests++;
+		pause.playFromStart();
+	}
+
+	//runs a pending query now instead of waiting for the delay
+	public void flush(){
+		if(pause.getStatus()==Animation.Status.RUNNING){
+			pause.stop();
+			run();
+		}
+	}
+
+	//drops a pending query, such as when the filters it would read are replaced
+	public void cancel(){
+		pause.stop();
+	}
+
+	private void run(){
+		runs++;
+		query.run();
+	}
+
+	public void setDelay(Duration delay){
+		pause.setDuration(delay);
+	}
+
+	public Duration getDelay(){
+		return pause.getDuration();
+	}
+
+	public int getRequestCount(){
+		return requests;
+	}
+
+	public int getRunCount(){
+		return runs;
+	}
+}
@@ -0,0 +1,241 @@
+package filters;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/*
+ * This class holds the table, WHERE clause conditions and sort order of a
+ * query on the primary TableView's table.  Conditions are SQL fragments
+ * containing a single "?" parameter, so that other classes can add their
+ * own clauses (such as paging) and bind the filter values afterwards.
+ * Column searches are prefix LIKE conditions which are also recorded as
+ * column and phrase, so that loaded rows can be searched without MySQL.
+ */
+
+public class TableQuery {
+
+	//name of the MySQL table being queried
+	private String table;
+	
+	//conditions joined with AND, each containing one parameter
+	private ArrayList<String> conditions = new ArrayList<String>();
+	
+	//parameter values in the same order as conditions
+	private ArrayList<String> parameters = new ArrayList<String>();
+	
+	//positions of the conditions added as column searches, with their columns and phrases
+	private ArrayList<Integer> searchConditions = new ArrayList<Integer>();
+	private ArrayList<String> searchColumns = new ArrayList<String>();
+	private ArrayList<String> searchPhrases = new ArrayList<String>();
+
+	//columns rows are sorted by, most significant first, and their directions
+	private ArrayList<String> orderColumns = new ArrayList<String>();
+	private ArrayList<Boolean> orderDescending = new ArrayList<Boolean>();
+	
+	public TableQuery(String tableName){
+		table = tableName;
+	}
+	
+	//copies the table and conditions of another query, without its sort order
+	public TableQuery(TableQuery other){
+		table = other.table;
+		conditions.addAll(other.conditions);
+		parameters.addAll(other.parameters);
+		searchConditions.addAll(other.searchConditions);
+		searchColumns.addAll(other.searchColumns);
+		searchPhrases.addAll(other.searchPhrases);
+	}
+
+	public void addCondition(String condition, String parameter){
+		conditions.add(condition);
+		parameters.add(parameter);
+	}
+	
+	//adds a condition matching rows whose value in the column starts with the phrase
+	public void addSearch(String column, String phrase){
+		searchConditions.add(conditions.size());
+		searchColumns.add(column);
+		searchPhrases.add(phrase);
+		addCondition(column + " LIKE ?", phrase + "%");
+	}
+	
+	public boolean hasSearches(){
+		return !searchColumns.isEmpty();
+	}
+	
+	public List<String> getSearchColumns(){
+		return Collections.unmodifiableList(searchColumns);
+	}
+	
+	public List<String> getSearchPhrases(){
+		return Collections.unmodifiableList(searchPhrases);
+	}
+	
+	//returns a copy of the query with only the conditions which are not column searches
+	public TableQuery withoutSearches(){
+		TableQuery query = new TableQuery(table);
+		
+		for(int i = 0; i < conditions.size(); i++){
+			if(!searchConditions.contains(i))
+				query.addCondition(conditions.get(i), parameters.get(i));
+		}
+		
+		return query;
+	}
+	
+	public String getTable(){
+		return table;
+	}
+	
+	public boolean hasConditions(){
+		return !conditions.isEmpty();
+	}
+	
+	public List<String> getConditions(){
+		return Collections.unmodifiableList(conditions);
+	}
+	
+	public List<String> getParameters(){
+		return Collections.unmodifiableList(parameters);
+	}
+	
+	/*
+	 * This function returns the columns whose conditions fix them to a
+	 * single value, which do not change the order of the matching rows.
+	 */
+	public List<String> getEqualityColumns(){
+		ArrayList<String> columns = new ArrayList<String>();
+		
+		for(String c : conditions){
+			if(c.endsWith(" = ?"))
+				columns.add(c.substring(0, c.length()-4));
+		}
+		
+		return columns;
+	}
+	
+	public void addOrder(String column, boolean descending){
+		orderColumns.add(column);
+		orderDescending.add(descending);
+	}
+	
+	public boolean hasOrder(){
+		return !orderColumns.isEmpty();
+	}
+	
+	public List<String> getOrderColumns(){
+		return Collections.unmodifiableList(orderColumns);
+	}
+	
+	public boolean isDescending(int orderIndex){
+		return orderDescending.get(orderIndex);
+	}
+	
+	//returns true if every order column is sorted in the same direction
+	public boolean isUniformOrder(){
+		return !orderDescending.contains(!orderDescending.get(0));
+	}
+	
+	/*
+	 * This function returns the ORDER BY terms of the query's sort order
+	 * followed by the "tieBreakers" columns it does not already contain, in
+	 * the direction of the last order column, so that the order is complete
+	 * when the tie breakers identify a row.
+	 */
+	public List<String> getOrderTerms(List<String> tieBreakers){
+		ArrayList<String> terms = new ArrayList<String>();
+		
+		for(int i = 0; i < orderColumns.size(); i++)
+			terms.add(orderColumns.get(i) + (orderDescending.get(i) ? " DESC" : ""));
+		
+		boolean descending = hasOrder()&&orderDescending.get(orderDescending.size()-1);
+		
+		for(String c : tieBreakers){
+			if(!containsIgnoreCase(orderColumns, c))
+				terms.add(c + (descending ? " DESC" : ""));
+		}
+		
+		return terms;
+	}
+	
+	//returns the ORDER BY clause of getOrderTerms, or an empty string if there are no terms
+	public String getOrderBy(List<String> tieBreakers){
+		List<String> terms = getOrderTerms(tieBreakers);
+		
+		return terms.isEmpty() ? "" : " ORDER BY " + String.join(", ", terms);
+	}
+	
+	//returns true if the query is sorted by the same columns in the same directions as another
+	public boolean hasSameOrder(TableQuery other){
+		return orderColumns.equals(other.orderColumns)&&orderDescending.equals(other.orderDescending);
+	}
+	
+	//returns true if the query selects the same rows of the same table as another
+	public boolean hasSameConditions(TableQuery other){
+		return other!=null&&table.equals(other.table)&&conditions.equals(other.conditions)
+				&&parameters.equals(other.parameters);
+	}
+	
+	private static boolean containsIgnoreCase(List<String> names, String name){
+		for(String n : names){
+			if(n.equalsIgnoreCase(name))
+				return true;
+		}
+		return false;
+	}
+
+	/*
+	 * This function returns the WHERE clause containing every condition
+	 * and any extra condition passed as a parameter, or an empty string
+	 * if there are no conditions.
+	 */
+	public String getWhereClause(String... extraConditions){
+		
+		String clause = "";
+		
+		for(String c : conditions)
+			clause += c + " AND ";
+		
+		for(String c : extraConditions)
+			clause += c + " AND ";
+		
+		if(clause.isEmpty())
+			return "";
+		
+		return " WHERE " + clause.substring(0, clause.length()-5);
+	}
+	
+	/*
+	 * This function returns a key identifying the shape of the query: its
+	 * table, the columns and operators of its conditions and searches, and
+	 * its sort order, but not the values bound to them.  Queries of the same
+	 * shape can reuse a prepared statement and only rebind the values.
+	 */
+	public String getShapeKey(){
+		return table + getWhereClause() + getOrderBy(Collections.emptyList());
+	}
+	
+	//returns a statement selecting all columns of the matching rows in the query's order
+	public String getSelect(){
+		return "SELECT * FROM " + table + getWhereClause() + getOrderBy(Collections.emptyList());
+	}
+	
+	//returns a statement counting the matching rows
+	public String getCountQuery(){
+		return "SELECT COUNT(*) FROM " + table + getWhereClause();
+	}
+	
+	/*
+	 * This function sets the condition parameters on the statement starting
+	 * at "index" and returns the index of the next unset parameter.
+	 */
+	public int bind(PreparedStatement statement, int index) throws SQLException{
+		for(String p : parameters)
+			statement.setString(index++, p);
+		
+		return index;
+	}
+}
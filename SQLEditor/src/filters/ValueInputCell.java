@@ -1,7 +1,6 @@
 package filters;
 
 import javafx.beans.value.ChangeListener;
-import javafx.beans.value.ObservableValue;
 import javafx.event.Event;
 import javafx.scene.control.TableCell;
 import javafx.scene.control.TextField;
@@ -9,31 +8,41 @@ import javafx.scene.control.TextField;
 /*
  * This cell contains a TextField which sends a QueryEvent to its
  * column whenever its text property is changed.  This event may
- * cause the column's event handler to execute a query.
+ * cause the column's event handler to execute a query.  The cell
+ * listens only to the TextField it currently shows, so each TextField
+ * has one listener however often cells are reused.
  */
 
 public class ValueInputCell extends TableCell<Filter, TextField>{
 	
+	//fires a QueryEvent when the shown TextField's text changes
+	private ChangeListener<String> textListener = (obv, oldValue, newValue) -> sendQueryEvent();
+	
+	//TextField the listener is added to
+	private TextField listened;
+	
 	public ValueInputCell(){
 		super();
 	}
 	
 	@Override public void updateItem(TextField item, boolean empty){
 		super.updateItem(item, empty);
+		
+		if(listened!=item){
+			if(listened!=null)
+				listened.textProperty().removeListener(textListener);
+			
+			listened = empty ? null : item;
+			
+			if(listened!=null)
+				listened.textProperty().addListener(textListener);
+		}
 
 	     if (empty || item == null) {
 	         setText(null);
 	         setGraphic(null);
 	     } 
 	     else{
-	    	 //fire QueryEvent whenever the item's text property is changed
-	    	 item.textProperty().addListener(new ChangeListener<String>(){
-	    		 @SuppressWarnings("rawtypes")
-				public void changed(ObservableValue arg0, String oldValue, String newValue){
-	    			 sendQueryEvent();
-	    		 }
-	    	 });
-	    	
 	         setGraphic(item);
 	     }
 	 }
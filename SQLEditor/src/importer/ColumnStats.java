@@ -0,0 +1,648 @@
+package importer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+
+/*
+ * This class collects the statistics of one column's values which are
+ * used to choose its type: how many values are empty, the longest value,
+ * whether every value is an integer or decimal number and the range and
+ * scale of those numbers, and which date and time patterns every value
+ * matches, and the distinct values of columns with few of them.
+ * Statistics of separate chunks of a file are combined with merge.  Empty
+ * fields and "\N" are counted as NULL and otherwise ignored.
+ *
+ * The statistics also estimate how many bytes a row of the column takes in
+ * an InnoDB table with a given type, where NULLs take no space besides a
+ * bit of the row's null bitmap.
+ */
+public class ColumnStats {
+
+	//bytes of an InnoDB row's header, transaction id and roll pointer
+	public static final int ROW_OVERHEAD = 18;
+
+	//most bytes the columns of a MySQL row may take at their greatest widths
+	public static final int MAX_ROW_BYTES = 65535;
+
+	//bytes a TEXT column counts toward the row size limit, since it is stored off the row
+	private static final int TEXT_ROW_BYTES = 12;
+
+	//most distinct values counted, and most given to an ENUM
+	private static final int MAX_DISTINCT = 255;
+	private static final int MAX_ENUM_VALUES = 64;
+
+	//bytes of the leftover digits of a DECIMAL, by number of leftover digits
+	private static final int[] DECIMAL_LEFTOVER_BYTES = {0, 1, 1, 2, 2, 3, 3, 4, 4};
+
+	//date and time patterns which values may match
+	public static final int DATE = 1;			//yyyy-MM-dd
+	public static final int DATETIME = 2;		//yyyy-MM-dd HH:mm:ss[.ffffff]
+	public static final int TIME = 4;			//HH:mm:ss
+	public static final int SLASH_DATE = 8;		//M/d/yyyy
+
+	private static final int ALL_PATTERNS = DATE|DATETIME|TIME|SLASH_DATE;
+
+	//number of non-null values and nulls
+	private long count = 0;
+	private long nulls = 0;
+
+	//length of the longest value in characters, and of all values
+	private int maxLength = 0;
+	private long totalLength = 0;
+
+	//distinct values, or null once there are more than MAX_DISTINCT
+	private HashSet<String> distinct = new HashSet<String>();
+
+	//true while every value is an integer which fits in a long
+	private boolean integer = true;
+	private long minLong = Long.MAX_VALUE;
+	private long maxLong = Long.MIN_VALUE;
+
+	//true while every value is a plain decimal number, without an exponent
+	private boolean decimal = true;
+
+	//most digits before and after the decimal point of any value
+	private int maxIntegerDigits = 0;
+	private int maxScale = 0;
+
+	//true while every value is a number
+	private boolean numeric = true;
+	private double minDouble = Double.POSITIVE_INFINITY;
+	private double maxDouble = Double.NEGATIVE_INFINITY;
+
+	//patterns matched by every value
+	private int datePatterns = ALL_PATTERNS;
+
+	//most fractional second digits of a DATETIME or TIME value
+	private int maxFractionDigits = 0;
+
+	//records a value of the column
+	public void add(String value){
+		if(value==null||value.isEmpty()){
+			nulls++;
+			return;
+		}
+
+		count++;
+		maxLength = Math.max(maxLength, value.length());
+		totalLength += value.length();
+
+		if(distinct!=null&&distinct.add(value)&&distinct.size() > MAX_DISTINCT)
+			distinct = null;
+
+		String v = value.trim();
+
+		if(numeric)
+			addNumber(v);
+
+		if(datePatterns!=0)
+			datePatterns &= matchPatterns(v);
+	}
+
+	/*
+	 * This function checks whether a value is a plain decimal number,
+	 * recording its digits, and otherwise whether it is a number at all.
+	 * Integer parts with leading zeros, such as ZIP codes and account
+	 * numbers, are text, since a numeric type would lose the zeros.
+	 */
+	private void addNumber(String v){
+		int i = 0;
+		int length = v.length();
+
+		if(length > 0&&(v.charAt(0)=='-'||v.charAt(0)=='+'))
+			i++;
+
+		int integerStart = i;
+
+		while(i < length&&Character.isDigit(v.charAt(i)))
+			i++;
+
+		int integerEnd = i;
+
+		if(integerEnd - integerStart > 1&&v.charAt(integerStart)=='0'){
+			numeric = false;
+			integer = false;
+			decimal = false;
+			return;
+		}
+
+		int scale = 0;
+		boolean point = i < length&&v.charAt(i)=='.';
+
+		if(point){
+			i++;
+
+			while(i < length&&Character.isDigit(v.charAt(i))){
+				i++;
+				scale++;
+			}
+		}
+
+		boolean plain = i==length&&(integerEnd > integerStart||scale > 0);
+
+		if(plain){
+			int integerDigits = integerEnd - integerStart;
+
+			maxIntegerDigits = Math.max(maxIntegerDigits, integerDigits);
+			maxScale = Math.max(maxScale, scale);
+
+			if(integer&&!point&&integerDigits <= 18){
+				long n = Long.parseLong(v);
+				minLong = Math.min(minLong, n);
+				maxLong = Math.max(maxLong, n);
+			}
+			else
+				integer = false;
+		}
+		else{
+			integer = false;
+			decimal = false;
+		}
+
+		try{
+			double d = Double.parseDouble(v);
+
+			if(Double.isNaN(d)||Double.isInfinite(d)||Character.isLetter(v.charAt(v.length() - 1)))
+				numeric = false;
+
+			minDouble = Math.min(minDouble, d);
+			maxDouble = Math.max(maxDouble, d);
+		}
+		catch(NumberFormatException ex){
+			numeric = false;
+		}
+
+		if(!numeric){
+			integer = false;
+			decimal = false;
+		}
+	}
+
+	//returns the patterns a value matches, where a date is also a valid DATETIME
+	private int matchPatterns(String v){
+		int length = v.length();
+
+		if(length==10&&isDate(v, 0))
+			return DATE|DATETIME;
+
+		if(length >= 19&&isDate(v, 0)&&(v.charAt(10)==' '||v.charAt(10)=='T')
+				&&isTime(v, 11, length)){
+			maxFractionDigits = Math.max(maxFractionDigits, Math.max(0, length - 20));
+			return DATETIME;
+		}
+
+		if(length >= 8&&isTime(v, 0, length)){
+			maxFractionDigits = Math.max(maxFractionDigits, Math.max(0, length - 9));
+			return TIME;
+		}
+
+		if(isSlashDate(v))
+			return SLASH_DATE;
+
+		return 0;
+	}
+
+	//returns true if "v" has a yyyy-MM-dd date at "start"
+	private static boolean isDate(String v, int start){
+		return digits(v, start, 4)&&v.charAt(start + 4)=='-'&&digits(v, start + 5, 2)
+				&&v.charAt(start + 7)=='-'&&digits(v, start + 8, 2)
+				&&between(v, start + 5, 1, 12)&&between(v, start + 8, 1, 31);
+	}
+
+	//returns true if "v" has a HH:mm:ss[.ffffff] time from "start" to "end"
+	private static boolean isTime(String v, int start, int end){
+		if(end - start < 8||!digits(v, start, 2)||v.charAt(start + 2)!=':'||!digits(v, start + 3, 2)
+				||v.charAt(start + 5)!=':'||!digits(v, start + 6, 2))
+			return false;
+
+		if(!between(v, start, 0, 23)||!between(v, start + 3, 0, 59)||!between(v, start + 6, 0, 59))
+			return false;
+
+		if(end - start==8)
+			return true;
+
+		return v.charAt(start + 8)=='.'&&end - start - 9 >= 1&&end - start - 9 <= 6
+				&&digits(v, start + 9, end - start - 9);
+	}
+
+	//returns true if "v" is a M/d/yyyy date
+	private static boolean isSlashDate(String v){
+		int first = v.indexOf('/');
+		int second = v.indexOf('/', first + 1);
+
+		return first >= 1&&first <= 2&&second - first >= 2&&second - first <= 3
+				&&v.length() - second==5&&digits(v, 0, first)&&digits(v, first + 1, second - first - 1)
+				&&digits(v, second + 1, 4);
+	}
+
+	private static boolean digits(String v, int start, int length){
+		for(int i = start; i < start + length; i++){
+			if(i >= v.length()||v.charAt(i) < '0'||v.charAt(i) > '9')
+				return false;
+		}
+
+		return true;
+	}
+
+	//returns true if the two digits at "start" are between "min" and "max"
+	private static boolean between(String v, int start, int min, int max){
+		int n = (v.charAt(start) - '0')*10 + v.charAt(start + 1) - '0';
+		return n >= min&&n <= max;
+	}
+
+	//adds the statistics of another chunk of the same column
+	public void merge(ColumnStats other){
+		count += other.count;
+		nulls += other.nulls;
+		maxLength = Math.max(maxLength, other.maxLength);
+		totalLength += other.totalLength;
+
+		if(distinct!=null&&other.distinct!=null){
+			distinct.addAll(other.distinct);
+
+			if(distinct.size() > MAX_DISTINCT)
+				distinct = null;
+		}
+		else
+			distinct = null;
+
+		integer &= other.integer;
+		minLong = Math.min(minLong, other.minLong);
+		maxLong = Math.max(maxLong, other.maxLong);
+
+		decimal &= other.decimal;
+		maxIntegerDigits = Math.max(maxIntegerDigits, other.maxIntegerDigits);
+		maxScale = Math.max(maxScale, other.maxScale);
+
+		numeric &= other.numeric;
+		minDouble = Math.min(minDouble, other.minDouble);
+		maxDouble = Math.max(maxDouble, other.maxDouble);
+
+		datePatterns &= other.datePatterns;
+		maxFractionDigits = Math.max(maxFractionDigits, other.maxFractionDigits);
+	}
+
+	/*
+	 * This function returns a MySQL type which holds every value seen: an
+	 * INT or BIGINT for integers, an exact DECIMAL for other plain numbers,
+	 * DOUBLE for numbers with exponents, DATE, DATETIME or TIME for values
+	 * which all have one of those formats, and otherwise VARCHAR sized to
+	 * the longest value, or MEDIUMTEXT for values too long for a VARCHAR.
+	 * The types of a whole row are fitted to its size limit by fitRowSize.
+	 */
+	public String getDefaultType(){
+		if(count==0)
+			return "VARCHAR(20)";
+
+		if(integer)
+			return minLong >= Integer.MIN_VALUE&&maxLong <= Integer.MAX_VALUE ? "INT" : "BIGINT";
+
+		if(decimal&&maxIntegerDigits + maxScale <= 65&&maxScale <= 30)
+			return "DECIMAL(" + Math.max(1, maxIntegerDigits + maxScale) + ", " + maxScale + ")";
+
+		if(numeric)
+			return "DOUBLE";
+
+		String fraction = maxFractionDigits > 0 ? "(" + maxFractionDigits + ")" : "";
+
+		if((datePatterns&DATE)!=0)
+			return "DATE";
+
+		if((datePatterns&DATETIME)!=0)
+			return "DATETIME" + fraction;
+
+		if((datePatterns&TIME)!=0)
+			return "TIME" + fraction;
+
+		//characters a utf8mb4 VARCHAR can hold
+		if(maxLength <= 16383)
+			return "VARCHAR(" + maxLength + ")";
+
+		return maxLength <= 16777215 ? "MEDIUMTEXT" : "LONGTEXT";
+	}
+
+	/*
+	 * This function returns the narrowest MySQL type which holds every
+	 * value seen: the smallest integer type, made UNSIGNED only when that
+	 * allows a smaller one, an exact DECIMAL, DATE, DATETIME or TIME, an ENUM
+	 * of the values of a text column which repeats a few values many times,
+	 * if "allowEnum" is set, or a VARCHAR sized to the longest value.
+	 */
+	public String getNarrowestType(boolean allowEnum){
+		if(count==0)
+			return getDefaultType();
+
+		if(integer)
+			return getIntegerType();
+
+		if(!numeric&&getDatePatterns()==0&&allowEnum&&isEnumCandidate())
+			return getEnumType();
+
+		return getDefaultType();
+	}
+
+	/*
+	 * This function returns a type for a column whose statistics come from
+	 * a sample of its rows, widened so that the rows which were not sampled
+	 * are unlikely to be rejected or truncated: BIGINT for integers, a
+	 * DECIMAL with four more integer digits and two more fraction digits,
+	 * and a VARCHAR of twice the longest value, and at least 255 characters.
+	 * Dates and times keep their types, and ENUMs are never suggested.
+	 */
+	public String getSampledType(){
+		if(count==0)
+			return getDefaultType();
+
+		if(integer)
+			return "BIGINT";
+
+		if(decimal){
+			int scale = Math.min(30, maxScale + 2);
+			int precision = Math.min(65, maxIntegerDigits + 4 + scale);
+
+			if(precision > scale)
+				return "DECIMAL(" + precision + ", " + scale + ")";
+		}
+
+		String type = getDefaultType();
+
+		if(!type.startsWith("VARCHAR"))
+			return type;
+
+		int length = Math.min(16383, Math.max(255, 2*maxLength));
+		return "VARCHAR(" + length + ")";
+	}
+
+	private String getIntegerType(){
+		String[] types = {"TINYINT", "SMALLINT", "MEDIUMINT", "INT", "BIGINT"};
+		int[] bits = {8, 16, 24, 32, 64};
+
+		for(int i = 0; i < types.length; i++){
+			long signedMax = bits[i]==64 ? Long.MAX_VALUE : (1L << (bits[i] - 1)) - 1;
+			long unsignedMax = bits[i]==64 ? Long.MAX_VALUE : (1L << bits[i]) - 1;
+
+			if(minLong >= -signedMax - 1&&maxLong <= signedMax)
+				return types[i];
+
+			if(minLong >= 0&&maxLong <= unsignedMax)
+				return types[i] + " UNSIGNED";
+		}
+
+		return "BIGINT";
+	}
+
+	/*
+	 * This function returns true if the column's values would be better
+	 * stored as an ENUM: there are few of them, each is repeated on average
+	 * at least 16 times, and they remain distinct when compared without case
+	 * or trailing spaces, as ENUM values are.
+	 */
+	private boolean isEnumCandidate(){
+		if(distinct==null||distinct.size() > MAX_ENUM_VALUES||count < 16L*distinct.size())
+			return false;
+
+		HashSet<String> folded = new HashSet<String>();
+
+		for(String value : distinct){
+			if(value.endsWith(" ")||!folded.add(value.toLowerCase(Locale.ROOT)))
+				return false;
+		}
+
+		return true;
+	}
+
+	private String getEnumType(){
+		ArrayList<String> values = new ArrayList<String>(distinct);
+		Collections.sort(values);
+
+		StringBuilder type = new StringBuilder("ENUM(");
+
+		for(int i = 0; i < values.size(); i++){
+			if(i > 0)
+				type.append(", ");
+
+			type.append("'").append(values.get(i).replace("\\", "\\\\").replace("'", "''")).append("'");
+		}
+
+		return type.append(")").toString();
+	}
+
+	/*
+	 * This function estimates the average bytes a value of the column takes
+	 * in an InnoDB row when stored as "type".  Variable length types take the
+	 * average length of the values, counting a byte per character, plus
+	 * their length bytes.  Types which are not recognized are estimated as
+	 * text.
+	 */
+	public double estimateBytes(String type){
+		if(count + nulls==0)
+			return 0;
+
+		String t = type.trim().toUpperCase(Locale.ROOT);
+		double average = count==0 ? 0 : (double)totalLength/count;
+
+		int[] size = getTypeArguments(t);
+		double valueBytes;
+
+		if(t.startsWith("TINYINT")||t.startsWith("BOOL")||t.startsWith("YEAR"))
+			valueBytes = 1;
+		else if(t.startsWith("SMALLINT"))
+			valueBytes = 2;
+		else if(t.startsWith("MEDIUMINT"))
+			valueBytes = 3;
+		else if(t.startsWith("BIGINT")||t.startsWith("DOUBLE")||t.startsWith("REAL"))
+			valueBytes = 8;
+		else if(t.startsWith("INT")||t.startsWith("FLOAT"))
+			valueBytes = 4;
+		else if(t.startsWith("DECIMAL")||t.startsWith("NUMERIC")){
+			int precision = size.length > 0 ? size[0] : 10;
+			int scale = size.length > 1 ? size[1] : 0;
+			valueBytes = getDecimalBytes(precision - scale) + getDecimalBytes(scale);
+		}
+		else if(t.startsWith("DATETIME"))
+			valueBytes = 5 + (getFraction(size) + 1)/2;
+		else if(t.startsWith("TIMESTAMP"))
+			valueBytes = 4 + (getFraction(size) + 1)/2;
+		else if(t.startsWith("DATE"))
+			valueBytes = 3;
+		else if(t.startsWith("TIME"))
+			valueBytes = 3 + (getFraction(size) + 1)/2;
+		else if(t.startsWith("ENUM"))
+			valueBytes = t.split("','|',\\s*'").length > 255 ? 2 : 1;
+		else if(t.startsWith("CHAR")||t.startsWith("BINARY"))
+			valueBytes = Math.max(average, size.length > 0 ? size[0] : 1);
+		else if(t.startsWith("VARCHAR")||t.startsWith("VARBINARY"))
+			valueBytes = average + (size.length > 0&&size[0]*4 > 255 ? 2 : 1);
+		else if(t.startsWith("TINYTEXT")||t.startsWith("TINYBLOB"))
+			valueBytes = average + 1;
+		else if(t.startsWith("MEDIUMTEXT")||t.startsWith("MEDIUMBLOB"))
+			valueBytes = average + 3;
+		else if(t.startsWith("LONGTEXT")||t.startsWith("LONGBLOB"))
+			valueBytes = average + 4;
+		else
+			valueBytes = average + 2;
+
+		return valueBytes*count/(count + nulls);
+	}
+
+	/*
+	 * This function replaces the widest VARCHARs of "types" with TEXT until
+	 * the row fits MySQL's row size limit, which counts every column at its
+	 * greatest width: a VARCHAR at four bytes per utf8mb4 character, and a
+	 * TEXT column by the pointer to its value.  A table of a few long text
+	 * columns could otherwise not be created.
+	 */
+	public static void fitRowSize(List<String> types){
+		long rowBytes = (types.size() + 7)/8;
+
+		for(String type : types)
+			rowBytes += getMaxBytes(type);
+
+		while(rowBytes > MAX_ROW_BYTES){
+			int widest = -1;
+
+			for(int i = 0; i < types.size(); i++){
+				if(types.get(i).toUpperCase(Locale.ROOT).startsWith("VARCHAR")
+						&&(widest < 0||getMaxBytes(types.get(i)) > getMaxBytes(types.get(widest))))
+					widest = i;
+			}
+
+			if(widest < 0)
+				return;
+
+			rowBytes -= getMaxBytes(types.get(widest)) - TEXT_ROW_BYTES;
+			types.set(widest, "TEXT");
+		}
+	}
+
+	//returns the most bytes a value of "type" counts toward the row size limit
+	private static int getMaxBytes(String type){
+		String t = type.trim().toUpperCase(Locale.ROOT);
+		int[] size = getTypeArguments(t);
+		int length = size.length > 0 ? size[0] : 1;
+
+		if(t.startsWith("VARCHAR")||t.startsWith("VARBINARY")){
+			int bytes = t.startsWith("VARCHAR") ? length*4 : length;
+			return bytes + (bytes > 255 ? 2 : 1);
+		}
+
+		if(t.startsWith("CHAR"))
+			return length*4;
+
+		if(t.startsWith("BINARY"))
+			return length;
+
+		if(t.startsWith("DECIMAL")||t.startsWith("NUMERIC")){
+			int precision = size.length > 0 ? size[0] : 10;
+			int scale = size.length > 1 ? size[1] : 0;
+			return getDecimalBytes(precision - scale) + getDecimalBytes(scale);
+		}
+
+		if(t.contains("TEXT")||t.contains("BLOB"))
+			return TEXT_ROW_BYTES;
+
+		//numbers, dates and times, and ENUMs take at most eight bytes
+		return 8;
+	}
+
+	//returns the numbers in a type's parentheses, such as the precision and scale of a DECIMAL
+	private static int[] getTypeArguments(String type){
+		int open = type.indexOf('(');
+		int close = type.indexOf(')', open + 1);
+
+		if(open < 0||close < 0||type.startsWith("ENUM")||type.startsWith("SET"))
+			return new int[0];
+
+		String[] parts = type.substring(open + 1, close).split(",");
+		int[] arguments = new int[parts.length];
+
+		try{
+			for(int i = 0; i < parts.length; i++)
+				arguments[i] = Integer.parseInt(parts[i].trim());
+		}
+		catch(NumberFormatException ex){
+			return new int[0];
+		}
+
+		return arguments;
+	}
+
+	private static int getFraction(int[] size){
+		return size.length > 0 ? size[0] : 0;
+	}
+
+	//returns the bytes of "digits" digits of a DECIMAL, packed nine to four bytes
+	private static int getDecimalBytes(int digits){
+		return digits/9*4 + DECIMAL_LEFTOVER_BYTES[digits%9];
+	}
+
+	//returns the average length of the non-null values
+	public double getAverageLength(){
+		return count==0 ? 0 : (double)totalLength/count;
+	}
+
+	//returns the number of distinct values, or -1 if there are too many to count
+	public int getDistinctCount(){
+		return distinct==null ? -1 : distinct.size();
+	}
+
+	public long getCount(){
+		return count;
+	}
+
+	public long getNullCount(){
+		return nulls;
+	}
+
+	public int getMaxLength(){
+		return maxLength;
+	}
+
+	public boolean isInteger(){
+		return integer&&count > 0;
+	}
+
+	public long getMinLong(){
+		return minLong;
+	}
+
+	public long getMaxLong(){
+		return maxLong;
+	}
+
+	public boolean isDecimal(){
+		return decimal&&count > 0;
+	}
+
+	public int getMaxIntegerDigits(){
+		return maxIntegerDigits;
+	}
+
+	public int getMaxScale(){
+		return maxScale;
+	}
+
+	public boolean isNumeric(){
+		return numeric&&count > 0;
+	}
+
+	public double getMinDouble(){
+		return minDouble;
+	}
+
+	public double getMaxDouble(){
+		return maxDouble;
+	}
+
+	//returns the patterns matched by every value, 0 if there are none
+	public int getDatePatterns(){
+		return count > 0 ? datePatterns : 0;
+	}
+
+	public int getMaxFractionDigits(){
+		return maxFractionDigits;
+	}
+}
@@ -0,0 +1,274 @@
+package importer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/*
+ * This class reads delimited records from a stream of UTF-8 text.  Fields
+ * may be enclosed in double quotes, in which case they can contain the
+ * delimiter, line breaks, and quotes written twice.  Outside of quotes a
+ * backslash escapes the next character as in LOAD DATA, so "\t", "\n",
+ * "\r" and "\0" are control characters and an unquoted "\N" is NULL.
+ * Records may end with LF, CRLF or CR.  The stream is parsed as bytes,
+ * which is safe for UTF-8 since every special character is ASCII, and the
+ * byte position after each record is tracked so that a read can be
+ * resumed from a record boundary.
+ */
+public class CsvReader implements Closeable{
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private InputStream in;
+
+	private byte delimiter;
+	private byte quote = '"';
+
+	//escape character, or 0 if backslashes are read as text
+	private byte escape = '\\';
+
+	private byte[] buffer = new byte[BUFFER_SIZE];
+	private int length = 0;
+	private int next = 0;
+
+	//bytes read before the start of the buffer
+	private long bufferStart;
+
+	//position after the last record read
+	private long position;
+
+	//number of records read
+	private long records = 0;
+
+	//bytes of the field being read
+	private byte[] field = new byte[256];
+	private int fieldLength;
+
+	//true if the field being read is an unquoted NULL
+	private boolean fieldIsNull;
+
+	/*
+	 * This constructor reads records separated by "delimiter" from "in",
+	 * whose first byte is at "startPosition" of the whole input.
+	 */
+	public CsvReader(InputStream input, char fieldDelimiter, long startPosition){
+		in = input;
+		delimiter = (byte)fieldDelimiter;
+		bufferStart = startPosition;
+		position = startPosition;
+	}
+
+	public CsvReader(InputStream input, char fieldDelimiter){
+		this(input, fieldDelimiter, 0);
+	}
+
+	/*
+	 * This function returns the delimiter character typed by a user, where
+	 * "\t" or "tab" stand for a tab.
+	 */
+	public static char parseDelimiter(String text){
+		if(text.equals("\\t")||text.equalsIgnoreCase("tab"))
+			return '\t';
+
+		return text.charAt(0);
+	}
+
+	/*
+	 * This function returns the line terminator of the first line of a
+	 * stream, "\r\n", "\n" or "\r", or "\n" if the first line is longer
+	 * than the bytes it reads.
+	 */
+	public static String detectLineTerminator(InputStream input) throws IOException{
+		byte[] start = new byte[BUFFER_SIZE];
+		int length = 0;
+		int read;
+
+		while(length < start.length&&(read = input.read(start, length, start.length - length)) >= 0)
+			length += read;
+
+		for(int i = 0; i < length; i++){
+			if(start[i]=='\n')
+				return "\n";
+
+			if(start[i]=='\r')
+				return i + 1 < length&&start[i + 1]=='\n' ? "\r\n" : "\r";
+		}
+
+		return "\n";
+	}
+
+	//sets the escape character, 0 to read backslashes as text
+	public void setEscape(char escapeCharacter){
+		escape = (byte)escapeCharacter;
+	}
+
+	/*
+	 * This function returns the fields of the next record, with null for
+	 * NULL fields, or null at the end of the input.  A blank line is a
+	 * record with one empty field.
+	 */
+	public String[] next() throws IOException{
+		if(!fill())
+			return null;
+
+		ArrayList<String> fields = new ArrayList<String>();
+
+		while(true){
+			fieldLength = 0;
+			fieldIsNull = false;
+
+			boolean quoted = false;
+
+			if(buffer[next]==quote){
+				quoted = true;
+				next++;
+				readQuoted();
+			}
+
+			//characters after a closing quote are part of the field, as in MySQL
+			int end = readUnquoted(!quoted);
+
+			fields.add(fieldIsNull ? null : new String(field, 0, fieldLength, StandardCharsets.UTF_8));
+
+			if(end!=delimiter||!fill()){
+				if(end==delimiter)
+					fields.add("");
+
+				break;
+			}
+		}
+
+		records++;
+		position = bufferStart + next;
+
+		return fields.toArray(new String[fields.size()]);
+	}
+
+	/*
+	 * This function reads a quoted field's text up to its closing quote.
+	 * Two quotes in a row are read as one quote.
+	 */
+	private void readQuoted() throws IOException{
+		while(fill()){
+			byte b = buffer[next++];
+
+			if(b==quote){
+				if(fill()&&buffer[next]==quote){
+					next++;
+					append(quote);
+				}
+				else
+					return;
+			}
+			else if(b==escape&&escape!=0&&fill())
+				append(unescape(buffer[next++]));
+			else
+				append(b);
+		}
+	}
+
+	/*
+	 * This function reads unquoted text up to the end of the field, and
+	 * returns the delimiter which ended it, or '\n' at the end of a line or
+	 * the input.  If the whole field was an unquoted "\N", it is read as NULL.
+	 */
+	private int readUnquoted(boolean mayBeNull) throws IOException{
+		int start = fieldLength;
+
+		while(fill()){
+			byte b = buffer[next++];
+
+			if(b==delimiter)
+				return delimiter;
+
+			if(b=='\n')
+				return '\n';
+
+			if(b=='\r'){
+				if(fill()&&buffer[next]=='\n')
+					next++;
+
+				return '\n';
+			}
+
+			fieldIsNull = false;
+
+			if(b==escape&&escape!=0&&fill()){
+				byte escaped = buffer[next++];
+
+				if(escaped=='N'&&mayBeNull&&fieldLength==start)
+					fieldIsNull = true;
+
+				append(unescape(escaped));
+			}
+			else
+				append(b);
+		}
+
+		return '\n';
+	}
+
+	private static byte unescape(byte b){
+		switch(b){
+			case '0':
+				return 0;
+			case 'b':
+				return '\b';
+			case 'n':
+				return '\n';
+			case 'r':
+				return '\r';
+			case 't':
+				return '\t';
+			case 'Z':
+				return 26;
+			default:
+				return b;
+		}
+	}
+
+	private void append(byte b){
+		if(fieldLength==field.length)
+			field = Arrays.copyOf(field, field.length*2);
+
+		field[fieldLength++] = b;
+	}
+
+	//makes sure a byte is available, returning false at the end of the input
+	private boolean fill() throws IOException{
+		if(next < length)
+			return true;
+
+		bufferStart += length;
+		next = 0;
+		length = 0;
+
+		while(length==0){
+			int read = in.read(buffer, 0, buffer.length);
+
+			if(read < 0)
+				return false;
+
+			length = read;
+		}
+
+		return true;
+	}
+
+	//returns the position of the input after the last record read
+	public long getPosition(){
+		return position;
+	}
+
+	public long getRecordCount(){
+		return records;
+	}
+
+	@Override
+	public void close() throws IOException{
+		in.close();
+	}
+}
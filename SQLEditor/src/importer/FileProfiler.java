@@ -0,0 +1,389 @@
+package importer;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/*
+ * This class scans a delimited file to collect the ColumnStats of each of
+ * its columns.  The file after its header is split into chunks which start
+ * after a line break, and each chunk is memory-mapped and scanned on its
+ * own thread, so a large file is read at the speed of the disk rather than
+ * of one parser.  The chunks' statistics are merged in file order.  A
+ * chunk boundary is only found by looking for a line break, so a quoted
+ * field containing line breaks which spans a boundary is misread.
+ *
+ * In sample mode every record is still parsed, to find where records end,
+ * but each chunk keeps a reservoir sample sized in proportion to the chunk
+ * and only the sampled records are profiled, so maximum lengths and ranges
+ * are estimates.
+ *
+ * A compressed file cannot be mapped, so it is decompressed as it is read
+ * and scanned as one chunk on the calling thread.
+ */
+public class FileProfiler {
+
+	public static final int DEFAULT_SAMPLE_SIZE = 100000;
+
+	//chunks are made no smaller than this, and never larger than can be mapped at once
+	private static final long MIN_CHUNK = 1L << 20;
+	private static final long MAX_CHUNK = 1L << 30;
+
+	private char delimiter;
+
+	private int parallelism = Runtime.getRuntime().availableProcessors();
+
+	//records profiled in sample mode, or 0 to profile every record
+	private int sampleSize = 0;
+
+	//set to stop a scan which is no longer wanted
+	private volatile boolean cancelled = false;
+
+	public FileProfiler(char fieldDelimiter){
+		delimiter = fieldDelimiter;
+	}
+
+	public void setParallelism(int threads){
+		parallelism = Math.max(1, threads);
+	}
+
+	//profiles a reservoir sample of "records" records, or every record if 0
+	public void setSampleSize(int records){
+		sampleSize = Math.max(0, records);
+	}
+
+	//stops a scan in progress, whose profile then throws an InterruptedIOException
+	public void cancel(){
+		cancelled = true;
+	}
+
+	/*
+	 * This function reads the column names from the first line of the file
+	 * and profiles the records after it.
+	 */
+	public FileProfile profile(File file) throws IOException{
+		long start = System.nanoTime();
+
+		String[] firstLine;
+		long dataStart;
+
+		if(ImportSource.isCompressed(file))
+			return profileStream(file, start);
+
+		try(CsvReader reader = new CsvReader(new FileInputStream(file), delimiter)){
+			firstLine = reader.next();
+			dataStart = reader.getPosition();
+		}
+
+		String[] header = firstLine==null ? new String[0] : firstLine;
+
+		long size = file.length();
+
+		List<ChunkResult> results = new ArrayList<ChunkResult>();
+
+		try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)){
+			long[] bounds = getChunkBounds(channel, dataStart, size);
+
+			ExecutorService threads = Executors.newFixedThreadPool(parallelism, r -> {
+				Thread t = new Thread(r, "profile-" + file.getName());
+				t.setDaemon(true);
+				return t;
+			});
+
+			try{
+				List<Future<ChunkResult>> futures = new ArrayList<Future<ChunkResult>>();
+
+				for(int i = 0; i + 1 < bounds.length; i++){
+					long from = bounds[i];
+					long to = bounds[i + 1];
+					int chunkSample = sampleSize==0 ? 0
+							: (int)Math.max(1, Math.ceil((double)sampleSize*(to - from)/Math.max(1, size - dataStart)));
+					int seed = i;
+
+					futures.add(threads.submit(() ->
+							scanChunk(channel, from, to, header.length, chunkSample, seed)));
+				}
+
+				for(Future<ChunkResult> future : futures)
+					results.add(future.get());
+			}
+			catch(InterruptedException ex){
+				Thread.currentThread().interrupt();
+				throw new IOException("Profiling interrupted", ex);
+			}
+			catch(ExecutionException ex){
+				if(ex.getCause() instanceof IOException)
+					throw (IOException)ex.getCause();
+
+				throw new IOException(ex.getCause());
+			}
+			finally{
+				threads.shutdownNow();
+			}
+		}
+
+		ColumnStats[] stats = new ColumnStats[header.length];
+
+		for(int i = 0; i < stats.length; i++)
+			stats[i] = new ColumnStats();
+
+		long rows = 0;
+		long profiled = 0;
+
+		for(ChunkResult result : results){
+			rows += result.rows;
+			profiled += result.profiled;
+
+			for(int i = 0; i < stats.length; i++)
+				stats[i].merge(result.stats[i]);
+		}
+
+		return new FileProfile(Arrays.asList(header), stats, rows, profiled, size, results.size(),
+				System.nanoTime() - start);
+	}
+
+	/*
+	 * This function profiles a compressed file as one chunk, reading it
+	 * through its decompressor.
+	 */
+	private FileProfile profileStream(File file, long start) throws IOException{
+		try(CsvReader reader = new CsvReader(ImportSource.open(file), delimiter)){
+			String[] firstLine = reader.next();
+			String[] header = firstLine==null ? new String[0] : firstLine;
+
+			ChunkResult result = scanRecords(reader, header.length, sampleSize, 0);
+
+			return new FileProfile(Arrays.asList(header), result.stats, result.rows, result.profiled,
+					reader.getPosition(), 1, System.nanoTime() - start);
+		}
+	}
+
+	/*
+	 * This function returns the offsets at which chunks start, followed by
+	 * the end of the file.  Each chunk after the first starts after the first
+	 * line break at or after its nominal offset.
+	 */
+	private long[] getChunkBounds(FileChannel channel, long dataStart, long size) throws IOException{
+		long length = size - dataStart;
+		long chunk = Math.min(MAX_CHUNK, Math.max(MIN_CHUNK, length/(parallelism*4L) + 1));
+
+		ArrayList<Long> bounds = new ArrayList<Long>();
+		bounds.add(dataStart);
+
+		ByteBuffer window = ByteBuffer.allocate(1 << 16);
+
+		long nominal = dataStart + chunk;
+
+		while(nominal < size){
+			long lineStart = findLineStart(channel, window, nominal, size);
+
+			if(lineStart >= size)
+				break;
+
+			bounds.add(lineStart);
+			nominal = Math.max(lineStart + 1, nominal + chunk);
+		}
+
+		bounds.add(size);
+
+		long[] result = new long[bounds.size()];
+
+		for(int i = 0; i < result.length; i++)
+			result[i] = bounds.get(i);
+
+		return result;
+	}
+
+	//returns the position after the first line break at or after "position"
+	private static long findLineStart(FileChannel channel, ByteBuffer window, long position, long size)
+			throws IOException{
+		while(position < size){
+			window.clear();
+			int read = channel.read(window, position);
+
+			if(read <= 0)
+				break;
+
+			for(int i = 0; i < read; i++){
+				if(window.get(i)=='\n')
+					return position + i + 1;
+			}
+
+			position += read;
+		}
+
+		return size;
+	}
+
+	/*
+	 * This function maps the bytes of a chunk and profiles its records, or
+	 * a reservoir sample of "sample" of them if "sample" is not 0.
+	 */
+	private ChunkResult scanChunk(FileChannel channel, long from, long to, int columns, int sample,
+			int seed) throws IOException{
+		if(to <= from)
+			return new ChunkResult(columns);
+
+		MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+
+		return scanRecords(new CsvReader(new MappedInputStream(mapped), delimiter, from), columns,
+				sample, seed);
+	}
+
+	//profiles the records left in a reader, or a reservoir sample of them
+	private ChunkResult scanRecords(CsvReader reader, int columns, int sample, int seed)
+			throws IOException{
+		ChunkResult result = new ChunkResult(columns);
+
+		String[][] reservoir = sample > 0 ? new String[sample][] : null;
+		Random random = new Random(seed);
+
+		String[] record;
+
+		while((record = reader.next())!=null){
+			if(cancelled)
+				throw new InterruptedIOException("Profiling cancelled");
+
+			//blank lines are not imported
+			if(record.length==1&&record[0]!=null&&record[0].isEmpty())
+				continue;
+
+			if(reservoir==null)
+				result.add(record);
+			else if(result.rows < sample)
+				reservoir[(int)result.rows] = record;
+			else{
+				long slot = (long)(random.nextDouble()*(result.rows + 1));
+
+				if(slot < sample)
+					reservoir[(int)slot] = record;
+			}
+
+			result.rows++;
+		}
+
+		if(reservoir!=null){
+			for(int i = 0; i < Math.min(sample, result.rows); i++)
+				result.add(reservoir[i]);
+		}
+
+		return result;
+	}
+
+	//statistics of one chunk
+	private static class ChunkResult{
+
+		final ColumnStats[] stats;
+
+		//records in the chunk, and records profiled
+		long rows = 0;
+		long profiled = 0;
+
+		ChunkResult(int columns){
+			stats = new ColumnStats[columns];
+
+			for(int i = 0; i < columns; i++)
+				stats[i] = new ColumnStats();
+		}
+
+		//profiles a record, whose missing fields are NULL
+		void add(String[] record){
+			for(int i = 0; i < stats.length; i++)
+				stats[i].add(i < record.length ? record[i] : null);
+
+			profiled++;
+		}
+	}
+
+	//reads the bytes of a mapped chunk
+	private static class MappedInputStream extends InputStream{
+
+		private ByteBuffer buffer;
+
+		MappedInputStream(ByteBuffer mapped){
+			buffer = mapped;
+		}
+
+		@Override
+		public int read(){
+			return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+		}
+
+		@Override
+		public int read(byte[] bytes, int offset, int length){
+			if(!buffer.hasRemaining())
+				return -1;
+
+			int count = Math.min(length, buffer.remaining());
+			buffer.get(bytes, offset, count);
+			return count;
+		}
+	}
+
+	/*
+	 * This class is the result of profiling a file: its column names and
+	 * the statistics of each column, with the number of records in the file
+	 * and the number profiled.
+	 */
+	public static class FileProfile{
+
+		private final List<String> names;
+		private final ColumnStats[] stats;
+		private final long rows;
+		private final long profiled;
+		private final long bytes;
+		private final int chunks;
+		private final long nanos;
+
+		FileProfile(List<String> columnNames, ColumnStats[] columnStats, long rowCount,
+				long profiledRows, long byteCount, int chunkCount, long elapsedNanos){
+			names = columnNames;
+			stats = columnStats;
+			rows = rowCount;
+			profiled = profiledRows;
+			bytes = byteCount;
+			chunks = chunkCount;
+			nanos = elapsedNanos;
+		}
+
+		public List<String> getNames(){
+			return names;
+		}
+
+		public ColumnStats getStats(int column){
+			return stats[column];
+		}
+
+		public long getRows(){
+			return rows;
+		}
+
+		public long getBytes(){
+			return bytes;
+		}
+
+		public boolean isSampled(){
+			return profiled < rows;
+		}
+
+		@Override
+		public String toString(){
+			return String.format("Profiled %d of %d rows (%.1f MB) in %d chunks in %.2f s",
+					profiled, rows, bytes/1048576.0, chunks, nanos/1e9);
+		}
+	}
+}
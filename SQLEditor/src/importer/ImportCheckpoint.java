@@ -0,0 +1,251 @@
+package importer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+/*
+ * This class records how far an import of a file has been committed, in a
+ * sidecar file next to it, so that an import which fails can be resumed
+ * from its last committed batch instead of from the start.  The sidecar
+ * holds the database and table being loaded, the byte offset in the file
+ * after the last committed record, and the rows committed and rejected by
+ * then.  Batches are written out of order, so it also holds the range,
+ * rows and rejects of each batch written past that offset, which a resumed
+ * import skips rather than inserting again.  It is replaced atomically and
+ * forced to disk each time it is written.  A checkpoint is ignored if the
+ * file's length or modification time has changed since it was written.
+ *
+ * The checkpoint of a directory of parts only records which table they are
+ * loaded into, and each part has its own checkpoint.  It is not checked
+ * against the directory, whose modification time changes as the parts'
+ * sidecars are written.
+ */
+public class ImportCheckpoint {
+
+	private static final String SUFFIX = ".checkpoint";
+
+	//file being imported and its sidecar
+	private File data;
+	private File sidecar;
+
+	private String database;
+	private String table;
+
+	//true if the table was created for a fast load, so it is completed as one
+	private boolean fastLoad = false;
+
+	//length and modification time of the file when the import started
+	private long fileLength;
+	private long fileModified;
+
+	//position after the last committed record, and rows committed and rejected before it
+	private long offset = 0;
+	private long rows = 0;
+	private long rejected = 0;
+
+	//batches written after the offset, in the order of the file
+	private List<WrittenBatch> ahead = new ArrayList<WrittenBatch>();
+
+	public ImportCheckpoint(File dataFile, String databaseName, String tableName){
+		data = dataFile;
+		sidecar = getSidecar(dataFile);
+		database = databaseName;
+		table = tableName;
+		fileLength = dataFile.length();
+		fileModified = dataFile.lastModified();
+	}
+
+	public static File getSidecar(File dataFile){
+		return new File(dataFile.getPath() + SUFFIX);
+	}
+
+	/*
+	 * This function returns the checkpoint of an unfinished import of a
+	 * file, or null if there is none or the file has changed since.
+	 */
+	public static ImportCheckpoint read(File dataFile){
+		File sidecar = getSidecar(dataFile);
+
+		if(!sidecar.isFile())
+			return null;
+
+		Properties saved = new Properties();
+
+		try(InputStream in = new FileInputStream(sidecar)){
+			saved.load(in);
+
+			String database = saved.getProperty("database", "");
+
+			ImportCheckpoint checkpoint = new ImportCheckpoint(dataFile, 
+					database.isEmpty() ? null : database, saved.getProperty("table"));
+
+			if(!dataFile.isDirectory()
+					&&(Long.parseLong(saved.getProperty("fileLength"))!=checkpoint.fileLength
+					||Long.parseLong(saved.getProperty("fileModified"))!=checkpoint.fileModified))
+				return null;
+
+			checkpoint.fastLoad = Boolean.parseBoolean(saved.getProperty("fastLoad"));
+			checkpoint.offset = Long.parseLong(saved.getProperty("offset"));
+			checkpoint.rows = Long.parseLong(saved.getProperty("rows"));
+			checkpoint.rejected = Long.parseLong(saved.getProperty("rejected"));
+
+			for(String batch : saved.getProperty("written", "").split(";")){
+				if(batch.isEmpty())
+					continue;
+
+				String[] fields = batch.split(":");
+				checkpoint.ahead.add(new WrittenBatch(Long.parseLong(fields[0]), 
+						Long.parseLong(fields[1]), Long.parseLong(fields[2]), Long.parseLong(fields[3])));
+			}
+
+			return checkpoint;
+		}
+		catch(IOException|RuntimeException ex){
+			ex.printStackTrace();
+			return null;
+		}
+	}
+
+	public void commit(long position, long committedRows, long rejectedRows) throws IOException{
+		commit(position, committedRows, rejectedRows, Collections.<WrittenBatch>emptyList());
+	}
+
+	/*
+	 * This function records that the file has been committed up to
+	 * "position", and that the batches "writtenAhead" after it have been
+	 * written, and writes the sidecar to a temporary file which is forced to
+	 * disk and then moved over the previous sidecar.
+	 */
+	public synchronized void commit(long position, long committedRows, long rejectedRows,
+			List<WrittenBatch> writtenAhead) throws IOException{
+		offset = position;
+		rows = committedRows;
+		rejected = rejectedRows;
+		ahead = new ArrayList<WrittenBatch>(writtenAhead);
+
+		StringBuilder written = new StringBuilder();
+
+		for(WrittenBatch batch : ahead){
+			if(written.length() > 0)
+				written.append(";");
+
+			written.append(batch.start + ":" + batch.end + ":" + batch.rows + ":" + batch.rejected);
+		}
+
+		Properties saved = new Properties();
+		saved.setProperty("file", data.getAbsolutePath());
+		saved.setProperty("database", database==null ? "" : database);
+		saved.setProperty("table", table);
+		saved.setProperty("fileLength", String.valueOf(fileLength));
+		saved.setProperty("fileModified", String.valueOf(fileModified));
+		saved.setProperty("fastLoad", String.valueOf(fastLoad));
+		saved.setProperty("offset", String.valueOf(offset));
+		saved.setProperty("rows", String.valueOf(rows));
+		saved.setProperty("rejected", String.valueOf(rejected));
+		saved.setProperty("written", written.toString());
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		saved.store(bytes, "Import checkpoint");
+
+		File temporary = new File(sidecar.getPath() + ".tmp");
+
+		try(FileChannel channel = FileChannel.open(temporary.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)){
+			channel.write(ByteBuffer.wrap(bytes.toByteArray()));
+			channel.force(true);
+		}
+
+		Files.move(temporary.toPath(), sidecar.toPath(), StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	//removes the sidecar once the import has finished
+	public void delete(){
+		sidecar.delete();
+	}
+
+	public String getDatabase(){
+		return database;
+	}
+
+	public String getTable(){
+		return table;
+	}
+
+	public boolean isFastLoad(){
+		return fastLoad;
+	}
+
+	public void setFastLoad(boolean fast){
+		fastLoad = fast;
+	}
+
+	public synchronized long getOffset(){
+		return offset;
+	}
+
+	public synchronized long getRows(){
+		return rows;
+	}
+
+	public synchronized long getRejected(){
+		return rejected;
+	}
+
+	//returns the batches written after the offset
+	public synchronized List<WrittenBatch> getWrittenAhead(){
+		return new ArrayList<WrittenBatch>(ahead);
+	}
+
+	public long getFileLength(){
+		return fileLength;
+	}
+
+	/*
+	 * This class is a batch written after the committed offset: the input
+	 * positions before its first record and after its last, and the rows it
+	 * wrote and rejected.
+	 */
+	public static class WrittenBatch{
+
+		private final long start;
+		private final long end;
+		private final long rows;
+		private final long rejected;
+
+		public WrittenBatch(long startPosition, long endPosition, long writtenRows, long rejectedRows){
+			start = startPosition;
+			end = endPosition;
+			rows = writtenRows;
+			rejected = rejectedRows;
+		}
+
+		public long getStart(){
+			return start;
+		}
+
+		public long getEnd(){
+			return end;
+		}
+
+		public long getRows(){
+			return rows;
+		}
+
+		public long getRejected(){
+			return rejected;
+		}
+	}
+}
@@ -0,0 +1,127 @@
+package importer;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+
+/*
+ * This class opens the files an import reads from.  Files ending in ".gz"
+ * are decompressed with gzip as they are read, and files ending in ".zst"
+ * with Zstandard if the zstd-jni library is on the classpath, so that no
+ * uncompressed copy is written.  A directory is imported as the parts it
+ * contains, in name order, leaving out the sidecar files imports write
+ * next to their parts.
+ */
+public class ImportSource {
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	//class of zstd-jni's decompressing stream, loaded if it is available
+	private static final String ZSTD_STREAM = "com.github.luben.zstd.ZstdInputStream";
+
+	//suffixes of files imports write next to the files they read
+	private static final String[] SIDECARS = {".checkpoint", ".rejected", ".tmp"};
+
+	//returns true if a file is decompressed as it is read
+	public static boolean isCompressed(File file){
+		String name = file.getName().toLowerCase(Locale.ROOT);
+		return name.endsWith(".gz")||name.endsWith(".zst");
+	}
+
+	/*
+	 * This function returns true if a source can only be read as a stream,
+	 * rather than by LOAD DATA or by mapping it into memory.
+	 */
+	public static boolean needsStreaming(File file){
+		return file.isDirectory()||isCompressed(file);
+	}
+
+	/*
+	 * This function opens a file, decompressing it if its name ends in ".gz"
+	 * or ".zst".  An IOException is thrown for a ".zst" file if zstd-jni is
+	 * not available.
+	 */
+	public static InputStream open(File file) throws IOException{
+		InputStream in = new FileInputStream(file);
+		String name = file.getName().toLowerCase(Locale.ROOT);
+
+		try{
+			if(name.endsWith(".gz"))
+				return new GZIPInputStream(in, BUFFER_SIZE);
+
+			if(name.endsWith(".zst"))
+				return openZstd(new BufferedInputStream(in, BUFFER_SIZE));
+		}
+		catch(IOException ex){
+			in.close();
+			throw ex;
+		}
+
+		return in;
+	}
+
+	private static InputStream openZstd(InputStream in) throws IOException{
+		try{
+			return (InputStream)Class.forName(ZSTD_STREAM).getConstructor(InputStream.class)
+					.newInstance(in);
+		}
+		catch(ClassNotFoundException ex){
+			throw new IOException("Reading .zst files requires the zstd-jni library", ex);
+		}
+		catch(ReflectiveOperationException ex){
+			throw new IOException("Unable to open Zstandard stream", ex);
+		}
+	}
+
+	/*
+	 * This function returns the length of a file's contents once read, or -1
+	 * if it is compressed, since that is not known until it has been read.
+	 */
+	public static long getLength(File file){
+		return isCompressed(file) ? -1 : file.length();
+	}
+
+	/*
+	 * This function returns the files an import of "source" reads: the file
+	 * itself, or the visible files in a directory in name order, leaving out
+	 * import sidecars.
+	 */
+	public static List<File> listParts(File source){
+		ArrayList<File> parts = new ArrayList<File>();
+
+		if(!source.isDirectory()){
+			parts.add(source);
+			return parts;
+		}
+
+		File[] files = source.listFiles();
+
+		if(files==null)
+			return parts;
+
+		Arrays.sort(files);
+
+		for(File f : files){
+			if(f.isFile()&&!f.isHidden()&&!isSidecar(f))
+				parts.add(f);
+		}
+
+		return parts;
+	}
+
+	private static boolean isSidecar(File file){
+		for(String suffix : SIDECARS){
+			if(file.getName().endsWith(suffix))
+				return true;
+		}
+
+		return false;
+	}
+}
@@ -0,0 +1,225 @@
+package importer;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+import editor.SessionConfig;
+
+/*
+ * This class imports the parts of a directory into one table.  Parts are
+ * loaded at the same time, each by its own ParallelImporter, and the
+ * connections given to the import are shared between them, so that
+ * parsing and decompressing the parts is spread over threads as well as
+ * the writes.  Each part has its own checkpoint and rejects file, so an
+ * import which fails resumes every part from where it was committed, and a
+ * part which was finished is read to its end without loading any rows.
+ * The first failure of any part cancels the others.
+ */
+public class MultiFileImporter {
+
+	private SessionConfig session;
+
+	private List<File> parts;
+
+	//creates the importer of a part, with its table, columns, and checkpoint set
+	private Function<File, ParallelImporter> importers;
+
+	private int parallelism = ParallelImporter.DEFAULT_PARALLELISM;
+
+	private ParallelImporter.ProgressListener listener;
+
+	//importers of the parts being loaded
+	private final List<ParallelImporter> running = new ArrayList<ParallelImporter>();
+
+	private volatile boolean cancelled = false;
+
+	//latest progress reported by each part
+	private long[] partRows;
+	private long[] partRejected;
+	private long[] partBytes;
+
+	//total length of the parts, or -1 if any is compressed
+	private long totalBytes;
+
+	public MultiFileImporter(SessionConfig currentSession, List<File> partFiles,
+			Function<File, ParallelImporter> partImporters){
+		session = currentSession;
+		parts = new ArrayList<File>(partFiles);
+		importers = partImporters;
+
+		partRows = new long[parts.size()];
+		partRejected = new long[parts.size()];
+		partBytes = new long[parts.size()];
+
+		totalBytes = 0;
+
+		for(File part : parts){
+			long length = ImportSource.getLength(part);
+			totalBytes = length < 0||totalBytes < 0 ? -1 : totalBytes + length;
+		}
+	}
+
+	//sets the number of connections shared by the parts loaded at once, up to the session's limit
+	public void setParallelism(int connections){
+		parallelism = Math.max(1, Math.min(connections, ParallelImporter.getMaxParallelism(session)));
+	}
+
+	/*
+	 * This function sets the listener told of the rows committed and rejected
+	 * and the bytes read over all parts, including those of parts resumed.
+	 */
+	public void setProgressListener(ParallelImporter.ProgressListener progressListener){
+		listener = progressListener;
+	}
+
+	//stops every part after the batches being written
+	public synchronized void cancel(){
+		cancelled = true;
+
+		for(ParallelImporter importer : running)
+			importer.cancel();
+	}
+
+	/*
+	 * This function imports every part, loading as many at once as there are
+	 * connections, and returns their combined statistics.  The first
+	 * exception thrown by a part is rethrown once every part has stopped.
+	 */
+	public ParallelImporter.ImportStats importAll() throws IOException, SQLException{
+		long start = System.nanoTime();
+
+		int concurrentParts = Math.max(1, Math.min(parts.size(), parallelism));
+		int connectionsPerPart = Math.max(1, parallelism/concurrentParts);
+
+		ExecutorService threads = Executors.newFixedThreadPool(concurrentParts, r -> {
+			Thread t = new Thread(r, "import-parts");
+			t.setDaemon(true);
+			return t;
+		});
+
+		List<Future<ParallelImporter.ImportStats>> futures =
+				new ArrayList<Future<ParallelImporter.ImportStats>>();
+
+		for(int i = 0; i < parts.size(); i++){
+			int part = i;
+			futures.add(threads.submit(() -> importPart(part, connectionsPerPart)));
+		}
+
+		threads.shutdown();
+
+		long rows = 0;
+		long rejected = 0;
+		long bytes = 0;
+		Exception failure = null;
+
+		for(Future<ParallelImporter.ImportStats> future : futures){
+			try{
+				ParallelImporter.ImportStats stats = future.get();
+
+				if(stats!=null){
+					rows += stats.getRows();
+					rejected += stats.getRejected();
+					bytes += stats.getBytes();
+				}
+			}
+			catch(ExecutionException ex){
+				if(failure==null)
+					failure = ex.getCause() instanceof Exception ? (Exception)ex.getCause() : ex;
+			}
+			catch(InterruptedException ex){
+				Thread.currentThread().interrupt();
+
+				if(failure==null){
+					failure = ex;
+					cancel();
+				}
+			}
+		}
+
+		if(failure instanceof SQLException)
+			throw (SQLException)failure;
+		else if(failure instanceof IOException)
+			throw (IOException)failure;
+		else if(failure!=null)
+			throw new IOException("Import of " + parts.size() + " parts failed", failure);
+
+		return new ParallelImporter.ImportStats(rows, rejected, bytes, System.nanoTime() - start,
+				concurrentParts*connectionsPerPart, cancelled);
+	}
+
+	/*
+	 * This function loads one part, or returns null if the import was
+	 * cancelled before it started.  A part which fails cancels the others.
+	 */
+	private ParallelImporter.ImportStats importPart(int part, int connections)
+			throws IOException, SQLException{
+		ParallelImporter importer = importers.apply(parts.get(part));
+		importer.setParallelism(connections);
+		importer.setProgressListener((rows, rejected, bytes, length) ->
+				partProgress(part, rows, rejected, bytes));
+
+		synchronized(this){
+			if(cancelled)
+				return null;
+
+			running.add(importer);
+
+			//parts resumed from a checkpoint count their committed rows from the start
+			ImportCheckpoint checkpoint = importer.getCheckpoint();
+
+			if(checkpoint!=null)
+				setPartProgress(part, checkpoint.getRows(), checkpoint.getRejected(),
+						checkpoint.getOffset());
+		}
+
+		try{
+			return importer.importFile(parts.get(part));
+		}
+		catch(IOException|SQLException|RuntimeException ex){
+			cancel();
+			throw ex;
+		}
+		finally{
+			synchronized(this){
+				running.remove(importer);
+			}
+		}
+	}
+
+	private synchronized void partProgress(int part, long rows, long rejected, long bytes){
+		setPartProgress(part, rows, rejected, bytes);
+
+		if(listener==null)
+			return;
+
+		long allRows = 0;
+		long allRejected = 0;
+		long allBytes = 0;
+
+		for(int i = 0; i < parts.size(); i++){
+			allRows += partRows[i];
+			allRejected += partRejected[i];
+			allBytes += partBytes[i];
+		}
+
+		listener.progress(allRows, allRejected, allBytes, totalBytes);
+	}
+
+	private void setPartProgress(int part, long rows, long rejected, long bytes){
+		partRows[part] = rows;
+		partRejected[part] = rejected;
+		partBytes[part] = bytes;
+	}
+
+	public List<File> getParts(){
+		return parts;
+	}
+}
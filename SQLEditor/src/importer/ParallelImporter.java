@@ -0,0 +1,861 @@
+package importer;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import editor.SessionConfig;
+
+/*
+ * This class imports a delimited file into an existing table without LOAD
+ * DATA LOCAL INFILE, which many servers disable.  One thread parses the
+ * file with a CsvReader and groups its records into batches, which are
+ * queued to a number of worker threads.  Each worker leases its own
+ * connection and writes every batch with a single multi-row INSERT, as
+ * rewriteBatchedStatements would, so each batch costs one round trip.  The
+ * queue is bounded so that parsing never runs far ahead of the workers.
+ * The first failure stops the import, and rows already written are kept.
+ *
+ * For bulk loads, workers may disable unique and foreign key checks for
+ * their sessions while loading, and sort each batch by the table's primary
+ * key so that its rows are appended to the key's index in order.
+ *
+ * A batch whose INSERT is rejected for its data, such as a value which
+ * does not fit its column or a duplicate key, is written again one row at
+ * a time, and the rows which still fail are counted and appended to a
+ * ".rejected" file next to the input instead of stopping the import.
+ * Batches may be written out of order, so the import is only committed up
+ * to the end of the last batch which follows an unbroken run of written
+ * batches.  That position is recorded in an ImportCheckpoint after each
+ * batch, from which a later import resumes, along with the batches written
+ * past it, which the later import skips instead of inserting again.
+ *
+ * Compressed files are decompressed by ImportSource as they are read, and
+ * their positions are offsets in the decompressed text.
+ */
+public class ParallelImporter {
+
+	public static final int DEFAULT_BATCH_SIZE = 1000;
+	public static final int DEFAULT_PARALLELISM = 4;
+
+	//most placeholders MySQL accepts in one prepared statement
+	private static final int MAX_PLACEHOLDERS = 65535;
+
+	//text in a batch after which it is sent before it is full, to bound packet size
+	private static final long MAX_BATCH_CHARS = 4L*1024*1024;
+
+	private SessionConfig session;
+	private String database;
+	private String table;
+	private List<String> columns;
+
+	//true for each column whose empty fields are inserted as NULL
+	private boolean[] emptyAsNull;
+
+	private char delimiter;
+
+	//true if the first record holds column names
+	private boolean skipHeader = true;
+
+	//column names the first record is only skipped if it repeats, or null to always skip it
+	private String[] header;
+
+	private int batchSize = DEFAULT_BATCH_SIZE;
+	private int parallelism = DEFAULT_PARALLELISM;
+
+	//true if workers load with unique_checks and foreign_key_checks disabled
+	private boolean deferChecks = false;
+
+	//fields of the primary key each batch is sorted by, or null to keep file order
+	private int[] keyColumns;
+
+	private ProgressListener listener;
+
+	//checkpoint updated as batches are committed, and resumed from, or null
+	private ImportCheckpoint checkpoint;
+
+	//file rejected rows are appended to, or null to only count them, and its writer
+	private File rejectsFile;
+	private Writer rejects;
+
+	//rows written and rejected by this import, and bytes parsed so far
+	private final AtomicLong rowsWritten = new AtomicLong();
+	private final AtomicLong rowsRejected = new AtomicLong();
+	private volatile long bytesRead = 0;
+
+	//sequence number of the last batch of the unbroken run of written batches,
+	//with the input position after it and the rows committed and rejected by then
+	private long committedSequence = -1;
+	private long committedOffset = 0;
+	private long committedRows = 0;
+	private long committedRejected = 0;
+
+	//batches written after a gap, by sequence number
+	private TreeMap<Long, Batch> written = new TreeMap<Long, Batch>();
+
+	//batches written by the import being resumed which the reader has not reached yet
+	private LinkedList<ImportCheckpoint.WrittenBatch> resumed = new LinkedList<ImportCheckpoint.WrittenBatch>();
+
+	private volatile boolean cancelled = false;
+
+	//first failure of any thread
+	private final AtomicReference<Exception> failure = new AtomicReference<Exception>();
+
+	/*
+	 * This constructor imports records separated by "fieldDelimiter" into
+	 * "tableName" of "databaseName", whose columns are named by
+	 * "columnNames" in the order of the file's fields and have the MySQL
+	 * types "columnTypes".
+	 */
+	public ParallelImporter(SessionConfig currentSession, String databaseName, String tableName,
+			List<String> columnNames, List<String> columnTypes, char fieldDelimiter){
+		session = currentSession;
+		database = databaseName;
+		table = tableName;
+		columns = new ArrayList<String>(columnNames);
+		delimiter = fieldDelimiter;
+
+		emptyAsNull = new boolean[columns.size()];
+
+		for(int i = 0; i < emptyAsNull.length; i++)
+			emptyAsNull[i] = !isTextType(columnTypes.get(i));
+	}
+
+	/*
+	 * This function returns true if an empty field is valid text for a
+	 * column of type "type".  Empty fields of other columns are inserted as
+	 * NULL, since strict mode rejects an empty string as a number, date, or
+	 * ENUM value which was not declared.
+	 */
+	public static boolean isTextType(String type){
+		String t = type.trim().toUpperCase(Locale.ROOT);
+
+		if(t.startsWith("ENUM")||t.startsWith("SET"))
+			return false;
+
+		return t.contains("CHAR")||t.contains("TEXT")||t.contains("BLOB")||t.contains("BINARY");
+	}
+
+	public void setBatchSize(int rows){
+		batchSize = Math.max(1, rows);
+	}
+
+	//sets the number of workers, each with its own connection, up to getMaxParallelism
+	public void setParallelism(int connections){
+		parallelism = Math.max(1, Math.min(connections, getMaxParallelism(session)));
+	}
+
+	/*
+	 * This function returns the most connections an import may use in a
+	 * session.  Each worker holds its pooled connection for the whole
+	 * import, so one connection of the pool is left for the rest of the
+	 * application, and workers never wait out the lease timeout.
+	 */
+	public static int getMaxParallelism(SessionConfig session){
+		return Math.max(1, session.getPool().getMaxSize() - 1);
+	}
+
+	public void setSkipHeader(boolean skip){
+		skipHeader = skip;
+	}
+
+	/*
+	 * This function sets the column names of the first part of a multi-file
+	 * import, so that the first record of another part is only skipped if it
+	 * repeats them.
+	 */
+	public void setHeader(String[] columnNames){
+		header = columnNames==null ? null : columnNames.clone();
+	}
+
+	/*
+	 * This function sets whether workers disable unique_checks and
+	 * foreign_key_checks while loading.  Checks are enabled again before
+	 * their connections are returned to the pool, and the rows loaded are
+	 * not checked, so they must be validated afterwards.
+	 */
+	public void setDeferChecks(boolean defer){
+		deferChecks = defer;
+	}
+
+	//sorts each batch by the fields at "keyIndices" before it is written
+	public void setKeyColumns(int[] keyIndices){
+		keyColumns = keyIndices==null||keyIndices.length==0 ? null : keyIndices.clone();
+	}
+
+	/*
+	 * This function sets the checkpoint which records the import's progress.
+	 * If it has committed part of the file, importFile resumes after it.
+	 */
+	public void setCheckpoint(ImportCheckpoint importCheckpoint){
+		checkpoint = importCheckpoint;
+	}
+
+	public ImportCheckpoint getCheckpoint(){
+		return checkpoint;
+	}
+
+	public void setRejectsFile(File file){
+		rejectsFile = file;
+	}
+
+	//returns the file rejected rows of an import of "dataFile" are appended to
+	public static File getRejectsFile(File dataFile){
+		return new File(dataFile.getPath() + ".rejected");
+	}
+
+	public void setProgressListener(ProgressListener progressListener){
+		listener = progressListener;
+	}
+
+	//stops the import after the batches being written
+	public void cancel(){
+		cancelled = true;
+	}
+
+	/*
+	 * This function imports a file, starting after the last committed record
+	 * of the checkpoint if one is set.  Rejected rows are appended to the
+	 * file's rejects file unless another was set.  A compressed file is
+	 * resumed by decompressing and discarding the text before the checkpoint.
+	 */
+	public ImportStats importFile(File file) throws IOException, SQLException{
+		long start = checkpoint==null ? 0 : checkpoint.getOffset();
+
+		if(rejectsFile==null)
+			rejectsFile = getRejectsFile(file);
+
+		try(InputStream in = ImportSource.open(file)){
+			long skipped = 0;
+
+			while(skipped < start){
+				long n = in.skip(start - skipped);
+
+				if(n <= 0)
+					throw new IOException("Checkpoint is past the end of " + file.getName());
+
+				skipped += n;
+			}
+
+			return importStream(in, ImportSource.getLength(file), start);
+		}
+	}
+
+	public ImportStats importStream(InputStream in, long totalBytes) throws IOException, SQLException{
+		return importStream(in, totalBytes, 0);
+	}
+
+	/*
+	 * This function imports the records of "in", whose first byte is at
+	 * "startOffset" of an input of "totalBytes" bytes, or -1 if unknown,
+	 * returning the import's statistics.  The header is only skipped at the
+	 * start of the input.  The first exception thrown by the reader or any
+	 * worker is rethrown once every thread has stopped.
+	 */
+	public ImportStats importStream(InputStream in, long totalBytes, long startOffset) 
+			throws IOException, SQLException{
+		long start = System.nanoTime();
+
+		committedOffset = startOffset;
+		bytesRead = startOffset;
+
+		if(checkpoint!=null&&startOffset > 0){
+			committedRows = checkpoint.getRows();
+			committedRejected = checkpoint.getRejected();
+		}
+
+		if(checkpoint!=null)
+			resumed.addAll(checkpoint.getWrittenAhead());
+
+		//rows per statement, kept within the placeholder limit
+		int rowsPerBatch = Math.max(1, Math.min(batchSize, MAX_PLACEHOLDERS/Math.max(1, columns.size())));
+
+		ArrayBlockingQueue<Batch> queue = new ArrayBlockingQueue<Batch>(parallelism*2);
+
+		List<Thread> workers = new ArrayList<Thread>();
+
+		for(int i = 0; i < parallelism; i++){
+			Thread worker = new Thread(() -> work(queue, rowsPerBatch, totalBytes),
+					"import-" + table + "-" + i);
+			worker.setDaemon(true);
+			worker.start();
+			workers.add(worker);
+		}
+
+		try{
+			readBatches(new CsvReader(in, delimiter, startOffset), queue, rowsPerBatch, 
+					skipHeader&&startOffset==0, totalBytes);
+		}
+		catch(IOException|InterruptedException|RuntimeException ex){
+			failure.compareAndSet(null, ex);
+		}
+
+		//one empty batch stops each worker
+		for(int i = 0; i < parallelism; i++){
+			try{
+				queue.put(new Batch(-1, new ArrayList<String[]>(), 0, 0));
+			}
+			catch(InterruptedException ex){
+				failure.compareAndSet(null, ex);
+			}
+		}
+
+		for(Thread worker : workers){
+			try{
+				worker.join();
+			}
+			catch(InterruptedException ex){
+				failure.compareAndSet(null, ex);
+			}
+		}
+
+		synchronized(this){
+			if(rejects!=null){
+				rejects.close();
+				rejects = null;
+			}
+		}
+
+		Exception ex = failure.get();
+
+		if(ex instanceof SQLException)
+			throw (SQLException)ex;
+		else if(ex instanceof IOException)
+			throw (IOException)ex;
+		else if(ex!=null)
+			throw new IOException("Import interrupted", ex);
+
+		return new ImportStats(rowsWritten.get(), rowsRejected.get(), bytesRead - startOffset,
+				System.nanoTime() - start, parallelism, cancelled);
+	}
+
+	/*
+	 * This function parses the records of the input into batches of at most
+	 * "rowsPerBatch" rows, or fewer once their text reaches MAX_BATCH_CHARS,
+	 * and queues them for the workers.  Blank lines are skipped.  If a header
+	 * was set, a first record which does not repeat it is imported.  Records
+	 * of batches written by the import being resumed are read past, and each
+	 * of those batches counts as written when it is reached.
+	 */
+	private void readBatches(CsvReader reader, ArrayBlockingQueue<Batch> queue,
+			int rowsPerBatch, boolean hasHeader, long totalBytes) 
+			throws IOException, InterruptedException{
+		long batchStart = reader.getPosition();
+
+		//first record, if it was read to check for a header and is imported
+		String[] first = null;
+
+		if(hasHeader){
+			first = reader.next();
+
+			if(first!=null&&(header==null||Arrays.equals(first, header))){
+				committedOffset = reader.getPosition();
+				batchStart = committedOffset;
+				first = null;
+			}
+		}
+
+		List<String[]> batch = new ArrayList<String[]>(rowsPerBatch);
+		long chars = 0;
+		long sequence = 0;
+
+		String[] record;
+
+		while(true){
+			ImportCheckpoint.WrittenBatch skipped = null;
+
+			synchronized(this){
+				if(first==null&&!resumed.isEmpty()&&resumed.getFirst().getStart()==reader.getPosition())
+					skipped = resumed.getFirst();
+			}
+
+			if(skipped!=null){
+				//the records before a written batch are sent without it, so that it is never written again
+				if(!batch.isEmpty()){
+					bytesRead = reader.getPosition();
+
+					if(!offer(queue, new Batch(sequence++, batch, batchStart, bytesRead)))
+						return;
+
+					batch = new ArrayList<String[]>(rowsPerBatch);
+					chars = 0;
+				}
+
+				while(reader.getPosition() < skipped.getEnd()&&reader.next()!=null);
+
+				bytesRead = reader.getPosition();
+				batchStart = bytesRead;
+
+				Batch passed = new Batch(sequence++, new ArrayList<String[]>(), skipped.getStart(), 
+						skipped.getEnd());
+				passed.rows = skipped.getRows();
+				passed.rejected = skipped.getRejected();
+
+				synchronized(this){
+					resumed.removeFirst();
+					batchWritten(passed, totalBytes);
+				}
+
+				continue;
+			}
+
+			record = first!=null ? first : reader.next();
+
+			if(record==null||cancelled||failure.get()!=null)
+				break;
+
+			first = null;
+
+			if(record.length==1&&record[0]!=null&&record[0].isEmpty())
+				continue;
+
+			batch.add(record);
+
+			for(String field : record)
+				chars += field==null ? 0 : field.length();
+
+			if(batch.size()==rowsPerBatch||chars >= MAX_BATCH_CHARS){
+				bytesRead = reader.getPosition();
+
+				if(!offer(queue, new Batch(sequence++, batch, batchStart, bytesRead)))
+					return;
+
+				batch = new ArrayList<String[]>(rowsPerBatch);
+				batchStart = bytesRead;
+				chars = 0;
+			}
+		}
+
+		bytesRead = reader.getPosition();
+
+		if(!batch.isEmpty())
+			offer(queue, new Batch(sequence, batch, batchStart, bytesRead));
+	}
+
+	//queues a batch, returning false if the import fails while waiting
+	private boolean offer(ArrayBlockingQueue<Batch> queue, Batch batch)
+			throws InterruptedException{
+		while(!queue.offer(batch, 100, TimeUnit.MILLISECONDS)){
+			if(failure.get()!=null)
+				return false;
+		}
+
+		return true;
+	}
+
+	/*
+	 * This function is run by each worker.  It writes queued batches on its
+	 * own connection until it takes an empty batch.
+	 */
+	private void work(ArrayBlockingQueue<Batch> queue, int rowsPerBatch, long totalBytes){
+		try(Connection connection = session.getConnection(database)){
+			if(deferChecks)
+				setChecks(connection, false);
+
+			try{
+				writeBatches(connection, queue, rowsPerBatch, totalBytes);
+			}
+			finally{
+				if(deferChecks)
+					setChecks(connection, true);
+			}
+		}
+		catch(SQLException|InterruptedException|RuntimeException ex){
+			failure.compareAndSet(null, ex);
+
+			//keep taking batches so that the reader is never blocked
+			drain(queue);
+		}
+	}
+
+	//enables or disables unique and foreign key checks for a connection's session
+	public static void setChecks(Connection connection, boolean enabled) throws SQLException{
+		int value = enabled ? 1 : 0;
+
+		try(Statement statement = connection.createStatement()){
+			statement.execute("SET SESSION unique_checks = " + value + ", foreign_key_checks = " 
+					+ value + ";");
+		}
+	}
+
+	/*
+	 * This function writes queued batches until it takes an empty batch.  The
+	 * statement for a full batch is prepared once and reused.  A batch which
+	 * is rejected for its data is written again row by row.  Once the import
+	 * has failed or been cancelled, remaining batches are taken without being
+	 * written.
+	 */
+	private void writeBatches(Connection connection, ArrayBlockingQueue<Batch> queue,
+			int rowsPerBatch, long totalBytes) throws SQLException, InterruptedException{
+		PreparedStatement fullBatch = null;
+
+		try{
+			while(true){
+				Batch batch = queue.take();
+
+				if(batch.records.isEmpty())
+					break;
+
+				if(cancelled||failure.get()!=null)
+					continue;
+
+				List<String[]> records = batch.records;
+
+				if(keyColumns!=null)
+					records.sort(this::compareKeys);
+
+				try{
+					if(records.size()==rowsPerBatch){
+						if(fullBatch==null)
+							fullBatch = connection.prepareStatement(getInsertString(rowsPerBatch));
+
+						bind(fullBatch, records);
+						fullBatch.executeUpdate();
+					}
+					else{
+						try(PreparedStatement statement = connection.prepareStatement(
+								getInsertString(records.size()))){
+							bind(statement, records);
+							statement.executeUpdate();
+						}
+					}
+
+					batch.rows = records.size();
+				}
+				catch(SQLException ex){
+					if(!isDataError(ex))
+						throw ex;
+
+					writeRows(connection, batch);
+				}
+
+				rowsWritten.addAndGet(batch.rows);
+				rowsRejected.addAndGet(batch.rejected);
+
+				batchWritten(batch, totalBytes);
+			}
+		}
+		finally{
+			if(fullBatch!=null)
+				fullBatch.close();
+		}
+	}
+
+	/*
+	 * This function writes a batch's records one at a time after its INSERT
+	 * was rejected, rejecting those which fail for their data.
+	 */
+	private void writeRows(Connection connection, Batch batch) throws SQLException{
+		try(PreparedStatement statement = connection.prepareStatement(getInsertString(1))){
+			ArrayList<String[]> record = new ArrayList<String[]>(1);
+			record.add(null);
+
+			for(String[] fields : batch.records){
+				record.set(0, fields);
+				bind(statement, record);
+
+				try{
+					statement.executeUpdate();
+					batch.rows++;
+				}
+				catch(SQLException ex){
+					if(!isDataError(ex))
+						throw ex;
+
+					reject(fields);
+					batch.rejected++;
+				}
+			}
+		}
+	}
+
+	/*
+	 * This function returns true if a statement failed because of the values
+	 * it inserted, such as an invalid or truncated value, a missing value, or
+	 * a duplicate or missing key, rather than the server or connection.
+	 */
+	private static boolean isDataError(SQLException ex){
+		String state = ex.getSQLState();
+
+		if(state!=null&&(state.startsWith("22")||state.startsWith("23")))
+			return true;
+
+		//errors for invalid values which MySQL reports with the general state HY000
+		switch(ex.getErrorCode()){
+			case 1264:
+			case 1265:
+			case 1292:
+			case 1366:
+			case 1367:
+			case 1406:
+			case 1411:
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	//appends a rejected record to the rejects file, written as it would be read
+	private synchronized void reject(String[] fields) throws SQLException{
+		if(rejectsFile==null)
+			return;
+
+		try{
+			if(rejects==null){
+				rejects = new BufferedWriter(new OutputStreamWriter(
+						new FileOutputStream(rejectsFile, true), StandardCharsets.UTF_8));
+			}
+
+			for(int i = 0; i < fields.length; i++){
+				if(i > 0)
+					rejects.write(delimiter);
+
+				if(fields[i]==null)
+					rejects.write("\\N");
+				else
+					rejects.write("\"" + fields[i].replace("\\", "\\\\").replace("\"", "\"\"") + "\"");
+			}
+
+			rejects.write("\n");
+		}
+		catch(IOException ex){
+			throw new SQLException("Unable to write rejected row to " + rejectsFile, ex);
+		}
+	}
+
+	/*
+	 * This function records that a batch has been written.  If it completes
+	 * an unbroken run of written batches, the import is committed up to the
+	 * end of the run and progress is reported.  The checkpoint is written
+	 * with the committed position and every batch written past it, including
+	 * those of the import being resumed which the reader has not reached.
+	 */
+	private synchronized void batchWritten(Batch batch, long totalBytes){
+		written.put(batch.sequence, batch);
+
+		boolean advanced = false;
+
+		while(!written.isEmpty()&&written.firstKey()==committedSequence + 1){
+			Batch next = written.pollFirstEntry().getValue();
+
+			committedSequence = next.sequence;
+			committedOffset = next.end;
+			committedRows += next.rows;
+			committedRejected += next.rejected;
+			advanced = true;
+		}
+
+		if(checkpoint!=null){
+			List<ImportCheckpoint.WrittenBatch> ahead = new ArrayList<ImportCheckpoint.WrittenBatch>();
+
+			for(Batch b : written.values())
+				ahead.add(new ImportCheckpoint.WrittenBatch(b.start, b.end, b.rows, b.rejected));
+
+			ahead.addAll(resumed);
+
+			try{
+				if(rejects!=null)
+					rejects.flush();
+
+				checkpoint.commit(committedOffset, committedRows, committedRejected, ahead);
+			}
+			catch(IOException ex){
+				failure.compareAndSet(null, ex);
+			}
+		}
+
+		if(advanced&&listener!=null)
+			listener.progress(committedRows, committedRejected, committedOffset, totalBytes);
+	}
+
+	/*
+	 * This function orders records by their key fields, comparing fields
+	 * which are both numbers by value and others as text, with NULL first.
+	 */
+	private int compareKeys(String[] a, String[] b){
+		for(int column : keyColumns){
+			String x = column < a.length ? a[column] : null;
+			String y = column < b.length ? b[column] : null;
+
+			int order;
+
+			if(x==null||y==null)
+				order = x==null ? (y==null ? 0 : -1) : 1;
+			else{
+				try{
+					order = new BigDecimal(x.trim()).compareTo(new BigDecimal(y.trim()));
+				}
+				catch(NumberFormatException ex){
+					order = x.compareTo(y);
+				}
+			}
+
+			if(order!=0)
+				return order;
+		}
+
+		return 0;
+	}
+
+	private void drain(ArrayBlockingQueue<Batch> queue){
+		try{
+			while(!queue.take().records.isEmpty());
+		}
+		catch(InterruptedException ex){
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/*
+	 * This function binds the fields of a batch's records in order.  Missing
+	 * fields are NULL and fields beyond the table's columns are ignored, as
+	 * LOAD DATA does.
+	 */
+	private void bind(PreparedStatement statement, List<String[]> batch) throws SQLException{
+		int parameter = 1;
+
+		for(String[] record : batch){
+			for(int i = 0; i < emptyAsNull.length; i++){
+				String field = i < record.length ? record[i] : null;
+
+				if(field!=null&&field.isEmpty()&&emptyAsNull[i])
+					field = null;
+
+				statement.setString(parameter++, field);
+			}
+		}
+	}
+
+	//returns an INSERT statement with placeholders for "rows" rows
+	private String getInsertString(int rows){
+		StringBuilder row = new StringBuilder("(");
+
+		for(int i = 0; i < columns.size(); i++)
+			row.append(i==0 ? "?" : ", ?");
+
+		row.append(")");
+
+		StringBuilder statementString = new StringBuilder("INSERT INTO " + table + " ("
+				+ String.join(", ", columns) + ") VALUES ");
+
+		for(int i = 0; i < rows; i++){
+			if(i > 0)
+				statementString.append(", ");
+
+			statementString.append(row);
+		}
+
+		return statementString.append(";").toString();
+	}
+
+	/*
+	 * This class is a group of records parsed together, with its place in the
+	 * order batches were parsed, the input positions before its first record
+	 * and after its last, and once written, the number of its rows written
+	 * and rejected.
+	 */
+	private static class Batch{
+
+		final long sequence;
+		final List<String[]> records;
+		final long start;
+		final long end;
+
+		long rows = 0;
+		long rejected = 0;
+
+		Batch(long batchSequence, List<String[]> batchRecords, long startPosition, long endPosition){
+			sequence = batchSequence;
+			records = batchRecords;
+			start = startPosition;
+			end = endPosition;
+		}
+	}
+
+	/*
+	 * This interface is notified by worker threads each time the import is
+	 * committed further, with the rows committed and rejected in total,
+	 * including those of an import it resumed, the input position committed,
+	 * and the input's length, or -1 if unknown.
+	 */
+	public interface ProgressListener{
+		void progress(long rows, long rejected, long bytes, long totalBytes);
+	}
+
+	//statistics of a finished import
+	public static class ImportStats{
+
+		private final long rows;
+		private final long rejected;
+		private final long bytes;
+		private final long nanos;
+		private final int connections;
+		private final boolean wasCancelled;
+
+		ImportStats(long rowCount, long rejectedCount, long byteCount, long elapsedNanos, 
+				int connectionCount, boolean cancelledImport){
+			rows = rowCount;
+			rejected = rejectedCount;
+			bytes = byteCount;
+			nanos = elapsedNanos;
+			connections = connectionCount;
+			wasCancelled = cancelledImport;
+		}
+
+		public long getRows(){
+			return rows;
+		}
+
+		public long getRejected(){
+			return rejected;
+		}
+
+		public long getBytes(){
+			return bytes;
+		}
+
+		public double getSeconds(){
+			return nanos/1e9;
+		}
+
+		public double getRowsPerSecond(){
+			return rows/Math.max(getSeconds(), 1e-9);
+		}
+
+		public double getMegabytesPerSecond(){
+			return bytes/1048576.0/Math.max(getSeconds(), 1e-9);
+		}
+
+		public boolean isCancelled(){
+			return wasCancelled;
+		}
+
+		@Override
+		public String toString(){
+			return String.format("%s %d rows (%.1f MB) in %.2f s with %d connections: "
+					+ "%.0f rows/s, %.1f MB/s, %d rows rejected", 
+					wasCancelled ? "Cancelled after" : "Imported", rows, bytes/1048576.0, 
+					getSeconds(), connections, getRowsPerSecond(), getMegabytesPerSecond(), rejected);
+		}
+	}
+}
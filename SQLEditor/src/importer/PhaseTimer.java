@@ -0,0 +1,55 @@
+package importer;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+ * This class measures the wall-clock time of the phases of an import,
+ * such as creating the table, loading rows and building its indexes.  One
+ * phase runs at a time, and starting a phase ends the previous one.
+ */
+public class PhaseTimer {
+
+	//elapsed nanoseconds of each finished phase in the order they started
+	private LinkedHashMap<String, Long> phases = new LinkedHashMap<String, Long>();
+
+	//phase being timed and when it started
+	private String current;
+	private long started;
+
+	public synchronized void start(String phase){
+		stop();
+		current = phase;
+		started = System.nanoTime();
+	}
+
+	public synchronized void stop(){
+		if(current!=null){
+			phases.merge(current, System.nanoTime() - started, Long::sum);
+			current = null;
+		}
+	}
+
+	//returns the seconds a phase took, or 0 if it did not run
+	public synchronized double getSeconds(String phase){
+		Long nanos = phases.get(phase);
+		return nanos==null ? 0 : nanos/1e9;
+	}
+
+	//returns each phase's time, such as "create 0.02 s, load 12.40 s (total 12.42 s)"
+	@Override
+	public synchronized String toString(){
+		StringBuilder summary = new StringBuilder();
+		long total = 0;
+
+		for(Map.Entry<String, Long> phase : phases.entrySet()){
+			if(summary.length() > 0)
+				summary.append(", ");
+
+			summary.append(String.format("%s %.2f s", phase.getKey(), phase.getValue()/1e9));
+			total += phase.getValue();
+		}
+
+		return summary.append(String.format(" (total %.2f s)", total/1e9)).toString();
+	}
+}
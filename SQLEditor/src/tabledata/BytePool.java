@@ -0,0 +1,108 @@
+package tabledata;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/*
+ * This class packs the bytes of every row of a column into one array, with
+ * the offset after each row's bytes, instead of an array per row.  Rows
+ * are appended in order, and bytes replaced after they were packed are
+ * kept separately.
+ */
+class BytePool {
+
+	private byte[] pool;
+	private int poolSize = 0;
+
+	//offset after each row's bytes
+	private int[] ends;
+
+	private int rows = 0;
+
+	//bytes of rows which were replaced
+	private HashMap<Integer, byte[]> replaced;
+
+	BytePool(int capacity, int byteCapacity){
+		ends = new int[Math.max(capacity, 16)];
+		pool = new byte[Math.max(byteCapacity, 64)];
+	}
+
+	//appends the bytes of the next row, with null stored as no bytes
+	void add(byte[] bytes){
+		if(rows==ends.length)
+			ends = Arrays.copyOf(ends, Column.grownCapacity(ends.length, rows + 1));
+
+		if(bytes!=null){
+			if(poolSize + bytes.length > pool.length)
+				pool = Arrays.copyOf(pool, Column.grownCapacity(pool.length, poolSize + bytes.length));
+
+			System.arraycopy(bytes, 0, pool, poolSize, bytes.length);
+			poolSize += bytes.length;
+		}
+
+		ends[rows++] = poolSize;
+	}
+
+	void set(int row, byte[] bytes){
+		if(replaced==null)
+			replaced = new HashMap<Integer, byte[]>();
+
+		replaced.put(row, bytes==null ? new byte[0] : bytes);
+	}
+
+	byte[] get(int row){
+		if(replaced!=null&&replaced.containsKey(row))
+			return replaced.get(row);
+
+		return Arrays.copyOfRange(pool, start(row), ends[row]);
+	}
+
+	//returns true if the row's bytes are still in the pool
+	boolean isPacked(int row){
+		return replaced==null||!replaced.containsKey(row);
+	}
+
+	//offset and length of a packed row's bytes, read with getPool
+	int start(int row){
+		return row==0 ? 0 : ends[row-1];
+	}
+
+	int length(int row){
+		return ends[row] - start(row);
+	}
+
+	byte[] getPool(){
+		return pool;
+	}
+
+	//compares the bytes of two rows as unsigned values
+	int compare(int a, int b){
+		if(!isPacked(a)||!isPacked(b))
+			return compare(get(a), 0, get(a).length, get(b), 0, get(b).length);
+
+		return compare(pool, start(a), length(a), pool, start(b), length(b));
+	}
+
+	static int compare(byte[] a, int aStart, int aLength, byte[] b, int bStart, int bLength){
+		int length = Math.min(aLength, bLength);
+
+		for(int i = 0; i < length; i++){
+			int difference = (a[aStart + i] & 0xff) - (b[bStart + i] & 0xff);
+			if(difference!=0)
+				return difference;
+		}
+
+		return aLength - bLength;
+	}
+
+	long estimateBytes(){
+		long bytes = 16 + ends.length*4L + 16 + pool.length;
+
+		if(replaced!=null){
+			for(byte[] b : replaced.values())
+				bytes += 64 + b.length;
+		}
+
+		return bytes;
+	}
+}
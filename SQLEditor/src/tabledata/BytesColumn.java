@@ -0,0 +1,129 @@
+package tabledata;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/*
+ * This column stores BINARY, VARBINARY and BLOB values as bytes packed in
+ * a BytePool.  Values which are printable UTF-8 text are shown as text,
+ * and others in hexadecimal with a 0x prefix, which is also accepted when
+ * a value is edited.
+ */
+class BytesColumn extends Column {
+
+	private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+	private BytePool pool;
+
+	BytesColumn(int capacity){
+		pool = new BytePool(capacity, capacity*16);
+	}
+
+	@Override
+	boolean append(ResultSet rs, int index) throws SQLException{
+		byte[] bytes = rs.getBytes(index);
+
+		pool.add(bytes);
+		setNull(size, bytes==null);
+		size++;
+		return true;
+	}
+
+	@Override
+	boolean appendText(String text){
+		byte[] bytes = parse(text);
+
+		if(text!=null&&!format(bytes).equals(text))
+			return false;
+
+		pool.add(bytes);
+		setNull(size, text==null);
+		size++;
+		return true;
+	}
+
+	@Override
+	String getText(int row){
+		return isNull(row) ? null : format(pool.get(row));
+	}
+
+	//values which are not printable are shown as hex
+	@Override
+	boolean hasSqlText(){
+		return false;
+	}
+
+	@Override
+	Object getValue(int row){
+		return isNull(row) ? null : pool.get(row);
+	}
+
+	@Override
+	boolean setText(int row, String text){
+		pool.set(row, parse(text));
+		setNull(row, text==null);
+		return true;
+	}
+
+	@Override
+	int compareValues(int a, int b){
+		return pool.compare(a, b);
+	}
+
+	//returns the bytes of text, given in hexadecimal if it has a 0x prefix
+	private static byte[] parse(String text){
+		if(text==null)
+			return null;
+
+		if(text.matches("0x([0-9a-fA-F]{2})*")){
+			byte[] bytes = new byte[(text.length() - 2)/2];
+
+			for(int i = 0; i < bytes.length; i++)
+				bytes[i] = (byte)Integer.parseInt(text.substring(2 + i*2, 4 + i*2), 16);
+
+			return bytes;
+		}
+
+		return text.getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static String format(byte[] bytes){
+		try{
+			String text = StandardCharsets.UTF_8.newDecoder()
+					.onMalformedInput(CodingErrorAction.REPORT)
+					.onUnmappableCharacter(CodingErrorAction.REPORT)
+					.decode(ByteBuffer.wrap(bytes)).toString();
+
+			if(isPrintable(text)&&!text.startsWith("0x"))
+				return text;
+		}
+		catch(CharacterCodingException ex){
+			//not text, shown in hexadecimal
+		}
+
+		StringBuilder hex = new StringBuilder(2 + bytes.length*2).append("0x");
+
+		for(byte b : bytes)
+			hex.append(HEX[(b >> 4) & 0xf]).append(HEX[b & 0xf]);
+
+		return hex.toString();
+	}
+
+	private static boolean isPrintable(String text){
+		for(int i = 0; i < text.length(); i++){
+			char c = text.charAt(i);
+			if(Character.isISOControl(c)&&c!='\n'&&c!='\r'&&c!='\t')
+				return false;
+		}
+		return true;
+	}
+
+	@Override
+	long estimateBytes(){
+		return pool.estimateBytes() + estimateNullBytes();
+	}
+}
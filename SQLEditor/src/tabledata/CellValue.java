@@ -0,0 +1,46 @@
+package tabledata;
+
+import javafx.beans.InvalidationListener;
+import javafx.beans.value.ChangeListener;
+import javafx.beans.value.ObservableValue;
+
+/*
+ * This is the value of a TableView cell, read from its RowView only when
+ * the cell asks for it.  Cells are refreshed directly when they are edited,
+ * so the value never notifies listeners and keeps no listener state, unlike
+ * a property created for every cell.
+ */
+public class CellValue implements ObservableValue<String> {
+
+	private final RowView row;
+
+	private final int column;
+
+	public CellValue(RowView rowView, int columnIndex){
+		row = rowView;
+		column = columnIndex;
+	}
+
+	//returns the cell's text, with null shown as an empty string
+	@Override
+	public String getValue(){
+		String text = row.get(column);
+		return text==null ? "" : text;
+	}
+
+	@Override
+	public void addListener(ChangeListener<? super String> listener){
+	}
+
+	@Override
+	public void removeListener(ChangeListener<? super String> listener){
+	}
+
+	@Override
+	public void addListener(InvalidationListener listener){
+	}
+
+	@Override
+	public void removeListener(InvalidationListener listener){
+	}
+}
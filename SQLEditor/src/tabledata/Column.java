@@ -0,0 +1,160 @@
+package tabledata;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/*
+ * This class is one column of a ColumnarTable.  Subclasses store the
+ * column's values in arrays of their type, and only format a value as
+ * text when it is asked for.  This class records which rows are null in a
+ * bitmap, so that a null costs one bit instead of a reference.
+ */
+abstract class Column {
+
+	//one bit per row, set if the row's value is null
+	private long[] nulls = new long[1];
+
+	//number of rows in the column
+	protected int size = 0;
+
+	//appends the value of the current row of a ResultSet, returning false if
+	//the column cannot store it
+	abstract boolean append(ResultSet rs, int index) throws SQLException;
+
+	//appends a value given as text, returning false if the column cannot
+	//store it so that it reads back as the same text
+	abstract boolean appendText(String text);
+
+	//returns the row's value as text, or null if it is null
+	abstract String getText(int row);
+
+	//returns the row's value as the Java type used to bind it to a statement
+	abstract Object getValue(int row);
+
+	/*
+	 * This function replaces the row's value with an edit, returning false if
+	 * the text is not a value of the column's type.  Empty text is stored as
+	 * null in columns which do not hold text.
+	 */
+	abstract boolean setText(int row, String text);
+
+	//compares the values of two rows which are not null
+	abstract int compareValues(int a, int b);
+
+	//returns the approximate number of bytes used by the column's values
+	abstract long estimateBytes();
+
+	int size(){
+		return size;
+	}
+
+	/*
+	 * This function returns true if getText returns the text MySQL converts
+	 * the value to, so that matching the text matches a LIKE condition.
+	 */
+	boolean hasSqlText(){
+		return true;
+	}
+
+	/*
+	 * This function returns a long per row which orders the rows the same
+	 * way as their values, or null if the column's values have no such key.
+	 * Keys of null rows are ignored.
+	 */
+	long[] sortKeys(){
+		return null;
+	}
+
+	/*
+	 * This function returns the rank of each row's value among the column's
+	 * distinct values, with 0 for nulls, so that sorting compares ints.
+	 * Columns with sort keys are ranked by searching their sorted distinct
+	 * keys, and other columns by sorting their rows with compareValues.
+	 */
+	int[] ranks(){
+		int[] ranks = new int[size];
+		long[] keys = sortKeys();
+
+		if(keys!=null){
+			long[] sorted = new long[size];
+			int count = 0;
+
+			for(int row = 0; row < size; row++){
+				if(!isNull(row))
+					sorted[count++] = keys[row];
+			}
+
+			Arrays.parallelSort(sorted, 0, count);
+
+			int distinct = 0;
+			for(int i = 0; i < count; i++){
+				if(i==0||sorted[i]!=sorted[distinct-1])
+					sorted[distinct++] = sorted[i];
+			}
+
+			final int distinctCount = distinct;
+
+			IntStream.range(0, size).parallel().forEach(row ->
+				ranks[row] = isNull(row) ? 0 : Arrays.binarySearch(sorted, 0, distinctCount, keys[row]) + 1);
+
+			return ranks;
+		}
+
+		Integer[] rows = IntStream.range(0, size).filter(row -> !isNull(row))
+				.boxed().toArray(Integer[]::new);
+
+		Arrays.parallelSort(rows, (a, b) -> compareValues(a, b));
+
+		int rank = 0;
+
+		for(int i = 0; i < rows.length; i++){
+			if(i==0||compareValues(rows[i-1], rows[i])!=0)
+				rank++;
+			ranks[rows[i]] = rank;
+		}
+
+		return ranks;
+	}
+
+	//compares the values of two rows, ordering nulls first
+	int compare(int a, int b){
+		boolean aNull = isNull(a);
+		boolean bNull = isNull(b);
+
+		if(aNull||bNull)
+			return aNull==bNull ? 0 : (aNull ? -1 : 1);
+
+		return compareValues(a, b);
+	}
+
+	boolean isNull(int row){
+		int word = row >>> 6;
+		return word < nulls.length&&(nulls[word] & (1L << row))!=0;
+	}
+
+	protected void setNull(int row, boolean isNull){
+		int word = row >>> 6;
+
+		if(word >= nulls.length){
+			if(!isNull)
+				return;
+			nulls = Arrays.copyOf(nulls, Math.max(word + 1, nulls.length*2));
+		}
+
+		if(isNull)
+			nulls[word] |= 1L << row;
+		else
+			nulls[word] &= ~(1L << row);
+	}
+
+	protected long estimateNullBytes(){
+		return 16 + nulls.length*8L;
+	}
+
+	//returns the capacity to grow an array to so that it holds "needed" values
+	protected static int grownCapacity(int capacity, int needed){
+		return Math.max(needed, capacity + (capacity >> 1) + 16);
+	}
+}
@@ -0,0 +1,277 @@
+package tabledata;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Arrays;
+
+/*
+ * This class holds the rows of a result column by column, decoding each
+ * column by its JDBC type into an array of that type: int or long for
+ * integers, double for floating point, unscaled longs for decimals, longs
+ * for temporal values, packed bytes for binary values, and dictionary
+ * codes or packed UTF-8 for text.  Nulls are kept in bitmaps, so a loaded
+ * row costs a few bytes per column instead of a list of String objects.
+ * Values are only formatted as text when a cell is shown, and sorting and
+ * edits use the typed values.  Prefix searches of fully loaded rows use a
+ * PrefixIndex per column, built on the first search.  Rows are presented
+ * to a TableView through a RowList of RowView objects.  Rows are appended
+ * by the thread loading the result while the JavaFX thread reads and edits
+ * earlier rows, so access to the columns is synchronized.
+ */
+public class ColumnarTable {
+
+	private Column[] columns;
+
+	private int rowCount = 0;
+
+	//rank of each row's value in a column, computed when the column is
+	//first sorted and discarded when the column changes
+	private int[][] ranks;
+
+	//prefix index of a column, built when the column is first searched,
+	//updated by edits and discarded when rows are appended
+	private PrefixIndex[] prefixIndexes;
+
+	/*
+	 * This constructor creates a column for each of the "sqlTypes", which
+	 * are java.sql.Types constants.  "capacity" is the number of rows
+	 * expected, used to size the column arrays.
+	 */
+	public ColumnarTable(int[] sqlTypes, int capacity){
+		columns = new Column[sqlTypes.length];
+		ranks = new int[sqlTypes.length][];
+		prefixIndexes = new PrefixIndex[sqlTypes.length];
+
+		for(int i = 0; i < sqlTypes.length; i++)
+			columns[i] = createColumn(sqlTypes[i], 0, capacity);
+	}
+
+	private ColumnarTable(Column[] tableColumns){
+		columns = tableColumns;
+		ranks = new int[columns.length][];
+		prefixIndexes = new PrefixIndex[columns.length];
+	}
+
+	//creates a table with a column for each column of a result
+	public static ColumnarTable forResult(ResultSetMetaData meta, int capacity) throws SQLException{
+		Column[] columns = new Column[meta.getColumnCount()];
+
+		for(int i = 0; i < columns.length; i++){
+			int sqlType = meta.getColumnType(i+1);
+			boolean signed = meta.isSigned(i+1);
+
+			//unsigned values can exceed the Java type of the same size
+			if(sqlType==Types.INTEGER&&!signed)
+				sqlType = Types.BIGINT;
+			else if(sqlType==Types.BIGINT&&!signed)
+				sqlType = Types.DECIMAL;
+
+			//YEAR is reported as a DATE but sent as a number
+			if("YEAR".equalsIgnoreCase(meta.getColumnTypeName(i+1)))
+				sqlType = Types.SMALLINT;
+
+			columns[i] = createColumn(sqlType, Math.max(meta.getScale(i+1), 0), capacity);
+		}
+
+		return new ColumnarTable(columns);
+	}
+
+	private static Column createColumn(int sqlType, int scale, int capacity){
+		switch(sqlType){
+			case Types.BOOLEAN:
+			case Types.TINYINT:
+			case Types.SMALLINT:
+			case Types.INTEGER:
+				return new IntColumn(capacity);
+			case Types.BIT:
+			case Types.BIGINT:
+				return new LongColumn(capacity);
+			case Types.REAL:
+				return new DoubleColumn(capacity, true);
+			case Types.FLOAT:
+			case Types.DOUBLE:
+				return new DoubleColumn(capacity, false);
+			case Types.DECIMAL:
+			case Types.NUMERIC:
+				return new DecimalColumn(capacity, scale);
+			case Types.DATE:
+				return new TemporalColumn(capacity, TemporalColumn.Kind.DATE);
+			case Types.TIMESTAMP:
+				return new TemporalColumn(capacity, TemporalColumn.Kind.DATETIME);
+			case Types.TIME:
+				return new TemporalColumn(capacity, TemporalColumn.Kind.TIME);
+			case Types.BINARY:
+			case Types.VARBINARY:
+			case Types.LONGVARBINARY:
+			case Types.BLOB:
+				return new BytesColumn(capacity);
+			default:
+				return new StringColumn(capacity);
+		}
+	}
+
+	/*
+	 * This function appends the current row of a ResultSet and returns its
+	 * RowView.  A column which receives a value its type cannot hold, such
+	 * as a temporal value in an unexpected form, is converted to text.
+	 */
+	public synchronized RowView appendRow(ResultSet rs) throws SQLException{
+		for(int i = 0; i < columns.length; i++){
+			if(!columns[i].append(rs, i+1)){
+				columns[i] = StringColumn.copyOf(columns[i]);
+				columns[i].append(rs, i+1);
+			}
+		}
+
+		Arrays.fill(ranks, null);
+		Arrays.fill(prefixIndexes, null);
+
+		return new RowView(this, rowCount++);
+	}
+
+	//returns a view of a row
+	public RowView getRow(int row){
+		return new RowView(this, row);
+	}
+
+	//appends a row of values given as text and returns its RowView
+	public synchronized RowView appendRow(String[] values){
+		for(int i = 0; i < columns.length; i++){
+			if(!columns[i].appendText(values[i])){
+				columns[i] = StringColumn.copyOf(columns[i]);
+				columns[i].appendText(values[i]);
+			}
+		}
+
+		Arrays.fill(ranks, null);
+		Arrays.fill(prefixIndexes, null);
+
+		return new RowView(this, rowCount++);
+	}
+
+	//returns the value of a cell as text, or null if it is null
+	public synchronized String getText(int row, int column){
+		return columns[column].getText(row);
+	}
+
+	/*
+	 * This function returns the value of a cell as the Java type used to
+	 * bind it to a statement: Integer, Long, Double, BigDecimal, byte[] or
+	 * String, or null.  Temporal values are returned as text.
+	 */
+	public synchronized Object getValue(int row, int column){
+		return columns[column].getValue(row);
+	}
+
+	/*
+	 * This function replaces the value of a cell with edited text, returning
+	 * false without changing it if the text is not a value of the column's
+	 * type.
+	 */
+	public synchronized boolean setText(int row, int column, String text){
+		if(!columns[column].setText(row, text))
+			return false;
+
+		ranks[column] = null;
+
+		if(prefixIndexes[column]!=null)
+			prefixIndexes[column].update(row, columns[column].getText(row));
+
+		return true;
+	}
+
+	/*
+	 * This function returns the rows, in ascending order, whose text in each
+	 * of the "columns" starts with the prefix at the same position, in the
+	 * same way as a LIKE 'prefix%' condition.  Each column is searched with
+	 * its prefix index into a bitmap of matching rows, and the bitmaps are
+	 * intersected.  "ignoreCase" gives whether each column's collation
+	 * ignores case.
+	 */
+	public synchronized int[] findPrefixes(int[] columns, String[] prefixes, boolean[] ignoreCase){
+		long[] matches = new long[(rowCount + 63) >>> 6];
+		Arrays.fill(matches, -1L);
+
+		if((rowCount & 63)!=0)
+			matches[matches.length-1] = (1L << rowCount) - 1;
+
+		long[] bitmap = new long[matches.length];
+
+		for(int i = 0; i < columns.length; i++){
+			int column = columns[i];
+
+			if(prefixIndexes[column]==null||prefixIndexes[column].ignoresCase()!=ignoreCase[i])
+				prefixIndexes[column] = new PrefixIndex(this.columns[column], ignoreCase[i]);
+
+			Arrays.fill(bitmap, 0);
+			prefixIndexes[column].find(prefixes[i], bitmap);
+
+			for(int w = 0; w < matches.length; w++)
+				matches[w] &= bitmap[w];
+		}
+
+		int found = 0;
+		for(long word : matches)
+			found += Long.bitCount(word);
+
+		int[] rows = new int[found];
+		int next = 0;
+
+		for(int w = 0; w < matches.length; w++){
+			long word = matches[w];
+
+			while(word!=0){
+				rows[next++] = (w << 6) + Long.numberOfTrailingZeros(word);
+				word &= word - 1;
+			}
+		}
+
+		return rows;
+	}
+
+	//returns true if a column's text is the text MySQL matches a LIKE condition against
+	public synchronized boolean canSearchText(int column){
+		return columns[column].hasSqlText();
+	}
+
+	/*
+	 * This function returns the rank of every row's value among the distinct
+	 * values of a column, with 0 for null, so that rows can be sorted by
+	 * comparing ints.  Ranks are kept until the column changes.
+	 */
+	public synchronized int[] getRanks(int column){
+		if(ranks[column]==null)
+			ranks[column] = columns[column].ranks();
+
+		return ranks[column];
+	}
+
+	//compares the values of a column in two rows, ordering nulls first
+	public synchronized int compare(int rowA, int rowB, int column){
+		return columns[column].compare(rowA, rowB);
+	}
+
+	public synchronized boolean isNull(int row, int column){
+		return columns[column].isNull(row);
+	}
+
+	public int getColumnCount(){
+		return columns.length;
+	}
+
+	public synchronized int getRowCount(){
+		return rowCount;
+	}
+
+	//returns the approximate number of bytes held by the table's columns
+	public synchronized long estimateBytes(){
+		long bytes = 16 + columns.length*4L;
+
+		for(Column c : columns)
+			bytes += c.estimateBytes();
+
+		return bytes;
+	}
+}
@@ -0,0 +1,176 @@
+package tabledata;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/*
+ * This column stores DECIMAL values, and unsigned BIGINT values, exactly.
+ * Every value has the column's scale, so each row only holds the value's
+ * unscaled digits in a long.  The few values with too many digits for a
+ * long are kept as BigDecimals.
+ */
+class DecimalColumn extends Column {
+
+	private static final BigInteger MIN_LONG = BigInteger.valueOf(Long.MIN_VALUE);
+	private static final BigInteger MAX_LONG = BigInteger.valueOf(Long.MAX_VALUE);
+
+	//digits after the decimal point of every value
+	private int scale;
+
+	//unscaled values of rows which fit in a long
+	private long[] unscaled;
+
+	//values of rows which do not fit in a long
+	private HashMap<Integer, BigDecimal> large;
+
+	DecimalColumn(int capacity, int columnScale){
+		unscaled = new long[Math.max(capacity, 16)];
+		scale = columnScale;
+	}
+
+	@Override
+	boolean append(ResultSet rs, int index) throws SQLException{
+		BigDecimal value = rs.getBigDecimal(index);
+
+		if(value!=null&&value.scale()!=scale){
+			//values of a column normally share its scale
+			try{
+				value = value.setScale(scale);
+			}
+			catch(ArithmeticException ex){
+				return false;
+			}
+		}
+
+		add(value);
+		return true;
+	}
+
+	@Override
+	boolean appendText(String text){
+		if(text==null){
+			add(null);
+			return true;
+		}
+
+		BigDecimal value = parse(text);
+
+		if(value==null||value.scale()!=scale||!value.toPlainString().equals(text))
+			return false;
+
+		add(value);
+		return true;
+	}
+
+	private void add(BigDecimal value){
+		if(size==unscaled.length)
+			unscaled = Arrays.copyOf(unscaled, grownCapacity(unscaled.length, size + 1));
+
+		store(size, value);
+		size++;
+	}
+
+	//stores a value with the column's scale in a row
+	private void store(int row, BigDecimal value){
+		setNull(row, value==null);
+
+		if(large!=null)
+			large.remove(row);
+
+		if(value==null)
+			return;
+
+		BigInteger digits = value.unscaledValue();
+
+		if(digits.compareTo(MIN_LONG) >= 0&&digits.compareTo(MAX_LONG) <= 0){
+			unscaled[row] = digits.longValue();
+		}
+		else{
+			if(large==null)
+				large = new HashMap<Integer, BigDecimal>();
+			large.put(row, value);
+		}
+	}
+
+	@Override
+	String getText(int row){
+		BigDecimal value = getDecimal(row);
+		return value==null ? null : value.toPlainString();
+	}
+
+	@Override
+	Object getValue(int row){
+		return getDecimal(row);
+	}
+
+	BigDecimal getDecimal(int row){
+		if(isNull(row))
+			return null;
+
+		if(large!=null&&large.containsKey(row))
+			return large.get(row);
+
+		return BigDecimal.valueOf(unscaled[row], scale);
+	}
+
+	/*
+	 * This function stores an edited value.  Digits past the column's scale
+	 * are rounded half up, as MySQL rounds them.
+	 */
+	@Override
+	boolean setText(int row, String text){
+		if(text==null||text.trim().isEmpty()){
+			store(row, null);
+			return true;
+		}
+
+		BigDecimal value = parse(text.trim());
+
+		if(value==null)
+			return false;
+
+		store(row, value.setScale(scale, RoundingMode.HALF_UP));
+		return true;
+	}
+
+	@Override
+	long[] sortKeys(){
+		//values which do not fit in a long are compared as BigDecimals
+		if(large!=null&&!large.isEmpty())
+			return null;
+
+		return Arrays.copyOf(unscaled, size);
+	}
+
+	@Override
+	int compareValues(int a, int b){
+		if(large!=null&&(large.containsKey(a)||large.containsKey(b)))
+			return getDecimal(a).compareTo(getDecimal(b));
+
+		return Long.compare(unscaled[a], unscaled[b]);
+	}
+
+	private static BigDecimal parse(String text){
+		try{
+			return new BigDecimal(text);
+		}
+		catch(NumberFormatException ex){
+			return null;
+		}
+	}
+
+	@Override
+	long estimateBytes(){
+		long bytes = 16 + unscaled.length*8L + estimateNullBytes();
+
+		if(large!=null)
+			bytes += large.size()*128L;
+
+		return bytes;
+	}
+}
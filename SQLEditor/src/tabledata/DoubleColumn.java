@@ -0,0 +1,142 @@
+package tabledata;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+/*
+ * This column stores FLOAT and DOUBLE values in a double array.  Whole
+ * numbers are shown without a fraction, as MySQL shows them.  FLOAT values
+ * are read and edited as floats and shown with the digits of a float, since
+ * a float widened to a double, such as 0.1, shows digits it never had.
+ */
+class DoubleColumn extends Column {
+
+	private double[] values;
+
+	//true for FLOAT columns, which hold single precision values
+	private boolean single;
+
+	DoubleColumn(int capacity, boolean singlePrecision){
+		values = new double[Math.max(capacity, 16)];
+		single = singlePrecision;
+	}
+
+	@Override
+	boolean append(ResultSet rs, int index) throws SQLException{
+		double value = single ? rs.getFloat(index) : rs.getDouble(index);
+		add(value, rs.wasNull());
+		return true;
+	}
+
+	@Override
+	boolean appendText(String text){
+		if(text==null){
+			add(0, true);
+			return true;
+		}
+
+		Double value = parse(text);
+
+		if(value==null)
+			return false;
+
+		if(single)
+			value = (double)value.floatValue();
+
+		if(!format(value, single).equals(text))
+			return false;
+
+		add(value, false);
+		return true;
+	}
+
+	private void add(double value, boolean isNull){
+		if(size==values.length)
+			values = Arrays.copyOf(values, grownCapacity(values.length, size + 1));
+
+		values[size] = value;
+		setNull(size, isNull);
+		size++;
+	}
+
+	@Override
+	String getText(int row){
+		return isNull(row) ? null : format(values[row], single);
+	}
+
+	//Java formats some doubles differently from MySQL, such as exponents
+	@Override
+	boolean hasSqlText(){
+		return false;
+	}
+
+	@Override
+	Object getValue(int row){
+		if(isNull(row))
+			return null;
+
+		return single ? (Object)(float)values[row] : (Object)values[row];
+	}
+
+	double getDouble(int row){
+		return values[row];
+	}
+
+	@Override
+	boolean setText(int row, String text){
+		if(text==null||text.trim().isEmpty()){
+			setNull(row, true);
+			return true;
+		}
+
+		Double value = parse(text.trim());
+
+		if(value==null||value.isNaN()||value.isInfinite()
+				||(single&&Float.isInfinite(value.floatValue())))
+			return false;
+
+		values[row] = single ? value.floatValue() : value;
+		setNull(row, false);
+		return true;
+	}
+
+	@Override
+	long[] sortKeys(){
+		long[] keys = new long[size];
+
+		//flip the bits of negative values so that they order as longs
+		for(int row = 0; row < size; row++){
+			long bits = Double.doubleToLongBits(values[row]);
+			keys[row] = bits ^ ((bits >> 63) & Long.MAX_VALUE);
+		}
+
+		return keys;
+	}
+
+	@Override
+	int compareValues(int a, int b){
+		return Double.compare(values[a], values[b]);
+	}
+
+	static String format(double value, boolean singlePrecision){
+		if(value==Math.rint(value)&&Math.abs(value) < 1e15)
+			return Long.toString((long)value);
+
+		return singlePrecision ? Float.toString((float)value) : Double.toString(value);
+	}
+
+	private static Double parse(String text){
+		try{
+			return Double.parseDouble(text);
+		}
+		catch(NumberFormatException ex){
+			return null;
+		}
+	}
+
+	@Override
+	long estimateBytes(){
+		return 16 + values.length*8L + estimateNullBytes();
+	}
+}
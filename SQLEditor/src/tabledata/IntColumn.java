@@ -0,0 +1,111 @@
+package tabledata;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+/*
+ * This column stores integer values in an int array.  Text is only
+ * accepted if it is the exact form in which the value would be shown, so
+ * that every value reads back as it was written.
+ */
+class IntColumn extends Column {
+
+	private int[] values;
+
+	IntColumn(int capacity){
+		values = new int[Math.max(capacity, 16)];
+	}
+
+	@Override
+	boolean append(ResultSet rs, int index) throws SQLException{
+		int value = rs.getInt(index);
+		add(value, rs.wasNull());
+		return true;
+	}
+
+	@Override
+	boolean appendText(String text){
+		if(text==null){
+			add(0, true);
+			return true;
+		}
+
+		Integer value = parse(text);
+
+		if(value==null||!Integer.toString(value).equals(text))
+			return false;
+
+		add(value, false);
+		return true;
+	}
+
+	private void add(int value, boolean isNull){
+		if(size==values.length)
+			values = Arrays.copyOf(values, grownCapacity(values.length, size + 1));
+
+		values[size] = value;
+		setNull(size, isNull);
+		size++;
+	}
+
+	@Override
+	String getText(int row){
+		return isNull(row) ? null : Integer.toString(values[row]);
+	}
+
+	@Override
+	Object getValue(int row){
+		return isNull(row) ? null : values[row];
+	}
+
+	int getInt(int row){
+		return values[row];
+	}
+
+	@Override
+	boolean setText(int row, String text){
+		if(text==null||text.trim().isEmpty()){
+			setNull(row, true);
+			return true;
+		}
+
+		Integer value = parse(text.trim());
+
+		if(value==null)
+			return false;
+
+		values[row] = value;
+		setNull(row, false);
+		return true;
+	}
+
+	@Override
+	long[] sortKeys(){
+		long[] keys = new long[size];
+
+		for(int row = 0; row < size; row++)
+			keys[row] = values[row];
+
+		return keys;
+	}
+
+	@Override
+	int compareValues(int a, int b){
+		return Integer.compare(values[a], values[b]);
+	}
+
+	private static Integer parse(String text){
+		try{
+			return Integer.parseInt(text);
+		}
+		catch(NumberFormatException ex){
+			return null;
+		}
+	}
+
+	@Override
+	long estimateBytes(){
+		return 16 + values.length*4L + estimateNullBytes();
+	}
+}
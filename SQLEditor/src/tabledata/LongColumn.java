@@ -0,0 +1,106 @@
+package tabledata;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+/*
+ * This column stores integer values in a long array.  Text is only
+ * accepted if it is the exact form in which the value would be shown, so
+ * that every value reads back as it was written.
+ */
+class LongColumn extends Column {
+
+	private long[] values;
+
+	LongColumn(int capacity){
+		values = new long[Math.max(capacity, 16)];
+	}
+
+	@Override
+	boolean append(ResultSet rs, int index) throws SQLException{
+		long value = rs.getLong(index);
+		add(value, rs.wasNull());
+		return true;
+	}
+
+	@Override
+	boolean appendText(String text){
+		if(text==null){
+			add(0, true);
+			return true;
+		}
+
+		Long value = parse(text);
+
+		if(value==null||!Long.toString(value).equals(text))
+			return false;
+
+		add(value, false);
+		return true;
+	}
+
+	private void add(long value, boolean isNull){
+		if(size==values.length)
+			values = Arrays.copyOf(values, grownCapacity(values.length, size + 1));
+
+		values[size] = value;
+		setNull(size, isNull);
+		size++;
+	}
+
+	@Override
+	String getText(int row){
+		return isNull(row) ? null : Long.toString(values[row]);
+	}
+
+	@Override
+	Object getValue(int row){
+		return isNull(row) ? null : values[row];
+	}
+
+	long getLong(int row){
+		return values[row];
+	}
+
+	@Override
+	boolean setText(int row, String text){
+		if(text==null||text.trim().isEmpty()){
+			setNull(row, true);
+			return true;
+		}
+
+		Long value = parse(text.trim());
+
+		if(value==null)
+			return false;
+
+		values[row] = value;
+		setNull(row, false);
+		return true;
+	}
+
+	@Override
+	long[] sortKeys(){
+		return Arrays.copyOf(values, size);
+	}
+
+	@Override
+	int compareValues(int a, int b){
+		return Long.compare(values[a], values[b]);
+	}
+
+	private static Long parse(String text){
+		try{
+			return Long.parseLong(text);
+		}
+		catch(NumberFormatException ex){
+			return null;
+		}
+	}
+
+	@Override
+	long estimateBytes(){
+		return 16 + values.length*8L + estimateNullBytes();
+	}
+}
@@ -0,0 +1,138 @@
+package tabledata;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.stream.IntStream;
+
+/*
+ * This class indexes the text of a column's rows in sorted order, so that
+ * the rows whose text starts with a prefix are found with two binary
+ * searches instead of a scan.  Null rows are not indexed, since they never
+ * match.  When the column's collation ignores case, text is indexed and
+ * searched in lower case.  An edit moves the row's entry rather than
+ * rebuilding the index.
+ */
+class PrefixIndex {
+
+	//true if keys are folded to lower case
+	private boolean ignoreCase;
+
+	//text of the indexed rows in sorted order, and the row of each key
+	private String[] keys;
+	private int[] rows;
+
+	//number of indexed rows
+	private int count = 0;
+
+	//position of each row's key, or -1 if the row is null
+	private int[] positions;
+
+	PrefixIndex(Column column, boolean foldCase){
+		ignoreCase = foldCase;
+
+		int size = column.size();
+		String[] rowKeys = new String[size];
+
+		for(int row = 0; row < size; row++)
+			rowKeys[row] = fold(column.getText(row));
+
+		Integer[] sorted = IntStream.range(0, size).filter(row -> rowKeys[row]!=null)
+				.boxed().toArray(Integer[]::new);
+
+		Arrays.parallelSort(sorted, (a, b) -> rowKeys[a].compareTo(rowKeys[b]));
+
+		keys = new String[size];
+		rows = new int[size];
+		positions = new int[size];
+		Arrays.fill(positions, -1);
+
+		for(Integer row : sorted){
+			keys[count] = rowKeys[row];
+			rows[count] = row;
+			positions[row] = count++;
+		}
+	}
+
+	boolean ignoresCase(){
+		return ignoreCase;
+	}
+
+	/*
+	 * This function sets the bit of every row whose text starts with
+	 * "prefix" in a bitmap with one bit per row.
+	 */
+	void find(String prefix, long[] bitmap){
+		String p = fold(prefix);
+
+		int from = lowerBound(p);
+
+		//keys starting with the prefix follow it, so find the first which does not
+		int low = from;
+		int high = count;
+
+		while(low < high){
+			int middle = (low + high) >>> 1;
+
+			if(keys[middle].startsWith(p))
+				low = middle + 1;
+			else
+				high = middle;
+		}
+
+		for(int i = from; i < low; i++)
+			bitmap[rows[i] >>> 6] |= 1L << rows[i];
+	}
+
+	//moves an edited row's entry to the position of its new text
+	void update(int row, String text){
+		int position = positions[row];
+
+		if(position >= 0){
+			System.arraycopy(keys, position + 1, keys, position, count - position - 1);
+			System.arraycopy(rows, position + 1, rows, position, count - position - 1);
+			count--;
+
+			for(int i = position; i < count; i++)
+				positions[rows[i]] = i;
+
+			positions[row] = -1;
+		}
+
+		String key = fold(text);
+
+		if(key==null)
+			return;
+
+		position = lowerBound(key);
+
+		System.arraycopy(keys, position, keys, position + 1, count - position);
+		System.arraycopy(rows, position, rows, position + 1, count - position);
+		keys[position] = key;
+		rows[position] = row;
+		count++;
+
+		for(int i = position; i < count; i++)
+			positions[rows[i]] = i;
+	}
+
+	//returns the position of the first key not less than "key"
+	private int lowerBound(String key){
+		int low = 0;
+		int high = count;
+
+		while(low < high){
+			int middle = (low + high) >>> 1;
+
+			if(keys[middle].compareTo(key) < 0)
+				low = middle + 1;
+			else
+				high = middle;
+		}
+
+		return low;
+	}
+
+	private String fold(String text){
+		return text==null||!ignoreCase ? text : text.toLowerCase(Locale.ROOT);
+	}
+}
@@ -0,0 +1,136 @@
+package tabledata;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import javafx.collections.ObservableListBase;
+
+/*
+ * This list presents the rows of a ColumnarTable to a TableView.  It only
+ * holds the table row shown at each position, and creates a RowView when
+ * a position is read, so a loaded row costs one int here.  Rows can only
+ * be appended or reordered, and reordering, such as by a sort, is reported
+ * to listeners as a permutation.
+ */
+public class RowList extends ObservableListBase<RowView> {
+
+	//table the rows belong to, set by the first rows added
+	private ColumnarTable table;
+
+	//table row shown at each position
+	private int[] order = new int[16];
+
+	private int size = 0;
+
+	@Override
+	public RowView get(int index){
+		if(index < 0||index >= size)
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+
+		return new RowView(table, order[index]);
+	}
+
+	@Override
+	public int size(){
+		return size;
+	}
+
+	/*
+	 * This function appends table rows "from" up to but excluding "to" to
+	 * the end of the list.  It must be called on the JavaFX thread, and all
+	 * rows of the list must belong to the same table.
+	 */
+	public void addRows(ColumnarTable source, int from, int to){
+		if(table==null)
+			table = source;
+		else if(table!=source)
+			throw new IllegalArgumentException("Rows must belong to the list's table");
+
+		if(to <= from)
+			return;
+
+		if(size + to - from > order.length)
+			order = Arrays.copyOf(order, Math.max(size + to - from, order.length*2));
+
+		int start = size;
+
+		for(int row = from; row < to; row++)
+			order[size++] = row;
+
+		beginChange();
+		nextAdd(start, size);
+		endChange();
+	}
+
+	//appends the table rows in "rows" to the end of the list
+	public void addRows(ColumnarTable source, int[] rows){
+		if(table==null)
+			table = source;
+		else if(table!=source)
+			throw new IllegalArgumentException("Rows must belong to the list's table");
+
+		if(rows.length==0)
+			return;
+
+		if(size + rows.length > order.length)
+			order = Arrays.copyOf(order, Math.max(size + rows.length, order.length*2));
+
+		int start = size;
+
+		System.arraycopy(rows, 0, order, size, rows.length);
+		size += rows.length;
+
+		beginChange();
+		nextAdd(start, size);
+		endChange();
+	}
+
+	/*
+	 * This function reorders the list to the given rows, which must be the
+	 * rows already in the list.  It is used by TableView sorting.
+	 */
+	@Override
+	public boolean setAll(Collection<? extends RowView> rows){
+		int[] newOrder = new int[rows.size()];
+		int i = 0;
+
+		for(RowView row : rows)
+			newOrder[i++] = row.getRow();
+
+		return reorder(newOrder);
+	}
+
+	/*
+	 * This function replaces the order of the list's rows with "newOrder",
+	 * a permutation of the rows currently in the list.
+	 */
+	public boolean reorder(int[] newOrder){
+		if(newOrder.length!=size||table==null)
+			throw new IllegalArgumentException("New order must contain the list's rows");
+
+		//new position of each table row
+		int[] positions = new int[table.getRowCount()];
+		for(int i = 0; i < size; i++)
+			positions[newOrder[i]] = i;
+
+		int[] permutation = new int[size];
+		for(int i = 0; i < size; i++)
+			permutation[i] = positions[order[i]];
+
+		order = newOrder;
+
+		beginChange();
+		nextPermutation(0, size, permutation);
+		endChange();
+		return true;
+	}
+
+	//returns the table row shown at each position, which must not be modified
+	public int[] getOrder(){
+		return order;
+	}
+
+	public ColumnarTable getTable(){
+		return table;
+	}
+}
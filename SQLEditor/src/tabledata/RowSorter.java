@@ -0,0 +1,53 @@
+package tabledata;
+
+import java.util.Arrays;
+
+/*
+ * This class sorts rows of a ColumnarTable by one or more columns.  Each
+ * column's values are reduced once to int ranks, so the sort never
+ * compares or parses the values themselves.  Columns are sorted from the
+ * last to the first, each pass packing a row's rank and its position from
+ * the previous pass into a long and sorting the longs with a parallel
+ * sort.  Since equal ranks keep their previous order, every pass is
+ * stable, and the result is a stable multi-column sort.
+ */
+public class RowSorter {
+
+	/*
+	 * This function returns the rows of "order" sorted by the given columns,
+	 * with rows which are equal in every column left in their current order.
+	 * Nulls come first in ascending order and last in descending order.
+	 */
+	public static int[] sort(ColumnarTable table, int[] order, int[] columns, boolean[] descending){
+		int[] current = order.clone();
+		long[] packed = new long[current.length];
+
+		for(int k = columns.length - 1; k >= 0; k--){
+			int[] ranks = table.getRanks(columns[k]);
+			int maxRank = 0;
+
+			if(descending[k]){
+				for(int rank : ranks)
+					maxRank = Math.max(maxRank, rank);
+			}
+
+			for(int position = 0; position < current.length; position++){
+				int rank = ranks[current[position]];
+				if(descending[k])
+					rank = maxRank - rank;
+
+				packed[position] = ((long)rank << 32) | position;
+			}
+
+			Arrays.parallelSort(packed);
+
+			int[] next = new int[current.length];
+			for(int i = 0; i < next.length; i++)
+				next[i] = current[(int)packed[i]];
+
+			current = next;
+		}
+
+		return current;
+	}
+}
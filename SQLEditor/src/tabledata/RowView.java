@@ -0,0 +1,64 @@
+package tabledata;
+
+/*
+ * This class presents one row of a ColumnarTable to a TableView.  It only
+ * holds the table and the row's index, and reads and writes the table's
+ * columns directly, so views can be created whenever a row is read.
+ */
+public class RowView {
+
+	private final ColumnarTable table;
+
+	private final int row;
+
+	RowView(ColumnarTable columnarTable, int rowIndex){
+		table = columnarTable;
+		row = rowIndex;
+	}
+
+	//returns the value of a column as text, or null if it is null
+	public String get(int column){
+		return table.getText(row, column);
+	}
+
+	//returns the typed value of a column, as used to bind it to a statement
+	public Object getValue(int column){
+		return table.getValue(row, column);
+	}
+
+	//replaces a column's value, returning false if it is not a value of the column's type
+	public boolean set(int column, String value){
+		return table.setText(row, column, value);
+	}
+
+	public boolean isNull(int column){
+		return table.isNull(row, column);
+	}
+
+	public int size(){
+		return table.getColumnCount();
+	}
+
+	public ColumnarTable getTable(){
+		return table;
+	}
+
+	public int getRow(){
+		return row;
+	}
+
+	//views of the same row are equal, since views are created as rows are read
+	@Override
+	public boolean equals(Object other){
+		if(!(other instanceof RowView))
+			return false;
+
+		RowView view = (RowView)other;
+		return view.table==table&&view.row==row;
+	}
+
+	@Override
+	public int hashCode(){
+		return System.identityHashCode(table)*31 + row;
+	}
+}
@@ -0,0 +1,204 @@
+package tabledata;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/*
+ * This column stores text.  While the column has few distinct values,
+ * each row only holds a 16 bit code into a dictionary of the distinct
+ * values, so repeated values are stored once.  Once the dictionary grows
+ * past MAX_DICTIONARY_SIZE the text of every row is packed into a BytePool
+ * as UTF-8 instead of a String object per row.
+ */
+class StringColumn extends Column {
+
+	//largest number of distinct values which are dictionary encoded
+	static final int MAX_DICTIONARY_SIZE = 4096;
+
+	//dictionary codes of each row, null once the text is packed
+	private char[] codes;
+
+	//distinct values and their codes
+	private String[] dictionary = new String[16];
+	private int dictionarySize = 0;
+	private HashMap<String, Integer> dictionaryCodes = new HashMap<String, Integer>();
+
+	//UTF-8 text of every row, used once the dictionary is abandoned
+	private BytePool pool;
+
+	StringColumn(int capacity){
+		codes = new char[Math.max(capacity, 16)];
+	}
+
+	//returns a StringColumn holding the text of every row of another column
+	static StringColumn copyOf(Column column){
+		StringColumn copy = new StringColumn(column.size());
+
+		for(int row = 0; row < column.size(); row++)
+			copy.appendText(column.getText(row));
+
+		return copy;
+	}
+
+	@Override
+	boolean append(ResultSet rs, int index) throws SQLException{
+		return appendText(rs.getString(index));
+	}
+
+	@Override
+	boolean appendText(String text){
+		if(codes!=null){
+			int code = text==null ? 0 : encode(text);
+
+			if(code >= 0){
+				if(size==codes.length)
+					codes = Arrays.copyOf(codes, grownCapacity(codes.length, size + 1));
+
+				codes[size] = (char)code;
+				setNull(size, text==null);
+				size++;
+				return true;
+			}
+
+			abandonDictionary();
+		}
+
+		pool.add(encodeUTF8(text));
+		setNull(size, text==null);
+		size++;
+		return true;
+	}
+
+	@Override
+	String getText(int row){
+		if(isNull(row))
+			return null;
+
+		if(codes!=null)
+			return dictionary[codes[row]];
+
+		if(!pool.isPacked(row))
+			return new String(pool.get(row), StandardCharsets.UTF_8);
+
+		return new String(pool.getPool(), pool.start(row), pool.length(row), StandardCharsets.UTF_8);
+	}
+
+	@Override
+	Object getValue(int row){
+		return getText(row);
+	}
+
+	@Override
+	boolean setText(int row, String text){
+		if(codes!=null){
+			int code = text==null ? 0 : encode(text);
+
+			if(code >= 0){
+				codes[row] = (char)code;
+				setNull(row, text==null);
+				return true;
+			}
+
+			abandonDictionary();
+		}
+
+		pool.set(row, encodeUTF8(text));
+		setNull(row, text==null);
+		return true;
+	}
+
+	//dictionary encoded rows are keyed by the order of their dictionary values
+	@Override
+	long[] sortKeys(){
+		if(codes==null)
+			return null;
+
+		Integer[] sorted = new Integer[dictionarySize];
+		for(int i = 0; i < dictionarySize; i++)
+			sorted[i] = i;
+
+		Arrays.sort(sorted, (a, b) -> dictionary[a].compareTo(dictionary[b]));
+
+		long[] codeRanks = new long[dictionarySize];
+		for(int i = 0; i < dictionarySize; i++)
+			codeRanks[sorted[i]] = i;
+
+		long[] keys = new long[size];
+		for(int row = 0; row < size; row++)
+			keys[row] = isNull(row) ? 0 : codeRanks[codes[row]];
+
+		return keys;
+	}
+
+	/*
+	 * This function compares the text of two rows.  Packed rows are compared
+	 * by their UTF-8 bytes, which orders them by code point without creating
+	 * strings.
+	 */
+	@Override
+	int compareValues(int a, int b){
+		if(codes!=null)
+			return dictionary[codes[a]].compareTo(dictionary[codes[b]]);
+
+		return pool.compare(a, b);
+	}
+
+	//returns the dictionary code of text, adding it if needed, or -1 if the dictionary is full
+	private int encode(String text){
+		Integer code = dictionaryCodes.get(text);
+
+		if(code!=null)
+			return code;
+
+		if(dictionarySize==MAX_DICTIONARY_SIZE)
+			return -1;
+
+		if(dictionarySize==dictionary.length)
+			dictionary = Arrays.copyOf(dictionary, dictionary.length*2);
+
+		dictionary[dictionarySize] = text;
+		dictionaryCodes.put(text, dictionarySize);
+		return dictionarySize++;
+	}
+
+	//packs the text of the rows read so far and stops using the dictionary
+	private void abandonDictionary(){
+		pool = new BytePool(codes.length, size*16);
+
+		for(int row = 0; row < size; row++)
+			pool.add(isNull(row) ? null : encodeUTF8(dictionary[codes[row]]));
+
+		codes = null;
+		dictionary = null;
+		dictionaryCodes = null;
+	}
+
+	private static byte[] encodeUTF8(String text){
+		return text==null ? null : text.getBytes(StandardCharsets.UTF_8);
+	}
+
+	//returns true if rows are stored as dictionary codes
+	boolean isDictionaryEncoded(){
+		return codes!=null;
+	}
+
+	@Override
+	long estimateBytes(){
+		long bytes = estimateNullBytes();
+
+		if(codes!=null){
+			bytes += 16 + codes.length*2L + 16 + dictionary.length*4L
+					+ dictionarySize*48L;
+			for(int i = 0; i < dictionarySize; i++)
+				bytes += 40 + dictionary[i].length()*2L;
+		}
+		else{
+			bytes += pool.estimateBytes();
+		}
+
+		return bytes;
+	}
+}
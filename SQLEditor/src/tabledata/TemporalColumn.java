@@ -0,0 +1,206 @@
+package tabledata;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+/*
+ * This column stores DATE, DATETIME, TIMESTAMP and TIME values as longs
+ * which order the same way as the values.  Values are read as the text
+ * MySQL sends, rather than as java.sql dates, so that zero dates and
+ * TIME values outside a day are kept as MySQL shows them.  The number of
+ * fractional second digits is taken from the values read.
+ */
+class TemporalColumn extends Column {
+
+	enum Kind { DATE, DATETIME, TIME }
+
+	private Kind kind;
+
+	private long[] values;
+
+	//digits after the seconds, the column's fractional seconds precision
+	private int fractionDigits = 0;
+
+	TemporalColumn(int capacity, Kind columnKind){
+		values = new long[Math.max(capacity, 16)];
+		kind = columnKind;
+	}
+
+	@Override
+	boolean append(ResultSet rs, int index) throws SQLException{
+		return appendText(rs.getString(index));
+	}
+
+	@Override
+	boolean appendText(String text){
+		long value = 0;
+
+		if(text!=null){
+			Long parsed = parse(text, true);
+
+			if(parsed==null)
+				return false;
+
+			value = parsed;
+		}
+
+		if(size==values.length)
+			values = Arrays.copyOf(values, grownCapacity(values.length, size + 1));
+
+		values[size] = value;
+		setNull(size, text==null);
+		size++;
+		return true;
+	}
+
+	@Override
+	String getText(int row){
+		return isNull(row) ? null : format(values[row]);
+	}
+
+	//temporal values are bound as text, which MySQL converts to the column's type
+	@Override
+	Object getValue(int row){
+		return getText(row);
+	}
+
+	@Override
+	boolean setText(int row, String text){
+		if(text==null||text.trim().isEmpty()){
+			setNull(row, true);
+			return true;
+		}
+
+		Long value = parse(text.trim(), false);
+
+		if(value==null)
+			return false;
+
+		values[row] = value;
+		setNull(row, false);
+		return true;
+	}
+
+	@Override
+	long[] sortKeys(){
+		return Arrays.copyOf(values, size);
+	}
+
+	@Override
+	int compareValues(int a, int b){
+		return Long.compare(values[a], values[b]);
+	}
+
+	/*
+	 * This function converts text to the column's long form, returning null
+	 * if it is not a value of the column's kind.  Values read from MySQL may
+	 * widen the fractional seconds shown, while edits with more digits than
+	 * the column has are rejected.
+	 */
+	private Long parse(String text, boolean read){
+		boolean negative = kind==Kind.TIME&&text.startsWith("-");
+		String[] parts = (negative ? text.substring(1) : text).split("[-: .]");
+
+		int fields = kind==Kind.DATE ? 3 : (kind==Kind.TIME ? 3 : 6);
+		String fraction = "";
+
+		if(parts.length==fields + 1&&kind!=Kind.DATE)
+			fraction = parts[fields];
+		else if(parts.length!=fields)
+			return null;
+
+		long[] numbers = new long[fields];
+
+		try{
+			for(int i = 0; i < fields; i++){
+				if(parts[i].isEmpty()||parts[i].length() > 4)
+					return null;
+				numbers[i] = Long.parseLong(parts[i]);
+			}
+
+			if(fraction.length() > 6||(!read&&fraction.length() > fractionDigits))
+				return null;
+
+			if(read)
+				fractionDigits = Math.max(fractionDigits, fraction.length());
+
+			long micros = fraction.isEmpty() ? 0 : Long.parseLong((fraction + "00000").substring(0, 6));
+
+			switch(kind){
+				case DATE:
+					if(numbers[1] > 12||numbers[2] > 31)
+						return null;
+					return (numbers[0]*13 + numbers[1])*32 + numbers[2];
+				case DATETIME:
+					if(numbers[1] > 12||numbers[2] > 31||numbers[3] > 23||numbers[4] > 59||numbers[5] > 59)
+						return null;
+					long date = (numbers[0]*13 + numbers[1])*32 + numbers[2];
+					return ((date*24 + numbers[3])*3600 + numbers[4]*60 + numbers[5])*1000000 + micros;
+				default:
+					if(numbers[1] > 59||numbers[2] > 59)
+						return null;
+					long time = (numbers[0]*3600 + numbers[1]*60 + numbers[2])*1000000 + micros;
+					return negative ? -time : time;
+			}
+		}
+		catch(NumberFormatException ex){
+			return null;
+		}
+	}
+
+	private String format(long value){
+		StringBuilder text = new StringBuilder();
+
+		if(kind==Kind.DATE){
+			appendDate(text, value);
+			return text.toString();
+		}
+
+		if(value < 0){
+			text.append('-');
+			value = -value;
+		}
+
+		long micros = value%1000000;
+		long seconds = value/1000000;
+
+		if(kind==Kind.DATETIME){
+			appendDate(text, seconds/86400);
+			text.append(' ');
+			seconds %= 86400;
+		}
+
+		pad(text, seconds/3600, 2).append(':');
+		pad(text, seconds/60%60, 2).append(':');
+		pad(text, seconds%60, 2);
+
+		if(fractionDigits > 0){
+			text.append('.');
+			String digits = Long.toString(1000000 + micros).substring(1);
+			text.append(digits, 0, fractionDigits);
+		}
+
+		return text.toString();
+	}
+
+	private static void appendDate(StringBuilder text, long date){
+		pad(text, date/32/13, 4).append('-');
+		pad(text, date/32%13, 2).append('-');
+		pad(text, date%32, 2);
+	}
+
+	private static StringBuilder pad(StringBuilder text, long number, int digits){
+		String s = Long.toString(number);
+
+		for(int i = s.length(); i < digits; i++)
+			text.append('0');
+
+		return text.append(s);
+	}
+
+	@Override
+	long estimateBytes(){
+		return 16 + values.length*8L + estimateNullBytes();
+	}
+}